@@ -0,0 +1,71 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.LMProfile;
+import com.graphhopper.routing.weighting.custom.CustomProfile;
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.Random;
+
+/**
+ * Creates the graph that is used by the benchmarks. The OSM file is imported once and the graph is stored, so later
+ * benchmark runs (and forks) only load it. Use -Dbenchmark.osm_file and -Dbenchmark.graph_location to benchmark
+ * another area.
+ */
+public final class BenchmarkGraphs {
+    public static final String PROFILE = "car";
+    private static final String OSM_FILE = System.getProperty("benchmark.osm_file", "core/files/andorra.osm.pbf");
+    private static final String GRAPH_LOCATION = System.getProperty("benchmark.graph_location", "benchmark-jmh/target/benchmark-gh");
+
+    private BenchmarkGraphs() {
+    }
+
+    /**
+     * @return a GraphHopper instance with CH and LM preparations for the {@link #PROFILE} profile
+     */
+    public static GraphHopper loadGraphHopper(boolean adjacencyIndex) {
+        GraphHopper hopper = new GraphHopper();
+        hopper.setOSMFile(OSM_FILE);
+        hopper.setGraphHopperLocation(GRAPH_LOCATION);
+        hopper.setEncodedValuesString("road_class,road_environment,max_speed,surface");
+        hopper.setProfiles(new CustomProfile(PROFILE).setCustomModel(new CustomModel()).setVehicle("car"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(PROFILE));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(PROFILE));
+        hopper.setAdjacencyIndex(adjacencyIndex);
+        hopper.importOrLoad();
+        return hopper;
+    }
+
+    /**
+     * @return random points within the bounds of the graph, always the same points for the same seed
+     */
+    public static GHPoint[] createRandomPoints(GraphHopper hopper, int count, long seed) {
+        BBox bounds = hopper.getBaseGraph().getBounds();
+        Random rnd = new Random(seed);
+        GHPoint[] points = new GHPoint[count];
+        for (int i = 0; i < count; i++)
+            points[i] = new GHPoint(bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat),
+                    bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon));
+        return points;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.CustomWeighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.PMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculates the {@link CustomWeighting#calcEdgeWeight} of all edges in both directions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CustomWeightingBenchmark {
+    private GraphHopper hopper;
+    private Weighting weighting;
+    private EdgeIteratorState[] edges;
+
+    @Setup
+    public void setup() {
+        hopper = BenchmarkGraphs.loadGraphHopper(false);
+        weighting = hopper.createWeighting(hopper.getProfile(BenchmarkGraphs.PROFILE), new PMap());
+        BaseGraph graph = hopper.getBaseGraph();
+        edges = new EdgeIteratorState[graph.getEdges()];
+        for (int edge = 0; edge < edges.length; edge++)
+            edges[edge] = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        hopper.close();
+    }
+
+    @Benchmark
+    public double calcEdgeWeight() {
+        double sum = 0;
+        for (EdgeIteratorState edge : edges) {
+            double fwd = weighting.calcEdgeWeight(edge, false);
+            double bwd = weighting.calcEdgeWeight(edge, true);
+            // infinite weights would make the result meaningless, but they need to be calculated all the same
+            if (Double.isFinite(fwd))
+                sum += fwd;
+            if (Double.isFinite(bwd))
+                sum += bwd;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes ints from the different {@link DataAccess} implementations, sequentially and at random positions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DataAccessBenchmark {
+    // 64MB
+    private static final int INTS = 1 << 24;
+    private static final int READS = 1 << 16;
+
+    @Param({"RAM", "RAM_INT", "MMAP"})
+    String type;
+
+    private final String location = "benchmark-jmh/target/benchmark-da";
+    private Directory dir;
+    private DataAccess da;
+    private long[] randomPointers;
+
+    @Setup
+    public void setup() {
+        DAType daType = type.equals("RAM_INT") ? DAType.RAM_INT : DAType.fromString(type);
+        dir = new GHDirectory(location, daType).create();
+        da = dir.create("ints", daType).create(1 << 20);
+        da.ensureCapacity(4L * INTS);
+        for (int i = 0; i < INTS; i++)
+            da.setInt(4L * i, i);
+        Random rnd = new Random(123);
+        randomPointers = new long[READS];
+        for (int i = 0; i < READS; i++)
+            randomPointers[i] = 4L * rnd.nextInt(INTS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dir.close();
+        Helper.removeDir(new File(location));
+    }
+
+    @Benchmark
+    public long sequentialGetInt() {
+        long sum = 0;
+        for (int i = 0; i < READS; i++)
+            sum += da.getInt(4L * i);
+        return sum;
+    }
+
+    @Benchmark
+    public long randomGetInt() {
+        long sum = 0;
+        for (long pointer : randomPointers)
+            sum += da.getInt(pointer);
+        return sum;
+    }
+
+    @Benchmark
+    public void randomSetInt() {
+        for (int i = 0; i < READS; i++)
+            da.setInt(randomPointers[i], i);
+    }
+}
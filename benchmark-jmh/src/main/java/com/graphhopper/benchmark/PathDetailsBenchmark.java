@@ -0,0 +1,88 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.details.PathDetailsBuilderFactory;
+import com.graphhopper.util.details.PathDetailsFromEdges;
+import com.graphhopper.util.shapes.GHPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculates the path details of a few precalculated paths with {@link PathDetailsFromEdges}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PathDetailsBenchmark {
+    private static final List<String> DETAILS = Arrays.asList("street_name", "road_class", "max_speed", "average_speed", "time", "distance", "edge_id");
+    private GraphHopper hopper;
+    private Weighting weighting;
+    private BaseGraph graph;
+    private final PathDetailsBuilderFactory factory = new PathDetailsBuilderFactory();
+    private final List<Path> paths = new ArrayList<>();
+    private int index;
+
+    @Setup
+    public void setup() {
+        hopper = BenchmarkGraphs.loadGraphHopper(false);
+        graph = hopper.getBaseGraph();
+        weighting = hopper.createWeighting(hopper.getProfile(BenchmarkGraphs.PROFILE), new PMap());
+        GHPoint[] points = BenchmarkGraphs.createRandomPoints(hopper, 200, 456);
+        for (int i = 0; i + 1 < points.length && paths.size() < 32; i += 2) {
+            Snap from = hopper.getLocationIndex().findClosest(points[i].lat, points[i].lon, EdgeFilter.ALL_EDGES);
+            Snap to = hopper.getLocationIndex().findClosest(points[i + 1].lat, points[i + 1].lon, EdgeFilter.ALL_EDGES);
+            if (!from.isValid() || !to.isValid())
+                continue;
+            Path path = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from.getClosestNode(), to.getClosestNode());
+            if (path.isFound() && path.getEdgeCount() > 10)
+                paths.add(path);
+        }
+        if (paths.isEmpty())
+            throw new IllegalStateException("Could not find any paths for the benchmark");
+    }
+
+    @TearDown
+    public void tearDown() {
+        hopper.close();
+    }
+
+    @Benchmark
+    public Map<String, List<PathDetail>> calcDetails() {
+        Path path = paths.get(index++ % paths.size());
+        return PathDetailsFromEdges.calcDetails(path, hopper.getEncodingManager(), weighting, DETAILS, factory, 0, graph);
+    }
+}
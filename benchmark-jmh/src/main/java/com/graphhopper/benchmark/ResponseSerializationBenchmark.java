@@ -0,0 +1,72 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.util.shapes.GHPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes precalculated route responses to JSON with {@link ResponsePathSerializer}, like the /route endpoint does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ResponseSerializationBenchmark {
+    @Param({"true", "false"})
+    boolean pointsEncoded;
+
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+    private final List<GHResponse> responses = new ArrayList<>();
+    private int index;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraphs.loadGraphHopper(false);
+        GHPoint[] points = BenchmarkGraphs.createRandomPoints(hopper, 200, 789);
+        for (int i = 0; i + 1 < points.length && responses.size() < 32; i += 2) {
+            GHResponse rsp = hopper.route(new GHRequest(points[i], points[i + 1]).setProfile(BenchmarkGraphs.PROFILE).
+                    setPathDetails(Arrays.asList("street_name", "road_class", "max_speed", "time", "distance")));
+            if (!rsp.hasErrors())
+                responses.add(rsp);
+        }
+        hopper.close();
+        if (responses.isEmpty())
+            throw new IllegalStateException("Could not find any routes for the benchmark");
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        GHResponse rsp = responses.get(index++ % responses.size());
+        return objectMapper.writeValueAsBytes(ResponsePathSerializer.jsonObject(rsp, true, true, false, pointsEncoded, 0));
+    }
+}
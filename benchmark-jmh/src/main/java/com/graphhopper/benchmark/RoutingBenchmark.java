@@ -0,0 +1,70 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.shapes.GHPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculates routes between random points with CH, LM and without speed-up technique ('flex'). Instructions and
+ * points are disabled, so this mostly measures the snapping and the route search.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RoutingBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"ch", "lm", "flex"})
+    String mode;
+
+    private GraphHopper hopper;
+    private GHPoint[] points;
+    private int index;
+
+    @Setup
+    public void setup() {
+        hopper = BenchmarkGraphs.loadGraphHopper(false);
+        points = BenchmarkGraphs.createRandomPoints(hopper, 2 * QUERIES, 42);
+    }
+
+    @TearDown
+    public void tearDown() {
+        hopper.close();
+    }
+
+    @Benchmark
+    public GHResponse route() {
+        int i = 2 * (index++ & (QUERIES - 1));
+        GHRequest req = new GHRequest(points[i], points[i + 1]).setProfile(BenchmarkGraphs.PROFILE);
+        req.putHint(Parameters.CH.DISABLE, !mode.equals("ch"));
+        req.putHint(Parameters.Landmark.DISABLE, !mode.equals("lm"));
+        req.putHint(Parameters.Routing.INSTRUCTIONS, false);
+        req.putHint(Parameters.Routing.CALC_POINTS, false);
+        return hopper.route(req);
+    }
+}
@@ -32,6 +32,8 @@ import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.shapes.GHPoint;
+import com.graphhopper.protobuf.ResponsePathProtobuf;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
@@ -67,6 +69,7 @@ public class GraphHopperWeb {
     private boolean elevation = false;
     private String optimize = "false";
     private boolean postRequest = true;
+    private boolean protobuf = false;
     private int maxUnzippedLength = 1000;
     private final Set<String> ignoreSet;
     private final Set<String> ignoreSetForPost;
@@ -148,6 +151,15 @@ public class GraphHopperWeb {
         return this;
     }
 
+    /**
+     * Request the binary protocol buffers response instead of JSON, which is smaller and faster to parse.
+     * The server has to support it, older servers just return JSON. The default is false.
+     */
+    public GraphHopperWeb setProtobuf(boolean protobuf) {
+        this.protobuf = protobuf;
+        return this;
+    }
+
     /**
      * Enable or disable calculating points for the way. The default is true.
      */
@@ -195,7 +207,14 @@ public class GraphHopperWeb {
             ghRequest.getHints().remove("turn_description"); // do not include in request
 
             Request okRequest = postRequest ? createPostRequest(ghRequest) : createGetRequest(ghRequest);
+            if (protobuf)
+                // errors are still returned as JSON
+                okRequest = okRequest.newBuilder().header("Accept", ResponsePathProtobuf.MEDIA_TYPE + ", application/json;q=0.9").build();
             rspBody = getClientForRequest(ghRequest).newCall(okRequest).execute().body();
+            MediaType contentType = rspBody.contentType();
+            if (contentType != null && ResponsePathProtobuf.MEDIA_TYPE.equals(contentType.type() + "/" + contentType.subtype()))
+                return ResponsePathProtobuf.read(rspBody.bytes(), tmpTurnDescription);
+
             JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
 
             GHResponse res = new GHResponse();
@@ -27,6 +27,7 @@ import com.graphhopper.reader.osm.OSMReader;
 import com.graphhopper.reader.osm.RestrictionTagParser;
 import com.graphhopper.reader.osm.conditional.DateRangeParser;
 import com.graphhopper.routing.*;
+import com.graphhopper.routing.ch.CHCustomizer;
 import com.graphhopper.routing.ch.CHPreparationHandler;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.ev.*;
@@ -39,6 +40,7 @@ import com.graphhopper.routing.subnetwork.PrepareRoutingSubnetworks.PrepareJob;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.util.countryrules.CountryRuleFactory;
 import com.graphhopper.routing.util.parsers.*;
+import com.graphhopper.routing.weighting.TrafficOverlay;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
@@ -96,6 +98,8 @@ public class GraphHopper {
     private DAType dataAccessDefaultType = DAType.RAM_STORE;
     private final LinkedHashMap<String, String> dataAccessConfig = new LinkedHashMap<>();
     private boolean sortGraph = false;
+    private NodeOrdering.Order nodeOrder;
+    private boolean adjacencyIndex = false;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
@@ -103,10 +107,13 @@ public class GraphHopper {
     private final OSMReaderConfig osmReaderConfig = new OSMReaderConfig();
     // for routing
     private final RouterConfig routerConfig = new RouterConfig();
+    private SearchStatePool searchStatePool;
+    private RouterMetrics routerMetrics = RouterMetrics.NOOP;
     // for index
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
+    private int indexBatchThreads = 1;
     // subnetworks
     private int minNetworkSize = 200;
     private int subnetworksThreads = 1;
@@ -120,7 +127,11 @@ public class GraphHopper {
     // preparation handlers
     private final LMPreparationHandler lmPreparationHandler = new LMPreparationHandler();
     private final CHPreparationHandler chPreparationHandler = new CHPreparationHandler();
-    private Map<String, RoutingCHGraph> chGraphs = Collections.emptyMap();
+    // replaced as a whole when a CH graph is customized, so running requests keep using the previous graphs
+    private volatile Map<String, RoutingCHGraph> chGraphs = Collections.emptyMap();
+    private final Map<String, CHCustomizer> chCustomizers = new HashMap<>();
+    private final List<RoutingCHGraph> customizedCHGraphs = new ArrayList<>();
+    private TrafficOverlay trafficOverlay;
     private Map<String, LandmarkStorage> landmarks = Collections.emptyMap();
 
     // for data reader
@@ -371,6 +382,72 @@ public class GraphHopper {
         return chGraphs;
     }
 
+    /**
+     * Recalculates the shortcut weights of the CH graph of the given profile, e.g. after the speeds of some edges
+     * changed. This requires a CH that was prepared with {@link com.graphhopper.routing.ch.CHParameters#CUSTOMIZABLE}.
+     * The shortcut weights are written into an in-memory copy of the CH graph, so requests that are already running
+     * are not affected and new requests use the customized graph once it is ready.
+     */
+    public synchronized void customizeCH(String profileName) {
+        RoutingCHGraph chGraph = chGraphs.get(profileName);
+        if (chGraph == null)
+            throw new IllegalArgumentException("There is no CH graph for profile '" + profileName + "', available: " + chGraphs.keySet());
+        CHCustomizer customizer = chCustomizers.get(profileName);
+        if (customizer == null) {
+            customizer = new CHCustomizer(baseGraph, ((RoutingCHGraphImpl) chGraph).getCHStorage())
+                    .setThreads(chPreparationHandler.getCustomizationThreads());
+            chCustomizers.put(profileName, customizer);
+            // the copies are garbage collected once they are no longer used, but the original graph needs to be closed
+            customizedCHGraphs.add(chGraph);
+        }
+        // a new weighting uses the current speed factors of the traffic overlay
+        Weighting weighting = createWeighting(profilesByName.get(profileName), new PMap());
+        CHStorage copy = customizer.copyStorage(new RAMDirectory(), profileName, baseGraph.getSegmentSize());
+        customizer.customize(weighting, copy);
+        Map<String, RoutingCHGraph> newCHGraphs = new LinkedHashMap<>(chGraphs);
+        newCHGraphs.put(profileName, new RoutingCHGraphImpl(baseGraph, copy, weighting));
+        chGraphs = newCHGraphs;
+    }
+
+    /**
+     * Customizes the CH graphs of all profiles that were prepared with
+     * {@link com.graphhopper.routing.ch.CHParameters#CUSTOMIZABLE}, see {@link #customizeCH(String)}
+     *
+     * @return the names of the customized profiles
+     */
+    public synchronized List<String> customizeAllCH() {
+        List<String> profileNames = new ArrayList<>();
+        for (Map.Entry<String, RoutingCHGraph> e : chGraphs.entrySet())
+            if (((RoutingCHGraphImpl) e.getValue()).getCHStorage().isCustomizable())
+                profileNames.add(e.getKey());
+        profileNames.forEach(this::customizeCH);
+        return profileNames;
+    }
+
+    /**
+     * @return the names of the CH profiles that were not prepared with
+     * {@link com.graphhopper.routing.ch.CHParameters#CUSTOMIZABLE}. Their shortcuts cannot be updated, so the routes
+     * of these profiles ignore the {@link #getTrafficOverlay() traffic overlay} unless CH is disabled for the request.
+     */
+    public List<String> getCHProfilesIgnoringTrafficOverlay() {
+        List<String> profileNames = new ArrayList<>();
+        for (Map.Entry<String, RoutingCHGraph> e : chGraphs.entrySet())
+            if (!((RoutingCHGraphImpl) e.getValue()).getCHStorage().isCustomizable())
+                profileNames.add(e.getKey());
+        return profileNames;
+    }
+
+    /**
+     * @return the speed factors that are applied to the custom weightings without a new import, e.g. for traffic
+     * updates. They are used for all new requests, except for CH graphs that were not customized after the update,
+     * see {@link #getCHProfilesIgnoringTrafficOverlay()}.
+     */
+    public TrafficOverlay getTrafficOverlay() {
+        if (trafficOverlay == null)
+            throw new IllegalStateException("Do a successful call to load or importOrLoad before using the traffic overlay");
+        return trafficOverlay;
+    }
+
     /**
      * @return a mapping between profile names and according landmark preparations. The map will be empty before loading
      * or import.
@@ -404,6 +481,27 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Renumbers the nodes after the import in the given order to improve the memory locality of the graph. Unlike
+     * {@link #setSortGraph(boolean)} this works in place and is also possible with turn costs. Null means the nodes
+     * are not renumbered.
+     */
+    public GraphHopper setNodeOrder(NodeOrdering.Order nodeOrder) {
+        ensureNotLoaded();
+        this.nodeOrder = nodeOrder;
+        return this;
+    }
+
+    /**
+     * Creates a compact read-only copy of the adjacency lists when the graph is frozen or loaded, which speeds up
+     * the graph explorations at the cost of 8 bytes of additional heap memory per edge.
+     */
+    public GraphHopper setAdjacencyIndex(boolean adjacencyIndex) {
+        ensureNotLoaded();
+        this.adjacencyIndex = adjacencyIndex;
+        return this;
+    }
+
     public boolean isAllowWrites() {
         return allowWrites;
     }
@@ -526,6 +624,10 @@ public class GraphHopper {
             maxSpeedCalculator = new MaxSpeedCalculator(MaxSpeedCalculator.createLegalDefaultSpeeds());
 
         sortGraph = ghConfig.getBool("graph.do_sort", sortGraph);
+        String nodeOrderStr = ghConfig.getString("graph.node_order", "");
+        if (!nodeOrderStr.isEmpty())
+            nodeOrder = NodeOrdering.Order.fromString(nodeOrderStr);
+        adjacencyIndex = ghConfig.getBool("graph.adjacency_index", adjacencyIndex);
         removeZipped = ghConfig.getBool("graph.remove_zipped", removeZipped);
 
         if (!ghConfig.getString("spatial_rules.location", "").isEmpty())
@@ -592,10 +694,13 @@ public class GraphHopper {
         osmReaderConfig.setPreferredLanguage(ghConfig.getString("datareader.preferred_language", osmReaderConfig.getPreferredLanguage()));
         osmReaderConfig.setMaxWayPointDistance(ghConfig.getDouble(Routing.INIT_WAY_POINT_MAX_DISTANCE, osmReaderConfig.getMaxWayPointDistance()));
         osmReaderConfig.setWorkerThreads(ghConfig.getInt("datareader.worker_threads", osmReaderConfig.getWorkerThreads()));
+        osmReaderConfig.setParseThreads(ghConfig.getInt("datareader.parse_threads", osmReaderConfig.getParseThreads()));
+        osmReaderConfig.setNodeIdMap(OSMReaderConfig.NodeIdMap.fromString(ghConfig.getString("datareader.node_id_map", osmReaderConfig.getNodeIdMap().name())));
 
         // index
         preciseIndexResolution = ghConfig.getInt("index.high_resolution", preciseIndexResolution);
         maxRegionSearch = ghConfig.getInt("index.max_region_search", maxRegionSearch);
+        indexBatchThreads = ghConfig.getInt("index.batch_threads", indexBatchThreads);
 
         // urban density calculation
         residentialAreaRadius = ghConfig.getDouble("graph.urban_density.residential_radius", residentialAreaRadius);
@@ -615,6 +720,8 @@ public class GraphHopper {
             throw new IllegalArgumentException("Default value for active landmarks " + activeLandmarkCount
                     + " should be less or equal to landmark count of " + lmPreparationHandler.getLandmarks());
         routerConfig.setActiveLandmarkCount(activeLandmarkCount);
+        if (ghConfig.getBool(Routing.INIT_POOL_SEARCH_STATES, false))
+            searchStatePool = new SearchStatePool();
 
         return this;
     }
@@ -868,6 +975,7 @@ public class GraphHopper {
                 .set3D(hasElevation())
                 .withTurnCosts(encodingManager.needsTurnCostsSupport())
                 .setSegmentSize(defaultSegmentSize)
+                .withAdjacencyIndex(adjacencyIndex)
                 .build();
         properties = new StorableProperties(directory);
         checkProfilesConsistency();
@@ -903,6 +1011,14 @@ public class GraphHopper {
             logger.info("graph sorted (" + getMemInfo() + ")");
             baseGraph = newGraph;
         }
+        if (nodeOrder != null) {
+            StopWatch sw = new StopWatch().start();
+            double deltaBefore = NodeOrdering.calcAvgNodeIdDelta(baseGraph);
+            baseGraph.relabelNodes(NodeOrdering.calcOldToNew(baseGraph, nodeOrder));
+            double deltaAfter = NodeOrdering.calcAvgNodeIdDelta(baseGraph);
+            logger.info("nodes renumbered in " + nodeOrder + " order, took: " + sw.stop().getSeconds() + "s, average node id delta per edge: "
+                    + Math.round(deltaBefore) + " -> " + Math.round(deltaAfter) + " (" + getMemInfo() + ")");
+        }
 
         if (hasElevation())
             interpolateBridgesTunnelsAndFerries();
@@ -1065,6 +1181,7 @@ public class GraphHopper {
                     .set3D(hasElevation())
                     .withTurnCosts(encodingManager.needsTurnCostsSupport())
                     .setSegmentSize(defaultSegmentSize)
+                    .withAdjacencyIndex(adjacencyIndex)
                     .build();
             baseGraph.loadExisting();
             String storedProfiles = properties.get("profiles");
@@ -1252,13 +1369,21 @@ public class GraphHopper {
     }
 
     protected WeightingFactory createWeightingFactory() {
-        return new DefaultWeightingFactory(baseGraph.getBaseGraph(), getEncodingManager());
+        return new DefaultWeightingFactory(baseGraph.getBaseGraph(), getEncodingManager(), trafficOverlay);
     }
 
     public GHResponse route(GHRequest request) {
         return createRouter().route(request);
     }
 
+    /**
+     * Calculates the route like {@link #route(GHRequest)}, but aborts it when the given budget is exceeded, e.g.
+     * because the client is no longer waiting for the response.
+     */
+    public GHResponse route(GHRequest request, SearchBudget searchBudget) {
+        return createRouter().route(request, searchBudget);
+    }
+
     private Router createRouter() {
         if (baseGraph == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
@@ -1268,7 +1393,7 @@ public class GraphHopper {
             throw new IllegalStateException("Location index not initialized");
 
         return doCreateRouter(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks);
+                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks).setSearchStatePool(searchStatePool).setMetrics(routerMetrics);
     }
 
     protected Router doCreateRouter(BaseGraph baseGraph, EncodingManager encodingManager, LocationIndex locationIndex, Map<String, Profile> profilesByName,
@@ -1283,6 +1408,7 @@ public class GraphHopper {
         LocationIndexTree tmpIndex = new LocationIndexTree(baseGraph, dir);
         tmpIndex.setResolution(preciseIndexResolution);
         tmpIndex.setMaxRegionSearch(maxRegionSearch);
+        tmpIndex.setBatchThreads(indexBatchThreads);
         if (!tmpIndex.loadExisting()) {
             ensureWriteAccess();
             tmpIndex.prepareIndex();
@@ -1436,6 +1562,7 @@ public class GraphHopper {
             properties.close();
 
         chGraphs.values().forEach(RoutingCHGraph::close);
+        customizedCHGraphs.forEach(RoutingCHGraph::close);
         landmarks.values().forEach(LandmarkStorage::close);
 
         if (locationIndex != null)
@@ -1471,6 +1598,8 @@ public class GraphHopper {
     }
 
     private void setFullyLoaded() {
+        trafficOverlay = new TrafficOverlay(baseGraph, encodingManager.hasEncodedValue(OSMWayID.KEY)
+                ? encodingManager.getIntEncodedValue(OSMWayID.KEY) : null);
         fullyLoaded = true;
     }
 
@@ -1482,6 +1611,37 @@ public class GraphHopper {
         return routerConfig;
     }
 
+    /**
+     * Enables or disables (null) the re-use of the search states of the bidirectional routing algorithms
+     */
+    public GraphHopper setSearchStatePool(SearchStatePool searchStatePool) {
+        this.searchStatePool = searchStatePool;
+        return this;
+    }
+
+    /**
+     * @return the pool of search states including its hit and miss counts or null if it is disabled
+     */
+    public SearchStatePool getSearchStatePool() {
+        return searchStatePool;
+    }
+
+    /**
+     * Receives the durations of the routing phases and the visited nodes of every request, see {@link RouterMetrics}
+     */
+    public GraphHopper setRouterMetrics(RouterMetrics routerMetrics) {
+        this.routerMetrics = routerMetrics;
+        return this;
+    }
+
+    /**
+     * @return the sum of the capacities of all memory mapped DataAccess objects of the graph storage, see
+     * {@link Directory#getMappedBytes()}
+     */
+    public long getMappedBytes() {
+        return baseGraph == null ? 0 : baseGraph.getDirectory().getMappedBytes();
+    }
+
     public OSMReaderConfig getReaderConfig() {
         return osmReaderConfig;
     }
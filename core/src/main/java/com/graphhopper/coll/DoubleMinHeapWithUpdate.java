@@ -0,0 +1,189 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import java.util.Arrays;
+
+/**
+ * A minimum heap with an efficient update operation, just like {@link MinHeapWithUpdate}, but using double values and
+ * growing automatically. The ids stored in this heap must be non-negative and should be dense, because the memory used
+ * for the book-keeping of the positions is proportional to the largest id that was pushed so far. The allocated memory
+ * is kept when calling {@link #clear()}, so the same heap can be re-used for many searches without creating new arrays.
+ */
+public class DoubleMinHeapWithUpdate {
+    private static final int NOT_PRESENT = -1;
+    private int[] tree;
+    private int[] positions;
+    private double[] vals;
+    private int size;
+
+    /**
+     * @param initialCapacity the number of elements and the range of ids this heap can hold before it needs to grow
+     */
+    public DoubleMinHeapWithUpdate(int initialCapacity) {
+        initialCapacity = Math.max(1, initialCapacity);
+        // we use an offset of one to make the arithmetic a bit simpler/more efficient, the 0th elements are not used!
+        tree = new int[initialCapacity + 1];
+        vals = new double[initialCapacity + 1];
+        vals[0] = Double.NEGATIVE_INFINITY;
+        positions = new int[initialCapacity];
+        Arrays.fill(positions, NOT_PRESENT);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds an element to the heap. Its illegal to push the same id twice (unless it was polled/removed before). To
+     * update the value of an id contained in the heap use the {@link #update} method.
+     */
+    public void push(int id, double value) {
+        if (id < 0)
+            throw new IllegalArgumentException("Illegal id: " + id + ", ids must not be negative");
+        if (id >= positions.length)
+            growPositions(id + 1);
+        if (positions[id] != NOT_PRESENT)
+            throw new IllegalStateException("Element with id: " + id + " was pushed already, you need to use the update method if you want to change its value");
+        if (size + 1 == tree.length) {
+            int newLength = Math.max(tree.length + 1, tree.length + (tree.length >> 1));
+            tree = Arrays.copyOf(tree, newLength);
+            vals = Arrays.copyOf(vals, newLength);
+        }
+        size++;
+        tree[size] = id;
+        positions[id] = size;
+        vals[size] = value;
+        percolateUp(size);
+    }
+
+    /**
+     * @return true if the heap contains an element with the given id
+     */
+    public boolean contains(int id) {
+        return id >= 0 && id < positions.length && positions[id] != NOT_PRESENT;
+    }
+
+    /**
+     * Updates the element with the given id. The complexity of this method is O(log(N)), just like push/poll.
+     * Its illegal to update elements that are not contained in the heap. Use {@link #contains} to check the existence
+     * of an id.
+     */
+    public void update(int id, double value) {
+        if (!contains(id))
+            throw new IllegalStateException("The heap does not contain: " + id + ". Use the contains method to check this before calling update");
+        int index = positions[id];
+        double prev = vals[index];
+        vals[index] = value;
+        if (value > prev)
+            percolateDown(index);
+        else if (value < prev)
+            percolateUp(index);
+    }
+
+    /**
+     * @return the id of the next element to be polled, i.e. the same as calling poll() without removing the element
+     */
+    public int peekId() {
+        return tree[1];
+    }
+
+    /**
+     * @return the value of the next element to be polled
+     */
+    public double peekValue() {
+        return vals[1];
+    }
+
+    /**
+     * Extracts the element with minimum value from the heap
+     */
+    public int poll() {
+        int id = peekId();
+        tree[1] = tree[size];
+        vals[1] = vals[size];
+        positions[tree[1]] = 1;
+        positions[id] = NOT_PRESENT;
+        size--;
+        percolateDown(1);
+        return id;
+    }
+
+    /**
+     * Removes all elements from the heap. This does not release any memory.
+     */
+    public void clear() {
+        for (int i = 1; i <= size; i++)
+            positions[tree[i]] = NOT_PRESENT;
+        size = 0;
+    }
+
+    private void growPositions(int minLength) {
+        int oldLength = positions.length;
+        positions = Arrays.copyOf(positions, Math.max(minLength, oldLength + (oldLength >> 1)));
+        Arrays.fill(positions, oldLength, positions.length, NOT_PRESENT);
+    }
+
+    private void percolateUp(int index) {
+        assert index != 0;
+        if (index == 1)
+            return;
+        final int el = tree[index];
+        final double val = vals[index];
+        // the finish condition (index==0) is covered here automatically because we set vals[0]=-inf
+        while (val < vals[index >> 1]) {
+            int parent = index >> 1;
+            tree[index] = tree[parent];
+            vals[index] = vals[parent];
+            positions[tree[index]] = index;
+            index = parent;
+        }
+        tree[index] = el;
+        vals[index] = val;
+        positions[tree[index]] = index;
+    }
+
+    private void percolateDown(int index) {
+        if (size == 0)
+            return;
+        assert index > 0;
+        assert index <= size;
+        final int el = tree[index];
+        final double val = vals[index];
+        while (index << 1 <= size) {
+            int child = index << 1;
+            if (child != size && vals[child + 1] < vals[child])
+                // use the second child if it exists and has a smaller value
+                child++;
+            if (vals[child] >= val)
+                break;
+            tree[index] = tree[child];
+            vals[index] = vals[child];
+            positions[tree[index]] = index;
+            index = child;
+        }
+        tree[index] = el;
+        vals[index] = val;
+        positions[tree[index]] = index;
+    }
+
+}
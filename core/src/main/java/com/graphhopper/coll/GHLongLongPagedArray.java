@@ -0,0 +1,188 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+import java.util.Arrays;
+
+/**
+ * A {@link LongLongMap} for keys that are mostly dense, like the node ids of an OSM file. The key space is split into
+ * pages of {@link #PAGE_SIZE} consecutive keys and a page is only allocated when the first key of it is put into the
+ * map. The values are stored in a {@link DataAccess}, so depending on the {@link DAType} they can be kept outside
+ * the Java heap, e.g. in a memory-mapped file. Only a small array with the offsets of the allocated pages remains
+ * on the heap. Negative keys and keys larger than {@link #MAX_PAGED_KEY} are stored in a {@link GHLongLongBTree}
+ * instead.
+ * <p>
+ * The lower four bytes of the values of a page are stored as ints followed by the remaining bytes, so no value is
+ * split across two segments of the {@link DataAccess}. Unused entries are zero, which is why we store the
+ * difference between the value and the empty value.
+ */
+public class GHLongLongPagedArray implements LongLongMap {
+    static final int PAGE_BITS = 10;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    // larger keys are stored in the b-tree, this limits the offsets array to 256MB
+    static final long MAX_PAGED_KEY = 1L << 36;
+    private final Directory dir;
+    private final String name;
+    private final DAType daType;
+    private final int bytesPerValue;
+    private final long emptyValue;
+    private final long maxDelta;
+    private final long pageBytes;
+    private final GHLongLongBTree overflow;
+    private DataAccess da;
+    // the page number + 1 for every allocated page, or 0 if the page is not allocated yet
+    private int[] pageIds = new int[0];
+    private int pages;
+    private long size;
+
+    /**
+     * @param bytesPerValue the number of bytes used for every entry of an allocated page, between 4 and 8
+     */
+    public GHLongLongPagedArray(Directory dir, String name, DAType daType, int bytesPerValue, long emptyValue) {
+        if (bytesPerValue < 4 || bytesPerValue > 8)
+            throw new IllegalArgumentException("bytesPerValue must be in [4, 8], but was " + bytesPerValue);
+        this.dir = dir;
+        this.name = name;
+        this.daType = daType;
+        this.bytesPerValue = bytesPerValue;
+        this.emptyValue = emptyValue;
+        // reserve one bit for negative values
+        this.maxDelta = (1L << (bytesPerValue * 8 - 1)) - 1;
+        this.pageBytes = (long) PAGE_SIZE * bytesPerValue;
+        this.overflow = new GHLongLongBTree(200, bytesPerValue, emptyValue);
+    }
+
+    private static boolean isPaged(long key) {
+        return key >= 0 && key < MAX_PAGED_KEY;
+    }
+
+    @Override
+    public long put(long key, long value) {
+        if (value == emptyValue)
+            throw new IllegalArgumentException("Value cannot be the 'empty value' " + emptyValue);
+        if (!isPaged(key)) {
+            long old = overflow.put(key, value);
+            if (old == emptyValue)
+                size++;
+            return old;
+        }
+        long delta = value - emptyValue;
+        // the last condition detects an overflow of the subtraction
+        if (delta > maxDelta || delta < -maxDelta - 1 || (value > emptyValue) != (delta > 0))
+            throw new IllegalArgumentException("Value " + value + " exceeded the range of " + bytesPerValue
+                    + " bytes relative to the empty value " + emptyValue);
+
+        int page = getOrAllocatePage((int) (key >>> PAGE_BITS));
+        int index = (int) (key & PAGE_MASK);
+        long old = readDelta(page, index);
+        writeDelta(page, index, delta);
+        if (old == 0) {
+            size++;
+            return emptyValue;
+        }
+        return old + emptyValue;
+    }
+
+    @Override
+    public long get(long key) {
+        if (!isPaged(key))
+            return overflow.get(key);
+        int pageIndex = (int) (key >>> PAGE_BITS);
+        if (pageIndex >= pageIds.length || pageIds[pageIndex] == 0)
+            return emptyValue;
+        return readDelta(pageIds[pageIndex] - 1, (int) (key & PAGE_MASK)) + emptyValue;
+    }
+
+    private int getOrAllocatePage(int pageIndex) {
+        if (pageIndex >= pageIds.length)
+            pageIds = Arrays.copyOf(pageIds, (int) Math.min(MAX_PAGED_KEY >>> PAGE_BITS, Math.max(pageIndex + 1L, pageIds.length * 3L / 2)));
+        if (pageIds[pageIndex] == 0) {
+            if (da == null)
+                da = dir.create(name, daType).create(pageBytes);
+            // new pages are filled with zeros, i.e. with empty values
+            da.ensureCapacity((pages + 1) * pageBytes);
+            pageIds[pageIndex] = ++pages;
+        }
+        return pageIds[pageIndex] - 1;
+    }
+
+    private long readDelta(int page, int index) {
+        long pagePointer = page * pageBytes;
+        long delta = da.getInt(pagePointer + 4L * index) & 0xFFFF_FFFFL;
+        long highPointer = pagePointer + 4L * PAGE_SIZE + (long) (bytesPerValue - 4) * index;
+        for (int i = 0; i < bytesPerValue - 4; i++)
+            delta |= (da.getByte(highPointer + i) & 0xFFL) << (32 + 8 * i);
+        // sign extension
+        int shift = 64 - 8 * bytesPerValue;
+        return (delta << shift) >> shift;
+    }
+
+    private void writeDelta(int page, int index, long delta) {
+        long pagePointer = page * pageBytes;
+        da.setInt(pagePointer + 4L * index, (int) delta);
+        long highPointer = pagePointer + 4L * PAGE_SIZE + (long) (bytesPerValue - 4) * index;
+        for (int i = 0; i < bytesPerValue - 4; i++)
+            da.setByte(highPointer + i, (byte) (delta >>> (32 + 8 * i)));
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public long getMaxValue() {
+        return emptyValue < 0 ? maxDelta + emptyValue : maxDelta;
+    }
+
+    @Override
+    public void optimize() {
+        overflow.optimize();
+    }
+
+    /**
+     * @return the memory usage in MB, including the pages that are not stored on the heap
+     */
+    @Override
+    public int getMemoryUsage() {
+        long bytes = 4L * pageIds.length + (da == null ? 0 : da.getCapacity());
+        return Math.round((float) bytes / Helper.MB) + overflow.getMemoryUsage();
+    }
+
+    @Override
+    public void clear() {
+        if (da != null)
+            dir.remove(name);
+        da = null;
+        pageIds = new int[0];
+        pages = 0;
+        size = 0;
+        overflow.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "pages: " + pages + ", entries: " + size + ", overflow entries: " + overflow.getSize();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.carrotsearch.hppc.IntHashSet;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Calculates accessibility scores for many origins, i.e. the sum of the weights of all opportunities (like shops or
+ * jobs) that can be reached from every origin within a few time limits. For every origin we run a
+ * {@link ShortestPathTree} up to the largest time limit and add up the opportunities of the settled nodes, without
+ * creating any objects per label. The origins are processed in parallel, in chunks, such that the results can be
+ * passed on in the order of the origins while only the results of one chunk are kept in memory.
+ * <p>
+ * Every opportunity is assigned to the closest tower node of the edge it snaps to, so its travel time is the one of
+ * this node.
+ */
+public class AccessibilityAnalysis {
+    /**
+     * Receives the results in the order of the origins.
+     */
+    public interface ResultConsumer {
+        /**
+         * @param origin        the index of the origin in the list of origins
+         * @param opportunities the sum of the opportunity weights for every time limit, or null if the origin could
+         *                      not be snapped
+         */
+        void accept(int origin, double[] opportunities);
+    }
+
+    private final BaseGraph graph;
+    private final LocationIndex locationIndex;
+    private final Weighting weighting;
+    private final EdgeFilter snapFilter;
+    private final TraversalMode traversalMode;
+    // the sum of the opportunity weights per tower node
+    private final IntDoubleHashMap opportunities = new IntDoubleHashMap();
+    private long[] timeLimits = {15 * 60_000};
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = 1000;
+
+    public AccessibilityAnalysis(BaseGraph graph, LocationIndex locationIndex, Weighting weighting, EdgeFilter snapFilter,
+                                 TraversalMode traversalMode) {
+        this.graph = graph;
+        this.locationIndex = locationIndex;
+        this.weighting = weighting;
+        this.snapFilter = snapFilter;
+        this.traversalMode = traversalMode;
+    }
+
+    /**
+     * @param timeLimits the time limits in milliseconds, there is one result per time limit
+     */
+    public AccessibilityAnalysis setTimeLimits(long... timeLimits) {
+        if (timeLimits.length == 0)
+            throw new IllegalArgumentException("At least one time limit is required");
+        for (int i = 1; i < timeLimits.length; i++)
+            if (timeLimits[i] <= timeLimits[i - 1])
+                throw new IllegalArgumentException("The time limits must be sorted in ascending order: " + Arrays.toString(timeLimits));
+        this.timeLimits = timeLimits.clone();
+        return this;
+    }
+
+    public AccessibilityAnalysis setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1, but was " + threads);
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param chunkSize the number of origins that are processed in parallel before their results are passed on
+     */
+    public AccessibilityAnalysis setChunkSize(int chunkSize) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("chunkSize must be at least 1, but was " + chunkSize);
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Adds opportunities at the given points.
+     *
+     * @param weights the weight of every point, or null to count every point once
+     * @return the number of points that could be snapped, the others are ignored
+     */
+    public int addOpportunities(List<GHPoint> points, double[] weights) {
+        if (weights != null && weights.length != points.size())
+            throw new IllegalArgumentException("There must be one weight per point, but there were " + weights.length
+                    + " weights for " + points.size() + " points");
+        List<Snap> snaps = locationIndex.findClosest(points, snapFilter);
+        int snapped = 0;
+        for (int i = 0; i < snaps.size(); i++) {
+            if (!snaps.get(i).isValid())
+                continue;
+            opportunities.addTo(snaps.get(i).getClosestNode(), weights == null ? 1 : weights[i]);
+            snapped++;
+        }
+        return snapped;
+    }
+
+    /**
+     * Calculates the accessibility of all the given origins. The consumer is called from the calling thread.
+     */
+    public void run(List<GHPoint> origins, ResultConsumer consumer) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int start = 0; start < origins.size(); start += chunkSize) {
+                List<GHPoint> chunk = origins.subList(start, Math.min(origins.size(), start + chunkSize));
+                List<Snap> snaps = locationIndex.findClosest(chunk, snapFilter);
+                List<Callable<double[]>> tasks = new ArrayList<>(snaps.size());
+                for (Snap snap : snaps)
+                    tasks.add(() -> snap.isValid() ? calcOpportunities(snap) : null);
+                List<Future<double[]>> results = executor.invokeAll(tasks);
+                for (int i = 0; i < results.size(); i++)
+                    consumer.accept(start + i, getResult(results.get(i)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static double[] getResult(Future<double[]> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the sum of the opportunities that can be reached from the given snap for every time limit
+     */
+    public double[] calcOpportunities(Snap snap) {
+        QueryGraph queryGraph = QueryGraph.create(graph, snap);
+        ShortestPathTree tree = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), false, traversalMode);
+        tree.setTimeLimit(timeLimits[timeLimits.length - 1]);
+        IsoLabelStore labels = tree.getLabelStore();
+        double[] result = new double[timeLimits.length];
+        // with edge-based traversal the nodes are settled several times, but only the first time counts
+        IntHashSet settledNodes = traversalMode.isEdgeBased() ? new IntHashSet() : null;
+        tree.searchSlots(snap.getClosestNode(), slot -> {
+            int node = labels.getNode(slot);
+            // virtual nodes have no opportunities
+            if (node >= graph.getNodes() || !opportunities.containsKey(node))
+                return;
+            if (settledNodes != null && !settledNodes.add(node))
+                return;
+            double value = opportunities.get(node);
+            long time = labels.getTime(slot);
+            for (int i = timeLimits.length - 1; i >= 0 && time <= timeLimits[i]; i--)
+                result[i] += value;
+        });
+        return result;
+    }
+}
@@ -19,7 +19,12 @@ import org.locationtech.jts.geom.prep.PreparedPolygon;
 import org.locationtech.jts.triangulate.quadedge.Vertex;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.DoubleFunction;
 import java.util.function.ToIntBiFunction;
+import java.util.stream.Collectors;
 
 /**
  *
@@ -54,6 +59,33 @@ public class ContourBuilder {
         return computeIsoline(cut, seedEdges);
     }
 
+    /**
+     * Computes the isolines for all the given values. The triangulation is only read, so all isolines can share it
+     * and they are computed in parallel using the given executor if there is more than one value.
+     *
+     * @param executor runs the computation of every isoline, e.g. a thread pool that is shared by all requests, so
+     *                 the requests cannot use more threads than the pool has
+     * @return the isolines in the order of the given values
+     */
+    public List<MultiPolygon> computeIsolines(List<Double> zs, Collection<ReadableQuadEdge> seedEdges, Executor executor) {
+        return computeAll(zs, z -> computeIsoline(z, seedEdges), executor);
+    }
+
+    static List<MultiPolygon> computeAll(List<Double> zs, DoubleFunction<MultiPolygon> computeIsoline, Executor executor) {
+        if (zs.size() <= 1)
+            return zs.stream().map(computeIsoline::apply).collect(Collectors.toList());
+        List<CompletableFuture<MultiPolygon>> futures = zs.stream()
+                .map(z -> CompletableFuture.supplyAsync(() -> computeIsoline.apply(z), executor))
+                .collect(Collectors.toList());
+        try {
+            return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
     public MultiPolygon computeIsoline(ToIntBiFunction<Vertex, Vertex> cut, Collection<ReadableQuadEdge> seedEdges) {
         Set<ReadableQuadEdge> processed = new HashSet<>();
         List<LinearRing> rings = new ArrayList<>();
@@ -107,7 +139,7 @@ public class ContourBuilder {
                 rings.add(ring);
             }
         }
-        List<Polygon> isolinePolygons = punchHoles(rings);
+        List<Polygon> isolinePolygons = punchHoles(geometryFactory, rings);
         return geometryFactory.createMultiPolygon(isolinePolygons.toArray(new Polygon[isolinePolygons.size()]));
     }
 
@@ -119,8 +151,12 @@ public class ContourBuilder {
         return new Coordinate(coordinate.x + EPSILON * (distantFrameCoordinate.x - coordinate.x), coordinate.y + EPSILON * (distantFrameCoordinate.y - coordinate.y));
     }
 
+    /**
+     * Builds polygons from the given rings: counterclockwise rings are shells and clockwise rings are holes in the
+     * shell that contains them.
+     */
     @SuppressWarnings("unchecked")
-    private List<Polygon> punchHoles(List<LinearRing> rings) {
+    static List<Polygon> punchHoles(GeometryFactory geometryFactory, List<LinearRing> rings) {
         List<PreparedPolygon> shells = new ArrayList<>(rings.size());
         List<LinearRing> holes = new ArrayList<>(rings.size() / 2);
         // 1. Split the polygon list in two: shells and holes (CCW and CW)
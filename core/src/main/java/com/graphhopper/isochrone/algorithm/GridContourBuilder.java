@@ -0,0 +1,264 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.PointList;
+import org.locationtech.jts.geom.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Calculates isolines from a raster of the shortest path tree instead of a Delaunay triangulation. The tree is
+ * sampled along the geometry of its edges and every grid point gets the smallest value of the samples closest to it.
+ * The grid points next to reached grid points get their value as well, to close small gaps between roads. The
+ * isolines are then traced with marching squares, which only needs a few operations per grid cell and is much
+ * faster than the triangulation for large isochrones, but the isolines are only as precise as the cell size.
+ */
+public class GridContourBuilder {
+    // larger areas use larger cells, such that the grid does not use more than 32MB
+    public static final int MAX_GRID_POINTS = 4_000_000;
+    private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(1E8));
+    private final double minLon;
+    private final double minLat;
+    private final double cellLon;
+    private final double cellLat;
+    private final int width;
+    private final int height;
+    // the value of every grid point, row by row, or infinity if the grid point was not reached
+    private final double[] values;
+
+    private GridContourBuilder(double minLon, double minLat, double cellLon, double cellLat, int width, int height) {
+        this.minLon = minLon;
+        this.minLat = minLat;
+        this.cellLon = cellLon;
+        this.cellLat = cellLat;
+        this.width = width;
+        this.height = height;
+        this.values = new double[width * height];
+        Arrays.fill(values, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Runs the given shortest path tree and rasterizes it.
+     *
+     * @param cellSize    the distance between two grid points in degrees latitude
+     * @param bufferCells the number of grid points around the reached grid points that get their value as well
+     */
+    public static GridContourBuilder rasterize(Snap snap, QueryGraph queryGraph, ShortestPathTree shortestPathTree,
+                                               ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double cellSize, int bufferCells) {
+        if (cellSize <= 0)
+            throw new IllegalArgumentException("cell size must be positive, but was " + cellSize);
+        if (bufferCells < 0)
+            throw new IllegalArgumentException("buffer cells must not be negative, but was " + bufferCells);
+        // the grid cells are squares in a local projection, so they are wider in degrees longitude
+        double cosLat = Math.cos(Math.toRadians(snap.getQueryPoint().lat));
+        DoubleArrayList samples = new DoubleArrayList();
+        shortestPathTree.search(snap.getClosestNode(), label -> {
+            double z = fz.applyAsDouble(label);
+            if (label.parent == null) {
+                samples.add(queryGraph.getNodeAccess().getLon(label.node), queryGraph.getNodeAccess().getLat(label.node), z);
+                return;
+            }
+            // the geometry goes from the parent to the node of the label and we interpolate the values in between
+            PointList points = queryGraph.getEdgeIteratorState(label.edge, label.node).fetchWayGeometry(FetchMode.ALL);
+            double parentZ = fz.applyAsDouble(label.parent);
+            double length = 0;
+            for (int i = 1; i < points.size(); i++)
+                length += segmentLength(points, i, cosLat);
+            double offset = 0;
+            for (int i = 1; i < points.size(); i++) {
+                double segmentLength = segmentLength(points, i, cosLat);
+                // sample the segment at least twice per cell, so every grid point along the segment gets a value
+                int steps = Math.max(1, (int) Math.ceil(2 * segmentLength / cellSize));
+                for (int step = 1; step <= steps; step++) {
+                    double f = (double) step / steps;
+                    double lon = points.getLon(i - 1) + f * (points.getLon(i) - points.getLon(i - 1));
+                    double lat = points.getLat(i - 1) + f * (points.getLat(i) - points.getLat(i - 1));
+                    double sampleZ = length == 0 ? z : parentZ + (z - parentZ) * (offset + f * segmentLength) / length;
+                    samples.add(lon, lat, sampleZ);
+                }
+                offset += segmentLength;
+            }
+        });
+        if (samples.isEmpty())
+            throw new IllegalArgumentException("Too few points found. Please try a different 'point' or a larger 'time_limit'.");
+
+        double minLon = Double.MAX_VALUE, minLat = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        for (int i = 0; i < samples.size(); i += 3) {
+            minLon = Math.min(minLon, samples.get(i));
+            maxLon = Math.max(maxLon, samples.get(i));
+            minLat = Math.min(minLat, samples.get(i + 1));
+            maxLat = Math.max(maxLat, samples.get(i + 1));
+        }
+        double cellLat = cellSize;
+        // the grid points at the border are never reached, so all isolines are closed
+        int padding = bufferCells + 1;
+        long points = gridPoints(maxLon - minLon, cellLat / cosLat, padding) * gridPoints(maxLat - minLat, cellLat, padding);
+        if (points > MAX_GRID_POINTS)
+            cellLat *= Math.sqrt((double) points / MAX_GRID_POINTS) * 1.01;
+        double cellLon = cellLat / cosLat;
+        GridContourBuilder grid = new GridContourBuilder(minLon - padding * cellLon, minLat - padding * cellLat, cellLon, cellLat,
+                (int) gridPoints(maxLon - minLon, cellLon, padding), (int) gridPoints(maxLat - minLat, cellLat, padding));
+        for (int i = 0; i < samples.size(); i += 3) {
+            int x = (int) Math.round((samples.get(i) - grid.minLon) / cellLon);
+            int y = (int) Math.round((samples.get(i + 1) - grid.minLat) / cellLat);
+            int index = y * grid.width + x;
+            grid.values[index] = Math.min(grid.values[index], samples.get(i + 2));
+        }
+        for (int i = 0; i < bufferCells; i++)
+            grid.dilate();
+        return grid;
+    }
+
+    private static double segmentLength(PointList points, int i, double cosLat) {
+        double dLon = (points.getLon(i) - points.getLon(i - 1)) * cosLat;
+        double dLat = points.getLat(i) - points.getLat(i - 1);
+        return Math.sqrt(dLon * dLon + dLat * dLat);
+    }
+
+    private static long gridPoints(double extent, double cellSize, int padding) {
+        return (long) Math.ceil(extent / cellSize) + 1 + 2L * padding;
+    }
+
+    /**
+     * Every grid point that was not reached gets the smallest value of its reached neighbours.
+     */
+    private void dilate() {
+        double[] old = values.clone();
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                int index = y * width + x;
+                if (old[index] != Double.POSITIVE_INFINITY)
+                    continue;
+                double min = Double.POSITIVE_INFINITY;
+                for (int dy = -1; dy <= 1; dy++)
+                    for (int dx = -1; dx <= 1; dx++)
+                        min = Math.min(min, old[index + dy * width + dx]);
+                values[index] = min;
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Computes the isolines for all the given values, in parallel using the given executor if there is more than one
+     * value, see {@link ContourBuilder#computeIsolines}.
+     *
+     * @return the isolines in the order of the given values
+     */
+    public List<MultiPolygon> computeIsolines(List<Double> zs, Executor executor) {
+        return ContourBuilder.computeAll(zs, this::computeIsoline, executor);
+    }
+
+    /**
+     * Traces the isoline around all grid points with a value of at most z0 using marching squares. Every crossing of
+     * the isoline with the line between two grid points is identified by the index of the lower left grid point
+     * times two, plus one for vertical lines. The segments within a cell are oriented such that the inside is on
+     * their left, so every crossing has exactly one outgoing segment and the segments can be joined into rings.
+     */
+    public MultiPolygon computeIsoline(double z0) {
+        IntIntHashMap next = new IntIntHashMap();
+        int[] crossings = new int[4];
+        boolean[] leaving = new boolean[4];
+        for (int y = 0; y < height - 1; y++) {
+            for (int x = 0; x < width - 1; x++) {
+                int bl = y * width + x, br = bl + 1, tl = bl + width, tr = tl + 1;
+                boolean[] inside = {values[bl] <= z0, values[br] <= z0, values[tr] <= z0, values[tl] <= z0};
+                // the lines of the cell counterclockwise: bottom, right, top and left
+                int[] lines = {2 * bl, 2 * br + 1, 2 * tl, 2 * bl + 1};
+                int count = 0;
+                for (int i = 0; i < 4; i++) {
+                    if (inside[i] != inside[(i + 1) % 4]) {
+                        crossings[count] = lines[i];
+                        // going counterclockwise around the cell we leave the inside at this crossing
+                        leaving[count] = inside[i];
+                        count++;
+                    }
+                }
+                if (count == 2) {
+                    if (leaving[0])
+                        next.put(crossings[0], crossings[1]);
+                    else
+                        next.put(crossings[1], crossings[0]);
+                } else if (count == 4) {
+                    // a saddle: if the center is inside the two inside corners are connected, otherwise they are not
+                    double center = (values[bl] + values[br] + values[tr] + values[tl]) / 4;
+                    int shift = center <= z0 ? 1 : 3;
+                    for (int i = 0; i < 4; i++)
+                        if (leaving[i])
+                            next.put(crossings[i], crossings[(i + shift) % 4]);
+                }
+            }
+        }
+
+        List<LinearRing> rings = new ArrayList<>();
+        IntHashSet visited = new IntHashSet(next.size());
+        // start at the crossings in a fixed order, so the isolines do not depend on the iteration order of the map
+        int[] starts = next.keys().toArray();
+        Arrays.sort(starts);
+        for (int start : starts) {
+            if (visited.contains(start))
+                continue;
+            List<Coordinate> coordinates = new ArrayList<>();
+            int crossing = start;
+            while (visited.add(crossing)) {
+                Coordinate coordinate = getCoordinate(crossing, z0);
+                // crossings at a grid point with a value of exactly z0 have the same coordinate
+                if (coordinates.isEmpty() || !coordinate.equals2D(coordinates.get(coordinates.size() - 1)))
+                    coordinates.add(coordinate);
+                crossing = next.get(crossing);
+            }
+            if (coordinates.size() > 1 && coordinates.get(0).equals2D(coordinates.get(coordinates.size() - 1)))
+                coordinates.remove(coordinates.size() - 1);
+            coordinates.add(coordinates.get(0));
+            if (coordinates.size() >= 4)
+                rings.add(geometryFactory.createLinearRing(coordinates.toArray(new Coordinate[0])));
+        }
+        List<Polygon> polygons = ContourBuilder.punchHoles(geometryFactory, rings);
+        return geometryFactory.createMultiPolygon(polygons.toArray(new Polygon[0]));
+    }
+
+    private Coordinate getCoordinate(int crossing, double z0) {
+        int a = crossing / 2;
+        int b = crossing % 2 == 0 ? a + 1 : a + width;
+        // interpolate between the inside and the outside grid point, we use the middle if the outside was not reached
+        int in = values[a] <= z0 ? a : b;
+        int out = in == a ? b : a;
+        double f = values[out] == Double.POSITIVE_INFINITY ? 0.5 : (z0 - values[in]) / (values[out] - values[in]);
+        double x = in % width + f * (out % width - in % width);
+        double y = in / width + f * (out / width - in / width);
+        return new Coordinate(minLon + x * cellLon, minLat + y * cellLat);
+    }
+}
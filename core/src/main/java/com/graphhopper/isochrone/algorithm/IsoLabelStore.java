@@ -0,0 +1,173 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.graphhopper.coll.DoubleMinHeapWithUpdate;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Stores the labels of a {@link ShortestPathTree} in primitive arrays instead of
+ * {@link ShortestPathTree.IsoLabel} objects. Every label is identified by a 'slot', i.e. its index in these arrays,
+ * and the parent of a label is the slot of the parent label. The open set of the search is an indexed heap of slots,
+ * such that the weight of a label that was not settled yet can be updated in place.
+ *
+ * @see com.graphhopper.routing.SPTStore
+ */
+public class IsoLabelStore {
+    public static final int NO_PARENT = -1;
+    private final IntIntHashMap slotsByKey;
+    private final DoubleMinHeapWithUpdate heap;
+    private final BitSet settled = new BitSet();
+    private int[] nodes;
+    private int[] edges;
+    private int[] parents;
+    private double[] weights;
+    private long[] times;
+    private double[] distances;
+    private int size;
+
+    public IsoLabelStore(int initialCapacity) {
+        initialCapacity = Math.max(16, initialCapacity);
+        slotsByKey = new IntIntHashMap(initialCapacity);
+        heap = new DoubleMinHeapWithUpdate(initialCapacity);
+        nodes = new int[initialCapacity];
+        edges = new int[initialCapacity];
+        parents = new int[initialCapacity];
+        weights = new double[initialCapacity];
+        times = new long[initialCapacity];
+        distances = new double[initialCapacity];
+    }
+
+    /**
+     * Adds a new label and makes it the current label for the given traversal id. The label is not added to the open
+     * set, use {@link #push} for this.
+     *
+     * @param key the traversal id of the new label. if this is negative the label cannot be found using
+     *            {@link #getSlot}
+     *
+     * @return the slot of the new label
+     */
+    int add(int key, int node, int edge, double weight, long time, double distance, int parent) {
+        if (size == nodes.length)
+            grow();
+        int slot = size++;
+        nodes[slot] = node;
+        set(slot, edge, weight, time, distance, parent);
+        if (key >= 0)
+            slotsByKey.put(key, slot);
+        return slot;
+    }
+
+    /**
+     * Changes the label at the given slot, which must not be settled yet.
+     */
+    void set(int slot, int edge, double weight, long time, double distance, int parent) {
+        edges[slot] = edge;
+        weights[slot] = weight;
+        times[slot] = time;
+        distances[slot] = distance;
+        parents[slot] = parent;
+    }
+
+    /**
+     * @return the slot of the current label for the given traversal id or -1 if there is no such label
+     */
+    int getSlot(int key) {
+        return slotsByKey.getOrDefault(key, -1);
+    }
+
+    void push(int slot) {
+        if (heap.contains(slot))
+            heap.update(slot, weights[slot]);
+        else
+            heap.push(slot, weights[slot]);
+    }
+
+    boolean isQueueEmpty() {
+        return heap.isEmpty();
+    }
+
+    /**
+     * Removes the label with the smallest weight from the open set and returns its slot
+     */
+    int poll() {
+        return heap.poll();
+    }
+
+    void setSettled(int slot) {
+        settled.set(slot);
+    }
+
+    /**
+     * @return true if the label at the given slot was polled from the open set already, i.e. its weight is final
+     */
+    public boolean isSettled(int slot) {
+        return settled.get(slot);
+    }
+
+    public int getNode(int slot) {
+        return nodes[slot];
+    }
+
+    /**
+     * @return the edge that leads to the node of the label, or {@link com.graphhopper.util.EdgeIterator#NO_EDGE} for
+     * the root of the tree
+     */
+    public int getEdge(int slot) {
+        return edges[slot];
+    }
+
+    /**
+     * @return the slot of the parent label or {@link #NO_PARENT} for the root of the tree
+     */
+    public int getParent(int slot) {
+        return parents[slot];
+    }
+
+    public double getWeight(int slot) {
+        return weights[slot];
+    }
+
+    public long getTime(int slot) {
+        return times[slot];
+    }
+
+    public double getDistance(int slot) {
+        return distances[slot];
+    }
+
+    /**
+     * @return the number of labels in this store, including the labels that were not settled
+     */
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        int newCapacity = nodes.length + (nodes.length >> 1);
+        nodes = Arrays.copyOf(nodes, newCapacity);
+        edges = Arrays.copyOf(edges, newCapacity);
+        parents = Arrays.copyOf(parents, newCapacity);
+        weights = Arrays.copyOf(weights, newCapacity);
+        times = Arrays.copyOf(times, newCapacity);
+        distances = Arrays.copyOf(distances, newCapacity);
+    }
+}
@@ -17,9 +17,7 @@
  */
 package com.graphhopper.isochrone.algorithm;
 
-import com.carrotsearch.hppc.IntObjectHashMap;
-import com.carrotsearch.hppc.cursors.ObjectCursor;
-import com.graphhopper.coll.GHIntObjectHashMap;
+import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.routing.AbstractRoutingAlgorithm;
 import com.graphhopper.routing.Path;
 import com.graphhopper.routing.util.TraversalMode;
@@ -29,22 +27,21 @@ import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.GHUtility;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.PriorityQueue;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 import static com.graphhopper.isochrone.algorithm.ShortestPathTree.ExploreType.*;
-import static java.util.Comparator.comparingDouble;
 
 /**
  * Computes a shortest path tree by a given weighting. Terminates when all shortest paths up to
  * a given travel time, distance, or weight have been explored.
  * <p>
  * IMPLEMENTATION NOTE:
- * util.PriorityQueue doesn't support efficient removes. We work around this by giving the labels
- * a deleted flag, not remove()ing them, and popping deleted elements off both queues.
- * Note to self/others: If you think this optimization is not needed, please test it with a scenario
- * where updates actually occur a lot, such as using finite, non-zero u-turn costs.
+ * The labels are stored in the primitive arrays of an {@link IsoLabelStore} and the open set is an indexed heap,
+ * so labels are updated in place when a shorter path is found. {@link IsoLabel} objects are only created for the
+ * consumers of {@link #search}, use {@link #searchSlots} to explore large trees without them.
  *
  * @author Peter Karich
  * @author Michael Zilske
@@ -84,8 +81,9 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
         }
     }
 
-    private final IntObjectHashMap<IsoLabel> fromMap;
-    private final PriorityQueue<IsoLabel> queueByWeighting;
+    private final IsoLabelStore store;
+    // the labels for the slots of the store, only created if they are needed
+    private IsoLabel[] labels = new IsoLabel[0];
     private int visitedNodes;
     private double limit = -1;
     private ExploreType exploreType = TIME;
@@ -93,8 +91,7 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
 
     public ShortestPathTree(Graph g, Weighting weighting, boolean reverseFlow, TraversalMode traversalMode) {
         super(g, weighting, traversalMode);
-        queueByWeighting = new PriorityQueue<>(1000, comparingDouble(l -> l.weight));
-        fromMap = new GHIntObjectHashMap<>(1000);
+        store = new IsoLabelStore(1000);
         this.reverseFlow = reverseFlow;
     }
 
@@ -124,71 +121,127 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
         this.limit = limit;
     }
 
+    /**
+     * Like {@link #searchSlots}, but passes the labels as {@link IsoLabel} objects, which are linked to their
+     * parents.
+     */
     public void search(int from, final Consumer<IsoLabel> consumer) {
+        // the parent of a label is always settled before the label, so its object exists already
+        searchSlots(from, slot -> consumer.accept(getLabel(slot)));
+    }
+
+    /**
+     * Explores the shortest path tree and passes the slot of every label to the consumer as soon as the label is
+     * settled. The label can be read from {@link #getLabelStore()} using this slot. Unlike {@link #search} this does
+     * not create any objects per label, so the tree can be written out while it is explored, e.g. to a stream.
+     *
+     * @throws com.graphhopper.util.exceptions.SearchBudgetExceededException if the search budget is exceeded before
+     *                                                                        the limit is reached
+     */
+    public void searchSlots(int from, final IntConsumer consumer) {
         checkAlreadyRun();
-        IsoLabel currentLabel = new IsoLabel(from, -1, 0, 0, 0, null);
-        queueByWeighting.add(currentLabel);
-        if (traversalMode == TraversalMode.NODE_BASED) {
-            fromMap.put(from, currentLabel);
-        }
-        while (!queueByWeighting.isEmpty()) {
-            currentLabel = queueByWeighting.poll();
-            if (currentLabel.deleted)
+        // for edge-based traversal the root is not associated with any traversal id
+        int root = store.add(traversalMode == TraversalMode.NODE_BASED ? from : -1, from, EdgeIterator.NO_EDGE, 0, 0, 0, IsoLabelStore.NO_PARENT);
+        store.push(root);
+        while (!store.isQueueEmpty()) {
+            // an incomplete tree would silently produce wrong isochrones, so we fail instead
+            if (searchBudget != null && searchBudget.isExceeded(visitedNodes))
+                searchBudget.check();
+            int slot = store.poll();
+            // the label was improved after it was queued, but its new explore value exceeds the limit
+            if (slot != root && getExploreValue(slot) > limit)
                 continue;
-            consumer.accept(currentLabel);
-            currentLabel.deleted = true;
+            store.setSettled(slot);
+            consumer.accept(slot);
             visitedNodes++;
 
-            EdgeIterator iter = edgeExplorer.setBaseNode(currentLabel.node);
+            int edge = store.getEdge(slot);
+            double weight = store.getWeight(slot);
+            long time = store.getTime(slot);
+            double distance = store.getDistance(slot);
+            EdgeIterator iter = edgeExplorer.setBaseNode(store.getNode(slot));
             while (iter.next()) {
-                if (!accept(iter, currentLabel.edge)) {
+                if (!accept(iter, edge)) {
                     continue;
                 }
 
-                double nextWeight = GHUtility.calcWeightWithTurnWeight(weighting, iter, reverseFlow, currentLabel.edge) + currentLabel.weight;
+                double nextWeight = GHUtility.calcWeightWithTurnWeight(weighting, iter, reverseFlow, edge) + weight;
                 if (Double.isInfinite(nextWeight))
                     continue;
 
-                double nextDistance = iter.getDistance() + currentLabel.distance;
-                long nextTime = GHUtility.calcMillisWithTurnMillis(weighting, iter, reverseFlow, currentLabel.edge) + currentLabel.time;
+                double nextDistance = iter.getDistance() + distance;
+                long nextTime = GHUtility.calcMillisWithTurnMillis(weighting, iter, reverseFlow, edge) + time;
                 int nextTraversalId = traversalMode.createTraversalId(iter, reverseFlow);
-                IsoLabel label = fromMap.get(nextTraversalId);
-                if (label == null) {
-                    label = new IsoLabel(iter.getAdjNode(), iter.getEdge(), nextWeight, nextTime, nextDistance, currentLabel);
-                    fromMap.put(nextTraversalId, label);
-                    if (getExploreValue(label) <= limit) {
-                        queueByWeighting.add(label);
-                    }
-                } else if (label.weight > nextWeight) {
-                    label.deleted = true;
-                    label = new IsoLabel(iter.getAdjNode(), iter.getEdge(), nextWeight, nextTime, nextDistance, currentLabel);
-                    fromMap.put(nextTraversalId, label);
-                    if (getExploreValue(label) <= limit) {
-                        queueByWeighting.add(label);
-                    }
+                int nextSlot = store.getSlot(nextTraversalId);
+                if (nextSlot < 0) {
+                    nextSlot = store.add(nextTraversalId, iter.getAdjNode(), iter.getEdge(), nextWeight, nextTime, nextDistance, slot);
+                } else if (store.getWeight(nextSlot) > nextWeight && !store.isSettled(nextSlot)) {
+                    store.set(nextSlot, iter.getEdge(), nextWeight, nextTime, nextDistance, slot);
+                } else {
+                    continue;
+                }
+                if (getExploreValue(nextSlot) <= limit) {
+                    store.push(nextSlot);
                 }
             }
         }
+        if (searchBudget != null)
+            searchBudget.consume(visitedNodes);
+    }
+
+    /**
+     * @return the labels of the tree, the slots passed to the consumer of {@link #searchSlots} refer to this store
+     */
+    public IsoLabelStore getLabelStore() {
+        return store;
     }
 
     public Collection<IsoLabel> getIsochroneEdges() {
         // assert alreadyRun
         ArrayList<IsoLabel> result = new ArrayList<>();
-        for (ObjectCursor<IsoLabel> cursor : fromMap.values()) {
-            if (getExploreValue(cursor.value) > limit) {
-                assert cursor.value.parent == null || getExploreValue(cursor.value.parent) <= limit;
-                result.add(cursor.value);
+        for (int slot = 0; slot < store.size(); slot++) {
+            if (store.getParent(slot) == IsoLabelStore.NO_PARENT && traversalMode.isEdgeBased())
+                continue;
+            if (getExploreValue(slot) > limit) {
+                IsoLabel label = getLabel(slot);
+                assert label.parent == null || getExploreValue(store.getParent(slot)) <= limit;
+                result.add(label);
             }
         }
         return result;
     }
 
-    private double getExploreValue(IsoLabel label) {
+    /**
+     * @return the label object for the given slot, which is created together with the objects of its parents if
+     * they do not exist yet
+     */
+    private IsoLabel getLabel(int slot) {
+        if (slot >= labels.length)
+            labels = Arrays.copyOf(labels, Math.max(slot + 1, store.size()));
+        if (labels[slot] != null)
+            return labels[slot];
+        // walk up the tree until we find a label that exists already, the tree can be deep so we avoid recursion
+        IntArrayList missing = new IntArrayList();
+        int curr = slot;
+        while (curr != IsoLabelStore.NO_PARENT && labels[curr] == null) {
+            missing.add(curr);
+            curr = store.getParent(curr);
+        }
+        for (int i = missing.size() - 1; i >= 0; i--) {
+            int s = missing.get(i);
+            int parent = store.getParent(s);
+            labels[s] = new IsoLabel(store.getNode(s), store.getEdge(s), store.getWeight(s), store.getTime(s),
+                    store.getDistance(s), parent == IsoLabelStore.NO_PARENT ? null : labels[parent]);
+        }
+        return labels[slot];
+    }
+
+    private double getExploreValue(int slot) {
         if (exploreType == TIME)
-            return label.time;
+            return store.getTime(slot);
         if (exploreType == WEIGHT)
-            return label.weight;
-        return label.distance;
+            return store.getWeight(slot);
+        return store.getDistance(slot);
     }
 
     @Override
@@ -21,9 +21,12 @@ package com.graphhopper.reader.osm;
 import com.carrotsearch.hppc.LongScatterSet;
 import com.carrotsearch.hppc.LongSet;
 import com.graphhopper.coll.GHLongLongBTree;
+import com.graphhopper.coll.GHLongLongPagedArray;
 import com.graphhopper.coll.LongLongMap;
 import com.graphhopper.reader.ReaderNode;
+import com.graphhopper.routing.OSMReaderConfig.NodeIdMap;
 import com.graphhopper.search.KVStorage;
+import com.graphhopper.storage.DAType;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.util.PointAccess;
 import com.graphhopper.util.PointList;
@@ -80,10 +83,11 @@ class OSMNodeData {
     private long nextArtificialOSMNodeId = -Long.MAX_VALUE;
 
     public OSMNodeData(PointAccess nodeAccess, Directory directory) {
-        // We use a b-tree that can store as many entries as there are longs. A tree is also more
-        // memory efficient, because there is no waste for empty entries, and it also avoids
-        // allocating big arrays when growing the size.
-        idsByOsmNodeIds = new GHLongLongBTree(200, 5, EMPTY_NODE);
+        this(nodeAccess, directory, NodeIdMap.BTREE);
+    }
+
+    public OSMNodeData(PointAccess nodeAccess, Directory directory, NodeIdMap nodeIdMap) {
+        idsByOsmNodeIds = createIdMap(directory, nodeIdMap);
         towerNodes = nodeAccess;
         pillarNodes = new PillarInfo(towerNodes.is3D(), directory);
 
@@ -92,6 +96,24 @@ class OSMNodeData {
         nodeKVStorage = new KVStorage(directory, false).create(100);
     }
 
+    private static LongLongMap createIdMap(Directory directory, NodeIdMap nodeIdMap) {
+        switch (nodeIdMap) {
+            case BTREE:
+                // We use a b-tree that can store as many entries as there are longs. A tree is also more
+                // memory efficient, because there is no waste for empty entries, and it also avoids
+                // allocating big arrays when growing the size.
+                return new GHLongLongBTree(200, 5, EMPTY_NODE);
+            case RAM:
+                // For large areas most pages of the OSM node ids are used by at least one way, so we can store the
+                // ids in pages and save the memory needed for the keys of the b-tree
+                return new GHLongLongPagedArray(directory, "tmp_osm_node_ids", DAType.RAM, 5, EMPTY_NODE);
+            case MMAP:
+                return new GHLongLongPagedArray(directory, "tmp_osm_node_ids", DAType.MMAP, 5, EMPTY_NODE);
+            default:
+                throw new IllegalArgumentException("Unknown node id map: " + nodeIdMap);
+        }
+    }
+
     public boolean is3D() {
         return towerNodes.is3D();
     }
@@ -133,6 +155,13 @@ class OSMNodeData {
         return idsByOsmNodeIds.getSize();
     }
 
+    /**
+     * @return the memory used to map the OSM node ids in MB, which can also be located outside the Java heap
+     */
+    public int getNodeIdMapMemoryUsage() {
+        return idsByOsmNodeIds.getMemoryUsage();
+    }
+
     public long getTaggedNodeCount() {
         return nodeTagIndicesByOsmNodeIds.getSize();
     }
@@ -34,6 +34,7 @@ import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.routing.OSMReaderConfig;
 import com.graphhopper.routing.ev.Country;
 import com.graphhopper.routing.ev.EdgeIntAccess;
+import com.graphhopper.routing.ev.IntsRefEdgeIntAccess;
 import com.graphhopper.routing.ev.State;
 import com.graphhopper.routing.util.AreaIndex;
 import com.graphhopper.routing.util.CustomArea;
@@ -56,6 +57,8 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.LongToIntFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -78,6 +81,8 @@ public class OSMReader {
     private static final Logger LOGGER = LoggerFactory.getLogger(OSMReader.class);
 
     private static final Pattern WAY_NAME_PATTERN = Pattern.compile("; *");
+    // the number of edges that are parsed in parallel before they are added to the graph
+    private static final int PARSE_BATCH_SIZE = 8_192;
 
     private final OSMReaderConfig config;
     private final BaseGraph baseGraph;
@@ -95,7 +100,10 @@ public class OSMReader {
 
     private final IntsRef tempRelFlags;
     private Date osmDataDate;
-    private long zeroCounter = 0;
+    private final AtomicLong zeroCounter = new AtomicLong();
+    // only used if the tags are parsed on multiple threads, see OSMReaderConfig#setParseThreads
+    private ExecutorService parseExecutor;
+    private final List<PendingEdge> pendingEdges = new ArrayList<>();
 
     private GHLongLongHashMap osmWayIdToRelationFlagsMap = new GHLongLongHashMap(200, .5f);
     private WayToEdgesMap restrictedWaysToEdgesMap = new WayToEdgesMap();
@@ -164,7 +172,7 @@ public class OSMReader {
         if (!baseGraph.isInitialized())
             throw new IllegalStateException("BaseGraph must be initialize before we can read OSM");
 
-        WaySegmentParser waySegmentParser = new WaySegmentParser.Builder(baseGraph.getNodeAccess(), baseGraph.getDirectory())
+        WaySegmentParser waySegmentParser = new WaySegmentParser.Builder(baseGraph.getNodeAccess(), baseGraph.getDirectory(), config.getNodeIdMap())
                 .setElevationProvider(eleProvider)
                 .setWayFilter(this::acceptWay)
                 .setSplitNodeFilter(this::isBarrierNode)
@@ -174,7 +182,17 @@ public class OSMReader {
                 .setEdgeHandler(this::addEdge)
                 .setWorkerThreads(config.getWorkerThreads())
                 .build();
-        waySegmentParser.readOSM(osmFile);
+        if (config.getParseThreads() > 1)
+            parseExecutor = Executors.newFixedThreadPool(config.getParseThreads());
+        try {
+            waySegmentParser.readOSM(osmFile);
+            addPendingEdges();
+        } finally {
+            if (parseExecutor != null) {
+                parseExecutor.shutdownNow();
+                parseExecutor = null;
+            }
+        }
         osmDataDate = waySegmentParser.getTimeStamp();
         if (baseGraph.getNodes() == 0)
             throw new RuntimeException("Graph after reading OSM must not be empty");
@@ -182,7 +200,7 @@ public class OSMReader {
         addRestrictionsToGraph();
         releaseRestrictionData();
         LOGGER.info("Finished reading OSM file: {}, nodes: {}, edges: {}, zero distance edges: {}",
-                osmFile.getAbsolutePath(), nf(baseGraph.getNodes()), nf(baseGraph.getEdges()), nf(zeroCounter));
+                osmFile.getAbsolutePath(), nf(baseGraph.getNodes()), nf(baseGraph.getEdges()), nf(zeroCounter.get()));
     }
 
     /**
@@ -321,16 +339,41 @@ public class OSMReader {
         if (pointList.size() != nodeTags.size())
             throw new AssertionError("there should be as many maps of node tags as there are points. node tags: " + nodeTags.size() + ", points: " + pointList.size());
 
+        if (pointList.is3D() && config.getLongEdgeSamplingDistance() < Double.MAX_VALUE)
+            // sample points along long edges. we do this before the edge is (maybe) parsed on another thread, because
+            // the elevation provider is not thread-safe
+            pointList = EdgeSampling.sample(pointList, config.getLongEdgeSamplingDistance(), distCalc, eleProvider);
+
+        if (parseExecutor != null) {
+            // the way is modified after this call, so we need to keep a copy of it
+            IntsRef relationFlags = new IntsRef(tempRelFlags.length);
+            System.arraycopy(getRelFlagsMap(way.getId()).ints, 0, relationFlags.ints, 0, relationFlags.length);
+            pendingEdges.add(new PendingEdge(fromIndex, toIndex, pointList, copyWay(way), nodeTags, relationFlags));
+            if (pendingEdges.size() >= PARSE_BATCH_SIZE)
+                addPendingEdges();
+            return;
+        }
+
+        double distance = processGeometry(pointList, way);
+        setArtificialWayTags(pointList, way, distance, nodeTags);
+        IntsRef relationFlags = getRelFlagsMap(way.getId());
+        EdgeIteratorState edge = baseGraph.edge(fromIndex, toIndex).setDistance(distance);
+        osmParsers.handleWayTags(edge.getEdge(), edgeIntAccess, way, relationFlags);
+        finishEdge(edge, fromIndex, toIndex, pointList, way);
+    }
+
+    /**
+     * Smooths and simplifies the given point list
+     *
+     * @return the distance of the edge
+     */
+    private double processGeometry(PointList pointList, ReaderWay way) {
         // todo: in principle it should be possible to delay elevation calculation so we do not need to store
         // elevations during import (saves memory in pillar info during import). also note that we already need to
         // to do some kind of elevation processing (bridge+tunnel interpolation in GraphHopper class, maybe this can
         // go together
 
         if (pointList.is3D()) {
-            // sample points along long edges
-            if (config.getLongEdgeSamplingDistance() < Double.MAX_VALUE)
-                pointList = EdgeSampling.sample(pointList, config.getLongEdgeSamplingDistance(), distCalc, eleProvider);
-
             // smooth the elevation before calculating the distance because the distance will be incorrect if calculated afterwards
             if (config.getElevationSmoothing().equals("ramer"))
                 EdgeElevationSmoothingRamer.smooth(pointList, config.getElevationSmoothingRamerMax());
@@ -348,7 +391,7 @@ public class OSMReader {
         if (distance < 0.001) {
             // As investigation shows often two paths should have crossed via one identical point
             // but end up in two very close points.
-            zeroCounter++;
+            zeroCounter.incrementAndGet();
             distance = 0.001;
         }
 
@@ -365,11 +408,10 @@ public class OSMReader {
             LOGGER.warn("Bug in OSM or GraphHopper. Too big tower node distance " + distance + " reset to large value, osm way " + way.getId());
             distance = maxDistance;
         }
+        return distance;
+    }
 
-        setArtificialWayTags(pointList, way, distance, nodeTags);
-        IntsRef relationFlags = getRelFlagsMap(way.getId());
-        EdgeIteratorState edge = baseGraph.edge(fromIndex, toIndex).setDistance(distance);
-        osmParsers.handleWayTags(edge.getEdge(), edgeIntAccess, way, relationFlags);
+    private void finishEdge(EdgeIteratorState edge, int fromIndex, int toIndex, PointList pointList, ReaderWay way) {
         List<KVStorage.KeyValue> list = way.getTag("key_values", Collections.emptyList());
         if (!list.isEmpty())
             edge.setKeyValues(list);
@@ -387,6 +429,80 @@ public class OSMReader {
         restrictedWaysToEdgesMap.putIfReserved(way.getId(), edge.getEdge());
     }
 
+    private static ReaderWay copyWay(ReaderWay way) {
+        ReaderWay copy = new ReaderWay(way.getId());
+        copy.setTags(way.getTags());
+        copy.getNodes().addAll(way.getNodes());
+        return copy;
+    }
+
+    /**
+     * Parses the tags of the pending edges in parallel and then adds them to the graph in the order they were created.
+     * The edge ids are known before the edges are added, so tag parsers that store data per edge id outside the graph
+     * (like the max speed calculator) see the same ids as in the sequential case.
+     */
+    private void addPendingEdges() {
+        if (pendingEdges.isEmpty())
+            return;
+        final int firstEdge = baseGraph.getEdges();
+        final int chunkSize = Math.max(64, pendingEdges.size() / (4 * config.getParseThreads()));
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int from = 0; from < pendingEdges.size(); from += chunkSize) {
+            final int chunkStart = from;
+            final int chunkEnd = Math.min(pendingEdges.size(), from + chunkSize);
+            tasks.add(Executors.callable(() -> {
+                for (int i = chunkStart; i < chunkEnd; i++)
+                    parsePendingEdge(pendingEdges.get(i), firstEdge + i);
+            }));
+        }
+        try {
+            for (Future<Object> future : parseExecutor.invokeAll(tasks))
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not parse the tags of OSM ways", e.getCause());
+        }
+
+        for (int i = 0; i < pendingEdges.size(); i++) {
+            PendingEdge pending = pendingEdges.get(i);
+            EdgeIteratorState edge = baseGraph.edge(pending.fromIndex, pending.toIndex).setDistance(pending.distance);
+            if (edge.getEdge() != firstEdge + i)
+                throw new IllegalStateException("Unexpected edge id " + edge.getEdge() + ", expected: " + (firstEdge + i));
+            edge.setFlags(pending.flags);
+            finishEdge(edge, pending.fromIndex, pending.toIndex, pending.pointList, pending.way);
+        }
+        pendingEdges.clear();
+    }
+
+    private void parsePendingEdge(PendingEdge pending, int edgeId) {
+        pending.distance = processGeometry(pending.pointList, pending.way);
+        setArtificialWayTags(pending.pointList, pending.way, pending.distance, pending.nodeTags);
+        pending.flags = new IntsRef(baseGraph.getIntsForFlags());
+        osmParsers.handleWayTags(edgeId, new IntsRefEdgeIntAccess(pending.flags), pending.way, pending.relationFlags);
+    }
+
+    private static class PendingEdge {
+        final int fromIndex;
+        final int toIndex;
+        final PointList pointList;
+        final ReaderWay way;
+        final List<Map<String, Object>> nodeTags;
+        final IntsRef relationFlags;
+        double distance;
+        IntsRef flags;
+
+        PendingEdge(int fromIndex, int toIndex, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags, IntsRef relationFlags) {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.pointList = pointList;
+            this.way = way;
+            this.nodeTags = nodeTags;
+            this.relationFlags = relationFlags;
+        }
+    }
+
     private void checkCoordinates(int nodeIndex, GHPoint point) {
         final double tolerance = 1.e-6;
         if (Math.abs(nodeAccess.getLat(nodeIndex) - point.getLat()) > tolerance || Math.abs(nodeAccess.getLon(nodeIndex) - point.getLon()) > tolerance)
@@ -24,6 +24,7 @@ import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.reader.ReaderRelation;
 import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.ElevationProvider;
+import com.graphhopper.routing.OSMReaderConfig.NodeIdMap;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointAccess;
@@ -100,7 +101,7 @@ public class WaySegmentParser {
 
         long nodes = nodeData.getNodeCount();
 
-        LOGGER.info("Creating graph. Node count (pillar+tower): " + nodes + ", " + Helper.getMemInfo());
+        LOGGER.info("Creating graph. Node count (pillar+tower): " + nodes + ", node id map: " + nodeData.getNodeIdMapMemoryUsage() + "MB, " + Helper.getMemInfo());
 
         LOGGER.info("pass2 - start");
         StopWatch sw2 = new StopWatch().start();
@@ -419,7 +420,16 @@ public class WaySegmentParser {
          * @param directory   the directory to be used to store temporary data
          */
         public Builder(PointAccess pointAccess, Directory directory) {
-            waySegmentParser = new WaySegmentParser(new OSMNodeData(pointAccess, directory));
+            this(pointAccess, directory, NodeIdMap.BTREE);
+        }
+
+        /**
+         * @param pointAccess used to store tower node coordinates while parsing the ways
+         * @param directory   the directory to be used to store temporary data
+         * @param nodeIdMap   the data structure used to map the OSM node ids to internal ids
+         */
+        public Builder(PointAccess pointAccess, Directory directory, NodeIdMap nodeIdMap) {
+            waySegmentParser = new WaySegmentParser(new OSMNodeData(pointAccess, directory, nodeIdMap));
         }
 
         /**
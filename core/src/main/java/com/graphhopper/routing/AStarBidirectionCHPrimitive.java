@@ -0,0 +1,80 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.weighting.BalancedWeightApproximator;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
+import com.graphhopper.routing.weighting.WeightApproximator;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.DistancePlaneProjection;
+
+/**
+ * Bidirectional A* for node- and edge-based CH that keeps its search state in primitive arrays. For node-based CH
+ * the approximation is used to order the entries of the open sets like in {@link AStarBidirectionCH}. For edge-based
+ * CH the entries are ordered by their weight and the approximation is only used to skip entries that cannot be part
+ * of the shortest path like in {@link AStarBidirectionEdgeCHNoSOD}.
+ */
+public class AStarBidirectionCHPrimitive extends DijkstraBidirectionCHPrimitive {
+    private BalancedWeightApproximator weightApprox;
+
+    public AStarBidirectionCHPrimitive(RoutingCHGraph graph) {
+        this(graph, new BidirSearchState(Math.min(Math.max(200, graph.getNodes() / 10), 2000)));
+    }
+
+    public AStarBidirectionCHPrimitive(RoutingCHGraph graph, BidirSearchState searchState) {
+        super(graph, searchState);
+        setStallOnDemand(false);
+        BeelineWeightApproximator defaultApprox = new BeelineWeightApproximator(nodeAccess, graph.getWeighting());
+        defaultApprox.setDistanceCalc(DistancePlaneProjection.DIST_PLANE);
+        setApproximation(defaultApprox);
+    }
+
+    @Override
+    void init(int from, int to) {
+        weightApprox.setFromTo(from, to);
+        super.init(from, to);
+    }
+
+    @Override
+    protected double calcPriority(int node, double weight, boolean reverse) {
+        if (traversalMode.isEdgeBased())
+            return weight;
+        return weight + weightApprox.approximate(node, reverse);
+    }
+
+    @Override
+    protected boolean entryCanBeSkipped(int slot, SPTStore store, boolean reverse) {
+        if (!traversalMode.isEdgeBased())
+            return false;
+        return store.getWeight(slot) + weightApprox.approximate(store.getAdjNode(slot), reverse) > bestWeight;
+    }
+
+    public WeightApproximator getApproximation() {
+        return weightApprox.getApproximation();
+    }
+
+    public AStarBidirectionCHPrimitive setApproximation(WeightApproximator approx) {
+        weightApprox = new BalancedWeightApproximator(approx);
+        return this;
+    }
+
+    @Override
+    public String getName() {
+        return traversalMode.isEdgeBased() ? "astarbi|ch|edge_based|no_sod" : "astarbi|ch";
+    }
+}
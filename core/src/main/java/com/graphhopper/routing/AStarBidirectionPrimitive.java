@@ -0,0 +1,81 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.BalancedWeightApproximator;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
+import com.graphhopper.routing.weighting.WeightApproximator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.DistancePlaneProjection;
+import com.graphhopper.util.Parameters;
+
+/**
+ * Bidirectional A* that keeps its search state in primitive arrays, see {@link AbstractBidirPrimitiveAlgo} and
+ * {@link AStarBidirection}.
+ */
+public class AStarBidirectionPrimitive extends DijkstraBidirectionPrimitive {
+    private BalancedWeightApproximator weightApprox;
+    double stoppingCriterionOffset;
+
+    public AStarBidirectionPrimitive(Graph graph, Weighting weighting, TraversalMode tMode) {
+        this(graph, weighting, tMode, new BidirSearchState(Math.min(Math.max(200, graph.getNodes() / 10), 150_000)));
+    }
+
+    public AStarBidirectionPrimitive(Graph graph, Weighting weighting, TraversalMode tMode, BidirSearchState searchState) {
+        super(graph, weighting, tMode, searchState);
+        BeelineWeightApproximator defaultApprox = new BeelineWeightApproximator(nodeAccess, weighting);
+        defaultApprox.setDistanceCalc(DistancePlaneProjection.DIST_PLANE);
+        setApproximation(defaultApprox);
+    }
+
+    @Override
+    void init(int from, int to) {
+        weightApprox.setFromTo(from, to);
+        stoppingCriterionOffset = weightApprox.approximate(to, true) + weightApprox.getSlack();
+        super.init(from, to);
+    }
+
+    @Override
+    protected double calcPriority(int node, double weight, boolean reverse) {
+        return weight + weightApprox.approximate(node, reverse);
+    }
+
+    @Override
+    protected boolean finished() {
+        if (finishedFrom || finishedTo)
+            return true;
+
+        return currFromPriority + currToPriority >= bestWeight + stoppingCriterionOffset;
+    }
+
+    public WeightApproximator getApproximation() {
+        return weightApprox.getApproximation();
+    }
+
+    public AStarBidirectionPrimitive setApproximation(WeightApproximator approx) {
+        weightApprox = new BalancedWeightApproximator(approx);
+        return this;
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.ASTAR_BI + "|" + weightApprox;
+    }
+}
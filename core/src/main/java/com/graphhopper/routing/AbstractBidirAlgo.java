@@ -44,6 +44,7 @@ public abstract class AbstractBidirAlgo implements EdgeToEdgeRoutingAlgorithm {
     protected double bestWeight = Double.MAX_VALUE;
     protected int maxVisitedNodes = Integer.MAX_VALUE;
     protected long timeoutMillis = Long.MAX_VALUE;
+    protected SearchBudget searchBudget;
     private long finishTimeMillis = Long.MAX_VALUE;
     PriorityQueue<SPTEntry> pqOpenSetFrom;
     PriorityQueue<SPTEntry> pqOpenSetTo;
@@ -271,6 +272,11 @@ public abstract class AbstractBidirAlgo implements EdgeToEdgeRoutingAlgorithm {
         this.timeoutMillis = timeoutMillis;
     }
 
+    @Override
+    public void setSearchBudget(SearchBudget searchBudget) {
+        this.searchBudget = searchBudget;
+    }
+
     protected void checkAlreadyRun() {
         if (alreadyRun)
             throw new IllegalStateException("Create a new instance per call");
@@ -295,8 +301,12 @@ public abstract class AbstractBidirAlgo implements EdgeToEdgeRoutingAlgorithm {
         return maxVisitedNodes < getVisitedNodes();
     }
 
+    /**
+     * @return true if the timeout of this search passed or if the budget of the request is exceeded
+     */
     protected boolean isTimeoutExceeded() {
-        return finishTimeMillis < Long.MAX_VALUE && System.currentTimeMillis() > finishTimeMillis;
+        return finishTimeMillis < Long.MAX_VALUE && System.currentTimeMillis() > finishTimeMillis
+                || searchBudget != null && searchBudget.isExceeded(getVisitedNodes());
     }
 
 }
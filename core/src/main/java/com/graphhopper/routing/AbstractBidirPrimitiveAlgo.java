@@ -0,0 +1,309 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+
+/**
+ * Common subclass for bidirectional algorithms that keep their search state in a {@link BidirSearchState} instead of
+ * creating {@link SPTEntry} objects for every visited node. The shortest path tree entries are referenced by their
+ * slots in the forward and backward {@link SPTStore}s. Entries that were not settled yet are updated in place. The
+ * {@link SPTEntry} objects needed for the path extraction are only created once the search is finished.
+ * <p>
+ * The search state is cleared when the search starts, so the same {@link BidirSearchState} can be passed to many
+ * algorithm instances (one after another), e.g. by keeping one search state per thread.
+ *
+ * @see AbstractBidirAlgo for the implementation using {@link SPTEntry} objects
+ */
+public abstract class AbstractBidirPrimitiveAlgo implements EdgeToEdgeRoutingAlgorithm {
+    /**
+     * The root of both shortest path trees is always stored at this slot
+     */
+    protected static final int ROOT_SLOT = 0;
+    protected final TraversalMode traversalMode;
+    protected final SPTStore fwd;
+    protected final SPTStore bwd;
+    private final BidirSearchState searchState;
+    protected int from;
+    protected int to;
+    protected int fromOutEdge;
+    protected int toInEdge;
+    protected int currFrom = -1;
+    protected int currTo = -1;
+    protected double currFromPriority;
+    protected double currToPriority;
+    protected int bestFwdSlot = -1;
+    protected int bestBwdSlot = -1;
+    protected double bestWeight = Double.MAX_VALUE;
+    protected int maxVisitedNodes = Integer.MAX_VALUE;
+    protected long timeoutMillis = Long.MAX_VALUE;
+    protected SearchBudget searchBudget;
+    private long finishTimeMillis = Long.MAX_VALUE;
+    protected boolean finishedFrom;
+    protected boolean finishedTo;
+    int visitedCountFrom;
+    int visitedCountTo;
+    private boolean alreadyRun;
+
+    public AbstractBidirPrimitiveAlgo(TraversalMode traversalMode, BidirSearchState searchState) {
+        this.traversalMode = traversalMode;
+        this.searchState = searchState;
+        fwd = searchState.getFwd();
+        bwd = searchState.getBwd();
+        fromOutEdge = ANY_EDGE;
+        toInEdge = ANY_EDGE;
+    }
+
+    /**
+     * Expands the entry at the given slot, i.e. relaxes all its adjacent edges using {@link #relax} and updates the
+     * best path found so far.
+     *
+     * @param store   the store of the current search direction
+     * @param other   the store of the opposite search direction
+     * @param reverse true if we are currently looking at the backward search, false otherwise
+     */
+    protected abstract void fillEdges(int slot, SPTStore store, SPTStore other, boolean reverse);
+
+    protected abstract void postInitFrom();
+
+    protected abstract void postInitTo();
+
+    protected abstract Path extractPath(SPTEntry fwdEntry, SPTEntry bwdEntry, double weight);
+
+    protected abstract Path createEmptyPath();
+
+    @Override
+    public List<Path> calcPaths(int from, int to) {
+        return Collections.singletonList(calcPath(from, to));
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        return calcPath(from, to, ANY_EDGE, ANY_EDGE);
+    }
+
+    @Override
+    public Path calcPath(int from, int to, int fromOutEdge, int toInEdge) {
+        if ((fromOutEdge != ANY_EDGE || toInEdge != ANY_EDGE) && !traversalMode.isEdgeBased()) {
+            throw new IllegalArgumentException("Restricting the start/target edges is only possible for edge-based graph traversal");
+        }
+        this.fromOutEdge = fromOutEdge;
+        this.toInEdge = toInEdge;
+        checkAlreadyRun();
+        setupFinishTime();
+        searchState.clear();
+        init(from, to);
+        runAlgo();
+        return extractPath();
+    }
+
+    void init(int from, int to) {
+        this.from = from;
+        this.to = to;
+        // for node-based traversal the roots can be found via their node ids, see AbstractBidirAlgo#initFrom
+        int rootKey = traversalMode.isEdgeBased() ? -1 : from;
+        currFrom = fwd.add(rootKey, EdgeIterator.NO_EDGE, EdgeIterator.NO_EDGE, from, 0, SPTStore.NO_PARENT);
+        currFromPriority = calcPriority(from, 0, false);
+        fwd.push(currFrom, currFromPriority);
+        rootKey = traversalMode.isEdgeBased() ? -1 : to;
+        currTo = bwd.add(rootKey, EdgeIterator.NO_EDGE, EdgeIterator.NO_EDGE, to, 0, SPTStore.NO_PARENT);
+        currToPriority = calcPriority(to, 0, true);
+        bwd.push(currTo, currToPriority);
+        assert currFrom == ROOT_SLOT && currTo == ROOT_SLOT;
+
+        if (from == to) {
+            if (!traversalMode.isEdgeBased()) {
+                bestFwdSlot = ROOT_SLOT;
+                bestBwdSlot = ROOT_SLOT;
+                bestWeight = 0;
+            } else if (fromOutEdge == ANY_EDGE && toInEdge == ANY_EDGE) {
+                // special handling if start and end are the same and no directions are restricted
+                // the resulting weight should be zero
+                bestFwdSlot = ROOT_SLOT;
+                bestBwdSlot = ROOT_SLOT;
+                bestWeight = 0;
+                finishedFrom = true;
+                finishedTo = true;
+                return;
+            }
+        }
+        postInitFrom();
+        postInitTo();
+    }
+
+    /**
+     * @return the priority of an entry in the open set, for Dijkstra this is simply the weight
+     */
+    protected double calcPriority(int node, double weight, boolean reverse) {
+        return weight;
+    }
+
+    protected void runAlgo() {
+        while (!finished() && !isMaxVisitedNodesExceeded() && !isTimeoutExceeded()) {
+            if (!finishedFrom)
+                finishedFrom = !fillEdgesFrom();
+
+            if (!finishedTo)
+                finishedTo = !fillEdgesTo();
+        }
+    }
+
+    protected boolean finished() {
+        if (finishedFrom || finishedTo)
+            return true;
+
+        return currFromPriority + currToPriority >= bestWeight;
+    }
+
+    boolean fillEdgesFrom() {
+        if (fwd.isQueueEmpty())
+            return false;
+        currFromPriority = fwd.peekPriority();
+        currFrom = fwd.poll();
+        visitedCountFrom++;
+        if (entryCanBeSkipped(currFrom, fwd, false))
+            return true;
+        fillEdges(currFrom, fwd, bwd, false);
+        return true;
+    }
+
+    boolean fillEdgesTo() {
+        if (bwd.isQueueEmpty())
+            return false;
+        currToPriority = bwd.peekPriority();
+        currTo = bwd.poll();
+        visitedCountTo++;
+        if (entryCanBeSkipped(currTo, bwd, true))
+            return true;
+        fillEdges(currTo, bwd, fwd, true);
+        return true;
+    }
+
+    /**
+     * @return true if the entry that was just polled does not need to be expanded
+     */
+    protected boolean entryCanBeSkipped(int slot, SPTStore store, boolean reverse) {
+        return false;
+    }
+
+    /**
+     * Adds a new entry for the given traversal id or updates the existing one if the given weight is smaller.
+     *
+     * @return the slot of the new or updated entry or -1 if the existing entry already has a smaller weight
+     */
+    protected int relax(SPTStore store, int traversalId, int edge, int incEdge, int adjNode, double weight, int parent, boolean reverse) {
+        int slot = store.getSlot(traversalId);
+        if (slot < 0) {
+            slot = store.add(traversalId, edge, incEdge, adjNode, weight, parent);
+        } else if (store.getWeight(slot) > weight) {
+            if (store.isQueued(slot)) {
+                store.set(slot, edge, incEdge, weight, parent);
+            } else {
+                // the entry was settled already, which is possible for CH or inconsistent A* approximations. it
+                // might be the parent of other entries, so we must not change it and add a new one instead
+                boolean isBestEntry = slot == (reverse ? bestBwdSlot : bestFwdSlot);
+                slot = store.add(traversalId, edge, incEdge, adjNode, weight, parent);
+                if (isBestEntry)
+                    if (reverse)
+                        bestBwdSlot = slot;
+                    else
+                        bestFwdSlot = slot;
+            }
+        } else {
+            return -1;
+        }
+        store.push(slot, calcPriority(adjNode, weight, reverse));
+        return slot;
+    }
+
+    /**
+     * Updates the best path if the sum of the weights of the two given entries is smaller than the current best weight
+     */
+    protected void updateBestPath(int slot, int otherSlot, double weight, boolean reverse) {
+        if (weight < bestWeight) {
+            bestFwdSlot = reverse ? otherSlot : slot;
+            bestBwdSlot = reverse ? slot : otherSlot;
+            bestWeight = weight;
+        }
+    }
+
+    protected Path extractPath() {
+        if (finished())
+            return extractPath(fwd.createEntry(bestFwdSlot), bwd.createEntry(bestBwdSlot), bestWeight);
+
+        return createEmptyPath();
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedCountFrom + visitedCountTo;
+    }
+
+    @Override
+    public void setMaxVisitedNodes(int numberOfNodes) {
+        this.maxVisitedNodes = numberOfNodes;
+    }
+
+    @Override
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void setSearchBudget(SearchBudget searchBudget) {
+        this.searchBudget = searchBudget;
+    }
+
+    protected void checkAlreadyRun() {
+        if (alreadyRun)
+            throw new IllegalStateException("Create a new instance per call");
+
+        alreadyRun = true;
+    }
+
+    protected void setupFinishTime() {
+        try {
+            this.finishTimeMillis = Math.addExact(System.currentTimeMillis(), timeoutMillis);
+        } catch (ArithmeticException e) {
+            this.finishTimeMillis = Long.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    protected boolean isMaxVisitedNodesExceeded() {
+        return maxVisitedNodes < getVisitedNodes();
+    }
+
+    /**
+     * @return true if the timeout of this search passed or if the budget of the request is exceeded
+     */
+    protected boolean isTimeoutExceeded() {
+        return finishTimeMillis < Long.MAX_VALUE && System.currentTimeMillis() > finishTimeMillis
+                || searchBudget != null && searchBudget.isExceeded(getVisitedNodes());
+    }
+}
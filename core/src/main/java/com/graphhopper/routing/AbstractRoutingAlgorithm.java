@@ -38,6 +38,7 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm {
     protected final EdgeExplorer edgeExplorer;
     protected int maxVisitedNodes = Integer.MAX_VALUE;
     protected long timeoutMillis = Long.MAX_VALUE;
+    protected SearchBudget searchBudget;
     private long finishTimeMillis = Long.MAX_VALUE;
     private boolean alreadyRun;
 
@@ -66,6 +67,11 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm {
         this.timeoutMillis = timeoutMillis;
     }
 
+    @Override
+    public void setSearchBudget(SearchBudget searchBudget) {
+        this.searchBudget = searchBudget;
+    }
+
     protected boolean accept(EdgeIteratorState iter, int prevOrNextEdgeId) {
         // for edge-based traversal we leave it for TurnWeighting to decide whether or not a u-turn is acceptable,
         // but for node-based traversal we exclude such a turn for performance reasons already here
@@ -110,8 +116,12 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm {
         return maxVisitedNodes < getVisitedNodes();
     }
 
+    /**
+     * @return true if the timeout of this search passed or if the budget of the request is exceeded
+     */
     protected boolean isTimeoutExceeded() {
-        return finishTimeMillis < Long.MAX_VALUE && System.currentTimeMillis() > finishTimeMillis;
+        return finishTimeMillis < Long.MAX_VALUE && System.currentTimeMillis() > finishTimeMillis
+                || searchBudget != null && searchBudget.isExceeded(getVisitedNodes());
     }
 
 }
@@ -30,6 +30,7 @@ public class AlgorithmOptions {
     private TraversalMode traversalMode = TraversalMode.NODE_BASED;
     private int maxVisitedNodes = Integer.MAX_VALUE;
     private long timeoutMillis = Long.MAX_VALUE;
+    private SearchBudget searchBudget;
 
     public AlgorithmOptions() {
     }
@@ -38,6 +39,7 @@ public class AlgorithmOptions {
         setAlgorithm(b.getAlgorithm());
         setTraversalMode(b.getTraversalMode());
         setMaxVisitedNodes(b.getMaxVisitedNodes());
+        setSearchBudget(b.getSearchBudget());
         setHints(b.getHints());
     }
 
@@ -61,6 +63,11 @@ public class AlgorithmOptions {
         return this;
     }
 
+    public AlgorithmOptions setSearchBudget(SearchBudget searchBudget) {
+        this.searchBudget = searchBudget;
+        return this;
+    }
+
     public AlgorithmOptions setHints(PMap pMap) {
         this.hints = new PMap(pMap);
         return this;
@@ -82,6 +89,13 @@ public class AlgorithmOptions {
         return timeoutMillis;
     }
 
+    /**
+     * @return the budget of the request or null if the request has no budget
+     */
+    public SearchBudget getSearchBudget() {
+        return searchBudget;
+    }
+
     public PMap getHints() {
         return hints;
     }
@@ -0,0 +1,71 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+/**
+ * The search state of a bidirectional search, i.e. the forward and backward shortest path trees including their open
+ * sets, see {@link SPTStore}. All data is kept in primitive arrays that are re-used whenever a search starts, so when
+ * the same instance is used for many searches, for example by keeping one instance per thread, the routing algorithm
+ * does not create new objects for every node it visits.
+ * <p>
+ * An instance must not be used by two searches at the same time.
+ *
+ * @see AbstractBidirPrimitiveAlgo
+ */
+public class BidirSearchState {
+    private final SPTStore fwd;
+    private final SPTStore bwd;
+
+    public BidirSearchState() {
+        this(1000);
+    }
+
+    /**
+     * @param initialCapacity the number of entries each of the two shortest path trees can hold before the underlying
+     *                        arrays need to be resized
+     */
+    public BidirSearchState(int initialCapacity) {
+        fwd = new SPTStore(initialCapacity);
+        bwd = new SPTStore(initialCapacity);
+    }
+
+    public SPTStore getFwd() {
+        return fwd;
+    }
+
+    public SPTStore getBwd() {
+        return bwd;
+    }
+
+    /**
+     * @return the maximum number of entries the forward or backward store can hold without allocating more memory
+     */
+    public int getCapacity() {
+        return Math.max(fwd.getCapacity(), bwd.getCapacity());
+    }
+
+    public void clear() {
+        fwd.clear();
+        bwd.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "fwd: " + fwd + ", bwd: " + bwd;
+    }
+}
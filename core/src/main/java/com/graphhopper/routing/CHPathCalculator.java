@@ -34,6 +34,7 @@ public class CHPathCalculator implements PathCalculator {
     private final PMap algoOpts;
     private String debug;
     private int visitedNodes;
+    private String algorithmName = "";
 
     public CHPathCalculator(CHRoutingAlgorithmFactory algoFactory, PMap algoOpts) {
         this.algoFactory = algoFactory;
@@ -67,10 +68,16 @@ public class CHPathCalculator implements PathCalculator {
         }
         if (paths.isEmpty())
             throw new IllegalStateException("Path list was empty for " + from + " -> " + to);
+        SearchBudget searchBudget = algoOpts.getObject(SearchBudget.KEY, null);
+        if (searchBudget != null) {
+            searchBudget.consume(algo.getVisitedNodes());
+            searchBudget.check();
+        }
         int maxVisitedNodes = algoOpts.getInt(MAX_VISITED_NODES, Integer.MAX_VALUE);
         if (algo.getVisitedNodes() >= maxVisitedNodes)
             throw new MaximumNodesExceededException("No path found due to maximum nodes exceeded " + maxVisitedNodes, maxVisitedNodes);
         visitedNodes = algo.getVisitedNodes();
+        algorithmName = algo.getName();
         debug += ", " + algo.getName() + "-routing:" + sw.stop().getMillis() + " ms";
         return paths;
     }
@@ -85,4 +92,9 @@ public class CHPathCalculator implements PathCalculator {
         return visitedNodes;
     }
 
+    @Override
+    public String getAlgorithmName() {
+        return algorithmName;
+    }
+
 }
\ No newline at end of file
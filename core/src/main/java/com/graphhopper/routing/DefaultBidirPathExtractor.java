@@ -52,11 +52,11 @@ public class DefaultBidirPathExtractor implements BidirPathExtractor {
         if (fwdEntry.adjNode != bwdEntry.adjNode)
             throw new IllegalStateException("forward and backward entries must have same adjacent nodes, fwdEntry:" + fwdEntry + ", bwdEntry:" + bwdEntry);
 
-        StopWatch sw = new StopWatch().start();
+        long start = System.nanoTime();
         extractFwdPath(fwdEntry);
         processMeetingPoint(fwdEntry, bwdEntry);
         extractBwdPath(bwdEntry);
-        setExtractionTime(sw.stop().getNanos());
+        setExtractionTime(start, System.nanoTime() - start);
         path.setFound(true);
         path.setWeight(weight);
         return path;
@@ -91,8 +91,9 @@ public class DefaultBidirPathExtractor implements BidirPathExtractor {
         return currEntry;
     }
 
-    protected void setExtractionTime(long nanos) {
+    protected void setExtractionTime(long startNanos, long nanos) {
         path.setDebugInfo("path extraction: " + nanos / 1000 + " μs");
+        path.setExtractionTime(startNanos, nanos);
     }
 
     protected int getIncEdge(SPTEntry entry) {
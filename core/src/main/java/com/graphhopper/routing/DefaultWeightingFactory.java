@@ -41,10 +41,20 @@ public class DefaultWeightingFactory implements WeightingFactory {
 
     private final BaseGraph graph;
     private final EncodingManager encodingManager;
+    private final TrafficOverlay trafficOverlay;
 
     public DefaultWeightingFactory(BaseGraph graph, EncodingManager encodingManager) {
+        this(graph, encodingManager, null);
+    }
+
+    /**
+     * @param trafficOverlay the custom weightings use the speed factors of this overlay at the time they are created,
+     *                       can be null
+     */
+    public DefaultWeightingFactory(BaseGraph graph, EncodingManager encodingManager, TrafficOverlay trafficOverlay) {
         this.graph = graph;
         this.encodingManager = encodingManager;
+        this.trafficOverlay = trafficOverlay;
     }
 
     @Override
@@ -92,8 +102,8 @@ public class DefaultWeightingFactory implements WeightingFactory {
             final CustomModel mergedCustomModel = CustomModel.merge(customProfile.getCustomModel(), queryCustomModel);
             if (requestHints.has(Parameters.Routing.HEADING_PENALTY))
                 mergedCustomModel.setHeadingPenalty(requestHints.getDouble(Parameters.Routing.HEADING_PENALTY, Parameters.Routing.DEFAULT_HEADING_PENALTY));
-            weighting = CustomModelParser.createWeighting(accessEnc, speedEnc,
-                    priorityEnc, encodingManager, turnCostProvider, mergedCustomModel);
+            weighting = CustomModelParser.createWeighting(accessEnc, speedEnc, priorityEnc, encodingManager, turnCostProvider,
+                    mergedCustomModel, trafficOverlay == null ? TrafficOverlay.Snapshot.EMPTY : trafficOverlay.getSnapshot());
         } else if ("shortest".equalsIgnoreCase(weightingStr)) {
             throw new IllegalArgumentException("Instead of weighting=shortest use weighting=custom with a high distance_influence");
         } else if ("fastest".equalsIgnoreCase(weightingStr)) {
@@ -0,0 +1,233 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ch.EdgeBasedCHBidirPathExtractor;
+import com.graphhopper.routing.ch.NodeBasedCHBidirPathExtractor;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+
+/**
+ * Bidirectional Dijkstra for node- and edge-based CH that keeps its search state in primitive arrays, see
+ * {@link AbstractBidirPrimitiveAlgo}. For node-based CH the same simple stall-on-demand as in
+ * {@link DijkstraBidirectionCH} is used by default.
+ *
+ * @see DijkstraBidirectionCH
+ * @see DijkstraBidirectionEdgeCHNoSOD
+ */
+public class DijkstraBidirectionCHPrimitive extends AbstractBidirPrimitiveAlgo {
+    protected final RoutingCHGraph graph;
+    protected final NodeAccess nodeAccess;
+    protected RoutingCHEdgeExplorer inEdgeExplorer;
+    protected RoutingCHEdgeExplorer outEdgeExplorer;
+    protected CHEdgeFilter levelEdgeFilter;
+    private final EdgeExplorer innerExplorer;
+    private boolean stallOnDemand;
+
+    public DijkstraBidirectionCHPrimitive(RoutingCHGraph graph) {
+        this(graph, new BidirSearchState(Math.min(Math.max(200, graph.getNodes() / 10), 2000)));
+    }
+
+    public DijkstraBidirectionCHPrimitive(RoutingCHGraph graph, BidirSearchState searchState) {
+        super(graph.isEdgeBased() ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED, searchState);
+        this.graph = graph;
+        this.nodeAccess = graph.getBaseGraph().getNodeAccess();
+        outEdgeExplorer = graph.createOutEdgeExplorer();
+        inEdgeExplorer = graph.createInEdgeExplorer();
+        levelEdgeFilter = new AbstractBidirCHAlgo.CHLevelEdgeFilter(graph);
+        // the inner explorer is used to find the bridge nodes for edge-based CH, see AbstractBidirectionEdgeCHNoSOD
+        innerExplorer = graph.isEdgeBased() ? graph.getBaseGraph().createEdgeExplorer() : null;
+        stallOnDemand = !graph.isEdgeBased();
+    }
+
+    /**
+     * Enables or disables stall-on-demand, which is only supported for node-based CH
+     */
+    public DijkstraBidirectionCHPrimitive setStallOnDemand(boolean stallOnDemand) {
+        if (stallOnDemand && traversalMode.isEdgeBased())
+            throw new IllegalArgumentException("Stall-on-demand is not supported for edge-based CH");
+        this.stallOnDemand = stallOnDemand;
+        return this;
+    }
+
+    @Override
+    protected void postInitFrom() {
+        // for edge-based CH we need all edges for the first step, see AbstractBidirectionEdgeCHNoSOD
+        final CHEdgeFilter tmpFilter = traversalMode.isEdgeBased() ? CHEdgeFilter.ALL_EDGES : levelEdgeFilter;
+        if (fromOutEdge == ANY_EDGE)
+            fillEdgesFromUsingFilter(tmpFilter);
+        else
+            fillEdgesFromUsingFilter(edgeState -> tmpFilter.accept(edgeState) && GHUtility.getEdgeFromEdgeKey(edgeState.getOrigEdgeKeyFirst()) == fromOutEdge);
+    }
+
+    @Override
+    protected void postInitTo() {
+        final CHEdgeFilter tmpFilter = traversalMode.isEdgeBased() ? CHEdgeFilter.ALL_EDGES : levelEdgeFilter;
+        if (toInEdge == ANY_EDGE)
+            fillEdgesToUsingFilter(tmpFilter);
+        else
+            fillEdgesToUsingFilter(edgeState -> tmpFilter.accept(edgeState) && GHUtility.getEdgeFromEdgeKey(edgeState.getOrigEdgeKeyLast()) == toInEdge);
+    }
+
+    private void fillEdgesFromUsingFilter(CHEdgeFilter edgeFilter) {
+        CHEdgeFilter tmpFilter = levelEdgeFilter;
+        levelEdgeFilter = edgeFilter;
+        finishedFrom = !fillEdgesFrom();
+        levelEdgeFilter = tmpFilter;
+    }
+
+    private void fillEdgesToUsingFilter(CHEdgeFilter edgeFilter) {
+        CHEdgeFilter tmpFilter = levelEdgeFilter;
+        levelEdgeFilter = edgeFilter;
+        finishedTo = !fillEdgesTo();
+        levelEdgeFilter = tmpFilter;
+    }
+
+    @Override
+    protected boolean finished() {
+        // we need to finish BOTH searches for CH!
+        if (finishedFrom && finishedTo)
+            return true;
+
+        return currFromPriority >= bestWeight && currToPriority >= bestWeight;
+    }
+
+    @Override
+    protected void fillEdges(int slot, SPTStore store, SPTStore other, boolean reverse) {
+        final int incEdge = getIncomingEdge(store, slot);
+        final double currWeight = store.getWeight(slot);
+        RoutingCHEdgeIterator iter = (reverse ? inEdgeExplorer : outEdgeExplorer).setBaseNode(store.getAdjNode(slot));
+        while (iter.next()) {
+            // for node-based traversal we exclude u-turns already here, see AbstractBidirCHAlgo#accept
+            if (!traversalMode.isEdgeBased() && iter.getEdge() == incEdge)
+                continue;
+            if (levelEdgeFilter != null && !levelEdgeFilter.accept(iter))
+                continue;
+
+            final double weight = calcWeight(iter, reverse, incEdge) + currWeight;
+            if (Double.isInfinite(weight))
+                continue;
+            final int origEdgeId = GHUtility.getEdgeFromEdgeKey(reverse ? iter.getOrigEdgeKeyFirst() : iter.getOrigEdgeKeyLast());
+            final int traversalId = traversalMode.createTraversalId(iter, reverse);
+            final int newSlot = relax(store, traversalId, iter.getEdge(), origEdgeId, iter.getAdjNode(), weight, slot, reverse);
+            if (newSlot < 0)
+                continue;
+
+            if (traversalMode.isEdgeBased()) {
+                updateBestPathEdgeBased(newSlot, store, other, reverse);
+            } else {
+                int otherSlot = other.getSlot(traversalId);
+                if (otherSlot >= 0)
+                    updateBestPath(newSlot, otherSlot, weight + other.getWeight(otherSlot), reverse);
+            }
+        }
+    }
+
+    private void updateBestPathEdgeBased(int slot, SPTStore store, SPTStore other, boolean reverse) {
+        final int adjNode = store.getAdjNode(slot);
+        final int origEdgeId = store.getIncEdge(slot);
+        final double weight = store.getWeight(slot);
+        // special case where the fwd/bwd search runs directly into the opposite node, see AbstractBidirectionEdgeCHNoSOD
+        int oppositeNode = reverse ? from : to;
+        int oppositeEdge = reverse ? fromOutEdge : toInEdge;
+        boolean oppositeEdgeRestricted = reverse ? (fromOutEdge != ANY_EDGE) : (toInEdge != ANY_EDGE);
+        if (adjNode == oppositeNode && (!oppositeEdgeRestricted || origEdgeId == oppositeEdge)) {
+            if (weight < bestWeight) {
+                updateBestPath(slot, ROOT_SLOT, weight, reverse);
+                return;
+            }
+        }
+
+        EdgeIterator iter = innerExplorer.setBaseNode(adjNode);
+        while (iter.next()) {
+            final int edgeId = iter.getEdge();
+            int otherSlot = other.getSlot(traversalMode.createTraversalId(iter, reverse));
+            if (otherSlot < 0)
+                continue;
+
+            double turnCostsAtBridgeNode = reverse ?
+                    graph.getTurnWeight(edgeId, iter.getBaseNode(), origEdgeId) :
+                    graph.getTurnWeight(origEdgeId, iter.getBaseNode(), edgeId);
+            updateBestPath(slot, otherSlot, weight + other.getWeight(otherSlot) + turnCostsAtBridgeNode, reverse);
+        }
+    }
+
+    @Override
+    protected boolean entryCanBeSkipped(int slot, SPTStore store, boolean reverse) {
+        if (!stallOnDemand)
+            return false;
+        // We check for all 'incoming' edges if we can prove that the current node (that is about to be settled) is
+        // reached via a suboptimal path, see DijkstraBidirectionCH
+        RoutingCHEdgeIterator iter = (reverse ? outEdgeExplorer : inEdgeExplorer).setBaseNode(store.getAdjNode(slot));
+        while (iter.next()) {
+            // no need to inspect the edge we are coming from
+            if (iter.getEdge() == store.getEdge(slot))
+                continue;
+            int adjSlot = store.getSlot(iter.getAdjNode());
+            // we have to be careful because of rounded shortcut weights in combination with virtual via nodes, see #1574
+            final double precision = 0.001;
+            if (adjSlot >= 0 &&
+                    store.getWeight(adjSlot) + calcWeight(iter, !reverse, getIncomingEdge(store, slot)) - store.getWeight(slot) < -precision)
+                return true;
+        }
+        return false;
+    }
+
+    protected double calcWeight(RoutingCHEdgeIteratorState edgeState, boolean reverse, int prevOrNextEdgeId) {
+        double edgeWeight = edgeState.getWeight(reverse);
+        final int origEdgeId = GHUtility.getEdgeFromEdgeKey(reverse ? edgeState.getOrigEdgeKeyLast() : edgeState.getOrigEdgeKeyFirst());
+        double turnCosts = reverse
+                ? graph.getTurnWeight(origEdgeId, edgeState.getBaseNode(), prevOrNextEdgeId)
+                : graph.getTurnWeight(prevOrNextEdgeId, edgeState.getBaseNode(), origEdgeId);
+        return edgeWeight + turnCosts;
+    }
+
+    private int getIncomingEdge(SPTStore store, int slot) {
+        return traversalMode.isEdgeBased() ? store.getIncEdge(slot) : store.getEdge(slot);
+    }
+
+    @Override
+    protected Path extractPath(SPTEntry fwdEntry, SPTEntry bwdEntry, double weight) {
+        BidirPathExtractor extractor = traversalMode.isEdgeBased()
+                ? new EdgeBasedCHBidirPathExtractor(graph)
+                : new NodeBasedCHBidirPathExtractor(graph);
+        return extractor.extract(fwdEntry, bwdEntry, weight);
+    }
+
+    @Override
+    protected Path createEmptyPath() {
+        return new Path(graph.getBaseGraph());
+    }
+
+    @Override
+    public String getName() {
+        if (traversalMode.isEdgeBased())
+            return "dijkstrabi|ch|edge_based|no_sod";
+        return stallOnDemand ? "dijkstrabi|ch" : "dijkstrabi|ch|no_sod";
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "|" + graph.getWeighting();
+    }
+}
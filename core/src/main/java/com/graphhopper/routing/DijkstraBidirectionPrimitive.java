@@ -0,0 +1,143 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Parameters;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+
+/**
+ * Calculates the best path in a bidirectional way, just like {@link DijkstraBidirectionRef}, but keeps the search
+ * state in primitive arrays, see {@link AbstractBidirPrimitiveAlgo}.
+ */
+public class DijkstraBidirectionPrimitive extends AbstractBidirPrimitiveAlgo {
+    protected final Graph graph;
+    protected final NodeAccess nodeAccess;
+    protected final Weighting weighting;
+    protected EdgeExplorer edgeExplorer;
+    protected EdgeFilter additionalEdgeFilter;
+
+    public DijkstraBidirectionPrimitive(Graph graph, Weighting weighting, TraversalMode tMode) {
+        this(graph, weighting, tMode, new BidirSearchState(Math.min(Math.max(200, graph.getNodes() / 10), 150_000)));
+    }
+
+    public DijkstraBidirectionPrimitive(Graph graph, Weighting weighting, TraversalMode tMode, BidirSearchState searchState) {
+        super(tMode, searchState);
+        this.weighting = weighting;
+        if (weighting.hasTurnCosts() && !tMode.isEdgeBased())
+            throw new IllegalStateException("Weightings supporting turn costs cannot be used with node-based traversal mode");
+        this.graph = graph;
+        this.nodeAccess = graph.getNodeAccess();
+        edgeExplorer = graph.createEdgeExplorer();
+    }
+
+    @Override
+    protected void postInitFrom() {
+        if (fromOutEdge == ANY_EDGE) {
+            fillEdgesFrom();
+        } else {
+            additionalEdgeFilter = edgeState -> edgeState.getEdge() == fromOutEdge;
+            finishedFrom = !fillEdgesFrom();
+            additionalEdgeFilter = null;
+        }
+    }
+
+    @Override
+    protected void postInitTo() {
+        if (toInEdge == ANY_EDGE) {
+            fillEdgesTo();
+        } else {
+            additionalEdgeFilter = edgeState -> edgeState.getEdge() == toInEdge;
+            finishedTo = !fillEdgesTo();
+            additionalEdgeFilter = null;
+        }
+    }
+
+    @Override
+    protected void fillEdges(int slot, SPTStore store, SPTStore other, boolean reverse) {
+        final int prevEdge = store.getEdge(slot);
+        final double currWeight = store.getWeight(slot);
+        EdgeIterator iter = edgeExplorer.setBaseNode(store.getAdjNode(slot));
+        while (iter.next()) {
+            if (!accept(iter, prevEdge))
+                continue;
+
+            // note that for node-based routing the weights will be wrong in case the weighting is returning non-zero
+            // turn weights, see discussion in #1960
+            final double weight = GHUtility.calcWeightWithTurnWeight(weighting, iter, reverse, prevEdge) + currWeight;
+            if (Double.isInfinite(weight))
+                continue;
+            final int traversalId = traversalMode.createTraversalId(iter, reverse);
+            final int newSlot = relax(store, traversalId, iter.getEdge(), iter.getEdge(), iter.getAdjNode(), weight, slot, reverse);
+            if (newSlot < 0)
+                continue;
+
+            int otherSlot = other.getSlot(traversalId);
+            if (otherSlot < 0)
+                continue;
+            double bestPathWeight = weight + other.getWeight(otherSlot);
+            if (traversalMode.isEdgeBased()) {
+                if (other.getEdge(otherSlot) != iter.getEdge())
+                    throw new IllegalStateException("cannot happen for edge based execution of " + getName());
+                // prevents the path to contain the edge at the meeting point twice and subtracts the weight (excluding turn weight => no previous edge)
+                bestPathWeight -= weighting.calcEdgeWeight(iter, reverse);
+                updateBestPath(slot, otherSlot, bestPathWeight, reverse);
+            } else {
+                updateBestPath(newSlot, otherSlot, bestPathWeight, reverse);
+            }
+        }
+    }
+
+    protected boolean accept(EdgeIteratorState iter, int prevOrNextEdgeId) {
+        // for edge-based traversal we leave it for TurnWeighting to decide whether or not a u-turn is acceptable,
+        // but for node-based traversal we exclude such a turn for performance reasons already here
+        if (!traversalMode.isEdgeBased() && iter.getEdge() == prevOrNextEdgeId)
+            return false;
+
+        return additionalEdgeFilter == null || additionalEdgeFilter.accept(iter);
+    }
+
+    @Override
+    protected Path extractPath(SPTEntry fwdEntry, SPTEntry bwdEntry, double weight) {
+        return DefaultBidirPathExtractor.extractPath(graph, weighting, fwdEntry, bwdEntry, weight);
+    }
+
+    @Override
+    protected Path createEmptyPath() {
+        return new Path(graph);
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.DIJKSTRA_BI;
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "|" + weighting;
+    }
+}
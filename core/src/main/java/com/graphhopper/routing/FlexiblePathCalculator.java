@@ -37,6 +37,7 @@ public class FlexiblePathCalculator implements PathCalculator {
     private final AlgorithmOptions algoOpts;
     private String debug;
     private int visitedNodes;
+    private String algorithmName = "";
 
     public FlexiblePathCalculator(QueryGraph queryGraph, RoutingAlgorithmFactory algoFactory, Weighting weighting, AlgorithmOptions algoOpts) {
         this.queryGraph = queryGraph;
@@ -84,9 +85,15 @@ public class FlexiblePathCalculator implements PathCalculator {
 
         if (paths.isEmpty())
             throw new IllegalStateException("Path list was empty for " + from + " -> " + to);
+        SearchBudget searchBudget = algoOpts.getSearchBudget();
+        if (searchBudget != null) {
+            searchBudget.consume(algo.getVisitedNodes());
+            searchBudget.check();
+        }
         if (algo.getVisitedNodes() >= algoOpts.getMaxVisitedNodes())
             throw new MaximumNodesExceededException("No path found due to maximum nodes exceeded " + algoOpts.getMaxVisitedNodes(), algoOpts.getMaxVisitedNodes());
         visitedNodes = algo.getVisitedNodes();
+        algorithmName = algo.getName();
         debug += ", " + algo.getName() + "-routing:" + sw.stop().getMillis() + " ms";
         return paths;
     }
@@ -101,6 +108,11 @@ public class FlexiblePathCalculator implements PathCalculator {
         return visitedNodes;
     }
 
+    @Override
+    public String getAlgorithmName() {
+        return algorithmName;
+    }
+
     public Weighting getWeighting() {
         return weighting;
     }
@@ -33,7 +33,7 @@ import static com.graphhopper.search.KVStorage.KeyValue.*;
  * @author Robin Boldt
  * @author jan soe
  */
-public class InstructionsFromEdges implements Path.EdgeVisitor {
+public class InstructionsFromEdges implements Path.GeometryEdgeVisitor {
 
     private final Weighting weighting;
     private final NodeAccess nodeAccess;
@@ -113,7 +113,7 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
     }
 
     @Override
-    public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+    public void next(EdgeIteratorState edge, PointList wayGeo, int index, int prevEdgeId) {
         // baseNode is the current node and adjNode is the next
         int adjNode = edge.getAdjNode();
         int baseNode = edge.getBaseNode();
@@ -127,7 +127,6 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
         double adjLon = nodeAccess.getLon(adjNode);
         double latitude, longitude;
 
-        PointList wayGeo = edge.fetchWayGeometry(FetchMode.ALL);
         boolean isRoundabout = edge.get(roundaboutEnc);
 
         if (wayGeo.size() <= 2) {
@@ -235,7 +234,7 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
             prevDestinationAndRef = destination + destinationRef;
 
         } else {
-            int sign = getTurn(edge, baseNode, prevNode, adjNode, name, destination + destinationRef);
+            int sign = getTurn(edge, baseNode, prevNode, adjNode, latitude, longitude, name, destination + destinationRef);
             if (sign != Instruction.IGNORE) {
                 /*
                     Check if the next instruction is likely to only be a short connector to execute a u-turn
@@ -259,10 +258,7 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
                         && Double.isFinite(weighting.calcEdgeWeight(edge, false)) != Double.isFinite(weighting.calcEdgeWeight(edge, true))
                         && InstructionsHelper.isNameSimilar(prevInstructionName, name)) {
                     // Chances are good that this is a u-turn, we only need to check if the orientation matches
-                    GHPoint point = InstructionsHelper.getPointForOrientationCalculation(edge, nodeAccess);
-                    double lat = point.getLat();
-                    double lon = point.getLon();
-                    double currentOrientation = AngleCalc.ANGLE_CALC.calcOrientation(prevLat, prevLon, lat, lon, false);
+                    double currentOrientation = AngleCalc.ANGLE_CALC.calcOrientation(prevLat, prevLon, latitude, longitude, false);
 
                     double diff = Math.abs(prevInstructionPrevOrientation - currentOrientation);
                     if (diff > (Math.PI * .9) && diff < (Math.PI * 1.1)) {
@@ -331,13 +327,15 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
         ways.add(finishInstruction);
     }
 
-    private int getTurn(EdgeIteratorState edge, int baseNode, int prevNode, int adjNode, String name, String destinationAndRef) {
+    /**
+     * @param lat latitude of the first point after baseNode on the edge, used to calculate its orientation
+     * @param lon longitude of the first point after baseNode on the edge
+     */
+    private int getTurn(EdgeIteratorState edge, int baseNode, int prevNode, int adjNode, double lat, double lon,
+                        String name, String destinationAndRef) {
         if (edge.getEdge() == prevEdge.getEdge())
             // this is the simplest turn to recognize, a plain u-turn.
             return Instruction.U_TURN_UNKNOWN;
-        GHPoint point = InstructionsHelper.getPointForOrientationCalculation(edge, nodeAccess);
-        double lat = point.getLat();
-        double lon = point.getLon();
         prevOrientation = AngleCalc.ANGLE_CALC.calcOrientation(doublePrevLat, doublePrevLon, prevLat, prevLon);
         int sign = InstructionsHelper.calculateSign(prevLat, prevLon, lat, lon, prevOrientation);
 
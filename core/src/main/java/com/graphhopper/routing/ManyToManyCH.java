@@ -0,0 +1,341 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.coll.GHLongLongHashMap;
+import com.graphhopper.routing.ch.CHEntry;
+import com.graphhopper.routing.ch.ShortcutUnpacker;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Calculates the weights (and optionally the times and distances) of the shortest paths between many sources and
+ * many targets using the bucket-based many-to-many algorithm on top of a {@link RoutingCHGraph}. First an upward
+ * backward search is run from every target and every settled entry is stored in the 'bucket' of its node. Then an
+ * upward forward search is run from every source and the buckets of all the nodes it settles are scanned for the best
+ * meeting point of each target. This works for node- and edge-based CH. For edge-based CH the bucket entries also
+ * keep the original edge that leads towards the target, so the turn costs at the meeting node can be included.
+ * <p>
+ * See 'Computing Many-to-Many Shortest Paths Using Highway Hierarchies' by Knopp, Sanders, Schultes, Schulz and Wagner.
+ *
+ * @see AbstractBidirCHAlgo for the one-to-one equivalent
+ */
+public class ManyToManyCH {
+    private final RoutingCHGraph graph;
+    private final Weighting weighting;
+    private final TraversalMode traversalMode;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final CHEdgeFilter levelEdgeFilter;
+    private final ShortcutUnpacker shortcutUnpacker;
+    private final IntObjectMap<Entry> bestWeightMap;
+    private final PriorityQueue<Entry> pqOpenSet;
+    private final EdgeCache fwdEdgeCache = new EdgeCache();
+    private final EdgeCache bwdEdgeCache = new EdgeCache();
+    private IntObjectMap<Bucket> buckets;
+    private boolean calcTimes = true;
+    private boolean calcDistances = true;
+    private long unpackedTime;
+    private double unpackedDistance;
+    private int visitedNodes;
+
+    public ManyToManyCH(RoutingCHGraph graph) {
+        this.graph = graph;
+        // its important to use the wrapped weighting here, otherwise turn times involving virtual edges will be wrong
+        this.weighting = graph.getBaseGraph().wrapWeighting(graph.getWeighting());
+        this.traversalMode = graph.isEdgeBased() ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED;
+        outEdgeExplorer = graph.createOutEdgeExplorer();
+        inEdgeExplorer = graph.createInEdgeExplorer();
+        levelEdgeFilter = new AbstractBidirCHAlgo.CHLevelEdgeFilter(graph);
+        shortcutUnpacker = new ShortcutUnpacker(graph, (edge, reverse, prevOrNextEdgeId) -> {
+            unpackedDistance += edge.getDistance();
+            unpackedTime += GHUtility.calcMillisWithTurnMillis(weighting, edge, reverse, prevOrNextEdgeId);
+        }, graph.isEdgeBased());
+        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
+        bestWeightMap = new GHIntObjectHashMap<>(size);
+        pqOpenSet = new PriorityQueue<>(size);
+    }
+
+    /**
+     * Disabling the calculation of times and distances makes the calculation faster, because then we do not need to
+     * unpack the shortcuts of the settled entries.
+     */
+    public ManyToManyCH setCalcTimes(boolean calcTimes) {
+        this.calcTimes = calcTimes;
+        return this;
+    }
+
+    public ManyToManyCH setCalcDistances(boolean calcDistances) {
+        this.calcDistances = calcDistances;
+        return this;
+    }
+
+    /**
+     * @param sources the source nodes. negative values are ignored (e.g. for points that could not be snapped) and the
+     *                corresponding row of the result will be disconnected
+     * @param targets the target nodes, negative values are ignored just like for the sources
+     */
+    public Result calcMatrix(int[] sources, int[] targets) {
+        Result result = new Result(sources.length, targets.length, calcTimes, calcDistances);
+        buckets = new GHIntObjectHashMap<>(Math.min(Math.max(200, targets.length * 50), graph.getNodes()));
+        for (int targetIdx = 0; targetIdx < targets.length; targetIdx++) {
+            if (targets[targetIdx] < 0)
+                continue;
+            final int t = targetIdx;
+            search(targets[targetIdx], true, entry -> {
+                Bucket bucket = buckets.get(entry.adjNode);
+                if (bucket == null) {
+                    bucket = new Bucket();
+                    buckets.put(entry.adjNode, bucket);
+                }
+                bucket.add(t, entry);
+            });
+        }
+
+        for (int sourceIdx = 0; sourceIdx < sources.length; sourceIdx++) {
+            if (sources[sourceIdx] < 0)
+                continue;
+            final int s = sourceIdx;
+            search(sources[sourceIdx], false, entry -> scanBucket(result, s, entry));
+        }
+        buckets = null;
+        result.visitedNodes = visitedNodes;
+        return result;
+    }
+
+    private void scanBucket(Result result, int sourceIdx, Entry fwdEntry) {
+        Bucket bucket = buckets.get(fwdEntry.adjNode);
+        if (bucket == null)
+            return;
+        double[] weightRow = result.weights[sourceIdx];
+        for (int i = 0; i < bucket.targets.size(); i++) {
+            int targetIdx = bucket.targets.get(i);
+            double weight = fwdEntry.weight + bucket.weights.get(i);
+            if (weight >= weightRow[targetIdx])
+                continue;
+            int inEdge = fwdEntry.incEdge;
+            int outEdge = bucket.edges.get(i);
+            if (traversalMode.isEdgeBased()) {
+                weight += graph.getTurnWeight(inEdge, fwdEntry.adjNode, outEdge);
+                if (weight >= weightRow[targetIdx])
+                    continue;
+            }
+            weightRow[targetIdx] = weight;
+            if (calcTimes) {
+                long turnTime = traversalMode.isEdgeBased() && EdgeIterator.Edge.isValid(inEdge) && EdgeIterator.Edge.isValid(outEdge)
+                        ? weighting.calcTurnMillis(inEdge, fwdEntry.adjNode, outEdge) : 0;
+                result.times[sourceIdx][targetIdx] = fwdEntry.time + bucket.times.get(i) + turnTime;
+            }
+            if (calcDistances)
+                result.distances[sourceIdx][targetIdx] = fwdEntry.distance + bucket.distances.get(i);
+        }
+    }
+
+    /**
+     * Runs an exhaustive upward search from the given node and calls the given consumer for every settled entry.
+     */
+    private void search(int node, boolean reverse, EntryConsumer consumer) {
+        bestWeightMap.clear();
+        pqOpenSet.clear();
+        Entry startEntry = new Entry(EdgeIterator.NO_EDGE, EdgeIterator.NO_EDGE, node, 0, null);
+        pqOpenSet.add(startEntry);
+        if (!traversalMode.isEdgeBased())
+            bestWeightMap.put(node, startEntry);
+        RoutingCHEdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        while (!pqOpenSet.isEmpty()) {
+            Entry currEntry = pqOpenSet.poll();
+            if (currEntry.isDeleted())
+                continue;
+            visitedNodes++;
+            if (currEntry != startEntry && (calcTimes || calcDistances))
+                calcTimeAndDistance(currEntry, reverse);
+            consumer.accept(currEntry);
+
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(currEntry.adjNode);
+            while (iter.next()) {
+                if (!accept(iter, currEntry, currEntry == startEntry))
+                    continue;
+                double weight = calcWeight(iter, reverse, currEntry.incEdge);
+                if (Double.isInfinite(weight))
+                    continue;
+                weight += currEntry.weight;
+                int origEdgeId = GHUtility.getEdgeFromEdgeKey(reverse ? iter.getOrigEdgeKeyFirst() : iter.getOrigEdgeKeyLast());
+                int traversalId = traversalMode.createTraversalId(iter, reverse);
+                Entry entry = bestWeightMap.get(traversalId);
+                if (entry != null && entry.weight <= weight)
+                    continue;
+                if (entry != null)
+                    // flagging this entry, so it will be ignored when it is polled the next time
+                    entry.setDeleted();
+                entry = new Entry(iter.getEdge(), origEdgeId, iter.getAdjNode(), weight, currEntry);
+                bestWeightMap.put(traversalId, entry);
+                pqOpenSet.add(entry);
+            }
+        }
+    }
+
+    private boolean accept(RoutingCHEdgeIteratorState edge, Entry currEntry, boolean isStart) {
+        if (traversalMode.isEdgeBased()) {
+            // for the first step of edge-based CH we need to consider all edges, just like AbstractBidirectionEdgeCHNoSOD
+            return isStart || levelEdgeFilter.accept(edge);
+        }
+        // for node-based traversal we exclude u-turns already here
+        if (edge.getEdge() == currEntry.edge)
+            return false;
+        return levelEdgeFilter.accept(edge);
+    }
+
+    private double calcWeight(RoutingCHEdgeIteratorState edgeState, boolean reverse, int prevOrNextEdgeId) {
+        double edgeWeight = edgeState.getWeight(reverse);
+        if (!traversalMode.isEdgeBased())
+            return edgeWeight;
+        final int origEdgeId = GHUtility.getEdgeFromEdgeKey(reverse ? edgeState.getOrigEdgeKeyLast() : edgeState.getOrigEdgeKeyFirst());
+        double turnCosts = reverse
+                ? graph.getTurnWeight(origEdgeId, edgeState.getBaseNode(), prevOrNextEdgeId)
+                : graph.getTurnWeight(prevOrNextEdgeId, edgeState.getBaseNode(), origEdgeId);
+        return edgeWeight + turnCosts;
+    }
+
+    /**
+     * Calculates the time and distance of the given (settled) entry from the time and distance of its parent entry.
+     * The time and distance of every edge/shortcut is only calculated once and then cached, because many searches
+     * share the same shortcuts towards the higher levels of the hierarchy.
+     */
+    private void calcTimeAndDistance(Entry entry, boolean reverse) {
+        Entry parent = (Entry) entry.parent;
+        EdgeCache cache = reverse ? bwdEdgeCache : fwdEdgeCache;
+        long key = ((long) entry.edge << 32) | (entry.adjNode & 0xFFFF_FFFFL);
+        int index = cache.indexOf(key);
+        if (index < 0) {
+            unpackedTime = 0;
+            unpackedDistance = 0;
+            // the turn at the start of the edge/shortcut depends on the parent entry and is added below
+            if (reverse)
+                shortcutUnpacker.visitOriginalEdgesBwd(entry.edge, entry.adjNode, false, EdgeIterator.NO_EDGE);
+            else
+                shortcutUnpacker.visitOriginalEdgesFwd(entry.edge, entry.adjNode, false, EdgeIterator.NO_EDGE);
+            index = cache.add(key, unpackedTime, unpackedDistance);
+        }
+        long turnTime = 0;
+        if (traversalMode.isEdgeBased() && EdgeIterator.Edge.isValid(parent.incEdge)) {
+            RoutingCHEdgeIteratorState edgeState = graph.getEdgeIteratorState(entry.edge, entry.adjNode);
+            int origEdgeId = GHUtility.getEdgeFromEdgeKey(reverse ? edgeState.getOrigEdgeKeyLast() : edgeState.getOrigEdgeKeyFirst());
+            turnTime = reverse
+                    ? weighting.calcTurnMillis(origEdgeId, parent.adjNode, parent.incEdge)
+                    : weighting.calcTurnMillis(parent.incEdge, parent.adjNode, origEdgeId);
+        }
+        entry.time = parent.time + cache.times.get(index) + turnTime;
+        entry.distance = parent.distance + cache.distances.get(index);
+    }
+
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    public static class Result {
+        /**
+         * The weights of the shortest paths, {@link Double#POSITIVE_INFINITY} if there is no connection
+         */
+        public final double[][] weights;
+        /**
+         * The times in milliseconds, {@link Long#MAX_VALUE} if there is no connection or null if times are disabled
+         */
+        public final long[][] times;
+        /**
+         * The distances in meter, {@link Double#POSITIVE_INFINITY} if there is no connection or null if distances are
+         * disabled
+         */
+        public final double[][] distances;
+        public int visitedNodes;
+
+        Result(int sources, int targets, boolean withTimes, boolean withDistances) {
+            weights = new double[sources][targets];
+            times = withTimes ? new long[sources][targets] : null;
+            distances = withDistances ? new double[sources][targets] : null;
+            for (int i = 0; i < sources; i++) {
+                Arrays.fill(weights[i], Double.POSITIVE_INFINITY);
+                if (withTimes)
+                    Arrays.fill(times[i], Long.MAX_VALUE);
+                if (withDistances)
+                    Arrays.fill(distances[i], Double.POSITIVE_INFINITY);
+            }
+        }
+
+        public boolean isConnected(int sourceIdx, int targetIdx) {
+            return Double.isFinite(weights[sourceIdx][targetIdx]);
+        }
+    }
+
+    private static class Entry extends CHEntry {
+        long time;
+        double distance;
+
+        Entry(int edge, int incEdge, int adjNode, double weight, Entry parent) {
+            super(edge, incEdge, adjNode, weight, parent);
+        }
+    }
+
+    private static class Bucket {
+        final IntArrayList targets = new IntArrayList(4);
+        final IntArrayList edges = new IntArrayList(4);
+        final DoubleArrayList weights = new DoubleArrayList(4);
+        final LongArrayList times = new LongArrayList(4);
+        final DoubleArrayList distances = new DoubleArrayList(4);
+
+        void add(int targetIdx, Entry bwdEntry) {
+            targets.add(targetIdx);
+            edges.add(bwdEntry.incEdge);
+            weights.add(bwdEntry.weight);
+            times.add(bwdEntry.time);
+            distances.add(bwdEntry.distance);
+        }
+    }
+
+    private static class EdgeCache {
+        final GHLongLongHashMap indexMap = new GHLongLongHashMap(1000);
+        final LongArrayList times = new LongArrayList(1000);
+        final DoubleArrayList distances = new DoubleArrayList(1000);
+
+        int indexOf(long key) {
+            return (int) indexMap.getOrDefault(key, -1);
+        }
+
+        int add(long key, long time, double distance) {
+            int index = times.size();
+            indexMap.put(key, index);
+            times.add(time);
+            distances.add(distance);
+            return index;
+        }
+    }
+
+    private interface EntryConsumer {
+        void accept(Entry entry);
+    }
+}
@@ -18,10 +18,41 @@
 
 package com.graphhopper.routing;
 
+import com.graphhopper.util.Helper;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class OSMReaderConfig {
+    /**
+     * The data structure used to map the OSM node ids to internal ids during the import
+     */
+    public enum NodeIdMap {
+        /**
+         * A b-tree on the Java heap, which is compact for sparse node ids
+         */
+        BTREE,
+        /**
+         * Pages of consecutive node ids stored in RAM outside the b-tree, which is faster and needs less memory when
+         * most node ids of a region are used, like for the ways of a large area
+         */
+        RAM,
+        /**
+         * Like {@link #RAM}, but the pages are stored in a temporary memory-mapped file in the graph folder, which
+         * keeps the memory usage of planet imports bounded
+         */
+        MMAP;
+
+        public static NodeIdMap fromString(String nodeIdMap) {
+            try {
+                return NodeIdMap.valueOf(Helper.toUpperCase(nodeIdMap));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown node id map '" + nodeIdMap + "', use one of: " + Arrays.toString(NodeIdMap.values()));
+            }
+        }
+    }
+
     private List<String> ignoredHighways = new ArrayList<>();
     private boolean parseWayNames = true;
     private String preferredLanguage = "";
@@ -33,6 +64,8 @@ public class OSMReaderConfig {
     private int ramerElevationSmoothingMax = 5;
     private double longEdgeSamplingDistance = Double.MAX_VALUE;
     private int workerThreads = 2;
+    private int parseThreads = 1;
+    private NodeIdMap nodeIdMap = NodeIdMap.BTREE;
 
     public List<String> getIgnoredHighways() {
         return ignoredHighways;
@@ -155,4 +188,31 @@ public class OSMReaderConfig {
         this.workerThreads = workerThreads;
         return this;
     }
+
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    /**
+     * Sets the number of threads used to parse the tags and the geometry of the OSM ways. With more than one thread the
+     * way segments are processed in batches and only the insertion of the edges into the graph is sequential.
+     */
+    public OSMReaderConfig setParseThreads(int parseThreads) {
+        if (parseThreads < 1)
+            throw new IllegalArgumentException("parseThreads must be at least 1, but was " + parseThreads);
+        this.parseThreads = parseThreads;
+        return this;
+    }
+
+    public NodeIdMap getNodeIdMap() {
+        return nodeIdMap;
+    }
+
+    /**
+     * Sets the data structure used to map the OSM node ids to internal ids during the import, see {@link NodeIdMap}
+     */
+    public OSMReaderConfig setNodeIdMap(NodeIdMap nodeIdMap) {
+        this.nodeIdMap = nodeIdMap;
+        return this;
+    }
 }
@@ -51,6 +51,8 @@ public class Path {
     private List<String> description;
     private boolean found;
     private String debugInfo = "";
+    private long extractionStartNanos;
+    private long extractionNanos;
 
     public Path(Graph graph) {
         this.graph = graph;
@@ -189,6 +191,29 @@ public class Path {
         return debugInfo;
     }
 
+    /**
+     * @param startNanos the value of System.nanoTime() when the extraction started
+     */
+    public void setExtractionTime(long startNanos, long nanos) {
+        this.extractionStartNanos = startNanos;
+        this.extractionNanos = nanos;
+    }
+
+    /**
+     * @return the value of System.nanoTime() when the extraction of this path started, only valid if
+     * {@link #getExtractionNanos()} is not 0
+     */
+    public long getExtractionStartNanos() {
+        return extractionStartNanos;
+    }
+
+    /**
+     * @return the time it took to extract this path from the shortest path tree, or 0 if it is unknown
+     */
+    public long getExtractionNanos() {
+        return extractionNanos;
+    }
+
     /**
      * Iterates over all edges in this path sorted from start to end and calls the visitor callback
      * for every edge.
@@ -217,6 +242,34 @@ public class Path {
         visitor.finish();
     }
 
+    /**
+     * Walks this path once and calls all visitors for every edge. The full geometry of every edge is fetched only
+     * once and shared between the visitors, which must therefore not modify it.
+     */
+    public void forEveryEdge(List<? extends GeometryEdgeVisitor> visitors) {
+        if (visitors.isEmpty())
+            return;
+        if (visitors.size() == 1) {
+            forEveryEdge(visitors.get(0));
+            return;
+        }
+        forEveryEdge(new GeometryEdgeVisitor() {
+            @Override
+            public void next(EdgeIteratorState edge, PointList geometry, int index, int prevEdgeId) {
+                for (GeometryEdgeVisitor visitor : visitors) {
+                    visitor.next(edge, geometry, index, prevEdgeId);
+                }
+            }
+
+            @Override
+            public void finish() {
+                for (GeometryEdgeVisitor visitor : visitors) {
+                    visitor.finish();
+                }
+            }
+        });
+    }
+
     /**
      * Returns the list of all edges.
      */
@@ -314,4 +367,17 @@ public class Path {
 
         void finish();
     }
+
+    /**
+     * An EdgeVisitor that gets the full geometry ({@link FetchMode#ALL}) of every edge passed in, so that
+     * several visitors can share it, see {@link #forEveryEdge(List)}.
+     */
+    public interface GeometryEdgeVisitor extends EdgeVisitor {
+        void next(EdgeIteratorState edge, PointList geometry, int index, int prevEdgeId);
+
+        @Override
+        default void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+            next(edge, edge.fetchWayGeometry(FetchMode.ALL), index, prevEdgeId);
+        }
+    }
 }
@@ -30,4 +30,9 @@ public interface PathCalculator {
 
     int getVisitedNodes();
 
+    /**
+     * @return the name of the algorithm used for the last call of calcPaths
+     */
+    String getAlgorithmName();
+
 }
@@ -42,11 +42,11 @@ public class PathExtractor {
             // path not found
             return path;
         }
-        StopWatch sw = new StopWatch().start();
+        long start = System.nanoTime();
         extractPath(sptEntry);
         path.setFound(true);
         path.setWeight(sptEntry.weight);
-        setExtractionTime(sw.stop().getNanos());
+        setExtractionTime(start, System.nanoTime() - start);
         return path;
     }
 
@@ -68,8 +68,9 @@ public class PathExtractor {
         return currEntry;
     }
 
-    private void setExtractionTime(long nanos) {
+    private void setExtractionTime(long startNanos, long nanos) {
         path.setDebugInfo("path extraction: " + nanos / 1000 + " μs");
+        path.setExtractionTime(startNanos, nanos);
     }
 
     protected void onEdge(int edge, int adjNode, int prevEdge) {
@@ -26,6 +26,7 @@ import com.graphhopper.config.Profile;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.EncodedValueLookup;
+import com.graphhopper.routing.ev.SpeedProfile;
 import com.graphhopper.routing.ev.Subnetwork;
 import com.graphhopper.routing.lm.LMRoutingAlgorithmFactory;
 import com.graphhopper.routing.lm.LandmarkStorage;
@@ -37,9 +38,11 @@ import com.graphhopper.routing.weighting.custom.FindMinMax;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.SpeedProfileStorage;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
 import com.graphhopper.util.exceptions.PointNotFoundException;
@@ -47,7 +50,10 @@ import com.graphhopper.util.exceptions.PointOutOfBoundsException;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Supplier;
 
 import static com.graphhopper.routing.weighting.Weighting.INFINITE_U_TURN_COSTS;
 import static com.graphhopper.util.DistanceCalcEarth.DIST_EARTH;
@@ -68,6 +74,8 @@ public class Router {
     protected final Map<String, LandmarkStorage> landmarks;
     protected final boolean chEnabled;
     protected final boolean lmEnabled;
+    private SearchStatePool searchStatePool;
+    private RouterMetrics metrics = RouterMetrics.NOOP;
 
     public Router(BaseGraph graph, EncodingManager encodingManager, LocationIndex locationIndex,
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
@@ -94,7 +102,32 @@ public class Router {
         }
     }
 
+    /**
+     * Enables the re-use of the search states of the bidirectional algorithms, see {@link SearchStatePool}. If set the
+     * {@link Parameters.Routing#PRIMITIVE_SEARCH} algorithms are used unless the request disables them explicitly.
+     */
+    public Router setSearchStatePool(SearchStatePool searchStatePool) {
+        this.searchStatePool = searchStatePool;
+        return this;
+    }
+
+    /**
+     * Reports the durations of the routing phases of every successful request, see {@link RouterMetrics}
+     */
+    public Router setMetrics(RouterMetrics metrics) {
+        this.metrics = metrics == null ? RouterMetrics.NOOP : metrics;
+        return this;
+    }
+
     public GHResponse route(GHRequest request) {
+        return route(request, null);
+    }
+
+    /**
+     * @param searchBudget limits all searches of this request, or null if there is no limit besides the max visited
+     *                     nodes and the timeout of the request hints
+     */
+    public GHResponse route(GHRequest request, SearchBudget searchBudget) {
         try {
             checkNoLegacyParameters(request);
             checkAtLeastOnePoint(request);
@@ -105,6 +138,8 @@ public class Router {
             checkNoBlockArea(request);
 
             Solver solver = createSolver(request);
+            solver.setSearchStatePool(searchStatePool);
+            solver.setSearchBudget(searchBudget);
             solver.checkRequest();
             solver.init();
 
@@ -210,38 +245,63 @@ public class Router {
     }
 
     protected GHResponse routeRoundTrip(GHRequest request, FlexSolver solver) {
-        GHResponse ghRsp = new GHResponse();
+        GHResponse ghRsp = new GHResponse().setTrace(createTrace(request));
+        Trace trace = ghRsp.getTrace();
+        Trace.Span routeSpan = trace.start("route");
         StopWatch sw = new StopWatch().start();
+        Trace.Span span = trace.start("lookup");
         double startHeading = request.getHeadings().isEmpty() ? Double.NaN : request.getHeadings().get(0);
         RoundTripRouting.Params params = new RoundTripRouting.Params(request.getHints(), startHeading, routerConfig.getMaxRoundTripRetries());
         List<Snap> snaps = RoundTripRouting.lookup(request.getPoints(), solver.createSnapFilter(), locationIndex, params);
+        span.put("points", snaps.size()).close();
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        metrics.lookupDone(sw.getNanos());
 
+        long start = System.nanoTime();
+        span = trace.start("query_graph");
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        putVirtualCounts(span, queryGraph).close();
+        start = reportQueryGraph(start);
         FlexiblePathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
 
+        span = trace.start("search");
         RoundTripRouting.Result result = RoundTripRouting.calcPaths(snaps, pathCalculator);
+        span.put("visited_nodes", result.visitedNodes).close();
+        start = reportSearch(solver, pathCalculator, result.visitedNodes, start);
         // we merge the different legs of the roundtrip into one response path
         // note that the waypoints are not just the snapped points of the snaps, as usual, because we do some kind of tweak
         // to avoid 'unnecessary tails' in the roundtrip algo
+        span = trace.start("path_merge");
         ResponsePath responsePath = concatenatePaths(request, solver.weighting, queryGraph, result.paths, result.wayPoints);
         ghRsp.add(responsePath);
+        putPathCounts(span, request, ghRsp.getAll()).close();
+        metrics.pathsMerged(System.nanoTime() - start);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
+        routeSpan.close();
         return ghRsp;
     }
 
     protected GHResponse routeAlt(GHRequest request, Solver solver) {
         if (request.getPoints().size() > 2)
             throw new IllegalArgumentException("Currently alternative routes work only with start and end point. You tried to use: " + request.getPoints().size() + " points");
-        GHResponse ghRsp = new GHResponse();
+        GHResponse ghRsp = new GHResponse().setTrace(createTrace(request));
+        Trace trace = ghRsp.getTrace();
+        Trace.Span routeSpan = trace.start("route");
         StopWatch sw = new StopWatch().start();
+        Trace.Span span = trace.start("lookup");
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
         List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
                 request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
+        span.put("points", snaps.size()).close();
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        metrics.lookupDone(sw.getNanos());
+        long start = System.nanoTime();
+        span = trace.start("query_graph");
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
-        PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
+        putVirtualCounts(span, queryGraph).close();
+        start = reportQueryGraph(start);
+        PathCalculator pathCalculator = traced(solver.createPathCalculator(queryGraph), trace);
         boolean passThrough = getPassThrough(request.getHints());
         boolean forceCurbsides = getForceCurbsides(request.getHints());
         if (passThrough)
@@ -249,50 +309,118 @@ public class Router {
         if (!request.getCurbsides().isEmpty())
             throw new IllegalArgumentException("Alternative paths do not support the " + CURBSIDE + " parameter yet");
 
+        span = trace.start("search");
         ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter, pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
         if (result.paths.isEmpty())
             throw new RuntimeException("Empty paths for alternative route calculation not expected");
+        span.put("visited_nodes", result.visitedNodes).close();
+        start = reportSearch(solver, pathCalculator, result.visitedNodes, start);
 
         // each path represents a different alternative and we do the path merging for each of them
+        span = trace.start("path_merge");
         PathMerger pathMerger = createPathMerger(request, solver.weighting, queryGraph);
         for (Path path : result.paths) {
             PointList waypoints = getWaypoints(snaps);
             ResponsePath responsePath = pathMerger.doWork(waypoints, Collections.singletonList(path), encodingManager, translationMap.getWithFallBack(request.getLocale()));
             ghRsp.add(responsePath);
         }
+        putPathCounts(span, request, ghRsp.getAll()).close();
+        metrics.pathsMerged(System.nanoTime() - start);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
+        routeSpan.close();
         return ghRsp;
     }
 
     protected GHResponse routeVia(GHRequest request, Solver solver) {
-        GHResponse ghRsp = new GHResponse();
+        GHResponse ghRsp = new GHResponse().setTrace(createTrace(request));
+        Trace trace = ghRsp.getTrace();
+        Trace.Span routeSpan = trace.start("route");
         StopWatch sw = new StopWatch().start();
+        Trace.Span span = trace.start("lookup");
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
         List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
                 request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
+        span.put("points", snaps.size()).close();
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        metrics.lookupDone(sw.getNanos());
+        long start = System.nanoTime();
+        span = trace.start("query_graph");
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
-        PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
+        putVirtualCounts(span, queryGraph).close();
+        start = reportQueryGraph(start);
+        PathCalculator pathCalculator = traced(solver.createPathCalculator(queryGraph), trace);
         boolean passThrough = getPassThrough(request.getHints());
         boolean forceCurbsides = getForceCurbsides(request.getHints());
+        span = trace.start("search");
         ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
                 pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
 
         if (request.getPoints().size() != result.paths.size() + 1)
             throw new RuntimeException("There should be exactly one more point than paths. points:" + request.getPoints().size() + ", paths:" + result.paths.size());
+        span.put("visited_nodes", result.visitedNodes).close();
+        start = reportSearch(solver, pathCalculator, result.visitedNodes, start);
 
         // here each path represents one leg of the via-route and we merge them all together into one response path
+        span = trace.start("path_merge");
         ResponsePath responsePath = concatenatePaths(request, solver.weighting, queryGraph, result.paths, getWaypoints(snaps));
         responsePath.addDebugInfo(result.debug);
         ghRsp.add(responsePath);
+        putPathCounts(span, request, ghRsp.getAll()).close();
+        metrics.pathsMerged(System.nanoTime() - start);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
+        routeSpan.close();
         return ghRsp;
     }
 
+    private static Trace createTrace(GHRequest request) {
+        return request.getHints().getBool(DEBUG, false) ? new Trace() : Trace.DISABLED;
+    }
+
+    private Trace.Span putVirtualCounts(Trace.Span span, QueryGraph queryGraph) {
+        return span.put("virtual_nodes", queryGraph.getNodes() - graph.getNodes()).
+                put("virtual_edges", queryGraph.getEdges() - graph.getEdges());
+    }
+
+    private Trace.Span putPathCounts(Trace.Span span, GHRequest request, List<ResponsePath> responsePaths) {
+        if (!span.isRecording())
+            return span;
+        boolean enableInstructions = request.getHints().getBool(Parameters.Routing.INSTRUCTIONS, routerConfig.isInstructionsEnabled());
+        long points = 0, instructions = 0, details = 0;
+        for (ResponsePath responsePath : responsePaths) {
+            if (responsePath.hasErrors())
+                continue;
+            points += responsePath.getPoints().size();
+            if (enableInstructions)
+                instructions += responsePath.getInstructions().size();
+            for (List<PathDetail> list : responsePath.getPathDetails().values())
+                details += list.size();
+        }
+        return span.put("points", points).put("instructions", instructions).put("details", details);
+    }
+
+    /**
+     * Records a span for the search of every leg including the path extraction if the trace is enabled.
+     */
+    private static PathCalculator traced(PathCalculator pathCalculator, Trace trace) {
+        return trace.isEnabled() ? new TracingPathCalculator(pathCalculator, trace) : pathCalculator;
+    }
+
+    private long reportQueryGraph(long start) {
+        long now = System.nanoTime();
+        metrics.queryGraphCreated(now - start);
+        return now;
+    }
+
+    private long reportSearch(Solver solver, PathCalculator pathCalculator, long visitedNodes, long start) {
+        long now = System.nanoTime();
+        metrics.searchDone(solver.profile.getName(), pathCalculator.getAlgorithmName(), now - start, visitedNodes);
+        return now;
+    }
+
     private PathMerger createPathMerger(GHRequest request, Weighting weighting, Graph graph) {
         boolean enableInstructions = request.getHints().getBool(Parameters.Routing.INSTRUCTIONS, routerConfig.isInstructionsEnabled());
         boolean calcPoints = request.getHints().getBool(Parameters.Routing.CALC_POINTS, routerConfig.isCalcPoints());
@@ -339,6 +467,19 @@ public class Router {
         return hints.getBool(PASS_THROUGH, false);
     }
 
+    private static boolean hasDepartureTime(PMap hints) {
+        return hints.has(DEPARTURE_TIME);
+    }
+
+    private static ZonedDateTime getDepartureTime(PMap hints) {
+        String departureTime = hints.getString(DEPARTURE_TIME, "");
+        try {
+            return ZonedDateTime.parse(departureTime);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Cannot parse the '" + DEPARTURE_TIME + "' parameter, it must be in ISO-8601 format like 2023-05-16T08:30:00+02:00, but was: " + departureTime);
+        }
+    }
+
     private static boolean getForceCurbsides(PMap hints) {
         return hints.getBool(FORCE_CURBSIDE, true);
     }
@@ -350,6 +491,8 @@ public class Router {
         protected Profile profile;
         protected Weighting weighting;
         protected final EncodedValueLookup lookup;
+        private SearchStatePool searchStatePool;
+        protected SearchBudget searchBudget;
 
         public Solver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup) {
             this.request = request;
@@ -402,6 +545,34 @@ public class Router {
 
         protected abstract Weighting createWeighting();
 
+        void setSearchStatePool(SearchStatePool searchStatePool) {
+            this.searchStatePool = searchStatePool;
+        }
+
+        void setSearchBudget(SearchBudget searchBudget) {
+            this.searchBudget = searchBudget;
+        }
+
+        /**
+         * Enables the primitive search for the given algorithm hints if search states are pooled and the request
+         * does not specify this explicitly.
+         */
+        protected void putPrimitiveSearch(PMap hints) {
+            if (searchStatePool != null && !hints.has(PRIMITIVE_SEARCH))
+                hints.putObject(PRIMITIVE_SEARCH, true);
+        }
+
+        /**
+         * @return the supplier of the pooled search states for the current thread, profile and algorithm or null if
+         * search states are not pooled
+         */
+        protected Supplier<BidirSearchState> getSearchStateSupplier(String type) {
+            if (searchStatePool == null)
+                return null;
+            final String key = profile.getName() + "|" + type + "|" + request.getAlgorithm();
+            return () -> searchStatePool.get(key);
+        }
+
         protected EdgeFilter createSnapFilter() {
             return new DefaultSnapFilter(weighting, lookup.getBooleanEncodedValue(Subnetwork.key(profile.getName())));
         }
@@ -456,6 +627,9 @@ public class Router {
 
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()))
                 throw new IllegalArgumentException("algorithm=round_trip cannot be used with CH");
+
+            if (hasDepartureTime(request.getHints()))
+                throw new IllegalArgumentException("The '" + DEPARTURE_TIME + "' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`.");
         }
 
         @Override
@@ -475,7 +649,12 @@ public class Router {
             opts.putObject(ALGORITHM, request.getAlgorithm());
             opts.putObject(MAX_VISITED_NODES, getMaxVisitedNodes(request.getHints()));
             opts.putObject(TIMEOUT_MS, getTimeoutMillis(request.getHints()));
-            return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph), opts);
+            if (searchBudget != null)
+                opts.putObject(SearchBudget.KEY, searchBudget);
+            putPrimitiveSearch(opts);
+            CHRoutingAlgorithmFactory algorithmFactory = new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph)
+                    .setSearchStateSupplier(getSearchStateSupplier("ch"));
+            return new CHPathCalculator(algorithmFactory, opts);
         }
 
         private RoutingCHGraph getRoutingCHGraph(String profileName) {
@@ -507,6 +686,8 @@ public class Router {
         protected void checkRequest() {
             super.checkRequest();
             checkNonChMaxWaypointDistance(request.getPoints());
+            if (hasDepartureTime(request.getHints()) && ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()))
+                throw new IllegalArgumentException("The '" + DEPARTURE_TIME + "' parameter cannot be used with algorithm=round_trip");
         }
 
         @Override
@@ -518,17 +699,28 @@ public class Router {
 
         @Override
         protected FlexiblePathCalculator createPathCalculator(QueryGraph queryGraph) {
-            RoutingAlgorithmFactory algorithmFactory = new RoutingAlgorithmFactorySimple();
+            RoutingAlgorithmFactory algorithmFactory = hasDepartureTime(request.getHints())
+                    ? createTDAlgorithmFactory()
+                    : new RoutingAlgorithmFactorySimple().setSearchStateSupplier(getSearchStateSupplier("flex"));
             return new FlexiblePathCalculator(queryGraph, algorithmFactory, weighting, getAlgoOpts());
         }
 
+        protected TDRoutingAlgorithmFactory createTDAlgorithmFactory() {
+            SpeedProfileStorage speedProfiles = baseGraph.getSpeedProfileStorage();
+            if (speedProfiles == null || !lookup.hasEncodedValue(SpeedProfile.KEY))
+                throw new IllegalArgumentException("The '" + DEPARTURE_TIME + "' parameter requires the encoded value '" + SpeedProfile.KEY + "'");
+            return new TDRoutingAlgorithmFactory(speedProfiles, lookup.getIntEncodedValue(SpeedProfile.KEY), getDepartureTime(request.getHints()));
+        }
+
         protected AlgorithmOptions getAlgoOpts() {
             AlgorithmOptions algoOpts = new AlgorithmOptions().
                     setAlgorithm(request.getAlgorithm()).
                     setTraversalMode(profile.isTurnCosts() ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED).
                     setMaxVisitedNodes(getMaxVisitedNodes(request.getHints())).
                     setTimeoutMillis(getTimeoutMillis(request.getHints())).
+                    setSearchBudget(searchBudget).
                     setHints(request.getHints());
+            putPrimitiveSearch(algoOpts.getHints());
 
             // use A* for round trips
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())) {
@@ -579,8 +771,50 @@ public class Router {
             if (profile instanceof CustomProfile && request.getCustomModel() != null
                     && !request.getHints().getBool("lm.disable", false))
                 FindMinMax.checkLMConstraints(((CustomProfile) profile).getCustomModel(), request.getCustomModel(), lookup);
-            RoutingAlgorithmFactory routingAlgorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount());
+            RoutingAlgorithmFactory routingAlgorithmFactory = hasDepartureTime(request.getHints())
+                    ? createTDAlgorithmFactory().setLandmarks(landmarkStorage, routerConfig.getActiveLandmarkCount())
+                    : new LMRoutingAlgorithmFactory(landmarkStorage)
+                    .setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount())
+                    .setSearchStateSupplier(getSearchStateSupplier("lm"));
             return new FlexiblePathCalculator(queryGraph, routingAlgorithmFactory, weighting, getAlgoOpts());
         }
     }
+
+    private static class TracingPathCalculator implements PathCalculator {
+        private final PathCalculator pathCalculator;
+        private final Trace trace;
+
+        TracingPathCalculator(PathCalculator pathCalculator, Trace trace) {
+            this.pathCalculator = pathCalculator;
+            this.trace = trace;
+        }
+
+        @Override
+        public List<Path> calcPaths(int from, int to, EdgeRestrictions edgeRestrictions) {
+            try (Trace.Span span = trace.start("leg")) {
+                List<Path> paths = pathCalculator.calcPaths(from, to, edgeRestrictions);
+                // one span per path, e.g. for every alternative
+                for (Path path : paths)
+                    if (path.getExtractionNanos() > 0)
+                        trace.add("extraction", path.getExtractionStartNanos(), path.getExtractionNanos());
+                span.put("from", from).put("to", to).put("visited_nodes", pathCalculator.getVisitedNodes());
+                return paths;
+            }
+        }
+
+        @Override
+        public String getDebugString() {
+            return pathCalculator.getDebugString();
+        }
+
+        @Override
+        public int getVisitedNodes() {
+            return pathCalculator.getVisitedNodes();
+        }
+
+        @Override
+        public String getAlgorithmName() {
+            return pathCalculator.getAlgorithmName();
+        }
+    }
 }
@@ -0,0 +1,54 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+/**
+ * Receives the durations of the different phases of {@link Router#route}, e.g. to publish them to a metrics registry.
+ * The methods are called from the request threads and have to be thread-safe. Nothing is reported for requests that
+ * fail.
+ */
+public interface RouterMetrics {
+    RouterMetrics NOOP = new RouterMetrics() {
+    };
+
+    /**
+     * Called after the snapping of all request points to the graph.
+     */
+    default void lookupDone(long nanos) {
+    }
+
+    /**
+     * Called after the creation of the QueryGraph for the snapped points.
+     */
+    default void queryGraphCreated(long nanos) {
+    }
+
+    /**
+     * Called after the searches for all legs of a request, with the name of the algorithm that was actually used and
+     * the sum of the visited nodes.
+     */
+    default void searchDone(String profile, String algorithm, long nanos, long visitedNodes) {
+    }
+
+    /**
+     * Called after the found paths were converted into the response paths, i.e. after the calculation of the points,
+     * instructions and path details in the PathMerger.
+     */
+    default void pathsMerged(long nanos) {
+    }
+}
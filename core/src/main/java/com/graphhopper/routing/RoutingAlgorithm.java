@@ -50,6 +50,11 @@ public interface RoutingAlgorithm {
      */
     void setTimeoutMillis(long timeoutMillis);
 
+    /**
+     * Stops the search when the given budget of the request is exceeded
+     */
+    void setSearchBudget(SearchBudget searchBudget);
+
     /**
      * @return name of this algorithm
      */
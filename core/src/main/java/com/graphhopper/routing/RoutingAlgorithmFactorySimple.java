@@ -26,8 +26,12 @@ import com.graphhopper.util.DistanceCalcEarth;
 import com.graphhopper.util.DistancePlaneProjection;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+
+import java.util.function.Supplier;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
+import static com.graphhopper.util.Parameters.Routing.PRIMITIVE_SEARCH;
 
 /**
  * A simple factory creating normal algorithms (RoutingAlgorithm) without preparation.
@@ -36,16 +40,35 @@ import static com.graphhopper.util.Parameters.Algorithms.*;
  * @author Peter Karich
  */
 public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
+    private Supplier<BidirSearchState> searchStateSupplier;
+
+    /**
+     * Sets the supplier for the search states of the algorithms created with {@link Parameters.Routing#PRIMITIVE_SEARCH},
+     * e.g. to re-use them via a {@link SearchStatePool}. By default every algorithm creates its own search state.
+     */
+    public RoutingAlgorithmFactorySimple setSearchStateSupplier(Supplier<BidirSearchState> searchStateSupplier) {
+        this.searchStateSupplier = searchStateSupplier;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
         RoutingAlgorithm ra;
         String algoStr = opts.getAlgorithm();
         Weighting weighting = g.wrapWeighting(w);
+        boolean primitiveSearch = opts.getHints().getBool(PRIMITIVE_SEARCH, false);
         if (DIJKSTRA_BI.equalsIgnoreCase(algoStr)) {
-            ra = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
+            if (primitiveSearch)
+                ra = new DijkstraBidirectionPrimitive(g, weighting, opts.getTraversalMode(), createSearchState(g));
+            else
+                ra = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
         } else if (DIJKSTRA.equalsIgnoreCase(algoStr)) {
             ra = new Dijkstra(g, weighting, opts.getTraversalMode());
 
+        } else if ((ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) && primitiveSearch) {
+            ra = new AStarBidirectionPrimitive(g, weighting, opts.getTraversalMode(), createSearchState(g))
+                    .setApproximation(getApproximation(ASTAR_BI, opts.getHints(), weighting, g.getNodeAccess()));
+
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             AStarBidirection aStarBi = new AStarBidirection(g, weighting,
                     opts.getTraversalMode());
@@ -69,9 +92,16 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
 
         ra.setMaxVisitedNodes(opts.getMaxVisitedNodes());
         ra.setTimeoutMillis(opts.getTimeoutMillis());
+        ra.setSearchBudget(opts.getSearchBudget());
         return ra;
     }
 
+    private BidirSearchState createSearchState(Graph g) {
+        return searchStateSupplier == null
+                ? new BidirSearchState(Math.min(Math.max(200, g.getNodes() / 10), 150_000))
+                : searchStateSupplier.get();
+    }
+
     public static WeightApproximator getApproximation(String prop, PMap opts, Weighting weighting, NodeAccess na) {
         String approxAsStr = opts.getString(prop + ".approximation", "BeelineSimplification");
         double epsilon = opts.getDouble(prop + ".epsilon", 1);
@@ -0,0 +1,229 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.graphhopper.coll.DoubleMinHeapWithUpdate;
+import com.graphhopper.routing.ch.CHEntry;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+
+/**
+ * Stores the entries of a shortest path tree in primitive arrays instead of {@link SPTEntry} objects. Every entry is
+ * identified by a 'slot', i.e. its index in these arrays. The slot of the current entry for a given traversal id can
+ * be found using {@link #getSlot}. The open set of the search is an indexed heap of slots, such that the weight of an
+ * entry that has not been settled yet can be updated in place.
+ * <p>
+ * Calling {@link #clear()} resets the store but keeps all the allocated memory, so the same store can be used for
+ * many searches without creating garbage. Clearing only touches the entries of the last search, so a store that once
+ * grew large for a long route is still cheap to clear after a short one.
+ *
+ * @see BidirSearchState
+ */
+public class SPTStore {
+    public static final int NO_PARENT = -1;
+    private final IntIntHashMap slotsByKey;
+    private final DoubleMinHeapWithUpdate heap;
+    // the key of every slot or -1, so clear() only needs to remove the keys that were used
+    private int[] keys;
+    private int[] edges;
+    private int[] incEdges;
+    private int[] adjNodes;
+    private int[] parents;
+    private double[] weights;
+    private int size;
+
+    public SPTStore(int initialCapacity) {
+        initialCapacity = Math.max(16, initialCapacity);
+        slotsByKey = new IntIntHashMap(initialCapacity);
+        heap = new DoubleMinHeapWithUpdate(initialCapacity);
+        keys = new int[initialCapacity];
+        edges = new int[initialCapacity];
+        incEdges = new int[initialCapacity];
+        adjNodes = new int[initialCapacity];
+        parents = new int[initialCapacity];
+        weights = new double[initialCapacity];
+    }
+
+    /**
+     * Adds a new entry to the store. The entry is not added to the open set, use {@link #push} for this.
+     *
+     * @param key     the traversal id of the new entry. if this is negative the entry cannot be found using
+     *                {@link #getSlot}, otherwise it replaces the current slot for this key
+     * @param edge    the edge of the new entry, {@link EdgeIterator#NO_EDGE} for the root of the tree
+     * @param incEdge the original edge that is incoming to adjNode. usually this is the same as edge, but for
+     *                edge-based CH shortcuts this is the last original edge of the shortcut
+     * @param parent  the slot of the parent entry or {@link #NO_PARENT}
+     * @return the slot of the new entry
+     */
+    public int add(int key, int edge, int incEdge, int adjNode, double weight, int parent) {
+        if (size == edges.length)
+            grow();
+        int slot = size++;
+        keys[slot] = key;
+        edges[slot] = edge;
+        incEdges[slot] = incEdge;
+        adjNodes[slot] = adjNode;
+        weights[slot] = weight;
+        parents[slot] = parent;
+        if (key >= 0)
+            slotsByKey.put(key, slot);
+        return slot;
+    }
+
+    /**
+     * Changes the entry at the given slot. This must only be used for entries that were not polled from the open set
+     * yet, because otherwise there might be other entries that use this slot as their parent already.
+     */
+    public void set(int slot, int edge, int incEdge, double weight, int parent) {
+        edges[slot] = edge;
+        incEdges[slot] = incEdge;
+        weights[slot] = weight;
+        parents[slot] = parent;
+    }
+
+    /**
+     * @return the slot of the current entry for the given traversal id or -1 if there is no such entry
+     */
+    public int getSlot(int key) {
+        return slotsByKey.getOrDefault(key, -1);
+    }
+
+    public int getEdge(int slot) {
+        return edges[slot];
+    }
+
+    public int getIncEdge(int slot) {
+        return incEdges[slot];
+    }
+
+    public int getAdjNode(int slot) {
+        return adjNodes[slot];
+    }
+
+    public int getParent(int slot) {
+        return parents[slot];
+    }
+
+    /**
+     * @return the weight of the path from the root of the tree to the entry at the given slot
+     */
+    public double getWeight(int slot) {
+        return weights[slot];
+    }
+
+    /**
+     * Adds the entry at the given slot to the open set or updates its priority if it is contained already.
+     */
+    public void push(int slot, double priority) {
+        if (heap.contains(slot))
+            heap.update(slot, priority);
+        else
+            heap.push(slot, priority);
+    }
+
+    /**
+     * @return true if the entry at the given slot is contained in the open set
+     */
+    public boolean isQueued(int slot) {
+        return heap.contains(slot);
+    }
+
+    public boolean isQueueEmpty() {
+        return heap.isEmpty();
+    }
+
+    /**
+     * @return the priority of the next entry that would be polled from the open set
+     */
+    public double peekPriority() {
+        return heap.peekValue();
+    }
+
+    /**
+     * Removes the entry with the smallest priority from the open set and returns its slot
+     */
+    public int poll() {
+        return heap.poll();
+    }
+
+    /**
+     * @return the number of entries in this store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of entries this store can hold without allocating more memory
+     */
+    public int getCapacity() {
+        return edges.length;
+    }
+
+    public void clear() {
+        // IntIntHashMap.clear() would fill the whole key array, which is as large as for the largest search so far
+        for (int slot = 0; slot < size; slot++)
+            if (keys[slot] >= 0)
+                slotsByKey.remove(keys[slot]);
+        heap.clear();
+        size = 0;
+    }
+
+    /**
+     * Creates a linked list of {@link CHEntry}s that starts with the entry at the given slot and follows the parents
+     * until the root of the tree. This is only needed to extract the path once the search is finished, so the number
+     * of created objects is proportional to the number of edges of the found path.
+     *
+     * @return the entry for the given slot or null if the slot is negative
+     */
+    public CHEntry createEntry(int slot) {
+        if (slot < 0)
+            return null;
+        CHEntry result = createSingleEntry(slot);
+        CHEntry curr = result;
+        int parent = parents[slot];
+        while (parent != NO_PARENT) {
+            CHEntry parentEntry = createSingleEntry(parent);
+            curr.parent = parentEntry;
+            curr = parentEntry;
+            parent = parents[parent];
+        }
+        return result;
+    }
+
+    private CHEntry createSingleEntry(int slot) {
+        return new CHEntry(edges[slot], incEdges[slot], adjNodes[slot], weights[slot], null);
+    }
+
+    private void grow() {
+        int newLength = edges.length + (edges.length >> 1);
+        keys = Arrays.copyOf(keys, newLength);
+        edges = Arrays.copyOf(edges, newLength);
+        incEdges = Arrays.copyOf(incEdges, newLength);
+        adjNodes = Arrays.copyOf(adjNodes, newLength);
+        parents = Arrays.copyOf(parents, newLength);
+        weights = Arrays.copyOf(weights, newLength);
+    }
+
+    @Override
+    public String toString() {
+        return "entries: " + size + ", queued: " + heap.size();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.util.exceptions.SearchBudgetExceededException;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Limits the resources a request may use across all of its searches: a deadline, a budget of visited nodes and a
+ * cancellation flag, e.g. for when the client disconnected. Unlike the max_visited_nodes and timeout_ms limits of a
+ * single {@link RoutingAlgorithm} the visited nodes of all searches of a request, like the legs of a via-route or
+ * the transitions of a map matching, count against the same budget.
+ * <p>
+ * The budget is cooperative: the search loops call {@link #isExceeded(int)} and stop when it returns true. The
+ * caller then uses {@link #check()} to report the reason. Once the budget is exceeded it stays exceeded.
+ */
+public class SearchBudget {
+    // the key of the budget in the options of the CH algorithms
+    public static final String KEY = "search_budget";
+    // the clock and the cancellation check are only queried every this many calls of isExceeded
+    private static final int CHECK_INTERVAL = 256;
+    private long deadlineMillis = Long.MAX_VALUE;
+    private long maxVisitedNodes = Long.MAX_VALUE;
+    private BooleanSupplier cancellationCheck = () -> false;
+    // the visited nodes of the finished searches
+    private final AtomicLong visitedNodes = new AtomicLong();
+    private volatile boolean cancelled;
+    private volatile String exceededReason;
+    private int calls;
+
+    /**
+     * Sets the deadline to the given time from now, if this is earlier than the current deadline.
+     */
+    public SearchBudget setTimeoutMillis(long timeoutMillis) {
+        long deadline;
+        try {
+            deadline = Math.addExact(System.currentTimeMillis(), timeoutMillis);
+        } catch (ArithmeticException e) {
+            deadline = Long.MAX_VALUE;
+        }
+        return setDeadlineMillis(Math.min(deadlineMillis, deadline));
+    }
+
+    /**
+     * @param deadlineMillis the time in milliseconds since the epoch after which all searches are aborted
+     */
+    public SearchBudget setDeadlineMillis(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+        return this;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public SearchBudget setMaxVisitedNodes(long maxVisitedNodes) {
+        this.maxVisitedNodes = maxVisitedNodes;
+        return this;
+    }
+
+    /**
+     * @param cancellationCheck returns true if the searches should be aborted, e.g. because the client disconnected.
+     *                          It is called from the search loops, but not for every node, so it should be cheap and
+     *                          thread-safe.
+     */
+    public SearchBudget setCancellationCheck(BooleanSupplier cancellationCheck) {
+        this.cancellationCheck = cancellationCheck;
+        return this;
+    }
+
+    /**
+     * Aborts all searches that use this budget. This can be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Adds the visited nodes of a finished search.
+     */
+    public void consume(int visitedNodes) {
+        this.visitedNodes.addAndGet(visitedNodes);
+    }
+
+    public long getVisitedNodes() {
+        return visitedNodes.get();
+    }
+
+    /**
+     * This method is meant to be called for every visited node of a search, so it checks the clock only occasionally.
+     *
+     * @param currentVisitedNodes the visited nodes of the running search, which were not consumed yet
+     */
+    public boolean isExceeded(int currentVisitedNodes) {
+        if (exceededReason != null)
+            return true;
+        if (cancelled) {
+            exceededReason = "cancelled";
+            return true;
+        }
+        if (visitedNodes.get() + currentVisitedNodes > maxVisitedNodes) {
+            exceededReason = "max_visited_nodes";
+            return true;
+        }
+        // not thread-safe, but missing a check now and then when this budget is shared between threads is fine
+        if (++calls % CHECK_INTERVAL != 0)
+            return false;
+        return isDeadlineOrCancellationExceeded();
+    }
+
+    private boolean isDeadlineOrCancellationExceeded() {
+        if (deadlineMillis < Long.MAX_VALUE && System.currentTimeMillis() > deadlineMillis)
+            exceededReason = "deadline";
+        else if (cancellationCheck.getAsBoolean())
+            exceededReason = "cancelled";
+        return exceededReason != null;
+    }
+
+    /**
+     * @throws SearchBudgetExceededException if the budget is exceeded
+     */
+    public void check() {
+        if (isExceeded(0) || isDeadlineOrCancellationExceeded())
+            throw new SearchBudgetExceededException(getMessage(exceededReason), exceededReason);
+    }
+
+    private String getMessage(String reason) {
+        switch (reason) {
+            case "cancelled":
+                return "The search was cancelled";
+            case "deadline":
+                return "The search was aborted because the deadline passed";
+            default:
+                return "The search was aborted because the maximum number of visited nodes (" + maxVisitedNodes
+                        + ") was exceeded";
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A per-thread pool of {@link BidirSearchState}s. Every thread keeps one search state per key (e.g. per profile and
+ * algorithm), so consecutive searches running in the same thread, like the legs of a request with many via points
+ * or subsequent requests handled by the same server thread, re-use the same arrays instead of allocating new data
+ * structures for every search. Re-using a search state is safe, because the searches of one thread run one after
+ * another and the state is cleared when a search starts.
+ * <p>
+ * Search states that grew beyond a maximum capacity are not kept, such that a single very long search does not
+ * occupy a lot of memory for the lifetime of the thread.
+ */
+public class SearchStatePool {
+    private final ThreadLocal<Map<String, BidirSearchState>> statesByKey = ThreadLocal.withInitial(HashMap::new);
+    private final int initialCapacity;
+    private final int maxCapacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public SearchStatePool() {
+        this(1_000, 1_000_000);
+    }
+
+    /**
+     * @param initialCapacity the initial capacity of newly created search states
+     * @param maxCapacity     search states whose capacity exceeds this value are replaced by new ones
+     */
+    public SearchStatePool(int initialCapacity, int maxCapacity) {
+        if (initialCapacity > maxCapacity)
+            throw new IllegalArgumentException("initialCapacity must not be larger than maxCapacity, " + initialCapacity + " vs. " + maxCapacity);
+        this.initialCapacity = initialCapacity;
+        this.maxCapacity = maxCapacity;
+    }
+
+    /**
+     * @return the search state for the given key that belongs to the current thread. a new one is created if there is
+     * none yet or if the existing one grew too large
+     */
+    public BidirSearchState get(String key) {
+        Map<String, BidirSearchState> states = statesByKey.get();
+        BidirSearchState state = states.get(key);
+        if (state != null && state.getCapacity() <= maxCapacity) {
+            hits.increment();
+            return state;
+        }
+        misses.increment();
+        state = new BidirSearchState(initialCapacity);
+        states.put(key, state);
+        return state;
+    }
+
+    /**
+     * @return the number of times an existing search state could be re-used
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of times a new search state had to be created
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "hits: " + getHits() + ", misses: " + getMisses();
+    }
+}
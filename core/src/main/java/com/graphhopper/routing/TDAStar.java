@@ -0,0 +1,68 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
+import com.graphhopper.routing.weighting.TimeDependentWeighting;
+import com.graphhopper.routing.weighting.WeightApproximator;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.DistancePlaneProjection;
+import com.graphhopper.util.Parameters;
+
+/**
+ * A time-dependent variant of {@link AStar}, see {@link TDDijkstra}. The approximations like the
+ * {@link com.graphhopper.routing.lm.LMApproximator} are lower bounds for the weights of the wrapped weighting. Edges
+ * can be faster than this depending on the time, so the approximation is divided by the largest speed factor of all
+ * speed profiles to keep it admissible.
+ */
+public class TDAStar extends TDDijkstra {
+    private WeightApproximator weightApprox;
+    private final double maxSpeedFactor;
+
+    public TDAStar(Graph graph, TimeDependentWeighting tdWeighting, TraversalMode tMode, long departureTime) {
+        super(graph, tdWeighting, tMode, departureTime);
+        this.maxSpeedFactor = tdWeighting.getMaxSpeedFactor();
+        BeelineWeightApproximator defaultApprox = new BeelineWeightApproximator(nodeAccess, weighting);
+        defaultApprox.setDistanceCalc(DistancePlaneProjection.DIST_PLANE);
+        setApproximation(defaultApprox);
+    }
+
+    /**
+     * @param approx approximates the weight of the wrapped weighting to the target node
+     */
+    public TDAStar setApproximation(WeightApproximator approx) {
+        weightApprox = approx;
+        return this;
+    }
+
+    @Override
+    protected void initApproximation(int to) {
+        weightApprox.setTo(to);
+    }
+
+    @Override
+    protected double approximate(int node) {
+        return weightApprox.approximate(node) / maxSpeedFactor;
+    }
+
+    @Override
+    public String getName() {
+        return "td_" + Parameters.Algorithms.ASTAR + "|" + weightApprox;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.TimeDependentWeighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.Parameters;
+
+import java.util.PriorityQueue;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * A time-dependent variant of {@link Dijkstra}. The weight and the travel time of an edge depend on the time at which
+ * the edge is entered, i.e. the departure time plus the travel time of the path to this edge, see
+ * {@link TimeDependentWeighting}. Only a forward search is possible, because the arrival time is not known in advance.
+ * The travel time of the resulting path is the time-dependent one, while the instructions and path details still use
+ * the travel times of the wrapped weighting.
+ */
+public class TDDijkstra extends AbstractRoutingAlgorithm implements EdgeToEdgeRoutingAlgorithm {
+    protected final TimeDependentWeighting tdWeighting;
+    private final long departureTime;
+    private GHIntObjectHashMap<TDEntry> fromMap;
+    private PriorityQueue<TDEntry> fromHeap;
+    private TDEntry currEdge;
+    private int visitedNodes;
+    private int to = -1;
+    private int fromOutEdge;
+    private int toInEdge;
+
+    /**
+     * @param departureTime the departure time in milliseconds since the epoch
+     */
+    public TDDijkstra(Graph graph, TimeDependentWeighting tdWeighting, TraversalMode tMode, long departureTime) {
+        super(graph, tdWeighting.getWeighting(), tMode);
+        this.tdWeighting = tdWeighting;
+        this.departureTime = departureTime;
+        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
+        fromMap = new GHIntObjectHashMap<>(size);
+        fromHeap = new PriorityQueue<>(size);
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        return calcPath(from, to, ANY_EDGE, ANY_EDGE);
+    }
+
+    @Override
+    public Path calcPath(int from, int to, int fromOutEdge, int toInEdge) {
+        if ((fromOutEdge != ANY_EDGE || toInEdge != ANY_EDGE) && !traversalMode.isEdgeBased())
+            throw new IllegalArgumentException("Restricting the start/target edges is only possible for edge-based graph traversal");
+        this.fromOutEdge = fromOutEdge;
+        this.toInEdge = toInEdge;
+        checkAlreadyRun();
+        setupFinishTime();
+        this.to = to;
+        if (fromOutEdge == NO_EDGE || toInEdge == NO_EDGE)
+            return extractPath();
+        initApproximation(to);
+        double weightToGoal = approximate(from);
+        if (Double.isInfinite(weightToGoal))
+            return extractPath();
+        fromHeap.add(new TDEntry(NO_EDGE, from, weightToGoal, 0, departureTime, null));
+        runAlgo();
+        return extractPath();
+    }
+
+    /**
+     * Prepares the estimation of the remaining weight to the given node, see {@link #approximate(int)}
+     */
+    protected void initApproximation(int to) {
+    }
+
+    /**
+     * @return a lower bound for the time-dependent weight from the given node to the target node
+     */
+    protected double approximate(int node) {
+        return 0;
+    }
+
+    private void runAlgo() {
+        while (!fromHeap.isEmpty()) {
+            currEdge = fromHeap.poll();
+            if (currEdge.isDeleted())
+                continue;
+            visitedNodes++;
+            if (isMaxVisitedNodesExceeded() || finished() || isTimeoutExceeded())
+                break;
+
+            EdgeIterator iter = edgeExplorer.setBaseNode(currEdge.adjNode);
+            while (iter.next()) {
+                if (!accept(iter, currEdge.edge) || (currEdge.edge == NO_EDGE && fromOutEdge != ANY_EDGE && iter.getEdge() != fromOutEdge))
+                    continue;
+
+                double edgeWeight = weighting.calcEdgeWeight(iter, false);
+                if (Double.isInfinite(edgeWeight))
+                    continue;
+                long entryTime = currEdge.time;
+                double turnWeight = 0;
+                if (EdgeIterator.Edge.isValid(currEdge.edge)) {
+                    turnWeight = weighting.calcTurnWeight(currEdge.edge, iter.getBaseNode(), iter.getEdge());
+                    if (Double.isInfinite(turnWeight))
+                        continue;
+                    entryTime += weighting.calcTurnMillis(currEdge.edge, iter.getBaseNode(), iter.getEdge());
+                }
+                long millis = weighting.calcEdgeMillis(iter, false);
+                long tdMillis = tdWeighting.calcEdgeMillis(iter, false, entryTime, millis);
+                // only the edge depends on the speed, the turn costs stay the same at every time
+                double tmpWeight = currEdge.weightOfVisitedPath + TimeDependentWeighting.scaleWeight(edgeWeight, millis, tdMillis) + turnWeight;
+                int traversalId = traversalMode.createTraversalId(iter, false);
+                TDEntry entry = fromMap.get(traversalId);
+                if (entry == null || entry.weightOfVisitedPath > tmpWeight) {
+                    double weightToGoal = approximate(iter.getAdjNode());
+                    if (Double.isInfinite(weightToGoal))
+                        continue;
+                    if (entry != null)
+                        entry.setDeleted();
+                    entry = new TDEntry(iter.getEdge(), iter.getAdjNode(), tmpWeight + weightToGoal, tmpWeight, entryTime + tdMillis, currEdge);
+                    fromMap.put(traversalId, entry);
+                    fromHeap.add(entry);
+                }
+            }
+        }
+    }
+
+    private boolean finished() {
+        return currEdge.adjNode == to && (toInEdge == ANY_EDGE || currEdge.edge == toInEdge) && (fromOutEdge == ANY_EDGE || currEdge.edge != NO_EDGE);
+    }
+
+    private Path extractPath() {
+        if (currEdge == null || !finished())
+            return createEmptyPath();
+
+        // the path extractor calculates the time with the wrapped weighting, so we need to set the time-dependent one
+        return PathExtractor.extractPath(graph, weighting, currEdge)
+                .setWeight(currEdge.weightOfVisitedPath)
+                .setTime(currEdge.time - departureTime);
+    }
+
+    /**
+     * @return the arrival time at the target in milliseconds since the epoch or -1 if no path was found
+     */
+    public long getArrivalTime() {
+        return currEdge == null || !finished() ? -1 : currEdge.time;
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        return "td_" + Parameters.Algorithms.DIJKSTRA;
+    }
+
+    public static class TDEntry extends SPTEntry {
+        final double weightOfVisitedPath;
+        // the time at which the adjNode is reached in milliseconds since the epoch
+        final long time;
+
+        public TDEntry(int edgeId, int adjNode, double weightForHeap, double weightOfVisitedPath, long time, SPTEntry parent) {
+            super(edgeId, adjNode, weightForHeap, parent);
+            this.weightOfVisitedPath = weightOfVisitedPath;
+            this.time = time;
+        }
+
+        @Override
+        public double getWeightOfVisitedPath() {
+            return weightOfVisitedPath;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.lm.LMApproximator;
+import com.graphhopper.routing.lm.LandmarkStorage;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
+import com.graphhopper.routing.weighting.TimeDependentWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.SpeedProfileStorage;
+import com.graphhopper.util.DistancePlaneProjection;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR;
+import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA;
+
+/**
+ * Creates the time-dependent algorithms {@link TDDijkstra} and {@link TDAStar}. Every algorithm departs at the arrival
+ * time of the algorithm that was created before, so the legs of a route via multiple points need to be calculated in
+ * their order.
+ */
+public class TDRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
+    private final SpeedProfileStorage speedProfiles;
+    private final IntEncodedValue speedProfileEnc;
+    private final ZoneId zoneId;
+    private long departureTime;
+    private TDDijkstra previousAlgo;
+    private LandmarkStorage landmarks;
+    private int activeLandmarks;
+
+    public TDRoutingAlgorithmFactory(SpeedProfileStorage speedProfiles, IntEncodedValue speedProfileEnc, ZonedDateTime departureTime) {
+        this.speedProfiles = speedProfiles;
+        this.speedProfileEnc = speedProfileEnc;
+        this.zoneId = departureTime.getZone();
+        this.departureTime = departureTime.toInstant().toEpochMilli();
+    }
+
+    /**
+     * Uses the landmarks to approximate the remaining weight for {@link TDAStar} instead of the beeline
+     */
+    public TDRoutingAlgorithmFactory setLandmarks(LandmarkStorage landmarks, int defaultActiveLandmarks) {
+        this.landmarks = landmarks;
+        this.activeLandmarks = defaultActiveLandmarks;
+        return this;
+    }
+
+    @Override
+    public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
+        if (previousAlgo != null && previousAlgo.getArrivalTime() >= 0)
+            departureTime = previousAlgo.getArrivalTime();
+        Weighting weighting = g.wrapWeighting(w);
+        TimeDependentWeighting tdWeighting = new TimeDependentWeighting(weighting, speedProfiles, speedProfileEnc, zoneId);
+        String algoStr = opts.getAlgorithm();
+        TDDijkstra algo;
+        if (DIJKSTRA.equalsIgnoreCase(algoStr)) {
+            algo = new TDDijkstra(g, tdWeighting, opts.getTraversalMode(), departureTime);
+        } else if (ASTAR.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
+            double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStar.EPSILON, 1);
+            TDAStar aStar = new TDAStar(g, tdWeighting, opts.getTraversalMode(), departureTime);
+            if (landmarks != null) {
+                int activeLM = Math.max(1, opts.getHints().getInt(Parameters.Landmark.ACTIVE_COUNT, activeLandmarks));
+                aStar.setApproximation(LMApproximator.forLandmarks(g, weighting, landmarks, activeLM).setEpsilon(epsilon));
+            } else {
+                aStar.setApproximation(new BeelineWeightApproximator(g.getNodeAccess(), weighting)
+                        .setDistanceCalc(DistancePlaneProjection.DIST_PLANE).setEpsilon(epsilon));
+            }
+            algo = aStar;
+        } else {
+            throw new IllegalArgumentException("Time-dependent routing only supports algorithm=" + ASTAR + " or "
+                    + DIJKSTRA + ", but got: " + algoStr);
+        }
+        algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+        algo.setTimeoutMillis(opts.getTimeoutMillis());
+        algo.setSearchBudget(opts.getSearchBudget());
+        previousAlgo = algo;
+        return algo;
+    }
+}
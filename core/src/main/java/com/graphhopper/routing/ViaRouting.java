@@ -33,6 +33,7 @@ import com.graphhopper.util.Helper;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
@@ -63,8 +64,9 @@ public class ViaRouting {
         EdgeFilter strictEdgeFilter = snapPreventions.isEmpty()
                 ? snapFilter
                 : new SnapPreventionEdgeFilter(snapFilter, roadClassEnc, roadEnvEnc, snapPreventions);
-        List<Snap> snaps = new ArrayList<>(points.size());
-        IntArrayList pointsNotFound = new IntArrayList();
+        Snap[] snaps = new Snap[points.size()];
+        // the points that are snapped with the snapFilter only, we snap them all at once which is faster for many points
+        IntArrayList fallbackIndices = new IntArrayList();
         for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
             GHPoint point = points.get(placeIndex);
             Snap snap = null;
@@ -81,17 +83,26 @@ public class ViaRouting {
             }
 
             if (snap == null || !snap.isValid())
-                snap = locationIndex.findClosest(point.lat, point.lon, snapFilter);
-            if (!snap.isValid())
-                pointsNotFound.add(placeIndex);
-
-            snaps.add(snap);
+                fallbackIndices.add(placeIndex);
+            else
+                snaps[placeIndex] = snap;
         }
 
+        List<GHPoint> fallbackPoints = new ArrayList<>(fallbackIndices.size());
+        for (int i = 0; i < fallbackIndices.size(); i++)
+            fallbackPoints.add(points.get(fallbackIndices.get(i)));
+        List<Snap> fallbackSnaps = locationIndex.findClosest(fallbackPoints, snapFilter);
+        for (int i = 0; i < fallbackIndices.size(); i++)
+            snaps[fallbackIndices.get(i)] = fallbackSnaps.get(i);
+
+        IntArrayList pointsNotFound = new IntArrayList();
+        for (int placeIndex = 0; placeIndex < snaps.length; placeIndex++)
+            if (!snaps[placeIndex].isValid())
+                pointsNotFound.add(placeIndex);
         if (!pointsNotFound.isEmpty())
             throw new MultiplePointsNotFoundException(pointsNotFound);
 
-        return snaps;
+        return Arrays.asList(snaps);
     }
 
     public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps, DirectedEdgeFilter directedEdgeFilter, PathCalculator pathCalculator, List<String> curbsides, boolean forceCurbsides, List<Double> headings, boolean passThrough) {
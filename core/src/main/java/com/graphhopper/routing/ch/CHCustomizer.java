@@ -0,0 +1,495 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHStorage;
+import com.graphhopper.storage.CHStorageBuilder;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+import static com.graphhopper.util.Helper.nf;
+
+/**
+ * Customizable contraction hierarchies (CCH), see 'Customizable Contraction Hierarchies' by Dibbelt, Strasser and
+ * Wagner. The shortcuts of a customizable {@link CHStorage} are created once for a node ordering that does not depend
+ * on the weighting, see {@link NestedDissectionOrdering}: contracting a node connects all its higher level neighbors
+ * no matter what the weights are. Therefore the shortcuts can be used for every weighting and only their weights need
+ * to be recalculated ('customized') when the weighting or the speeds of the edges change, which is much faster than a
+ * new CH preparation.
+ * <p>
+ * We call every pair of adjacent nodes of the contracted graph an 'arc' from the lower to the higher level node. An
+ * arc that can be bypassed via a lower level node (a 'lower triangle') has two shortcuts, one for each direction,
+ * which are stored next to each other. The customization processes the nodes bottom-up and sets the weight of every
+ * shortcut to the smallest weight of its lower triangles. Nodes with the same depth in the elimination tree do not
+ * depend on each other, so they are customized in parallel.
+ * <p>
+ * Only node-based CH is supported so far.
+ */
+public class CHCustomizer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CHCustomizer.class);
+    // smaller sets of nodes with the same depth are customized in the calling thread
+    private static final int MIN_PARALLEL_NODES = 1_000;
+    private final BaseGraph graph;
+    private final CHStorage chStorage;
+    private final int nodes;
+    private final int[] levels;
+    // the arcs from a node to its higher level neighbors are [firstUpArc[node], firstUpArc[node + 1]), sorted by the
+    // id of the higher level node
+    private final int[] firstUpArc;
+    private final int[] arcHighNodes;
+    private final int[] arcLowNodes;
+    // the arcs from the lower level neighbors of a node are downArcs[firstDownArc[node]], ..., downArcs[firstDownArc[node + 1] - 1]
+    private final int[] firstDownArc;
+    private final int[] downArcs;
+    // the first of the two shortcuts of an arc, or -1 if it has none
+    private final int[] arcShortcuts;
+    // the nodes with depth d in the elimination tree are nodesByDepth[firstNodeOfDepth[d]], ..., nodesByDepth[firstNodeOfDepth[d + 1] - 1]
+    private final int[] nodesByDepth;
+    private final int[] firstNodeOfDepth;
+    private final int maxUpArcs;
+    private int threads = 1;
+
+    /**
+     * Reads the shortcuts of the given storage, which must have been created by
+     * {@link #createShortcuts(BaseGraph, CHStorage, NodeOrderingProvider)}.
+     */
+    public CHCustomizer(BaseGraph graph, CHStorage chStorage) {
+        if (!chStorage.isCustomizable())
+            throw new IllegalArgumentException("The CH storage was not prepared for customization, use " + CHParameters.CUSTOMIZABLE);
+        if (chStorage.getNodes() != graph.getNodes())
+            throw new IllegalArgumentException("The CH storage has " + chStorage.getNodes() + " nodes, but the graph has " + graph.getNodes());
+        this.graph = graph;
+        this.chStorage = chStorage;
+        this.nodes = graph.getNodes();
+        levels = new int[nodes];
+        for (int node = 0; node < nodes; node++)
+            levels[node] = chStorage.getLevel(chStorage.toNodePointer(node));
+
+        // every base edge and every shortcut pair belongs to an arc, but there can be multiple edges per arc
+        int[] counts = new int[nodes + 1];
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (int node = 0; node < nodes; node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                if (levels[iter.getAdjNode()] > levels[node])
+                    counts[node + 1]++;
+        }
+        for (int shortcut = 0; shortcut < chStorage.getShortcuts(); shortcut++)
+            counts[chStorage.getNodeA(chStorage.toShortcutPointer(shortcut)) + 1]++;
+        for (int node = 0; node < nodes; node++)
+            counts[node + 1] += counts[node];
+        int[] candidates = new int[counts[nodes]];
+        int[] index = Arrays.copyOf(counts, nodes);
+        for (int node = 0; node < nodes; node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                if (levels[iter.getAdjNode()] > levels[node])
+                    candidates[index[node]++] = iter.getAdjNode();
+        }
+        for (int shortcut = 0; shortcut < chStorage.getShortcuts(); shortcut++) {
+            long pointer = chStorage.toShortcutPointer(shortcut);
+            candidates[index[chStorage.getNodeA(pointer)]++] = chStorage.getNodeB(pointer);
+        }
+
+        // remove the duplicates
+        firstUpArc = new int[nodes + 1];
+        int arcs = 0;
+        int maxUp = 0;
+        for (int node = 0; node < nodes; node++) {
+            firstUpArc[node] = arcs;
+            Arrays.sort(candidates, counts[node], counts[node + 1]);
+            for (int i = counts[node]; i < counts[node + 1]; i++)
+                if (i == counts[node] || candidates[i] != candidates[i - 1])
+                    candidates[arcs++] = candidates[i];
+            maxUp = Math.max(maxUp, arcs - firstUpArc[node]);
+        }
+        firstUpArc[nodes] = arcs;
+        maxUpArcs = maxUp;
+        arcHighNodes = Arrays.copyOf(candidates, arcs);
+        arcLowNodes = new int[arcs];
+        for (int node = 0; node < nodes; node++)
+            Arrays.fill(arcLowNodes, firstUpArc[node], firstUpArc[node + 1], node);
+
+        arcShortcuts = new int[arcs];
+        Arrays.fill(arcShortcuts, -1);
+        for (int shortcut = 0; shortcut < chStorage.getShortcuts(); shortcut += 2) {
+            long pointer = chStorage.toShortcutPointer(shortcut);
+            int arc = findArc(chStorage.getNodeA(pointer), chStorage.getNodeB(pointer));
+            long nextPointer = chStorage.toShortcutPointer(Math.min(shortcut + 1, chStorage.getShortcuts() - 1));
+            if (shortcut + 1 >= chStorage.getShortcuts() || arc < 0 || arcShortcuts[arc] >= 0
+                    || chStorage.getNodeA(nextPointer) != chStorage.getNodeA(pointer) || chStorage.getNodeB(nextPointer) != chStorage.getNodeB(pointer))
+                throw new IllegalStateException("The shortcuts of a customizable CH must come in pairs, one pair per arc, shortcut: " + shortcut);
+            arcShortcuts[arc] = shortcut;
+        }
+
+        firstDownArc = new int[nodes + 1];
+        for (int arc = 0; arc < arcs; arc++)
+            firstDownArc[arcHighNodes[arc] + 1]++;
+        for (int node = 0; node < nodes; node++)
+            firstDownArc[node + 1] += firstDownArc[node];
+        downArcs = new int[arcs];
+        index = Arrays.copyOf(firstDownArc, nodes);
+        for (int arc = 0; arc < arcs; arc++)
+            downArcs[index[arcHighNodes[arc]]++] = arc;
+
+        // the depth of a node is larger than the depth of all its lower level neighbors
+        int[] nodesByLevel = new int[nodes];
+        for (int node = 0; node < nodes; node++)
+            nodesByLevel[levels[node]] = node;
+        int[] depths = new int[nodes];
+        int maxDepth = 0;
+        for (int node : nodesByLevel) {
+            for (int i = firstDownArc[node]; i < firstDownArc[node + 1]; i++)
+                depths[node] = Math.max(depths[node], depths[arcLowNodes[downArcs[i]]] + 1);
+            maxDepth = Math.max(maxDepth, depths[node]);
+        }
+        firstNodeOfDepth = new int[maxDepth + 2];
+        for (int node = 0; node < nodes; node++)
+            firstNodeOfDepth[depths[node] + 1]++;
+        for (int depth = 0; depth <= maxDepth; depth++)
+            firstNodeOfDepth[depth + 1] += firstNodeOfDepth[depth];
+        nodesByDepth = new int[nodes];
+        index = Arrays.copyOf(firstNodeOfDepth, maxDepth + 1);
+        for (int node = 0; node < nodes; node++)
+            nodesByDepth[index[depths[node]]++] = node;
+    }
+
+    /**
+     * Creates the shortcuts of a customizable CH in the given empty storage, i.e. contracts the nodes in the given
+     * order and connects all higher level neighbors of every node. The weights of the shortcuts still need to be set
+     * using {@link #customize(Weighting)}, until then they cannot be used for routing.
+     */
+    public static CHCustomizer createShortcuts(BaseGraph graph, CHStorage chStorage, NodeOrderingProvider ordering) {
+        if (chStorage.isEdgeBased())
+            throw new IllegalArgumentException("Customizable CH is only supported for node-based CH");
+        if (chStorage.getShortcuts() > 0)
+            throw new IllegalStateException("Given CHStore already contains shortcuts");
+        int nodes = graph.getNodes();
+        if (ordering.getNumNodes() != nodes)
+            throw new IllegalArgumentException("The node ordering has " + ordering.getNumNodes() + " nodes, but the graph has " + nodes);
+        CHStorageBuilder chBuilder = new CHStorageBuilder(chStorage);
+        int[] levels = new int[nodes];
+        for (int level = 0; level < nodes; level++) {
+            levels[ordering.getNodeIdForLevel(level)] = level;
+            chBuilder.setLevel(ordering.getNodeIdForLevel(level), level);
+        }
+
+        // the levels of the higher level neighbors of every node
+        IntArrayList[] upLevels = new IntArrayList[nodes];
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (int node = 0; node < nodes; node++) {
+            upLevels[node] = new IntArrayList(0);
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                if (levels[iter.getAdjNode()] > levels[node])
+                    upLevels[node].add(levels[iter.getAdjNode()]);
+        }
+        // contracting a node connects its higher level neighbors. it is sufficient to connect the lowest of them with
+        // all others, because when the lowest one is contracted it connects the others with each other
+        for (int level = 0; level < nodes; level++) {
+            IntArrayList up = upLevels[ordering.getNodeIdForLevel(level)];
+            sortAndRemoveDuplicates(up);
+            if (up.size() < 2)
+                continue;
+            IntArrayList parentUp = upLevels[ordering.getNodeIdForLevel(up.get(0))];
+            for (int i = 1; i < up.size(); i++)
+                parentUp.add(up.get(i));
+        }
+
+        // an arc needs shortcuts if there is a lower triangle, i.e. if both nodes are higher level neighbors of
+        // another node. the arcs of a node are [firstArc[node], firstArc[node + 1]) in the same order as its list
+        int[] firstArc = new int[nodes + 1];
+        for (int node = 0; node < nodes; node++)
+            firstArc[node + 1] = firstArc[node] + upLevels[node].size();
+        boolean[] needsShortcuts = new boolean[firstArc[nodes]];
+        for (int level = 0; level < nodes; level++) {
+            IntArrayList up = upLevels[ordering.getNodeIdForLevel(level)];
+            for (int i = 0; i < up.size(); i++) {
+                int lowerNode = ordering.getNodeIdForLevel(up.get(i));
+                IntArrayList lowerUp = upLevels[lowerNode];
+                for (int j = i + 1; j < up.size(); j++) {
+                    int index = Arrays.binarySearch(lowerUp.buffer, 0, lowerUp.size(), up.get(j));
+                    if (index < 0)
+                        throw new IllegalStateException("Missing arc between levels " + up.get(i) + " and " + up.get(j));
+                    needsShortcuts[firstArc[lowerNode] + index] = true;
+                }
+            }
+        }
+        for (int level = 0; level < nodes; level++) {
+            int node = ordering.getNodeIdForLevel(level);
+            IntArrayList up = upLevels[node];
+            for (int i = 0; i < up.size(); i++) {
+                if (!needsShortcuts[firstArc[node] + i])
+                    continue;
+                int adjNode = ordering.getNodeIdForLevel(up.get(i));
+                // the first shortcut is for the direction node -> adjNode, the second for adjNode -> node. without
+                // access flags they cannot be used until they are customized
+                chBuilder.addShortcutNodeBased(node, adjNode, 0, 1, NO_EDGE, NO_EDGE);
+                chBuilder.addShortcutNodeBased(node, adjNode, 0, 1, NO_EDGE, NO_EDGE);
+            }
+        }
+        chStorage.setCustomizable(true);
+        LOGGER.info("Created {} shortcuts for customizable CH, {} nodes, {} edges", nf(chStorage.getShortcuts()), nf(nodes), nf(graph.getEdges()));
+        return new CHCustomizer(graph, chStorage);
+    }
+
+    private static void sortAndRemoveDuplicates(IntArrayList list) {
+        Arrays.sort(list.buffer, 0, list.size());
+        int size = 0;
+        for (int i = 0; i < list.size(); i++)
+            if (i == 0 || list.get(i) != list.get(i - 1))
+                list.buffer[size++] = list.get(i);
+        list.elementsCount = size;
+        list.trimToSize();
+    }
+
+    /**
+     * Sets the number of threads that are used to customize nodes with the same depth in the elimination tree.
+     */
+    public CHCustomizer setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException(CHParameters.CUSTOMIZATION_THREADS + " has to be at least 1, but was: " + threads);
+        this.threads = threads;
+        return this;
+    }
+
+    public int getArcs() {
+        return arcHighNodes.length;
+    }
+
+    public int getMaxDepth() {
+        return firstNodeOfDepth.length - 2;
+    }
+
+    /**
+     * Creates a new storage with the same levels and shortcuts as the storage of this customizer, but without
+     * weights. This way we can customize the copy while the current storage is still used for routing.
+     */
+    public CHStorage copyStorage(Directory dir, String name, int segmentSize) {
+        CHStorage copy = new CHStorage(dir, name, segmentSize, false);
+        copy.create(nodes, chStorage.getShortcuts());
+        CHStorageBuilder chBuilder = new CHStorageBuilder(copy);
+        for (int node = 0; node < nodes; node++)
+            chBuilder.setLevel(node, levels[node]);
+        for (int shortcut = 0; shortcut < chStorage.getShortcuts(); shortcut++) {
+            long pointer = chStorage.toShortcutPointer(shortcut);
+            chBuilder.addShortcutNodeBased(chStorage.getNodeA(pointer), chStorage.getNodeB(pointer), 0, 1, NO_EDGE, NO_EDGE);
+        }
+        copy.setCustomizable(true);
+        return copy;
+    }
+
+    /**
+     * Sets the weights and skipped edges of all shortcuts of the storage of this customizer for the given weighting.
+     */
+    public void customize(Weighting weighting) {
+        customize(weighting, chStorage);
+    }
+
+    /**
+     * Like {@link #customize(Weighting)}, but writes the shortcut weights into the given storage, which must have the
+     * same shortcuts as the storage of this customizer, see {@link #copyStorage(Directory, String, int)}
+     */
+    public void customize(Weighting weighting, CHStorage target) {
+        if (weighting.hasTurnCosts())
+            throw new IllegalArgumentException("Customizable CH does not support turn costs");
+        if (target.getShortcuts() != chStorage.getShortcuts() || target.getNodes() != nodes || !target.isCustomizable())
+            throw new IllegalArgumentException("The target storage does not have the same shortcuts");
+        StopWatch sw = new StopWatch().start();
+        Customization customization = new Customization(weighting, target);
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            for (int depth = 0; depth < firstNodeOfDepth.length - 1; depth++) {
+                int from = firstNodeOfDepth[depth];
+                int to = firstNodeOfDepth[depth + 1];
+                if (executor == null || to - from < MIN_PARALLEL_NODES) {
+                    customization.customizeNodes(from, to, new Buffers());
+                    continue;
+                }
+                // nodes with the same depth only read the arcs of nodes with smaller depths, so we can process them in parallel
+                int chunkSize = (to - from + 4 * threads - 1) / (4 * threads);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int start = from; start < to; start += chunkSize) {
+                    int chunkFrom = start;
+                    int chunkTo = Math.min(to, start + chunkSize);
+                    futures.add(executor.submit(() -> customization.customizeNodes(chunkFrom, chunkTo, new Buffers())));
+                }
+                for (Future<?> future : futures)
+                    future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            if (executor != null)
+                executor.shutdown();
+        }
+        LOGGER.info("Customized {} shortcuts for {}, threads: {}, took: {}s", nf(target.getShortcuts()), weighting, threads, sw.stop().getSeconds());
+    }
+
+    private int findArc(int lowNode, int highNode) {
+        return Arrays.binarySearch(arcHighNodes, firstUpArc[lowNode], firstUpArc[lowNode + 1], highNode);
+    }
+
+    /**
+     * The temporary data of a customization. The weight of an arc is the smallest weight of its base edges and its
+     * shortcut, so the weights of two directions can belong to different edges.
+     */
+    private class Customization {
+        private final Weighting weighting;
+        private final CHStorage target;
+        private final double[] fwdWeights;
+        private final double[] bwdWeights;
+        // the base edge or shortcut with the smallest weight, using the edge ids of the RoutingCHGraph
+        private final int[] fwdEdges;
+        private final int[] bwdEdges;
+
+        Customization(Weighting weighting, CHStorage target) {
+            this.weighting = weighting;
+            this.target = target;
+            fwdWeights = new double[getArcs()];
+            bwdWeights = new double[getArcs()];
+            fwdEdges = new int[getArcs()];
+            bwdEdges = new int[getArcs()];
+        }
+
+        void customizeNodes(int from, int to, Buffers buffers) {
+            EdgeExplorer explorer = graph.createEdgeExplorer();
+            for (int i = from; i < to; i++)
+                customizeNode(nodesByDepth[i], explorer, buffers);
+        }
+
+        private void customizeNode(int node, EdgeExplorer explorer, Buffers buffers) {
+            int firstArc = firstUpArc[node];
+            int lastArc = firstUpArc[node + 1];
+            Arrays.fill(fwdWeights, firstArc, lastArc, Double.POSITIVE_INFINITY);
+            Arrays.fill(bwdWeights, firstArc, lastArc, Double.POSITIVE_INFINITY);
+            Arrays.fill(fwdEdges, firstArc, lastArc, NO_EDGE);
+            Arrays.fill(bwdEdges, firstArc, lastArc, NO_EDGE);
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (levels[iter.getAdjNode()] <= levels[node])
+                    continue;
+                int arc = findArc(node, iter.getAdjNode());
+                double fwdWeight = weighting.calcEdgeWeight(iter, false);
+                if (fwdWeight < fwdWeights[arc]) {
+                    fwdWeights[arc] = fwdWeight;
+                    fwdEdges[arc] = iter.getEdge();
+                }
+                double bwdWeight = weighting.calcEdgeWeight(iter, true);
+                if (bwdWeight < bwdWeights[arc]) {
+                    bwdWeights[arc] = bwdWeight;
+                    bwdEdges[arc] = iter.getEdge();
+                }
+            }
+
+            // the lower triangles node <- lowerNode -> higherNode
+            int arcCount = lastArc - firstArc;
+            buffers.reset(arcCount);
+            for (int i = firstDownArc[node]; i < firstDownArc[node + 1]; i++) {
+                int downArc = downArcs[i];
+                int lowerNode = arcLowNodes[downArc];
+                for (int otherArc = firstUpArc[lowerNode]; otherArc < firstUpArc[lowerNode + 1]; otherArc++) {
+                    int higherNode = arcHighNodes[otherArc];
+                    if (levels[higherNode] <= levels[node])
+                        continue;
+                    int index = findArc(node, higherNode) - firstArc;
+                    // node -> lowerNode -> higherNode
+                    double fwdWeight = bwdWeights[downArc] + fwdWeights[otherArc];
+                    if (fwdWeight < buffers.fwdWeights[index]) {
+                        buffers.fwdWeights[index] = fwdWeight;
+                        buffers.fwdSkipped1[index] = bwdEdges[downArc];
+                        buffers.fwdSkipped2[index] = fwdEdges[otherArc];
+                    }
+                    // higherNode -> lowerNode -> node
+                    double bwdWeight = bwdWeights[otherArc] + fwdWeights[downArc];
+                    if (bwdWeight < buffers.bwdWeights[index]) {
+                        buffers.bwdWeights[index] = bwdWeight;
+                        buffers.bwdSkipped1[index] = bwdEdges[otherArc];
+                        buffers.bwdSkipped2[index] = fwdEdges[downArc];
+                    }
+                }
+            }
+
+            for (int arc = firstArc; arc < lastArc; arc++) {
+                int shortcut = arcShortcuts[arc];
+                if (shortcut < 0)
+                    continue;
+                int index = arc - firstArc;
+                setShortcut(shortcut, PrepareEncoder.getScFwdDir(), buffers.fwdWeights[index], buffers.fwdSkipped1[index], buffers.fwdSkipped2[index]);
+                setShortcut(shortcut + 1, PrepareEncoder.getScBwdDir(), buffers.bwdWeights[index], buffers.bwdSkipped1[index], buffers.bwdSkipped2[index]);
+                if (buffers.fwdWeights[index] < fwdWeights[arc]) {
+                    fwdWeights[arc] = buffers.fwdWeights[index];
+                    fwdEdges[arc] = graph.getEdges() + shortcut;
+                }
+                if (buffers.bwdWeights[index] < bwdWeights[arc]) {
+                    bwdWeights[arc] = buffers.bwdWeights[index];
+                    bwdEdges[arc] = graph.getEdges() + shortcut + 1;
+                }
+            }
+        }
+
+        private void setShortcut(int shortcut, int accessFlags, double weight, int skipped1, int skipped2) {
+            // every thread writes different shortcuts
+            long pointer = target.toShortcutPointer(shortcut);
+            if (Double.isInfinite(weight)) {
+                target.setAccessFlags(pointer, 0);
+                target.setSkippedEdges(pointer, NO_EDGE, NO_EDGE);
+            } else {
+                target.setAccessFlags(pointer, accessFlags);
+                target.setWeight(pointer, weight);
+                target.setSkippedEdges(pointer, skipped1, skipped2);
+            }
+        }
+    }
+
+    /**
+     * The best lower triangles of the arcs of the current node
+     */
+    private class Buffers {
+        final double[] fwdWeights = new double[maxUpArcs];
+        final double[] bwdWeights = new double[maxUpArcs];
+        final int[] fwdSkipped1 = new int[maxUpArcs];
+        final int[] fwdSkipped2 = new int[maxUpArcs];
+        final int[] bwdSkipped1 = new int[maxUpArcs];
+        final int[] bwdSkipped2 = new int[maxUpArcs];
+
+        void reset(int arcs) {
+            Arrays.fill(fwdWeights, 0, arcs, Double.POSITIVE_INFINITY);
+            Arrays.fill(bwdWeights, 0, arcs, Double.POSITIVE_INFINITY);
+        }
+    }
+}
@@ -46,6 +46,7 @@ public class CHPreparationHandler {
     // the actual Weightings)
     private final List<CHProfile> chProfiles = new ArrayList<>();
     private int preparationThreads;
+    private int customizationThreads = 1;
     private PMap pMap = new PMap();
 
     public CHPreparationHandler() {
@@ -62,6 +63,7 @@ public class CHPreparationHandler {
             throw new IllegalStateException("Use profiles_ch instead of prepare.ch.edge_based, see #1922 and docs/core/profiles.md");
 
         setPreparationThreads(ghConfig.getInt(CH.PREPARE + "threads", getPreparationThreads()));
+        customizationThreads = ghConfig.getInt(CHParameters.CUSTOMIZATION_THREADS, customizationThreads);
         setCHProfiles(ghConfig.getCHProfiles());
         pMap = ghConfig.asPMap();
     }
@@ -97,6 +99,13 @@ public class CHPreparationHandler {
         this.preparationThreads = preparationThreads;
     }
 
+    /**
+     * @return the number of threads used to customize a CH, see {@link CHCustomizer}
+     */
+    public int getCustomizationThreads() {
+        return customizationThreads;
+    }
+
     public Map<String, RoutingCHGraph> load(BaseGraph graph, List<CHConfig> chConfigs) {
         Map<String, RoutingCHGraph> loaded = Collections.synchronizedMap(new LinkedHashMap<>());
         Stream<Runnable> runnables = chConfigs.stream()
@@ -26,6 +26,8 @@ import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
 
+import java.util.function.Supplier;
+
 import static com.graphhopper.util.Parameters.Algorithms.*;
 import static com.graphhopper.util.Parameters.Routing.*;
 
@@ -35,6 +37,7 @@ import static com.graphhopper.util.Parameters.Routing.*;
  */
 public class CHRoutingAlgorithmFactory {
     private final RoutingCHGraph routingCHGraph;
+    private Supplier<BidirSearchState> searchStateSupplier;
 
     public CHRoutingAlgorithmFactory(RoutingCHGraph routingCHGraph, QueryGraph queryGraph) {
         this(new QueryRoutingCHGraph(routingCHGraph, queryGraph));
@@ -44,6 +47,16 @@ public class CHRoutingAlgorithmFactory {
         this.routingCHGraph = routingCHGraph;
     }
 
+    /**
+     * Sets the supplier for the search states of the algorithms created with
+     * {@link com.graphhopper.util.Parameters.Routing#PRIMITIVE_SEARCH}, e.g. to re-use them via a
+     * {@link SearchStatePool}. By default every algorithm creates its own search state.
+     */
+    public CHRoutingAlgorithmFactory setSearchStateSupplier(Supplier<BidirSearchState> searchStateSupplier) {
+        this.searchStateSupplier = searchStateSupplier;
+        return this;
+    }
+
     public EdgeToEdgeRoutingAlgorithm createAlgo(PMap opts) {
         EdgeToEdgeRoutingAlgorithm algo = routingCHGraph.isEdgeBased()
                 ? createAlgoEdgeBased(routingCHGraph, opts)
@@ -52,6 +65,7 @@ public class CHRoutingAlgorithmFactory {
             algo.setMaxVisitedNodes(opts.getInt(MAX_VISITED_NODES, Integer.MAX_VALUE));
         if (opts.has(TIMEOUT_MS))
             algo.setTimeoutMillis(opts.getLong(TIMEOUT_MS, Long.MAX_VALUE));
+        algo.setSearchBudget(opts.getObject(SearchBudget.KEY, null));
         return algo;
     }
 
@@ -60,9 +74,14 @@ public class CHRoutingAlgorithmFactory {
         String algo = opts.getString(ALGORITHM, defaultAlgo);
         if (Helper.isEmpty(algo))
             algo = defaultAlgo;
-        if (ASTAR_BI.equals(algo)) {
+        if (ASTAR_BI.equals(algo) && opts.getBool(PRIMITIVE_SEARCH, false)) {
+            return new AStarBidirectionCHPrimitive(g, createSearchState(g))
+                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess()));
+        } else if (ASTAR_BI.equals(algo)) {
             return new AStarBidirectionEdgeCHNoSOD(g)
                     .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess()));
+        } else if (DIJKSTRA_BI.equals(algo) && opts.getBool(PRIMITIVE_SEARCH, false)) {
+            return new DijkstraBidirectionCHPrimitive(g, createSearchState(g));
         } else if (DIJKSTRA_BI.equals(algo)) {
             return new DijkstraBidirectionEdgeCHNoSOD(g);
         } else if (ALT_ROUTE.equalsIgnoreCase(algo)) {
@@ -78,9 +97,15 @@ public class CHRoutingAlgorithmFactory {
         String algo = opts.getString(ALGORITHM, defaultAlgo);
         if (Helper.isEmpty(algo))
             algo = defaultAlgo;
-        if (ASTAR_BI.equals(algo)) {
+        boolean primitiveSearch = opts.getBool(PRIMITIVE_SEARCH, false);
+        if (ASTAR_BI.equals(algo) && primitiveSearch) {
+            return new AStarBidirectionCHPrimitive(g, createSearchState(g))
+                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess()));
+        } else if (ASTAR_BI.equals(algo)) {
             return new AStarBidirectionCH(g)
                     .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess()));
+        } else if (DIJKSTRA_BI.equals(algo) && primitiveSearch) {
+            return new DijkstraBidirectionCHPrimitive(g, createSearchState(g)).setStallOnDemand(opts.getBool("stall_on_demand", true));
         } else if (DIJKSTRA_BI.equals(algo) || Helper.isEmpty(algo)) {
             if (opts.getBool("stall_on_demand", true)) {
                 return new DijkstraBidirectionCH(g);
@@ -94,6 +119,12 @@ public class CHRoutingAlgorithmFactory {
         }
     }
 
+    private BidirSearchState createSearchState(RoutingCHGraph g) {
+        return searchStateSupplier == null
+                ? new BidirSearchState(Math.min(Math.max(200, g.getNodes() / 10), 2000))
+                : searchStateSupplier.get();
+    }
+
     private Weighting getWeighting() {
         return routingCHGraph.getWeighting();
     }
@@ -20,6 +20,7 @@ package com.graphhopper.routing.ch;
 import com.carrotsearch.hppc.*;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.storage.CHStorageBuilder;
 import com.graphhopper.util.BitUtil;
 import com.graphhopper.util.EdgeIterator;
@@ -28,6 +29,8 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
@@ -54,7 +57,9 @@ class EdgeBasedNodeContractor implements NodeContractor {
     private PrepareGraphEdgeExplorer existingShortcutExplorer;
     private PrepareGraphOrigEdgeExplorer sourceNodeOrigInEdgeExplorer;
     private CHStorageBuilder chBuilder;
-    private final Params params = new Params();
+    private final Params params;
+    // the contractor that created this one using createWorker(), or null
+    private final EdgeBasedNodeContractor parent;
     private final StopWatch dijkstraSW = new StopWatch();
     // temporary data used during node contraction
     private final IntSet sourceNodes = new IntHashSet(10);
@@ -85,9 +90,25 @@ class EdgeBasedNodeContractor implements NodeContractor {
     public EdgeBasedNodeContractor(CHPreparationGraph prepareGraph, CHStorageBuilder chBuilder, PMap pMap) {
         this.prepareGraph = prepareGraph;
         this.chBuilder = chBuilder;
+        this.params = new Params();
+        this.parent = null;
         extractParams(pMap);
     }
 
+    private EdgeBasedNodeContractor(EdgeBasedNodeContractor parent) {
+        this.prepareGraph = parent.prepareGraph;
+        this.params = parent.params;
+        this.parent = parent;
+        inEdgeExplorer = prepareGraph.createInEdgeExplorer();
+        outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+        existingShortcutExplorer = prepareGraph.createOutEdgeExplorer();
+        sourceNodeOrigInEdgeExplorer = prepareGraph.createInOrigEdgeExplorer();
+        // the hierarchy depths are only updated by the main contractor, but we need them to calculate priorities
+        hierarchyDepths = parent.hierarchyDepths;
+        witnessPathSearcher = new EdgeBasedWitnessPathSearcher(prepareGraph);
+        bridgePathFinder = new BridgePathFinder(prepareGraph);
+    }
+
     private void extractParams(PMap pMap) {
         params.edgeQuotientWeight = pMap.getFloat(EDGE_QUOTIENT_WEIGHT, params.edgeQuotientWeight);
         params.originalEdgeQuotientWeight = pMap.getFloat(ORIGINAL_EDGE_QUOTIENT_WEIGHT, params.originalEdgeQuotientWeight);
@@ -118,7 +139,7 @@ class EdgeBasedNodeContractor implements NodeContractor {
             // no shortcuts will be introduced
             return Float.NEGATIVE_INFINITY;
         stats().stopWatch.start();
-        findAndHandlePrepareShortcuts(node, this::countShortcuts, (int) (meanDegree * params.maxPollFactorHeuristic), wpsStatsHeur);
+        findAndHandlePrepareShortcuts(node, this::countShortcuts, (int) (getMeanDegree() * params.maxPollFactorHeuristic), wpsStatsHeur);
         stats().stopWatch.stop();
         // the higher the priority the later (!) this node will be contracted
         float edgeQuotient = numShortcuts / (float) (prepareGraph.getDegree(node));
@@ -141,16 +162,55 @@ class EdgeBasedNodeContractor implements NodeContractor {
         activeStats = addingStats;
         stats().stopWatch.start();
         findAndHandlePrepareShortcuts(node, this::addShortcutsToPrepareGraph, (int) (meanDegree * params.maxPollFactorContraction), wpsStatsContr);
+        IntContainer neighbors = insertShortcutsAndDisconnect(node);
+        stats().stopWatch.stop();
+        return neighbors;
+    }
+
+    @Override
+    public NodeContractor createWorker() {
+        return new EdgeBasedNodeContractor(parent == null ? this : parent);
+    }
+
+    @Override
+    public PreparedContraction findShortcuts(int node, GHBitSet skippedNodes) {
+        activeStats = addingStats;
+        stats().stopWatch.start();
+        // we store the pairs of entries we would pass to addShortcutsToPrepareGraph
+        List<PrepareCHEntry> foundShortcuts = new ArrayList<>();
+        witnessPathSearcher.setSkippedNodes(skippedNodes);
+        findAndHandlePrepareShortcuts(node, (edgeFrom, edgeTo, origEdgeCount) -> {
+            foundShortcuts.add(edgeFrom);
+            foundShortcuts.add(edgeTo);
+        }, (int) (getMeanDegree() * params.maxPollFactorContraction), wpsStatsContr);
+        witnessPathSearcher.setSkippedNodes(null);
+        stats().stopWatch.stop();
+        // the shortcuts are always added by the main contractor, because it keeps track of the shortcut count, the
+        // mean degree and the hierarchy depths
+        EdgeBasedNodeContractor contractor = parent == null ? this : parent;
+        return () -> {
+            for (int i = 0; i < foundShortcuts.size(); i += 2) {
+                PrepareCHEntry edgeTo = foundShortcuts.get(i + 1);
+                contractor.addShortcutsToPrepareGraph(foundShortcuts.get(i), edgeTo, edgeTo.origEdges);
+            }
+            return contractor.insertShortcutsAndDisconnect(node);
+        };
+    }
+
+    private IntContainer insertShortcutsAndDisconnect(int node) {
         insertShortcuts(node);
         IntContainer neighbors = prepareGraph.disconnect(node);
         // We maintain an approximation of the mean degree which we update after every contracted node.
         // We do it the same way as for node-based CH for now.
         meanDegree = (meanDegree * 2 + neighbors.size()) / 3;
         updateHierarchyDepthsOfNeighbors(node, neighbors);
-        stats().stopWatch.stop();
         return neighbors;
     }
 
+    private double getMeanDegree() {
+        return parent == null ? meanDegree : parent.meanDegree;
+    }
+
     @Override
     public void finishContraction() {
         chBuilder.replaceSkippedEdges(prepareGraph::getShortcutForPrepareEdge);
@@ -19,6 +19,7 @@ package com.graphhopper.routing.ch;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.util.GHUtility;
 
 import java.util.Arrays;
@@ -59,6 +60,7 @@ public class EdgeBasedWitnessPathSearcher {
 
     private int sourceNode;
     private int centerNode;
+    private GHBitSet skippedNodes;
 
     // various counters
     private int numPolls;
@@ -107,6 +109,14 @@ public class EdgeBasedWitnessPathSearcher {
         dijkstraHeap.insert(0, sourceEdgeKey);
     }
 
+    /**
+     * Witness paths will not pass through any of the given nodes, for example because they are contracted at the same
+     * time as the center node. The center node itself is never skipped. Use null to allow all nodes.
+     */
+    public void setSkippedNodes(GHBitSet skippedNodes) {
+        this.skippedNodes = skippedNodes;
+    }
+
     /**
      * Runs a witness path search for a given target edge key. Results of previous searches (the shortest path tree) are
      * reused and the previous search is extended if necessary. Note that you need to call
@@ -151,6 +161,8 @@ public class EdgeBasedWitnessPathSearcher {
                 // being recognized as witnesses when there are double zero weight loops at the source node
                 if (currNode == sourceNode && iter.getAdjNode() == sourceNode && iter.getWeight() < MAX_ZERO_WEIGHT_LOOP)
                     continue;
+                if (skippedNodes != null && iter.getAdjNode() != centerNode && skippedNodes.contains(iter.getAdjNode()))
+                    continue;
                 final double weight = weights[currKey] + calcTurnWeight(currKey, currNode, iter.getOrigEdgeKeyFirst()) + iter.getWeight();
                 if (Double.isInfinite(weight))
                     continue;
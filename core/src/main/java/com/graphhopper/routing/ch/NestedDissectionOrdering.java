@@ -0,0 +1,229 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+/**
+ * Calculates a node ordering for customizable contraction hierarchies that does not depend on the weighting. We use
+ * recursive nested dissection: the nodes of a cell are split into two halves by a line through the median of their
+ * coordinates, and the nodes of the smaller boundary between the two halves form the separator. The separator nodes
+ * get the highest levels of the cell and both halves are split recursively. The line is chosen among a few directions
+ * such that the separator is as small as possible. Road networks have small separators, so even though the shortcuts
+ * are created for every possible weighting their number stays manageable.
+ */
+public class NestedDissectionOrdering {
+    // cells with at most this many nodes are not split any further
+    static final int MAX_LEAF_SIZE = 8;
+    // the directions of the lines that split a cell: north-south, east-west and the two diagonals
+    private static final double[][] DIRECTIONS = {{1, 0}, {0, 1}, {Math.sqrt(0.5), Math.sqrt(0.5)}, {Math.sqrt(0.5), -Math.sqrt(0.5)}};
+
+    private final int nodes;
+    // the undirected adjacency lists of all nodes, loops are ignored
+    private final int[] firstNeighbor;
+    private final int[] neighbors;
+    private final double[] x;
+    private final double[] y;
+    // the nodes in the order of their levels, the nodes of a cell are stored in a consecutive range
+    private final int[] order;
+    // the id of the cell a node currently belongs to and the side of the split it is on
+    private final int[] cellIds;
+    private final boolean[] firstSide;
+    private final double[] keys;
+    private int cellCounter;
+
+    private NestedDissectionOrdering(BaseGraph graph) {
+        nodes = graph.getNodes();
+        firstNeighbor = new int[nodes + 1];
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (int node = 0; node < nodes; node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                if (iter.getAdjNode() != node)
+                    firstNeighbor[node + 1]++;
+        }
+        for (int node = 0; node < nodes; node++)
+            firstNeighbor[node + 1] += firstNeighbor[node];
+        neighbors = new int[firstNeighbor[nodes]];
+        for (int node = 0; node < nodes; node++) {
+            int index = firstNeighbor[node];
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                if (iter.getAdjNode() != node)
+                    neighbors[index++] = iter.getAdjNode();
+        }
+
+        // a simple projection that keeps the angles roughly intact, this is good enough to find the median
+        NodeAccess na = graph.getNodeAccess();
+        x = new double[nodes];
+        y = new double[nodes];
+        double cosLat = nodes == 0 ? 1 : Math.cos(Math.toRadians((graph.getBounds().minLat + graph.getBounds().maxLat) / 2));
+        for (int node = 0; node < nodes; node++) {
+            x[node] = na.getLon(node) * cosLat;
+            y[node] = na.getLat(node);
+        }
+        order = new int[nodes];
+        for (int node = 0; node < nodes; node++)
+            order[node] = node;
+        cellIds = new int[nodes];
+        firstSide = new boolean[nodes];
+        keys = new double[nodes];
+    }
+
+    /**
+     * @return the node ordering, nodes with higher levels are in higher separators
+     */
+    public static NodeOrderingProvider calcNodeOrdering(BaseGraph graph) {
+        NestedDissectionOrdering ordering = new NestedDissectionOrdering(graph);
+        ordering.dissect();
+        return NodeOrderingProvider.fromArray(ordering.order);
+    }
+
+    private void dissect() {
+        // the cells that still need to be split, stored as [start, end) of their range in the order array
+        IntArrayList stack = new IntArrayList();
+        stack.add(0, nodes);
+        while (!stack.isEmpty()) {
+            int end = stack.remove(stack.size() - 1);
+            int start = stack.remove(stack.size() - 1);
+            if (end - start <= MAX_LEAF_SIZE)
+                continue;
+            int[] split = split(start, end);
+            // the separator stays at the end of the range
+            stack.add(start, split[0]);
+            stack.add(split[0], split[1]);
+        }
+    }
+
+    /**
+     * Reorders the nodes of the given cell such that the nodes of the first half come first, then the nodes of the
+     * second half and finally the separator nodes.
+     *
+     * @return the end of the first and the end of the second half
+     */
+    private int[] split(int start, int end) {
+        int cellId = ++cellCounter;
+        for (int i = start; i < end; i++)
+            cellIds[order[i]] = cellId;
+
+        int bestDirection = -1;
+        int bestSeparatorSize = Integer.MAX_VALUE;
+        boolean bestSeparatorOnFirstSide = true;
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            splitAtMedian(start, end, DIRECTIONS[d]);
+            int firstBoundary = 0, secondBoundary = 0;
+            for (int i = start; i < end; i++) {
+                int node = order[i];
+                if (isBoundary(node, cellId)) {
+                    if (firstSide[node])
+                        firstBoundary++;
+                    else
+                        secondBoundary++;
+                }
+            }
+            if (Math.min(firstBoundary, secondBoundary) < bestSeparatorSize) {
+                bestSeparatorSize = Math.min(firstBoundary, secondBoundary);
+                bestSeparatorOnFirstSide = firstBoundary <= secondBoundary;
+                bestDirection = d;
+            }
+        }
+        if (bestDirection != DIRECTIONS.length - 1)
+            splitAtMedian(start, end, DIRECTIONS[bestDirection]);
+
+        int[] firstHalf = new int[end - start];
+        int[] secondHalf = new int[end - start];
+        int[] separator = new int[end - start];
+        int first = 0, second = 0, separatorSize = 0;
+        for (int i = start; i < end; i++) {
+            int node = order[i];
+            if (firstSide[node] == bestSeparatorOnFirstSide && isBoundary(node, cellId))
+                separator[separatorSize++] = node;
+            else if (firstSide[node])
+                firstHalf[first++] = node;
+            else
+                secondHalf[second++] = node;
+        }
+        System.arraycopy(firstHalf, 0, order, start, first);
+        System.arraycopy(secondHalf, 0, order, start + first, second);
+        System.arraycopy(separator, 0, order, start + first + second, separatorSize);
+        return new int[]{start + first, start + first + second};
+    }
+
+    private boolean isBoundary(int node, int cellId) {
+        for (int i = firstNeighbor[node]; i < firstNeighbor[node + 1]; i++) {
+            int adj = neighbors[i];
+            if (cellIds[adj] == cellId && firstSide[adj] != firstSide[node])
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Splits the nodes of the given cell into two halves by their position along the given direction, i.e. sets
+     * {@link #firstSide} for all nodes of the cell. The order of the nodes changes as well.
+     */
+    private void splitAtMedian(int start, int end, double[] direction) {
+        for (int i = start; i < end; i++)
+            keys[i] = x[order[i]] * direction[0] + y[order[i]] * direction[1];
+        int median = start + (end - start) / 2;
+        select(start, end - 1, median);
+        for (int i = start; i < end; i++)
+            firstSide[order[i]] = i < median;
+    }
+
+    /**
+     * Moves the element with rank k in [left, right] to position k, such that all elements left of it have
+     * smaller or equal keys and all elements right of it have larger or equal keys
+     */
+    private void select(int left, int right, int k) {
+        while (left < right) {
+            double pivot = keys[(left + right) >>> 1];
+            int i = left, j = right;
+            while (i <= j) {
+                while (keys[i] < pivot)
+                    i++;
+                while (keys[j] > pivot)
+                    j--;
+                if (i <= j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j)
+                right = j;
+            else if (k >= i)
+                left = i;
+            else
+                return;
+        }
+    }
+
+    private void swap(int i, int j) {
+        double key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        int node = order[i];
+        order[i] = order[j];
+        order[j] = node;
+    }
+}
@@ -17,7 +17,10 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.storage.CHStorageBuilder;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.StopWatch;
@@ -31,7 +34,9 @@ import static com.graphhopper.util.Helper.nf;
 
 class NodeBasedNodeContractor implements NodeContractor {
     private final CHPreparationGraph prepareGraph;
-    private final Params params = new Params();
+    private final Params params;
+    // the contractor that created this one using createWorker(), or null
+    private final NodeBasedNodeContractor parent;
     // todo: maybe use a set to prevent duplicates instead?
     private List<Shortcut> shortcuts = new ArrayList<>();
     private CHStorageBuilder chBuilder;
@@ -51,10 +56,19 @@ class NodeBasedNodeContractor implements NodeContractor {
 
     NodeBasedNodeContractor(CHPreparationGraph prepareGraph, CHStorageBuilder chBuilder, PMap pMap) {
         this.prepareGraph = prepareGraph;
+        this.params = new Params();
+        this.parent = null;
         extractParams(pMap);
         this.chBuilder = chBuilder;
     }
 
+    private NodeBasedNodeContractor(NodeBasedNodeContractor parent) {
+        this.prepareGraph = parent.prepareGraph;
+        this.params = parent.params;
+        this.parent = parent;
+        initFromGraph();
+    }
+
     private void extractParams(PMap pMap) {
         params.edgeDifferenceWeight = pMap.getFloat(EDGE_DIFFERENCE_WEIGHT, params.edgeDifferenceWeight);
         params.originalEdgesCountWeight = pMap.getFloat(ORIGINAL_EDGE_COUNT_WEIGHT, params.originalEdgesCountWeight);
@@ -97,7 +111,7 @@ class NodeBasedNodeContractor implements NodeContractor {
         // originalEdgesCount = σ(v) := sum_{ (u,w) ∈ shortcuts(v) } of r(u, w)
         shortcutsCount = 0;
         originalEdgesCount = 0;
-        findAndHandleShortcuts(node, this::countShortcuts, (int) (meanDegree * params.maxPollFactorHeuristic));
+        findAndHandleShortcuts(node, this::countShortcuts, (int) (getMeanDegree() * params.maxPollFactorHeuristic));
 
         // from shortcuts we can compute the edgeDifference
         // # low influence: with it the shortcut creation is slightly faster
@@ -117,12 +131,48 @@ class NodeBasedNodeContractor implements NodeContractor {
     @Override
     public IntContainer contractNode(int node) {
         long degree = findAndHandleShortcuts(node, this::addOrUpdateShortcut, (int) (meanDegree * params.maxPollFactorContraction));
+        return insertShortcutsAndDisconnect(node, degree);
+    }
+
+    @Override
+    public NodeContractor createWorker() {
+        return new NodeBasedNodeContractor(parent == null ? this : parent);
+    }
+
+    @Override
+    public PreparedContraction findShortcuts(int node, GHBitSet skippedNodes) {
+        // for every shortcut we store fromNode, toNode, outgoingEdge, outOrigEdgeCount, incomingEdge and inOrigEdgeCount
+        IntArrayList foundShortcuts = new IntArrayList();
+        DoubleArrayList weights = new DoubleArrayList();
+        witnessPathSearcher.setSkippedNodes(skippedNodes);
+        long degree = findAndHandleShortcuts(node, (fromNode, toNode, weight, outgoingEdge, outOrigEdgeCount, incomingEdge, inOrigEdgeCount) -> {
+            foundShortcuts.add(fromNode, toNode, outgoingEdge, outOrigEdgeCount, incomingEdge, inOrigEdgeCount);
+            weights.add(weight);
+        }, (int) (getMeanDegree() * params.maxPollFactorContraction));
+        witnessPathSearcher.setSkippedNodes(null);
+        // the shortcuts are always added by the main contractor, because it keeps track of the shortcut count and mean degree
+        NodeBasedNodeContractor contractor = parent == null ? this : parent;
+        return () -> {
+            for (int i = 0; i < weights.size(); i++) {
+                int[] sc = foundShortcuts.buffer;
+                int j = 6 * i;
+                contractor.addOrUpdateShortcut(sc[j], sc[j + 1], weights.get(i), sc[j + 2], sc[j + 3], sc[j + 4], sc[j + 5]);
+            }
+            return contractor.insertShortcutsAndDisconnect(node, degree);
+        };
+    }
+
+    private IntContainer insertShortcutsAndDisconnect(int node, long degree) {
         insertShortcuts(node);
         // put weight factor on meanDegree instead of taking the average => meanDegree is more stable
         meanDegree = (meanDegree * 2 + degree) / 3;
         return prepareGraph.disconnect(node);
     }
 
+    private double getMeanDegree() {
+        return parent == null ? meanDegree : parent.meanDegree;
+    }
+
     /**
      * Calls the shortcut handler for all edges and shortcuts adjacent to the given node. After this method is called
      * these edges and shortcuts will be removed from the prepare graph, so this method offers the last chance to deal
@@ -19,6 +19,7 @@
 package com.graphhopper.routing.ch;
 
 import com.carrotsearch.hppc.IntContainer;
+import com.graphhopper.coll.GHBitSet;
 
 public interface NodeContractor {
     void initFromGraph();
@@ -37,6 +38,20 @@ public interface NodeContractor {
      */
     IntContainer contractNode(int node);
 
+    /**
+     * Creates a node contractor that works on the same graph, but uses its own data structures for the local searches.
+     * Workers can calculate priorities and find shortcuts concurrently, as long as the graph is not changed meanwhile.
+     */
+    NodeContractor createWorker();
+
+    /**
+     * Finds the shortcuts that are required to contract the given node, but does not change the graph. Witness paths
+     * do not pass through the given skipped nodes, which allows contracting a set of non-adjacent nodes at once.
+     *
+     * @return the found shortcuts, that must be applied one after another (and not concurrently) to contract the node
+     */
+    PreparedContraction findShortcuts(int node, GHBitSet skippedNodes);
+
     void finishContraction();
 
     long getAddedShortcutsCount();
@@ -45,4 +60,14 @@ public interface NodeContractor {
 
     float getDijkstraSeconds();
 
+    @FunctionalInterface
+    interface PreparedContraction {
+        /**
+         * Adds the shortcuts to the graph and disconnects the node.
+         *
+         * @return the set of nodes adjacent to this node (before contraction)
+         */
+        IntContainer apply();
+    }
+
 }
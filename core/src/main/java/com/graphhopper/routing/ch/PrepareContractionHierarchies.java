@@ -17,8 +17,10 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.coll.MinHeapWithUpdate;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.storage.*;
@@ -28,8 +30,13 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.getMemInfo;
@@ -62,6 +69,7 @@ public class PrepareContractionHierarchies {
     private final Params params;
     private final BaseGraph graph;
     private NodeContractor nodeContractor;
+    private CHPreparationGraph prepareGraph;
     private final int nodes;
     private NodeOrderingProvider nodeOrderingProvider;
     private int maxLevel;
@@ -100,6 +108,11 @@ public class PrepareContractionHierarchies {
         params.setMaxNeighborUpdates(pMap.getInt(NEIGHBOR_UPDATES_MAX, params.getMaxNeighborUpdates()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        params.setContractionThreads(pMap.getInt(CONTRACTION_THREADS, params.getContractionThreads()));
+        params.setCustomizable(pMap.getBool(CUSTOMIZABLE, params.isCustomizable()));
+        params.setCustomizationThreads(pMap.getInt(CUSTOMIZATION_THREADS, params.getCustomizationThreads()));
+        if (params.isCustomizable() && isEdgeBased())
+            throw new IllegalArgumentException(CUSTOMIZABLE + " is only supported for node-based CH, but the profile '" + chConfig.getName() + "' is edge-based");
         return this;
     }
 
@@ -129,13 +142,17 @@ public class PrepareContractionHierarchies {
             throw new IllegalStateException("Given CHStore already contains shortcuts");
         }
         allSW.start();
-        initFromGraph();
-        runGraphContraction();
+        if (params.isCustomizable()) {
+            prepareCustomizable();
+        } else {
+            initFromGraph();
+            runGraphContraction();
+        }
         allSW.stop();
         logFinalGraphStats();
         return new Result(
                 chConfig, chStore,
-                nodeContractor.getAddedShortcutsCount(),
+                params.isCustomizable() ? chStore.getShortcuts() : nodeContractor.getAddedShortcutsCount(),
                 lazyUpdateSW.getCurrentSeconds(),
                 periodicUpdateSW.getCurrentSeconds(),
                 neighborUpdateSW.getCurrentSeconds(),
@@ -159,11 +176,26 @@ public class PrepareContractionHierarchies {
         setMaxLevelOnAllNodes();
         if (nodeOrderingProvider != null) {
             contractNodesUsingFixedNodeOrdering();
+        } else if (params.getContractionThreads() > 1) {
+            contractNodesUsingIndependentSets();
         } else {
             contractNodesUsingHeuristicNodeOrdering();
         }
     }
 
+    /**
+     * Creates the shortcuts for a node ordering that does not depend on the weighting and sets their weights
+     * afterwards, see {@link CHCustomizer}
+     */
+    private void prepareCustomizable() {
+        StopWatch sw = new StopWatch().start();
+        NodeOrderingProvider ordering = nodeOrderingProvider != null ? nodeOrderingProvider : NestedDissectionOrdering.calcNodeOrdering(graph);
+        logger.info("Calculated node ordering for customizable CH, took: {}s, {}", sw.stop().getSeconds(), getMemInfo());
+        CHCustomizer customizer = CHCustomizer.createShortcuts(graph, chStore, ordering);
+        customizer.setThreads(params.getCustomizationThreads());
+        customizer.customize(chConfig.getWeighting());
+    }
+
     private boolean isEdgeBased() {
         return chConfig.isEdgeBased();
     }
@@ -173,7 +205,6 @@ public class PrepareContractionHierarchies {
         // not simply prepare contraction hierarchies, but instead it also serves as some kind of 'container' to give
         // access to the preparations in the GraphHopper class. If this was not so we could make this a lot cleaner here,
         // declare variables final and would not need all these close() methods...
-        CHPreparationGraph prepareGraph;
         if (chConfig.getTraversalMode().isEdgeBased()) {
             TurnCostStorage turnCostStorage = graph.getTurnCostStorage();
             if (turnCostStorage == null) {
@@ -322,6 +353,160 @@ public class PrepareContractionHierarchies {
         _close();
     }
 
+    /**
+     * Contracts the nodes in rounds using multiple threads. In every round we select all nodes whose priority is lower
+     * than the priorities of their (not yet contracted) neighbors. These nodes are not adjacent to each other, so we can
+     * search the shortcuts for all of them concurrently, as long as the witness searches do not pass through any of the
+     * other selected nodes. The shortcuts are then added one node after another and finally the priorities of all
+     * neighbors of the contracted nodes are updated concurrently. The periodic, lazy and neighbor updates are not
+     * used here.
+     */
+    private void contractNodesUsingIndependentSets() {
+        final int threads = params.getContractionThreads();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            ContractionWorker[] workers = new ContractionWorker[threads];
+            for (int i = 0; i < threads; i++)
+                workers[i] = new ContractionWorker(nodeContractor.createWorker(), prepareGraph);
+
+            StopWatch sw = new StopWatch().start();
+            logger.info("Calculating initial priorities: {} nodes, threads: {}, {}", nodes, threads, getMemInfo());
+            final float[] priorities = new float[nodes];
+            final IntArrayList remaining = new IntArrayList(nodes);
+            for (int node = 0; node < nodes; node++)
+                remaining.add(node);
+            periodicUpdateSW.start();
+            runConcurrently(executorService, workers, remaining.size(), (worker, i) -> {
+                int node = remaining.get(i);
+                priorities[node] = worker.contractor.calculatePriority(node);
+            });
+            periodicUpdateSW.stop();
+            logger.info("Finished calculating initial priorities, took: {}s, {}", sw.stop().getSeconds(), getMemInfo());
+
+            final long nodesToAvoidContract = Math.round(nodes * ((100 - params.getNodesContractedPercentage()) / 100d));
+            final long logSize = params.getLogMessagesPercentage() == 0
+                    ? Long.MAX_VALUE
+                    : Math.round(Math.max(10, nodes * (params.getLogMessagesPercentage() / 100d)));
+            final boolean[] selected = new boolean[nodes];
+            final GHBitSetImpl batchNodes = new GHBitSetImpl(nodes);
+            final boolean[] isNeighbor = new boolean[nodes];
+            final IntArrayList neighbors = new IntArrayList();
+            int level = 0;
+            int rounds = 0;
+            long nextLog = 0;
+            while (remaining.size() > nodesToAvoidContract) {
+                stopIfInterrupted();
+                runConcurrently(executorService, workers, remaining.size(), (worker, i) -> {
+                    int node = remaining.get(i);
+                    selected[node] = worker.isLocalMinimum(node, priorities);
+                });
+                IntArrayList batch = new IntArrayList();
+                for (IntCursor c : remaining) {
+                    if (selected[c.value]) {
+                        batch.add(c.value);
+                        selected[c.value] = false;
+                    }
+                }
+                // the nodes with the lowest priorities are contracted first, which matters when we do not contract all nodes
+                batch = sortByPriority(batch, priorities);
+                batch.elementsCount = (int) Math.min(batch.size(), remaining.size() - nodesToAvoidContract);
+                for (IntCursor c : batch)
+                    batchNodes.add(c.value);
+
+                contractionSW.start();
+                final IntArrayList batchList = batch;
+                final NodeContractor.PreparedContraction[] contractions = new NodeContractor.PreparedContraction[batch.size()];
+                runConcurrently(executorService, workers, batch.size(), (worker, i) ->
+                        contractions[i] = worker.contractor.findShortcuts(batchList.get(i), batchNodes));
+                for (int i = 0; i < batch.size(); i++) {
+                    chBuilder.setLevel(batch.get(i), level);
+                    level++;
+                    for (IntCursor n : contractions[i].apply()) {
+                        if (!isNeighbor[n.value]) {
+                            isNeighbor[n.value] = true;
+                            neighbors.add(n.value);
+                        }
+                    }
+                }
+                contractionSW.stop();
+                remaining.removeAll(batchNodes::contains);
+                batchNodes.clear();
+
+                neighborUpdateSW.start();
+                runConcurrently(executorService, workers, neighbors.size(), (worker, i) -> {
+                    int node = neighbors.get(i);
+                    priorities[node] = worker.contractor.calculatePriority(node);
+                });
+                neighborUpdateSW.stop();
+                for (IntCursor n : neighbors)
+                    isNeighbor[n.value] = false;
+                neighbors.elementsCount = 0;
+
+                rounds++;
+                if (level >= nextLog) {
+                    logIndependentSetStats(remaining.size(), rounds, batch.size());
+                    nextLog = level + logSize;
+                }
+            }
+            nodeContractor.finishContraction();
+            logIndependentSetStats(remaining.size(), rounds, 0);
+        } finally {
+            executorService.shutdown();
+        }
+        logger.info("new shortcuts: " + nf(nodeContractor.getAddedShortcutsCount())
+                + ", initSize:" + nf(nodes)
+                + ", " + chConfig.getWeighting()
+                + ", threads: " + threads
+                + ", " + getTimesAsString()
+                + ", " + Helper.getMemInfo());
+        _close();
+    }
+
+    private static IntArrayList sortByPriority(IntArrayList nodes, float[] priorities) {
+        int[] sorted = Arrays.stream(nodes.toArray()).boxed()
+                .sorted((a, b) -> comparePriorities(a, b, priorities))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        return IntArrayList.from(sorted);
+    }
+
+    private static int comparePriorities(int nodeA, int nodeB, float[] priorities) {
+        // ties are broken by the node ids so every set of nodes has a unique minimum
+        int result = Float.compare(priorities[nodeA], priorities[nodeB]);
+        return result != 0 ? result : Integer.compare(nodeA, nodeB);
+    }
+
+    /**
+     * Runs the given task for all indices from 0 to size-1 using the given workers, each of them in its own thread.
+     */
+    private static void runConcurrently(ExecutorService executorService, ContractionWorker[] workers, int size, WorkerTask task) {
+        // the indices are handed out in small blocks, because the time it takes to process a node varies a lot
+        final int blockSize = 16;
+        AtomicInteger nextIndex = new AtomicInteger();
+        List<Callable<Object>> callables = new ArrayList<>(workers.length);
+        for (ContractionWorker worker : workers) {
+            callables.add(() -> {
+                for (int start = nextIndex.getAndAdd(blockSize); start < size; start = nextIndex.getAndAdd(blockSize)) {
+                    int end = Math.min(size, start + blockSize);
+                    for (int i = start; i < end; i++)
+                        task.run(worker, i);
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Object> future : executorService.invokeAll(callables))
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
     private void contractNodesUsingFixedNodeOrdering() {
         final int nodesToContract = nodeOrderingProvider.getNumNodes();
         final int logSize = Math.max(10, (int) (params.getLogMessagesPercentage() / 100.0 * nodesToContract));
@@ -373,6 +558,19 @@ public class PrepareContractionHierarchies {
                 Helper.getMemInfo()));
     }
 
+    private void logIndependentSetStats(int remainingNodes, int rounds, int batchSize) {
+        logger.info(String.format(Locale.ROOT,
+                "%s, nodes: %10s, shortcuts: %10s, rounds: %6d, last round: %10s, %s, %s, %s",
+                (isEdgeBased() ? "edge" : "node"),
+                nf(remainingNodes),
+                nf(nodeContractor.getAddedShortcutsCount()),
+                rounds,
+                nf(batchSize),
+                getTimesAsString(),
+                nodeContractor.getStatisticsString(),
+                Helper.getMemInfo()));
+    }
+
     private void logFixedNodeOrderingStats(int nodesContracted, int logSize, StopWatch stopWatch) {
         logger.info(String.format(Locale.ROOT,
                 "nodes: %10s / %10s (%6.2f%%), shortcuts: %10s, speed = %6.2f nodes/ms, %s, %s",
@@ -421,6 +619,7 @@ public class PrepareContractionHierarchies {
 
     private void _close() {
         nodeContractor.close();
+        prepareGraph = null;
         sortedNodes = null;
     }
 
@@ -480,6 +679,39 @@ public class PrepareContractionHierarchies {
         }
     }
 
+    @FunctionalInterface
+    private interface WorkerTask {
+        void run(ContractionWorker worker, int index);
+    }
+
+    private static class ContractionWorker {
+        private final NodeContractor contractor;
+        private final PrepareGraphEdgeExplorer outEdgeExplorer;
+        private final PrepareGraphEdgeExplorer inEdgeExplorer;
+
+        ContractionWorker(NodeContractor contractor, CHPreparationGraph prepareGraph) {
+            this.contractor = contractor;
+            outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+            inEdgeExplorer = prepareGraph.createInEdgeExplorer();
+        }
+
+        /**
+         * @return true if the priority of the given node is lower than the priorities of all its neighbors
+         */
+        boolean isLocalMinimum(int node, float[] priorities) {
+            return isLocalMinimum(node, priorities, outEdgeExplorer.setBaseNode(node))
+                    && isLocalMinimum(node, priorities, inEdgeExplorer.setBaseNode(node));
+        }
+
+        private boolean isLocalMinimum(int node, float[] priorities, PrepareGraphEdgeIterator iter) {
+            while (iter.next()) {
+                if (iter.getAdjNode() != node && comparePriorities(iter.getAdjNode(), node, priorities) < 0)
+                    return false;
+            }
+            return true;
+        }
+    }
+
     private static class Params {
         /**
          * Specifies after how many contracted nodes a full refresh of the queue of remaining/not contracted nodes
@@ -520,6 +752,21 @@ public class PrepareContractionHierarchies {
          * @see #periodicUpdatesPercentage
          */
         private int logMessagesPercentage;
+        /**
+         * Specifies how many threads are used to contract the nodes of this graph. With more than one thread we
+         * contract sets of independent nodes at once, see {@link #contractNodesUsingIndependentSets()}. Every thread
+         * needs its own data structures for the witness searches, so this increases the memory usage.
+         */
+        private int contractionThreads = 1;
+        /**
+         * Creates the shortcuts for a node ordering that does not depend on the weighting, so the shortcut weights
+         * can be updated quickly later, see {@link CHCustomizer}. Only supported for node-based CH.
+         */
+        private boolean customizable;
+        /**
+         * Specifies how many threads are used to calculate the shortcut weights of a customizable CH.
+         */
+        private int customizationThreads = 1;
 
         static Params forTraversalMode(TraversalMode traversalMode) {
             // Lower values for the neighbor update percentage (and/or max neighbor updates) yield a slower
@@ -594,6 +841,34 @@ public class PrepareContractionHierarchies {
             this.logMessagesPercentage = logMessagesPercentage;
         }
 
+        int getContractionThreads() {
+            return contractionThreads;
+        }
+
+        void setContractionThreads(int contractionThreads) {
+            if (contractionThreads < 1)
+                throw new IllegalArgumentException(CONTRACTION_THREADS + " has to be at least 1, but was: " + contractionThreads);
+            this.contractionThreads = contractionThreads;
+        }
+
+        boolean isCustomizable() {
+            return customizable;
+        }
+
+        void setCustomizable(boolean customizable) {
+            this.customizable = customizable;
+        }
+
+        int getCustomizationThreads() {
+            return customizationThreads;
+        }
+
+        void setCustomizationThreads(int customizationThreads) {
+            if (customizationThreads < 1)
+                throw new IllegalArgumentException(CUSTOMIZATION_THREADS + " has to be at least 1, but was: " + customizationThreads);
+            this.customizationThreads = customizationThreads;
+        }
+
         private void checkPercentage(String name, int value) {
             if (value < 0 || value > 100) {
                 throw new IllegalArgumentException(name + " has to be in [0, 100], to disable it use 0");
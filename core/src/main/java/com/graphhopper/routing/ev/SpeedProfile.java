@@ -0,0 +1,35 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ev;
+
+/**
+ * The id of the time-dependent speed profile of an edge (for each direction), see
+ * {@link com.graphhopper.storage.SpeedProfileStorage}. 0 means the speed does not depend on the time.
+ */
+public class SpeedProfile {
+    public static final String KEY = "speed_profile";
+    public static final int BITS = 10;
+    /**
+     * The largest profile id the encoded value can store
+     */
+    public static final int MAX_ID = (1 << BITS) - 1;
+
+    public static IntEncodedValue create() {
+        return new IntEncodedValueImpl(KEY, BITS, true);
+    }
+}
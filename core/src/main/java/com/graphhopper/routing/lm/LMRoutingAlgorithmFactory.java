@@ -25,11 +25,14 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
 
+import java.util.function.Supplier;
+
 import static com.graphhopper.util.Parameters.Algorithms.*;
 
 public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
     private final LandmarkStorage lms;
     private int defaultActiveLandmarks;
+    private Supplier<BidirSearchState> searchStateSupplier;
 
     public LMRoutingAlgorithmFactory(LandmarkStorage lms) {
         this.lms = lms;
@@ -41,6 +44,16 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         return this;
     }
 
+    /**
+     * Sets the supplier for the search states of the algorithms created with
+     * {@link Parameters.Routing#PRIMITIVE_SEARCH}, e.g. to re-use them via a {@link SearchStatePool}. By default every
+     * algorithm creates its own search state.
+     */
+    public LMRoutingAlgorithmFactory setSearchStateSupplier(Supplier<BidirSearchState> searchStateSupplier) {
+        this.searchStateSupplier = searchStateSupplier;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
         if (!lms.isInitialized())
@@ -54,6 +67,15 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
             algo.setApproximation(getApproximator(g, weighting, activeLM, epsilon));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
             algo.setTimeoutMillis(opts.getTimeoutMillis());
+            algo.setSearchBudget(opts.getSearchBudget());
+            return algo;
+        } else if ((ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) && opts.getHints().getBool(Parameters.Routing.PRIMITIVE_SEARCH, false)) {
+            double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
+            AStarBidirectionPrimitive algo = new AStarBidirectionPrimitive(g, weighting, opts.getTraversalMode(), createSearchState(g));
+            algo.setApproximation(getApproximator(g, weighting, activeLM, epsilon));
+            algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+            algo.setTimeoutMillis(opts.getTimeoutMillis());
+            algo.setSearchBudget(opts.getSearchBudget());
             return algo;
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
@@ -61,6 +83,7 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
             algo.setApproximation(getApproximator(g, weighting, activeLM, epsilon));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
             algo.setTimeoutMillis(opts.getTimeoutMillis());
+            algo.setSearchBudget(opts.getSearchBudget());
             return algo;
         } else if (ALT_ROUTE.equalsIgnoreCase(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
@@ -68,6 +91,7 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
             algo.setApproximation(getApproximator(g, weighting, activeLM, epsilon));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
             algo.setTimeoutMillis(opts.getTimeoutMillis());
+            algo.setSearchBudget(opts.getSearchBudget());
             return algo;
         } else {
             throw new IllegalArgumentException("Landmarks algorithm only supports algorithm="
@@ -75,6 +99,12 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         }
     }
 
+    private BidirSearchState createSearchState(Graph g) {
+        return searchStateSupplier == null
+                ? new BidirSearchState(Math.min(Math.max(200, g.getNodes() / 10), 150_000))
+                : searchStateSupplier.get();
+    }
+
     private LMApproximator getApproximator(Graph g, Weighting weighting, int activeLM, double epsilon) {
         return LMApproximator.forLandmarks(g, weighting, lms, activeLM).setEpsilon(epsilon);
     }
@@ -19,6 +19,7 @@ package com.graphhopper.routing.lm;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntObjectHashMap;
 import com.carrotsearch.hppc.IntObjectMap;
 import com.carrotsearch.hppc.predicates.IntObjectPredicate;
 import com.carrotsearch.hppc.procedures.IntObjectProcedure;
@@ -50,6 +51,8 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * This class stores the landmark nodes and the weights from and to all other nodes in every
@@ -94,6 +97,7 @@ public class LandmarkStorage {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private AreaIndex<SplitArea> areaIndex;
     private boolean logDetails = false;
+    private int landmarkThreads = 1;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -169,6 +173,18 @@ public class LandmarkStorage {
         this.logDetails = logDetails;
     }
 
+    /**
+     * Sets the number of threads used to calculate the landmark weights and to search the landmarks of different
+     * subnetworks. Every thread needs its own memory for the explorations, so this increases the memory usage.
+     * Default is 1.
+     */
+    public LandmarkStorage setLandmarkThreads(int landmarkThreads) {
+        if (landmarkThreads < 1)
+            throw new IllegalArgumentException("landmark threads must be at least 1, but was: " + landmarkThreads);
+        this.landmarkThreads = landmarkThreads;
+        return this;
+    }
+
     /**
      * This method forces the landmark preparation to skip the landmark search and uses the specified landmark list instead.
      * Useful for manual tuning of larger areas to safe import time or improve quality.
@@ -292,6 +308,7 @@ public class LandmarkStorage {
         if (logDetails)
             LOGGER.info("init landmarks for subnetworks with node count greater than " + minimumNodes + " with factor:" + factor + additionalInfo);
 
+        IntObjectMap<int[]> foundLandmarks = findLandmarksConcurrently(graphComponents.getComponents(), accessFilter);
         int nodes = 0;
         for (IntArrayList subnetworkIds : graphComponents.getComponents()) {
             nodes += subnetworkIds.size();
@@ -312,7 +329,7 @@ public class LandmarkStorage {
                                 + ", " + Helper.getMemInfo() + ((areaIndex == null) ? "" : " area:" + areaIndex.query(p.lat, p.lon)));
                     }
 
-                    if (createLandmarksForSubnetwork(nextStartNode, subnetworks, accessFilter))
+                    if (createLandmarksForSubnetwork(nextStartNode, foundLandmarks.get(nextStartNode), subnetworks, accessFilter))
                         break;
                 }
             }
@@ -351,6 +368,39 @@ public class LandmarkStorage {
         initialized = true;
     }
 
+    /**
+     * Searches the landmarks for all subnetworks that are big enough at the same time, starting from the node
+     * createLandmarks tries first. The landmarks only depend on the start node, so they can be re-used if the
+     * subnetwork is still unassigned once it is its turn.
+     *
+     * @return the landmarks for every start node for which they could be found
+     */
+    private IntObjectMap<int[]> findLandmarksConcurrently(List<IntArrayList> graphComponents, EdgeFilter accessFilter) {
+        IntObjectMap<int[]> result = new IntObjectHashMap<>();
+        if (landmarkThreads < 2 || !landmarkSuggestions.isEmpty())
+            return result;
+        IntArrayList startNodes = new IntArrayList();
+        for (IntArrayList subnetworkIds : graphComponents) {
+            if (subnetworkIds.size() >= minimumNodes)
+                startNodes.add(subnetworkIds.get(subnetworkIds.size() - 1));
+        }
+        if (startNodes.size() < 2)
+            return result;
+        int[][] landmarksPerStartNode = new int[startNodes.size()][];
+        Stream<Runnable> runnables = IntStream.range(0, startNodes.size()).mapToObj(i -> () -> {
+            int[] landmarkNodeIds = new int[landmarks];
+            LandmarkExplorer explorer = findLandmarks(landmarkNodeIds, startNodes.get(i), accessFilter, "create");
+            if (explorer.getFromCount() >= minimumNodes)
+                landmarksPerStartNode[i] = landmarkNodeIds;
+        });
+        GHUtility.runConcurrently(runnables, landmarkThreads);
+        for (int i = 0; i < startNodes.size(); i++) {
+            if (landmarksPerStartNode[i] != null)
+                result.put(startNodes.get(i), landmarksPerStartNode[i]);
+        }
+        return result;
+    }
+
     /**
      * This method returns the maximum weight for the graph starting from the landmarks
      */
@@ -401,9 +451,10 @@ public class LandmarkStorage {
     /**
      * This method creates landmarks for the specified subnetwork (integer list)
      *
+     * @param foundLandmarks the landmarks for the given start node if they were already searched or null
      * @return landmark mapping
      */
-    private boolean createLandmarksForSubnetwork(final int startNode, final byte[] subnetworks, EdgeFilter accessFilter) {
+    private boolean createLandmarksForSubnetwork(final int startNode, int[] foundLandmarks, final byte[] subnetworks, EdgeFilter accessFilter) {
         final int subnetworkId = landmarkIDs.size();
         int[] tmpLandmarkNodeIds = new int[landmarks];
         int logOffset = Math.max(1, landmarks / 2);
@@ -433,6 +484,10 @@ public class LandmarkStorage {
 
         if (pickedPrecalculatedLandmarks) {
             LOGGER.info("Picked " + tmpLandmarkNodeIds.length + " landmark suggestions, skip finding landmarks");
+        } else if (foundLandmarks != null) {
+            System.arraycopy(foundLandmarks, 0, tmpLandmarkNodeIds, 0, tmpLandmarkNodeIds.length);
+            if (logDetails)
+                LOGGER.info("Using landmarks found concurrently for subnetwork " + subnetworkId);
         } else {
             LandmarkExplorer explorer = findLandmarks(tmpLandmarkNodeIds, startNode, accessFilter, "create");
             if (explorer.getFromCount() < minimumNodes) {
@@ -445,35 +500,48 @@ public class LandmarkStorage {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
+        if (landmarkThreads > 1) {
+            // set subnetwork id to all explored nodes, but do this only for the first landmark. since this can fail we
+            // do it before we calculate the weights of the other landmarks
+            if (exploreLandmark(0, tmpLandmarkNodeIds[0], accessFilter, false).setSubnetworks(subnetworks, subnetworkId))
+                return false;
+            if (exploreLandmark(0, tmpLandmarkNodeIds[0], accessFilter, true).setSubnetworks(subnetworks, subnetworkId))
+                return false;
+            if (Thread.currentThread().isInterrupted())
+                throw new RuntimeException("Thread was interrupted for subnetwork " + subnetworkId);
+            // every exploration writes into its own 'column' of the landmark weights, so they can run concurrently
+            Stream<Runnable> runnables = IntStream.range(1, tmpLandmarkNodeIds.length).boxed()
+                    .flatMap(lmIdx -> Stream.<Runnable>of(
+                            () -> exploreLandmark(lmIdx, tmpLandmarkNodeIds[lmIdx], accessFilter, false),
+                            () -> exploreLandmark(lmIdx, tmpLandmarkNodeIds[lmIdx], accessFilter, true)));
+            GHUtility.runConcurrently(runnables, landmarkThreads);
+            if (logDetails)
+                LOGGER.info("Set landmarks weights [" + weighting + "] using " + landmarkThreads + " threads");
+        } else {
+            for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+                }
+                int lmNodeId = tmpLandmarkNodeIds[lmIdx];
+                LandmarkExplorer explorer = exploreLandmark(lmIdx, lmNodeId, accessFilter, false);
 
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+                // set subnetwork id to all explored nodes, but do this only for the first landmark
+                if (lmIdx == 0) {
+                    if (explorer.setSubnetworks(subnetworks, subnetworkId))
+                        return false;
+                }
 
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
+                explorer = exploreLandmark(lmIdx, lmNodeId, accessFilter, true);
+
+                if (lmIdx == 0) {
+                    if (explorer.setSubnetworks(subnetworks, subnetworkId))
+                        return false;
+                }
 
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
+                if (logDetails && lmIdx % logOffset == 0)
+                    LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                            + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
+            }
         }
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
@@ -481,6 +549,17 @@ public class LandmarkStorage {
         return true;
     }
 
+    /**
+     * Runs a forward or backward search from the given landmark and stores the weights to or from all found nodes.
+     */
+    private LandmarkExplorer exploreLandmark(int lmIdx, int lmNodeId, EdgeFilter accessFilter, boolean reverse) {
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, reverse);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, reverse ? TO_OFFSET : FROM_OFFSET);
+        return explorer;
+    }
+
     /**
      * This method specifies the polygons which should be used to split the world wide area to improve performance and
      * quality in this scenario.
@@ -92,16 +92,21 @@ public class MaxSpeedCalculator {
     private EdgeIntAccess createMaxSpeedStorage(DataAccess dataAccess) {
         return new EdgeIntAccess() {
 
+            // synchronized, because the OSM ways can be parsed on multiple threads and ensureCapacity is not thread-safe
             public int getInt(int edgeId, int index) {
-                dataAccess.ensureCapacity(edgeId * 2L + 2L);
-                return dataAccess.getShort(edgeId * 2L);
+                synchronized (dataAccess) {
+                    dataAccess.ensureCapacity(edgeId * 2L + 2L);
+                    return dataAccess.getShort(edgeId * 2L);
+                }
             }
 
             public void setInt(int edgeId, int index, int value) {
-                dataAccess.ensureCapacity(edgeId * 2L + 2L);
                 if (value > Short.MAX_VALUE)
                     throw new IllegalStateException("value too large for short: " + value);
-                dataAccess.setShort(edgeId * 2L, (short) value);
+                synchronized (dataAccess) {
+                    dataAccess.ensureCapacity(edgeId * 2L + 2L);
+                    dataAccess.setShort(edgeId * 2L, (short) value);
+                }
             }
         };
     }
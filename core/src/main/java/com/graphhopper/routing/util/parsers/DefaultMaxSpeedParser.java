@@ -97,11 +97,12 @@ public class DefaultMaxSpeedParser implements TagParser {
     }
 
     private final int SIZE = 3_000;
-    private final Map<Map<String, String>, Result> cache = new LinkedHashMap<Map<String, String>, Result>(SIZE + 1, .75F, true) {
+    // synchronized, because the OSM ways can be parsed on multiple threads
+    private final Map<Map<String, String>, Result> cache = Collections.synchronizedMap(new LinkedHashMap<Map<String, String>, Result>(SIZE + 1, .75F, true) {
         public boolean removeEldestEntry(Map.Entry eldest) {
             return size() > SIZE;
         }
-    };
+    });
 
     private static Integer parseInt(String str) {
         try {
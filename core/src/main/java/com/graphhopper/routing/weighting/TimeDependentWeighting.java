@@ -0,0 +1,106 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.SpeedProfile;
+import com.graphhopper.storage.SpeedProfileStorage;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+
+/**
+ * Calculates the travel time and the weight of an edge depending on the time at which the edge is entered. The speed
+ * of the wrapped {@link Weighting} is multiplied with the factor of the speed profile of the edge, see
+ * {@link SpeedProfileStorage}. The weight changes proportionally to the travel time, so for weightings where the
+ * weight is proportional to the travel time (like fastest) the time-dependent weights fulfill the FIFO property.
+ */
+public class TimeDependentWeighting {
+    private final Weighting weighting;
+    private final SpeedProfileStorage speedProfiles;
+    private final IntEncodedValue speedProfileEnc;
+    private final ZoneRules zoneRules;
+
+    /**
+     * @param zoneId the time zone in which the slots of the speed profiles are defined
+     */
+    public TimeDependentWeighting(Weighting weighting, SpeedProfileStorage speedProfiles, IntEncodedValue speedProfileEnc, ZoneId zoneId) {
+        if (!speedProfileEnc.getName().equals(SpeedProfile.KEY))
+            throw new IllegalArgumentException("The encoded value for the speed profiles must be " + SpeedProfile.KEY + ", but was " + speedProfileEnc.getName());
+        this.weighting = weighting;
+        this.speedProfiles = speedProfiles;
+        this.speedProfileEnc = speedProfileEnc;
+        this.zoneRules = zoneId.getRules();
+    }
+
+    public Weighting getWeighting() {
+        return weighting;
+    }
+
+    /**
+     * @return the factor by which the time-dependent weight of an edge is smaller than the weight of the wrapped
+     * weighting at most
+     */
+    public double getMaxSpeedFactor() {
+        return speedProfiles.getMaxFactor();
+    }
+
+    /**
+     * @param time the time at which the edge is entered in milliseconds since the epoch
+     */
+    public long calcEdgeMillis(EdgeIteratorState edgeState, boolean reverse, long time) {
+        return calcEdgeMillis(edgeState, reverse, time, weighting.calcEdgeMillis(edgeState, reverse));
+    }
+
+    /**
+     * @param time the time at which the edge is entered in milliseconds since the epoch
+     */
+    public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse, long time) {
+        double weight = weighting.calcEdgeWeight(edgeState, reverse);
+        if (Double.isInfinite(weight))
+            return weight;
+        long millis = weighting.calcEdgeMillis(edgeState, reverse);
+        return scaleWeight(weight, millis, calcEdgeMillis(edgeState, reverse, time, millis));
+    }
+
+    /**
+     * @return the weight of the wrapped weighting changed proportionally to the travel time
+     */
+    public static double scaleWeight(double weight, long millis, long timeDependentMillis) {
+        return millis <= 0 ? weight : weight * timeDependentMillis / millis;
+    }
+
+    /**
+     * Like {@link #calcEdgeMillis(EdgeIteratorState, boolean, long)}, but for the case that the travel time of the
+     * wrapped weighting is known already
+     */
+    public long calcEdgeMillis(EdgeIteratorState edgeState, boolean reverse, long time, long millis) {
+        int profile = reverse ? edgeState.getReverse(speedProfileEnc) : edgeState.get(speedProfileEnc);
+        if (profile == 0)
+            return millis;
+        long localMillis = time + zoneRules.getOffset(Instant.ofEpochMilli(time)).getTotalSeconds() * 1000L;
+        return speedProfiles.calcMillis(profile, localMillis, millis);
+    }
+
+    @Override
+    public String toString() {
+        return "time_dependent|" + weighting;
+    }
+}
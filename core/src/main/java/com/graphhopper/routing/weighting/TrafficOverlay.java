@@ -0,0 +1,227 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.carrotsearch.hppc.IntFloatHashMap;
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.OSMWayID;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Speed factors for single edges that are applied on top of the speeds of the
+ * {@link com.graphhopper.routing.weighting.custom.CustomWeighting}, e.g. for traffic jams or road closures reported by
+ * an incident feed, without a new import. Every update creates a new immutable {@link Snapshot} that replaces the
+ * current one, so readers do not need a lock and a weighting created with a snapshot sees the same factors for the
+ * whole request.
+ * <p>
+ * Only slowdowns are allowed, i.e. factors in [0, 1] where 0 closes the edge. The weights can only increase, so the
+ * landmark approximations stay valid. The CH shortcuts are not updated, this requires a customizable CH, see
+ * GraphHopper.customizeCH.
+ */
+public class TrafficOverlay {
+    private final BaseGraph graph;
+    private final IntEncodedValue osmWayIdEnc;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    // the OSM way id in the upper and the edge id in the lower 32 bits, sorted. created when it is needed first
+    private long[] wayIdsAndEdges;
+
+    /**
+     * @param osmWayIdEnc the encoded value with the OSM way ids, can be null if the updates only use edge ids
+     */
+    public TrafficOverlay(BaseGraph graph, IntEncodedValue osmWayIdEnc) {
+        this.graph = graph;
+        this.osmWayIdEnc = osmWayIdEnc;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Applies the given updates at once, either all of them or none if one of them is invalid. An update with a
+     * factor of 1 removes the factor of the edge again.
+     *
+     * @return the number of edges that were updated
+     */
+    public int apply(List<Update> updates) {
+        return apply(updates, false);
+    }
+
+    /**
+     * Like {@link #apply(List)}, but removes all previous speed factors first if clearFirst is true. Both happen in
+     * one step, i.e. there is no snapshot without any factors in between and nothing is removed if an update is
+     * invalid.
+     *
+     * @return the number of edges that were updated
+     */
+    public synchronized int apply(List<Update> updates, boolean clearFirst) {
+        for (Update update : updates) {
+            if (!(update.speedFactor >= 0 && update.speedFactor <= 1))
+                throw new IllegalArgumentException("The speed factor must be in [0, 1], only slowdowns are allowed, but was " + update.speedFactor);
+            if (update.isOsmWay()) {
+                if (osmWayIdEnc == null)
+                    throw new IllegalArgumentException("Updates for OSM ways require the encoded value " + OSMWayID.KEY);
+            } else if (update.edge < 0 || update.edge >= graph.getEdges())
+                throw new IllegalArgumentException("Edge " + update.edge + " does not exist, the graph has " + graph.getEdges() + " edges");
+        }
+        IntFloatHashMap factors = clearFirst ? new IntFloatHashMap() : new IntFloatHashMap(snapshot.factors);
+        int count = 0;
+        for (Update update : updates) {
+            if (update.isOsmWay()) {
+                long[] index = getWayIndex();
+                for (int i = findFirst(index, update.osmWayId); i < index.length && (index[i] >>> 32) == update.osmWayId; i++) {
+                    setFactor(factors, (int) index[i], update.speedFactor);
+                    count++;
+                }
+            } else {
+                setFactor(factors, update.edge, update.speedFactor);
+                count++;
+            }
+        }
+        snapshot = new Snapshot(factors, graph.getEdges(), snapshot.version + 1);
+        return count;
+    }
+
+    /**
+     * Removes all speed factors
+     */
+    public synchronized void clear() {
+        snapshot = new Snapshot(new IntFloatHashMap(), graph.getEdges(), snapshot.version + 1);
+    }
+
+    private static void setFactor(IntFloatHashMap factors, int edge, double speedFactor) {
+        if (speedFactor == 1)
+            factors.remove(edge);
+        else
+            factors.put(edge, (float) speedFactor);
+    }
+
+    private long[] getWayIndex() {
+        if (wayIdsAndEdges == null) {
+            long[] index = new long[graph.getEdges()];
+            AllEdgesIterator iter = graph.getAllEdges();
+            while (iter.next())
+                index[iter.getEdge()] = ((long) iter.get(osmWayIdEnc) << 32) | iter.getEdge();
+            Arrays.sort(index);
+            wayIdsAndEdges = index;
+        }
+        return wayIdsAndEdges;
+    }
+
+    private static int findFirst(long[] index, long osmWayId) {
+        if (osmWayId < 0 || osmWayId > Integer.MAX_VALUE)
+            return index.length;
+        int pos = Arrays.binarySearch(index, osmWayId << 32);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    public static class Update {
+        private final int edge;
+        private final long osmWayId;
+        private final double speedFactor;
+
+        private Update(int edge, long osmWayId, double speedFactor) {
+            this.edge = edge;
+            this.osmWayId = osmWayId;
+            this.speedFactor = speedFactor;
+        }
+
+        public static Update forEdge(int edge, double speedFactor) {
+            return new Update(edge, -1, speedFactor);
+        }
+
+        /**
+         * The update applies to all edges of the given OSM way
+         */
+        public static Update forOsmWay(long osmWayId, double speedFactor) {
+            if (osmWayId < 0)
+                throw new IllegalArgumentException("OSM way ids cannot be negative: " + osmWayId);
+            return new Update(-1, osmWayId, speedFactor);
+        }
+
+        boolean isOsmWay() {
+            return osmWayId >= 0;
+        }
+
+        @Override
+        public String toString() {
+            return (isOsmWay() ? "way: " + osmWayId : "edge: " + edge) + ", factor: " + speedFactor;
+        }
+    }
+
+    /**
+     * The speed factors at a certain time. A snapshot never changes, updates create a new snapshot.
+     */
+    public static final class Snapshot {
+        public static final Snapshot EMPTY = new Snapshot(new IntFloatHashMap(), Integer.MAX_VALUE, 0);
+        private final IntFloatHashMap factors;
+        // larger edge ids belong to virtual edges
+        private final int baseEdges;
+        private final long version;
+
+        private Snapshot(IntFloatHashMap factors, int baseEdges, long version) {
+            this.factors = factors;
+            this.baseEdges = baseEdges;
+            this.version = version;
+        }
+
+        /**
+         * @return the speed factor of the given edge in both directions, for virtual edges the factor of the edge
+         * they were created from
+         */
+        public double getSpeedFactor(EdgeIteratorState edge) {
+            int edgeId = edge.getEdge();
+            if (edgeId >= baseEdges) {
+                // the iterators of the query graph return the current virtual edge state when we detach them
+                EdgeIteratorState virtualEdge = edge.detach(false);
+                if (virtualEdge instanceof VirtualEdgeIteratorState)
+                    edgeId = GHUtility.getEdgeFromEdgeKey(((VirtualEdgeIteratorState) virtualEdge).getOriginalEdgeKey());
+            }
+            return getSpeedFactor(edgeId);
+        }
+
+        public double getSpeedFactor(int edge) {
+            return factors.getOrDefault(edge, 1);
+        }
+
+        public boolean isEmpty() {
+            return factors.isEmpty();
+        }
+
+        /**
+         * @return the number of edges with a speed factor
+         */
+        public int size() {
+            return factors.size();
+        }
+
+        /**
+         * @return a number that is increased with every update
+         */
+        public long getVersion() {
+            return version;
+        }
+    }
+}
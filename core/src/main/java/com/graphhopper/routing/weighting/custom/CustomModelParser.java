@@ -20,6 +20,7 @@ package com.graphhopper.routing.weighting.custom;
 import com.graphhopper.json.MinMax;
 import com.graphhopper.json.Statement;
 import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.weighting.TrafficOverlay;
 import com.graphhopper.routing.weighting.TurnCostProvider;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
@@ -61,18 +62,43 @@ public class CustomModelParser {
     // E.g. we do not care for the race condition where two identical classes are requested and one of them is overwritten.
     // TODO perf compare with ConcurrentHashMap, but I guess, if there is a difference at all, it is not big for small maps
     private static final Map<String, Class<?>> INTERNAL_CACHE = Collections.synchronizedMap(new HashMap<>());
+    private static final AtomicLong CACHE_HITS = new AtomicLong();
+    private static final AtomicLong CACHE_MISSES = new AtomicLong();
 
     private CustomModelParser() {
         // utility class
     }
 
+    /**
+     * @return the number of weightings that were created from an already compiled class
+     */
+    public static long getCacheHits() {
+        return CACHE_HITS.get();
+    }
+
+    /**
+     * @return the number of weightings for which a new class had to be compiled
+     */
+    public static long getCacheMisses() {
+        return CACHE_MISSES.get();
+    }
+
     public static CustomWeighting createWeighting(BooleanEncodedValue accessEnc, DecimalEncodedValue speedEnc, DecimalEncodedValue priorityEnc,
                                                   EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel) {
+        return createWeighting(accessEnc, speedEnc, priorityEnc, lookup, turnCostProvider, customModel, TrafficOverlay.Snapshot.EMPTY);
+    }
+
+    /**
+     * @param traffic the speed factors of the {@link TrafficOverlay} at the time the weighting is created
+     */
+    public static CustomWeighting createWeighting(BooleanEncodedValue accessEnc, DecimalEncodedValue speedEnc, DecimalEncodedValue priorityEnc,
+                                                  EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel,
+                                                  TrafficOverlay.Snapshot traffic) {
         if (customModel == null)
             throw new IllegalStateException("CustomModel cannot be null");
         double maxSpeed = speedEnc.getMaxOrMaxStorableDecimal();
         CustomWeighting.Parameters parameters = createWeightingParameters(customModel, lookup, speedEnc, maxSpeed, priorityEnc);
-        return new CustomWeighting(accessEnc, speedEnc, turnCostProvider, parameters);
+        return new CustomWeighting(accessEnc, speedEnc, turnCostProvider, parameters, traffic);
     }
 
     /**
@@ -96,6 +122,7 @@ public class CustomModelParser {
         if (CACHE_SIZE > 0 && clazz == null)
             clazz = CACHE.get(key);
         if (clazz == null) {
+            CACHE_MISSES.incrementAndGet();
             clazz = createClazz(customModel, lookup, globalMaxSpeed, globalMaxPriority);
             if (customModel.isInternal()) {
                 INTERNAL_CACHE.put(key, clazz);
@@ -108,6 +135,8 @@ public class CustomModelParser {
             } else if (CACHE_SIZE > 0) {
                 CACHE.put(key, clazz);
             }
+        } else {
+            CACHE_HITS.incrementAndGet();
         }
 
         try {
@@ -20,6 +20,7 @@ package com.graphhopper.routing.weighting.custom;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
 import com.graphhopper.routing.weighting.AbstractWeighting;
+import com.graphhopper.routing.weighting.TrafficOverlay;
 import com.graphhopper.routing.weighting.TurnCostProvider;
 import com.graphhopper.util.CustomModel;
 import com.graphhopper.util.EdgeIteratorState;
@@ -83,9 +84,20 @@ public final class CustomWeighting extends AbstractWeighting {
     private final double headingPenaltySeconds;
     private final EdgeToDoubleMapping edgeToSpeedMapping;
     private final EdgeToDoubleMapping edgeToPriorityMapping;
+    // null if there are no speed factors
+    private final TrafficOverlay.Snapshot traffic;
 
     public CustomWeighting(BooleanEncodedValue baseAccessEnc, DecimalEncodedValue baseSpeedEnc, TurnCostProvider turnCostProvider, Parameters parameters) {
+        this(baseAccessEnc, baseSpeedEnc, turnCostProvider, parameters, TrafficOverlay.Snapshot.EMPTY);
+    }
+
+    /**
+     * @param traffic the speed factors that are multiplied with the speeds of the custom model
+     */
+    public CustomWeighting(BooleanEncodedValue baseAccessEnc, DecimalEncodedValue baseSpeedEnc, TurnCostProvider turnCostProvider,
+                           Parameters parameters, TrafficOverlay.Snapshot traffic) {
         super(baseAccessEnc, baseSpeedEnc, turnCostProvider);
+        this.traffic = traffic.isEmpty() ? null : traffic;
         this.edgeToSpeedMapping = parameters.getEdgeToSpeedMapping();
         this.edgeToPriorityMapping = parameters.getEdgeToPriorityMapping();
         this.headingPenaltySeconds = parameters.getHeadingPenaltySeconds();
@@ -123,6 +135,8 @@ public final class CustomWeighting extends AbstractWeighting {
             return Double.POSITIVE_INFINITY;
 
         double speed = edgeToSpeedMapping.get(edgeState, reverse);
+        if (traffic != null)
+            speed *= traffic.getSpeedFactor(edgeState);
         if (speed > maxSpeed * SPEED_CONV)
             throw new IllegalStateException("for " + getName() + " speed <= maxSpeed is violated, " + speed + " <= " + maxSpeed * SPEED_CONV);
         if (speed == 0)
@@ -0,0 +1,76 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+
+/**
+ * A read-only 'compressed sparse row' representation of the adjacency lists of a frozen {@link BaseGraph}. The keys
+ * of all edges adjacent to a node are stored next to each other (in the same order as the linked lists of
+ * {@link BaseGraphNodesAndEdges}), so iterating them means reading memory sequentially instead of following the
+ * links from one edge to the next. The index lives on the heap and is not stored, it needs 4 bytes per node and 8
+ * bytes per edge.
+ */
+final class AdjacencyIndex {
+    // the edge keys adjacent to node n are stored at [offsets[n], offsets[n+1])
+    private final int[] offsets;
+    private final int[] edgeKeys;
+
+    private AdjacencyIndex(int[] offsets, int[] edgeKeys) {
+        this.offsets = offsets;
+        this.edgeKeys = edgeKeys;
+    }
+
+    static AdjacencyIndex build(BaseGraphNodesAndEdges store) {
+        int nodes = store.getNodes();
+        int[] offsets = new int[nodes + 1];
+        int[] edgeKeys = new int[2 * store.getEdges()];
+        int index = 0;
+        for (int node = 0; node < nodes; node++) {
+            offsets[node] = index;
+            int edge = store.getEdgeRef(store.toNodePointer(node));
+            while (EdgeIterator.Edge.isValid(edge)) {
+                long edgePointer = store.toEdgePointer(edge);
+                boolean baseNodeIsNodeA = store.getNodeA(edgePointer) == node;
+                edgeKeys[index++] = GHUtility.createEdgeKey(edge, !baseNodeIsNodeA);
+                edge = baseNodeIsNodeA ? store.getLinkA(edgePointer) : store.getLinkB(edgePointer);
+            }
+        }
+        offsets[nodes] = index;
+        if (index != edgeKeys.length)
+            throw new IllegalStateException("Expected " + edgeKeys.length + " edge keys in adjacency lists, but found " + index);
+        return new AdjacencyIndex(offsets, edgeKeys);
+    }
+
+    /**
+     * @return the index of the first edge key of the given node, the edge keys of the node end at the first index of
+     * node + 1
+     */
+    int getFirstIndex(int node) {
+        return offsets[node];
+    }
+
+    int getEdgeKey(int index) {
+        return edgeKeys[index];
+    }
+
+    long getMemoryUsage() {
+        return 4L * offsets.length + 4L * edgeKeys.length;
+    }
+}
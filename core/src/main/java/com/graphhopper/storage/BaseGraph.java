@@ -49,17 +49,33 @@ public class BaseGraph implements Graph, Closeable {
     final KVStorage edgeKVStorage;
     // can be null if turn costs are not supported
     final TurnCostStorage turnCostStorage;
+    // can be null if time-dependent speed profiles are not supported
+    final SpeedProfileStorage speedProfileStorage;
     final BitUtil bitUtil;
     // length | nodeA | nextNode | ... | nodeB
     // as we use integer index in 'edges' area => 'geometry' area is limited to 4GB (we use pos&neg values!)
     private final DataAccess wayGeometry;
     private final Directory dir;
     private final int segmentSize;
+    private final boolean withAdjacencyIndex;
+    // only available if withAdjacencyIndex is enabled and the graph is frozen
+    private volatile AdjacencyIndex adjacencyIndex;
     private boolean initialized = false;
     private long maxGeoRef;
 
     public BaseGraph(Directory dir, int intsForFlags, boolean withElevation, boolean withTurnCosts, int segmentSize) {
+        this(dir, intsForFlags, withElevation, withTurnCosts, segmentSize, false);
+    }
+
+    public BaseGraph(Directory dir, int intsForFlags, boolean withElevation, boolean withTurnCosts, int segmentSize,
+                     boolean withAdjacencyIndex) {
+        this(dir, intsForFlags, withElevation, withTurnCosts, segmentSize, withAdjacencyIndex, false);
+    }
+
+    public BaseGraph(Directory dir, int intsForFlags, boolean withElevation, boolean withTurnCosts, int segmentSize,
+                     boolean withAdjacencyIndex, boolean withSpeedProfiles) {
         this.dir = dir;
+        this.withAdjacencyIndex = withAdjacencyIndex;
         this.bitUtil = BitUtil.LITTLE;
         this.wayGeometry = dir.create("geometry", segmentSize);
         this.edgeKVStorage = new KVStorage(dir, true);
@@ -67,6 +83,7 @@ public class BaseGraph implements Graph, Closeable {
         this.nodeAccess = new GHNodeAccess(store);
         this.segmentSize = segmentSize;
         turnCostStorage = withTurnCosts ? new TurnCostStorage(this, dir.create("turn_costs", segmentSize)) : null;
+        speedProfileStorage = withSpeedProfiles ? new SpeedProfileStorage(dir.create("speed_profiles", segmentSize)) : null;
     }
 
     private int getOtherNode(int nodeThis, long edgePointer) {
@@ -126,6 +143,10 @@ public class BaseGraph implements Graph, Closeable {
         return turnCostStorage != null;
     }
 
+    boolean supportsSpeedProfiles() {
+        return speedProfileStorage != null;
+    }
+
     @Override
     public int getNodes() {
         return store.getNodes();
@@ -150,12 +171,34 @@ public class BaseGraph implements Graph, Closeable {
         if (isFrozen())
             throw new IllegalStateException("base graph already frozen");
         store.setFrozen(true);
+        if (withAdjacencyIndex)
+            adjacencyIndex = AdjacencyIndex.build(store);
     }
 
     public synchronized boolean isFrozen() {
         return store.getFrozen();
     }
 
+    /**
+     * @return true if a compact, read-only copy of the adjacency lists is created when this graph is frozen or loaded
+     * in frozen state. The edge explorers created afterwards use it instead of following the links stored with the
+     * edges, which is faster but needs 8 bytes per edge of additional heap memory.
+     */
+    public boolean withAdjacencyIndex() {
+        return withAdjacencyIndex;
+    }
+
+    /**
+     * Renumbers the nodes of this graph such that node i becomes node oldToNew[i], e.g. to improve the memory
+     * locality of the node and edge accesses, see {@link NodeOrdering}. Edge ids, way geometries, key values and turn
+     * costs are not changed. This must be done before the graph is frozen and before a location index is created.
+     */
+    public void relabelNodes(int[] oldToNew) {
+        if (isFrozen())
+            throw new IllegalStateException("Cannot relabel nodes if graph is already frozen");
+        store.relabelNodes(oldToNew);
+    }
+
     public BaseGraph create(long initSize) {
         checkNotInitialized();
         dir.create();
@@ -167,6 +210,8 @@ public class BaseGraph implements Graph, Closeable {
         if (supportsTurnCosts()) {
             turnCostStorage.create(initSize);
         }
+        if (supportsSpeedProfiles())
+            speedProfileStorage.create(initSize);
         setInitialized();
         // 0 stands for no separate geoRef
         maxGeoRef = 4;
@@ -178,9 +223,11 @@ public class BaseGraph implements Graph, Closeable {
     }
 
     public String toDetailsString() {
+        AdjacencyIndex index = adjacencyIndex;
         return store.toDetailsString() + ", "
                 + "name:(" + edgeKVStorage.getCapacity() / Helper.MB + "MB), "
-                + "geo:" + nf(maxGeoRef) + "(" + wayGeometry.getCapacity() / Helper.MB + "MB)";
+                + "geo:" + nf(maxGeoRef) + "(" + wayGeometry.getCapacity() / Helper.MB + "MB)"
+                + (index == null ? "" : ", adjacency index:(" + index.getMemoryUsage() / Helper.MB + "MB)");
     }
 
     /**
@@ -209,10 +256,13 @@ public class BaseGraph implements Graph, Closeable {
         if (supportsTurnCosts()) {
             turnCostStorage.flush();
         }
+        if (supportsSpeedProfiles())
+            speedProfileStorage.flush();
     }
 
     @Override
     public void close() {
+        adjacencyIndex = null;
         if (!wayGeometry.isClosed())
             wayGeometry.close();
         if (!edgeKVStorage.isClosed())
@@ -221,11 +271,14 @@ public class BaseGraph implements Graph, Closeable {
         if (supportsTurnCosts()) {
             turnCostStorage.close();
         }
+        if (supportsSpeedProfiles())
+            speedProfileStorage.close();
     }
 
     public long getCapacity() {
         return store.getCapacity() + edgeKVStorage.getCapacity()
-                + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0);
+                + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0)
+                + (supportsSpeedProfiles() ? speedProfileStorage.getCapacity() : 0);
     }
 
     long getMaxGeoRef() {
@@ -247,8 +300,13 @@ public class BaseGraph implements Graph, Closeable {
         if (supportsTurnCosts() && !turnCostStorage.loadExisting())
             return false;
 
+        if (supportsSpeedProfiles() && !speedProfileStorage.loadExisting())
+            return false;
+
         setInitialized();
         loadWayGeometryHeader();
+        if (withAdjacencyIndex && isFrozen())
+            adjacencyIndex = AdjacencyIndex.build(store);
         return true;
     }
 
@@ -329,6 +387,14 @@ public class BaseGraph implements Graph, Closeable {
         return turnCostStorage;
     }
 
+    /**
+     * @return the speed profiles for time-dependent routing or null if they are not supported, see
+     * {@link Builder#withSpeedProfiles(boolean)}
+     */
+    public SpeedProfileStorage getSpeedProfileStorage() {
+        return speedProfileStorage;
+    }
+
     @Override
     public Weighting wrapWeighting(Weighting weighting) {
         return weighting;
@@ -524,10 +590,13 @@ public class BaseGraph implements Graph, Closeable {
         private boolean withTurnCosts = false;
         private long bytes = 100;
         private int segmentSize = -1;
+        private boolean withAdjacencyIndex = false;
+        private boolean withSpeedProfiles = false;
 
         public Builder(EncodingManager em) {
             this(em.getIntsForFlags());
             withTurnCosts(em.needsTurnCostsSupport());
+            withSpeedProfiles(em.hasEncodedValue(SpeedProfile.KEY));
         }
 
         public Builder(int intsForFlags) {
@@ -562,8 +631,25 @@ public class BaseGraph implements Graph, Closeable {
             return this;
         }
 
+        /**
+         * @see BaseGraph#withAdjacencyIndex()
+         */
+        public Builder withAdjacencyIndex(boolean withAdjacencyIndex) {
+            this.withAdjacencyIndex = withAdjacencyIndex;
+            return this;
+        }
+
+        /**
+         * Enables the storage of the time-dependent speed profiles that are referenced by the {@link SpeedProfile}
+         * encoded value, see {@link SpeedProfileStorage}
+         */
+        public Builder withSpeedProfiles(boolean withSpeedProfiles) {
+            this.withSpeedProfiles = withSpeedProfiles;
+            return this;
+        }
+
         public BaseGraph build() {
-            return new BaseGraph(directory, intsForFlags, withElevation, withTurnCosts, segmentSize);
+            return new BaseGraph(directory, intsForFlags, withElevation, withTurnCosts, segmentSize, withAdjacencyIndex, withSpeedProfiles);
         }
 
         public BaseGraph create() {
@@ -575,33 +661,66 @@ public class BaseGraph implements Graph, Closeable {
 
     protected static class EdgeIteratorImpl extends EdgeIteratorStateImpl implements EdgeExplorer, EdgeIterator {
         final EdgeFilter filter;
+        // null if the graph was not frozen (or has no adjacency index) when this explorer was created
+        private final AdjacencyIndex adjacencyIndex;
         int nextEdgeId;
+        // the range of the adjacency index we are iterating if adjacencyIndex is not null
+        private int nextIndex;
+        private int endIndex;
 
         public EdgeIteratorImpl(BaseGraph baseGraph, EdgeFilter filter) {
             super(baseGraph);
             if (filter == null)
                 throw new IllegalArgumentException("Instead null filter use EdgeFilter.ALL_EDGES");
             this.filter = filter;
+            this.adjacencyIndex = baseGraph.adjacencyIndex;
         }
 
         @Override
         public EdgeIterator setBaseNode(int baseNode) {
-            nextEdgeId = edgeId = store.getEdgeRef(store.toNodePointer(baseNode));
+            if (adjacencyIndex == null) {
+                nextEdgeId = edgeId = store.getEdgeRef(store.toNodePointer(baseNode));
+            } else {
+                nextEdgeId = edgeId = EdgeIterator.NO_EDGE;
+                nextIndex = adjacencyIndex.getFirstIndex(baseNode);
+                endIndex = adjacencyIndex.getFirstIndex(baseNode + 1);
+            }
             this.baseNode = baseNode;
             return this;
         }
 
         @Override
         public final boolean next() {
-            while (EdgeIterator.Edge.isValid(nextEdgeId)) {
-                goToNext();
+            while (goToNextEdge()) {
                 if (filter.accept(this))
                     return true;
             }
             return false;
         }
 
-        void goToNext() {
+        /**
+         * Moves to the next adjacent edge without applying the filter.
+         *
+         * @return false if there are no more edges
+         */
+        final boolean goToNextEdge() {
+            if (adjacencyIndex == null) {
+                if (!EdgeIterator.Edge.isValid(nextEdgeId))
+                    return false;
+                goToNext();
+                return true;
+            }
+            if (nextIndex == endIndex)
+                return false;
+            int edgeKey = adjacencyIndex.getEdgeKey(nextIndex++);
+            edgeId = GHUtility.getEdgeFromEdgeKey(edgeKey);
+            edgePointer = store.toEdgePointer(edgeId);
+            reverse = (edgeKey & 1) == 1;
+            adjNode = reverse ? store.getNodeA(edgePointer) : store.getNodeB(edgePointer);
+            return true;
+        }
+
+        private void goToNext() {
             edgePointer = store.toEdgePointer(nextEdgeId);
             edgeId = nextEdgeId;
             int nodeA = store.getNodeA(edgePointer);
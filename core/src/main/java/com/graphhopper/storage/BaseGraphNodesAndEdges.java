@@ -18,6 +18,7 @@
 
 package com.graphhopper.storage;
 
+import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.util.Constants;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.GHUtility;
@@ -230,6 +231,62 @@ class BaseGraphNodesAndEdges {
         }
     }
 
+    /**
+     * Renumbers all nodes such that node i becomes node oldToNew[i]. The node entries are permuted in place by
+     * following the cycles of the permutation, so apart from the given array only a bit set is needed. Edge ids do
+     * not change, so the edge references stored at the nodes and everything that refers to edges stays valid.
+     */
+    public void relabelNodes(int[] oldToNew) {
+        if (oldToNew.length != nodeCount)
+            throw new IllegalArgumentException("The node permutation must have one entry per node: " + oldToNew.length + " vs. " + nodeCount);
+        GHBitSetImpl targets = new GHBitSetImpl(nodeCount);
+        for (int newNode : oldToNew) {
+            if (newNode < 0 || newNode >= nodeCount || targets.contains(newNode))
+                throw new IllegalArgumentException("Invalid node permutation, node " + newNode + " is out of bounds or used twice");
+            targets.add(newNode);
+        }
+
+        for (int edge = 0; edge < edgeCount; edge++) {
+            long edgePointer = toEdgePointer(edge);
+            setNodeA(edgePointer, oldToNew[getNodeA(edgePointer)]);
+            setNodeB(edgePointer, oldToNew[getNodeB(edgePointer)]);
+        }
+
+        // nodes only consist of int values (see the memory layout in the constructor)
+        int intsPerNode = nodeEntryBytes / 4;
+        int[] carry = new int[intsPerNode];
+        int[] tmp = new int[intsPerNode];
+        GHBitSetImpl moved = new GHBitSetImpl(nodeCount);
+        for (int start = 0; start < nodeCount; start++) {
+            if (moved.contains(start))
+                continue;
+            readNode(start, carry);
+            int node = start;
+            do {
+                int target = oldToNew[node];
+                readNode(target, tmp);
+                writeNode(target, carry);
+                moved.add(target);
+                int[] swap = carry;
+                carry = tmp;
+                tmp = swap;
+                node = target;
+            } while (node != start);
+        }
+    }
+
+    private void readNode(int node, int[] values) {
+        long pointer = toNodePointer(node);
+        for (int i = 0; i < values.length; i++)
+            values[i] = nodes.getInt(pointer + 4L * i);
+    }
+
+    private void writeNode(int node, int[] values) {
+        long pointer = toNodePointer(node);
+        for (int i = 0; i < values.length; i++)
+            nodes.setInt(pointer + 4L * i, values[i]);
+    }
+
     public long toNodePointer(int node) {
         if (node < 0 || node >= nodeCount)
             throw new IllegalArgumentException("node: " + node + " out of bounds [0," + nodeCount + "[");
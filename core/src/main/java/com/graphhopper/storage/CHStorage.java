@@ -63,6 +63,8 @@ public class CHStorage {
     private int nodeCount = -1;
 
     private boolean edgeBased;
+    // the shortcuts of a customizable CH do not depend on the weighting, see CHCustomizer
+    private boolean customizable;
     // some shortcuts exceed the maximum storable weight, and we count them here
     private int numShortcutsExceedingWeight;
 
@@ -152,6 +154,7 @@ public class CHStorage {
         shortcuts.setHeader(8, shortcutEntryBytes);
         shortcuts.setHeader(12, numShortcutsExceedingWeight);
         shortcuts.setHeader(16, edgeBased ? 1 : 0);
+        shortcuts.setHeader(20, customizable ? 1 : 0);
         shortcuts.flush();
     }
 
@@ -172,6 +175,7 @@ public class CHStorage {
         shortcutEntryBytes = shortcuts.getHeader(8);
         numShortcutsExceedingWeight = shortcuts.getHeader(12);
         edgeBased = shortcuts.getHeader(16) == 1;
+        customizable = shortcuts.getHeader(20) == 1;
 
         return true;
     }
@@ -248,6 +252,20 @@ public class CHStorage {
         return edgeBased;
     }
 
+    /**
+     * @return true if the shortcuts of this storage were created for all possible weightings such that their weights
+     * can be recalculated for another weighting, see {@link com.graphhopper.routing.ch.CHCustomizer}
+     */
+    public boolean isCustomizable() {
+        return customizable;
+    }
+
+    public void setCustomizable(boolean customizable) {
+        if (customizable && edgeBased)
+            throw new IllegalArgumentException("Customizable CH is only supported for node-based CH");
+        this.customizable = customizable;
+    }
+
     public int getLastShortcut(long nodePointer) {
         return nodesCH.getInt(nodePointer + N_LAST_SC);
     }
@@ -269,6 +287,14 @@ public class CHStorage {
         shortcuts.setInt(shortcutPointer + S_NODEB, nodeB << 1 | (accessFlags & PrepareEncoder.getScBwdDir()) >> 1);
     }
 
+    /**
+     * Changes the directions in which the given shortcut can be used. This is only meant for customizable CH, where
+     * the weighting determines whether a shortcut can be used at all.
+     */
+    public void setAccessFlags(long shortcutPointer, int accessFlags) {
+        setNodesAB(shortcutPointer, getNodeA(shortcutPointer), getNodeB(shortcutPointer), accessFlags);
+    }
+
     public void setWeight(long shortcutPointer, double weight) {
         setWeightInt(shortcutPointer, weightFromDouble(weight));
     }
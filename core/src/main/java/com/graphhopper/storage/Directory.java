@@ -58,6 +58,11 @@ public interface Directory {
 
     DAType getDefaultType(String dataAccess, boolean preferInts);
 
+    /**
+     * @return the sum of the capacities of all memory mapped DataAccess objects in this directory
+     */
+    long getMappedBytes();
+
     /**
      * Removes all contained objects from the directory and releases its resources.
      */
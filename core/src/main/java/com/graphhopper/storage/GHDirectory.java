@@ -182,6 +182,18 @@ public class GHDirectory implements Directory {
             removeDir(new File(location + name));
     }
 
+    @Override
+    public long getMappedBytes() {
+        long bytes = 0;
+        synchronized (map) {
+            for (DataAccess da : map.values()) {
+                if (da instanceof MMapDataAccess)
+                    bytes += da.getCapacity();
+            }
+        }
+        return bytes;
+    }
+
     @Override
     public DAType getDefaultType() {
         return typeFallback;
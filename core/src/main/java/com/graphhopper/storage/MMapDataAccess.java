@@ -25,6 +25,9 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -34,8 +37,7 @@ import java.nio.channels.FileChannel;
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.StringTokenizer;
 
 /**
@@ -44,7 +46,8 @@ import java.util.StringTokenizer;
  * <p>
  * Java presents the mapped memory as a ByteBuffer, and ByteBuffer is not
  * thread-safe, which means that access to a ByteBuffer must be externally
- * synchronized.
+ * synchronized if it changes the position of the buffer. The int, short and byte
+ * accessors only use absolute reads and writes and therefore skip the locking.
  * <p>
  * This class itself is intended to be as thread-safe as other DataAccess
  * implementations are.
@@ -60,7 +63,8 @@ public final class MMapDataAccess extends AbstractDataAccess {
 
     private final boolean allowWrites;
     private RandomAccessFile raFile;
-    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private static final MappedByteBuffer[] EMPTY_SEGMENTS = new MappedByteBuffer[0];
+    private MappedByteBuffer[] segments = EMPTY_SEGMENTS;
 
     MMapDataAccess(String name, String location, boolean allowWrites, int segmentSize) {
         super(name, location, segmentSize);
@@ -79,27 +83,51 @@ public final class MMapDataAccess extends AbstractDataAccess {
         return JVM_MAJOR_VERSION > 1 || (JVM_MAJOR_VERSION == 1 && JVM_MINOR_VERSION >= 9);
     }
 
-    public static void cleanMappedByteBuffer(final ByteBuffer buffer) {
-        // TODO avoid reflection on every call
-        try {
-            AccessController.doPrivileged(new PrivilegedExceptionAction<Object>() {
-                @Override
-                public Object run() throws Exception {
-                    if (jreIsMinimumJava9()) {
+    /**
+     * For >=JDK9 the lookup of sun.misc.Unsafe.invokeCleaner is done only once and the resulting handle is bound to the
+     * unsafe instance, so unmapping a buffer is a plain method call.
+     */
+    private static final class Java9Cleaner {
+        private static final MethodHandle INVOKE_CLEANER = lookup();
+
+        private static MethodHandle lookup() {
+            try {
+                return AccessController.doPrivileged(new PrivilegedExceptionAction<MethodHandle>() {
+                    @Override
+                    public MethodHandle run() throws Exception {
                         // >=JDK9 class sun.misc.Unsafe { void invokeCleaner(ByteBuffer buf) }
                         final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
                         // fetch the unsafe instance and bind it to the virtual MethodHandle
                         final Field f = unsafeClass.getDeclaredField("theUnsafe");
                         f.setAccessible(true);
                         final Object theUnsafe = f.get(null);
-                        final Method method = unsafeClass.getDeclaredMethod("invokeCleaner", ByteBuffer.class);
-                        try {
-                            method.invoke(theUnsafe, buffer);
-                            return null;
-                        } catch (Throwable t) {
-                            throw new RuntimeException(t);
-                        }
+                        return MethodHandles.lookup().findVirtual(unsafeClass, "invokeCleaner",
+                                MethodType.methodType(void.class, ByteBuffer.class)).bindTo(theUnsafe);
                     }
+                });
+            } catch (PrivilegedActionException e) {
+                throw new RuntimeException("Unable to find sun.misc.Unsafe.invokeCleaner", e);
+            }
+        }
+
+        static void clean(ByteBuffer buffer) {
+            try {
+                INVOKE_CLEANER.invokeExact(buffer);
+            } catch (Throwable t) {
+                throw new RuntimeException("Unable to unmap the mapped buffer", t);
+            }
+        }
+    }
+
+    public static void cleanMappedByteBuffer(final ByteBuffer buffer) {
+        if (jreIsMinimumJava9()) {
+            Java9Cleaner.clean(buffer);
+            return;
+        }
+        try {
+            AccessController.doPrivileged(new PrivilegedExceptionAction<Object>() {
+                @Override
+                public Object run() throws Exception {
 
                     if (buffer.getClass().getSimpleName().equals("MappedByteBufferAdapter")) {
                         if (!Constants.ANDROID)
@@ -168,7 +196,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
 
     @Override
     public MMapDataAccess create(long bytes) {
-        if (!segments.isEmpty()) {
+        if (segments.length > 0) {
             throw new IllegalThreadStateException("already created");
         }
         initRandomAccessFile();
@@ -210,14 +238,20 @@ public final class MMapDataAccess extends AbstractDataAccess {
             // This approach is probably problematic but a bit faster if done often.
             // Here we rely on the OS+file system that increasing the file
             // size has no effect on the old mappings!
-            bufferStart += segments.size() * longSegmentSize;
-            newSegments = segmentsToMap - segments.size();
+            int oldSegments = segments.length;
+            bufferStart += oldSegments * longSegmentSize;
+            newSegments = segmentsToMap - oldSegments;
+            // grow a copy and replace the segments only at the end, so a failed mapping keeps the old segments.
+            // the segments are read without locking and this is not a safe publication: like for the other
+            // DataAccess implementations only one thread may access this object while it grows
+            MappedByteBuffer[] tmpSegments = Arrays.copyOf(segments, segmentsToMap);
             // rely on automatically increasing when mapping
             // raFile.setLength(newFileLength);
             for (; i < newSegments; i++) {
-                segments.add(newByteBuffer(bufferStart, longSegmentSize));
+                tmpSegments[oldSegments + i] = newByteBuffer(bufferStart, longSegmentSize);
                 bufferStart += longSegmentSize;
             }
+            segments = tmpSegments;
             return true;
         } catch (IOException ex) {
             // we could get an exception here if buffer is too small and area too large
@@ -264,7 +298,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
 
     @Override
     public boolean loadExisting() {
-        if (segments.size() > 0)
+        if (segments.length > 0)
             throw new IllegalStateException("already initialized");
 
         if (isClosed())
@@ -313,17 +347,17 @@ public final class MMapDataAccess extends AbstractDataAccess {
     public void load(int percentage) {
         if (percentage < 0 || percentage > 100)
             throw new IllegalArgumentException("Percentage for MMapDataAccess.load for " + getName() + " must be in [0,100] but was " + percentage);
-        int max = Math.round(segments.size() * percentage / 100f);
+        int max = Math.round(segments.length * percentage / 100f);
         for (int i = 0; i < max; i++) {
-            segments.get(i).load();
+            segments[i].load();
         }
     }
 
     @Override
     public void close() {
         super.close();
-        clean(0, segments.size());
-        segments.clear();
+        clean(0, segments.length);
+        segments = EMPTY_SEGMENTS;
         Helper.close(raFile);
     }
 
@@ -333,10 +367,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
         int index = (int) (bytePos & indexDivisor);
         if (index + 4 > segmentSizeInBytes)
             throw new IllegalStateException("Padding required. Currently an int cannot be distributed over two segments. " + bytePos);
-        ByteBuffer byteBuffer = segments.get(bufferIndex);
-        synchronized (byteBuffer) {
-            byteBuffer.putInt(index, value);
-        }
+        segments[bufferIndex].putInt(index, value);
     }
 
     @Override
@@ -345,28 +376,20 @@ public final class MMapDataAccess extends AbstractDataAccess {
         int index = (int) (bytePos & indexDivisor);
         if (index + 4 > segmentSizeInBytes)
             throw new IllegalStateException("Padding required. Currently an int cannot be distributed over two segments. " + bytePos);
-        ByteBuffer byteBuffer = segments.get(bufferIndex);
-        synchronized (byteBuffer) {
-            return byteBuffer.getInt(index);
-        }
+        return segments[bufferIndex].getInt(index);
     }
 
     @Override
     public final void setShort(long bytePos, short value) {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
-        ByteBuffer byteBuffer = segments.get(bufferIndex);
-        synchronized (byteBuffer) {
-            if (index + 2 > segmentSizeInBytes) {
-                ByteBuffer byteBufferNext = segments.get(bufferIndex + 1);
-                synchronized (byteBufferNext) {
-                    // special case if short has to be written into two separate segments
-                    byteBuffer.put(index, (byte) value);
-                    byteBufferNext.put(0, (byte) (value >>> 8));
-                }
-            } else {
-                byteBuffer.putShort(index, value);
-            }
+        ByteBuffer byteBuffer = segments[bufferIndex];
+        if (index + 2 > segmentSizeInBytes) {
+            // special case if short has to be written into two separate segments
+            byteBuffer.put(index, (byte) value);
+            segments[bufferIndex + 1].put(0, (byte) (value >>> 8));
+        } else {
+            byteBuffer.putShort(index, value);
         }
     }
 
@@ -374,19 +397,10 @@ public final class MMapDataAccess extends AbstractDataAccess {
     public final short getShort(long bytePos) {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
-        ByteBuffer byteBuffer = segments.get(bufferIndex);
-        if (index + 2 > segmentSizeInBytes) {
-            ByteBuffer byteBufferNext = segments.get(bufferIndex + 1);
-            // never lock byteBuffer and byteBufferNext in a different order to avoid deadlocks (shouldn't happen)
-            synchronized (byteBuffer) {
-                synchronized (byteBufferNext) {
-                    return (short) ((byteBufferNext.get(0) & 0xFF) << 8 | byteBuffer.get(index) & 0xFF);
-                }
-            }
-        }
-        synchronized (byteBuffer) {
-            return byteBuffer.getShort(index);
-        }
+        ByteBuffer byteBuffer = segments[bufferIndex];
+        if (index + 2 > segmentSizeInBytes)
+            return (short) ((segments[bufferIndex + 1].get(0) & 0xFF) << 8 | byteBuffer.get(index) & 0xFF);
+        return byteBuffer.getShort(index);
     }
 
     @Override
@@ -395,7 +409,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
         final int bufferIndex = (int) (bytePos >>> segmentSizePower);
         final int index = (int) (bytePos & indexDivisor);
         final int delta = index + length - segmentSizeInBytes;
-        final ByteBuffer bb1 = segments.get(bufferIndex);
+        final ByteBuffer bb1 = segments[bufferIndex];
         synchronized (bb1) {
             bb1.position(index);
             if (delta > 0) {
@@ -406,7 +420,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
             }
         }
         if (delta > 0) {
-            final ByteBuffer bb2 = segments.get(bufferIndex + 1);
+            final ByteBuffer bb2 = segments[bufferIndex + 1];
             synchronized (bb2) {
                 bb2.position(0);
                 bb2.put(values, length, delta);
@@ -420,7 +434,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
         int delta = index + length - segmentSizeInBytes;
-        final ByteBuffer bb1 = segments.get(bufferIndex);
+        final ByteBuffer bb1 = segments[bufferIndex];
         synchronized (bb1) {
             bb1.position(index);
             if (delta > 0) {
@@ -431,7 +445,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
             }
         }
         if (delta > 0) {
-            final ByteBuffer bb2 = segments.get(bufferIndex + 1);
+            final ByteBuffer bb2 = segments[bufferIndex + 1];
             synchronized (bb2) {
                 bb2.position(0);
                 bb2.get(values, length, delta);
@@ -443,38 +457,25 @@ public final class MMapDataAccess extends AbstractDataAccess {
     public void setByte(long bytePos, byte value) {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
-        final ByteBuffer bb1 = segments.get(bufferIndex);
-        synchronized (bb1) {
-            bb1.position(index);
-            bb1.put(value);
-        }
+        segments[bufferIndex].put(index, value);
     }
 
     @Override
     public byte getByte(long bytePos) {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
-        final ByteBuffer bb1 = segments.get(bufferIndex);
-        synchronized (bb1) {
-            bb1.position(index);
-            return bb1.get();
-        }
+        return segments[bufferIndex].get(index);
     }
 
     @Override
     public long getCapacity() {
-        long cap = 0;
-        for (ByteBuffer bb : segments) {
-            synchronized (bb) {
-                cap += bb.capacity();
-            }
-        }
-        return cap;
+        // all segments are mapped with the same size
+        return (long) segments.length * segmentSizeInBytes;
     }
 
     @Override
     public int getSegments() {
-        return segments.size();
+        return segments.length;
     }
 
     /**
@@ -487,9 +488,8 @@ public final class MMapDataAccess extends AbstractDataAccess {
      */
     private void clean(int from, int to) {
         for (int i = from; i < to; i++) {
-            ByteBuffer bb = segments.get(i);
-            cleanMappedByteBuffer(bb);
-            segments.set(i, null);
+            cleanMappedByteBuffer(segments[i]);
+            segments[i] = null;
         }
     }
 
@@ -0,0 +1,164 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.IntArrayDeque;
+import com.graphhopper.coll.GHBitSetImpl;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.BBox;
+
+import java.util.Arrays;
+
+/**
+ * Calculates node orders that improve the memory locality of a graph: nodes that are close to each other in the road
+ * network should also be close to each other in storage, such that the routing algorithms access fewer different
+ * memory pages. Use {@link BaseGraph#relabelNodes} to apply the order.
+ */
+public class NodeOrdering {
+
+    public enum Order {
+        /**
+         * Sorts the nodes along a Hilbert curve through their coordinates
+         */
+        HILBERT,
+        /**
+         * Numbers the nodes in the order they are found by a breadth-first search
+         */
+        BFS;
+
+        public static Order fromString(String order) {
+            try {
+                return Order.valueOf(Helper.toUpperCase(order));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown node order '" + order + "', use one of: " + Arrays.toString(Order.values()));
+            }
+        }
+    }
+
+    // the coordinates are mapped to a grid with 2^15 x 2^15 cells. the positions on the curve are smaller than 2^30,
+    // so the sort keys below stay positive
+    static final int HILBERT_BITS = 15;
+
+    /**
+     * @return an array that maps every node of the given graph to its new id in the requested order
+     */
+    public static int[] calcOldToNew(BaseGraph graph, Order order) {
+        switch (order) {
+            case HILBERT:
+                return calcHilbertOrder(graph);
+            case BFS:
+                return calcBFSOrder(graph);
+            default:
+                throw new IllegalArgumentException("Unknown node order: " + order);
+        }
+    }
+
+    static int[] calcHilbertOrder(BaseGraph graph) {
+        int nodes = graph.getNodes();
+        BBox bounds = graph.getBounds();
+        NodeAccess na = graph.getNodeAccess();
+        int cells = 1 << HILBERT_BITS;
+        double latFactor = bounds.maxLat > bounds.minLat ? (cells - 1) / (bounds.maxLat - bounds.minLat) : 0;
+        double lonFactor = bounds.maxLon > bounds.minLon ? (cells - 1) / (bounds.maxLon - bounds.minLon) : 0;
+        // the upper 32 bits are the position on the curve and the lower 32 bits the node, so sorting the keys
+        // sorts the nodes along the curve
+        long[] keys = new long[nodes];
+        for (int node = 0; node < nodes; node++) {
+            int x = clamp((int) ((na.getLon(node) - bounds.minLon) * lonFactor), cells - 1);
+            int y = clamp((int) ((na.getLat(node) - bounds.minLat) * latFactor), cells - 1);
+            keys[node] = (hilbertIndex(x, y, HILBERT_BITS) << 32) | node;
+        }
+        Arrays.sort(keys);
+        int[] oldToNew = new int[nodes];
+        for (int i = 0; i < nodes; i++)
+            oldToNew[(int) keys[i]] = i;
+        return oldToNew;
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(max, value));
+    }
+
+    /**
+     * @return the position of the cell (x, y) on the Hilbert curve that fills a grid with 2^bits x 2^bits cells
+     */
+    static long hilbertIndex(int x, int y, int bits) {
+        long d = 0;
+        for (int s = 1 << (bits - 1); s > 0; s >>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return d;
+    }
+
+    static int[] calcBFSOrder(BaseGraph graph) {
+        int nodes = graph.getNodes();
+        int[] oldToNew = new int[nodes];
+        GHBitSetImpl visited = new GHBitSetImpl(nodes);
+        IntArrayDeque queue = new IntArrayDeque();
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        int newId = 0;
+        for (int start = 0; start >= 0 && start < nodes; start = visited.nextClear(start + 1)) {
+            visited.add(start);
+            queue.addLast(start);
+            while (!queue.isEmpty()) {
+                int node = queue.removeFirst();
+                oldToNew[node] = newId++;
+                EdgeIterator iter = explorer.setBaseNode(node);
+                while (iter.next()) {
+                    int adj = iter.getAdjNode();
+                    if (!visited.contains(adj)) {
+                        visited.add(adj);
+                        queue.addLast(adj);
+                    }
+                }
+            }
+        }
+        return oldToNew;
+    }
+
+    /**
+     * Calculates the average difference of the node ids of the two nodes of every edge. The smaller this value the
+     * more likely it is that an edge and its adjacent nodes are stored in the same memory pages, so it can be used as
+     * a proxy for the number of cache misses during routing.
+     */
+    public static double calcAvgNodeIdDelta(BaseGraph graph) {
+        int edges = graph.getEdges();
+        if (edges == 0)
+            return 0;
+        long sum = 0;
+        for (int edge = 0; edge < edges; edge++) {
+            long edgePointer = graph.store.toEdgePointer(edge);
+            sum += Math.abs(graph.store.getNodeA(edgePointer) - graph.store.getNodeB(edgePointer));
+        }
+        return (double) sum / edges;
+    }
+}
@@ -54,7 +54,8 @@ public class RoutingCHEdgeIteratorImpl extends RoutingCHEdgeIteratorStateImpl im
         assert baseGraph.isFrozen();
         baseIterator.setBaseNode(baseNode);
         int lastShortcut = store.getLastShortcut(store.toNodePointer(baseNode));
-        nextEdgeId = edgeId = lastShortcut < 0 ? baseIterator.edgeId : baseGraph.getEdges() + lastShortcut;
+        edgeId = lastShortcut < 0 ? baseIterator.edgeId : baseGraph.getEdges() + lastShortcut;
+        nextEdgeId = lastShortcut < 0 ? EdgeIterator.NO_EDGE : edgeId;
         return this;
     }
 
@@ -70,7 +71,7 @@ public class RoutingCHEdgeIteratorImpl extends RoutingCHEdgeIteratorStateImpl im
             edgeId = nextEdgeId;
             nextEdgeId--;
             if (nextEdgeId < baseGraph.getEdges() || store.getNodeA(store.toShortcutPointer(nextEdgeId - baseGraph.getEdges())) != baseNode)
-                nextEdgeId = baseIterator.edgeId;
+                nextEdgeId = EdgeIterator.NO_EDGE;
             // todo: note that it would be more efficient (but cost more memory) to separate in/out edges,
             //       especially for edge-based where we do not use bidirectional shortcuts
             // this is needed for edge-based CH, see #1525
@@ -83,8 +84,7 @@ public class RoutingCHEdgeIteratorImpl extends RoutingCHEdgeIteratorStateImpl im
         }
 
         // similar to baseIterator.next(), but we apply our own filter and set edgeId
-        while (EdgeIterator.Edge.isValid(baseIterator.nextEdgeId)) {
-            baseIterator.goToNext();
+        while (baseIterator.goToNextEdge()) {
             // we update edgeId even when iterating base edges. is it faster to do this also for base/adjNode?
             edgeId = baseIterator.edgeId;
             if ((outgoing && finiteWeight(false)) || (incoming && finiteWeight(true)))
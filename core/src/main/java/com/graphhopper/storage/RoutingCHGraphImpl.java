@@ -37,6 +37,10 @@ public class RoutingCHGraphImpl implements RoutingCHGraph {
         this.weighting = weighting;
     }
 
+    public CHStorage getCHStorage() {
+        return chStorage;
+    }
+
     @Override
     public int getNodes() {
         return baseGraph.getNodes();
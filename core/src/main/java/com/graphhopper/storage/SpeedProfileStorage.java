@@ -0,0 +1,205 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.ev.SpeedProfile;
+import com.graphhopper.util.Constants;
+import com.graphhopper.util.GHUtility;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores the speed profiles for time-dependent routing. A speed profile contains a factor for every 15 minutes of a
+ * week ({@link #SLOTS} slots) that is applied to the speed the weighting calculates for an edge, e.g. 0.5 during the
+ * rush hour. The edges reference their profile via the {@link SpeedProfile} encoded value. Equal profiles are stored
+ * only once, so the memory usage grows with the number of distinct profiles and not with the number of edges. The
+ * factors are stored in percent, i.e. with one byte per slot.
+ * <p>
+ * Profile 0 is reserved for edges whose speed does not depend on the time, all of its factors are 1.
+ */
+public class SpeedProfileStorage {
+    public static final int SLOTS = 7 * 24 * 4;
+    public static final long SLOT_MILLIS = 15 * 60 * 1000L;
+    // 1970-01-01 was a Thursday, so the first week starts four days later
+    private static final long WEEK_START_MILLIS = 4 * 24 * 3600 * 1000L;
+    private static final int MAX_PERCENT = 255;
+    private final DataAccess profiles;
+    private int profileCount;
+    private int maxPercent;
+    // the ids of the profiles by their factors, only created when profiles are added
+    private Map<ByteBuffer, Integer> profileIds;
+
+    public SpeedProfileStorage(DataAccess profiles) {
+        this.profiles = profiles;
+    }
+
+    public SpeedProfileStorage create(long initBytes) {
+        profiles.create(Math.max(initBytes, SLOTS));
+        double[] constant = new double[SLOTS];
+        Arrays.fill(constant, 1);
+        addProfile(constant);
+        return this;
+    }
+
+    public boolean loadExisting() {
+        if (!profiles.loadExisting())
+            return false;
+
+        GHUtility.checkDAVersion(profiles.getName(), Constants.VERSION_SPEED_PROFILES, profiles.getHeader(0));
+        if (profiles.getHeader(4) != SLOTS)
+            throw new IllegalStateException("Number of slots per speed profile does not match the current configuration: " + profiles.getHeader(4) + " vs. " + SLOTS);
+        profileCount = profiles.getHeader(8);
+        maxPercent = profiles.getHeader(12);
+        return true;
+    }
+
+    public void flush() {
+        profiles.setHeader(0, Constants.VERSION_SPEED_PROFILES);
+        profiles.setHeader(4, SLOTS);
+        profiles.setHeader(8, profileCount);
+        profiles.setHeader(12, maxPercent);
+        profiles.flush();
+    }
+
+    public void close() {
+        profiles.close();
+    }
+
+    public boolean isClosed() {
+        return profiles.isClosed();
+    }
+
+    public long getCapacity() {
+        return profiles.getCapacity();
+    }
+
+    /**
+     * Adds a speed profile, unless an equal profile was added before.
+     *
+     * @param factors the speed factors for all slots of the week starting on Monday 00:00 local time. The factors are
+     *                rounded to two decimal places and must be in [0.01, 2.55].
+     * @return the id of the profile that needs to be set for the edges via the {@link SpeedProfile} encoded value
+     */
+    public int addProfile(double[] factors) {
+        if (factors.length != SLOTS)
+            throw new IllegalArgumentException("A speed profile needs " + SLOTS + " factors, but got " + factors.length);
+        byte[] percents = new byte[SLOTS];
+        int max = 0;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            long percent = Math.round(factors[slot] * 100);
+            if (percent < 1 || percent > MAX_PERCENT)
+                throw new IllegalArgumentException("Speed factors must be in [0.01, 2.55], but was " + factors[slot] + " for slot " + slot);
+            percents[slot] = (byte) percent;
+            max = Math.max(max, (int) percent);
+        }
+        if (profileIds == null)
+            profileIds = loadProfileIds();
+        Integer id = profileIds.get(ByteBuffer.wrap(percents));
+        if (id != null)
+            return id;
+        if (profileCount > SpeedProfile.MAX_ID)
+            throw new IllegalArgumentException("Too many distinct speed profiles, the encoded value " + SpeedProfile.KEY
+                    + " can store at most " + (SpeedProfile.MAX_ID + 1) + " profiles including the default profile 0");
+
+        long pointer = (long) profileCount * SLOTS;
+        profiles.ensureCapacity(pointer + SLOTS);
+        profiles.setBytes(pointer, percents, SLOTS);
+        profileIds.put(ByteBuffer.wrap(percents), profileCount);
+        maxPercent = Math.max(maxPercent, max);
+        return profileCount++;
+    }
+
+    private Map<ByteBuffer, Integer> loadProfileIds() {
+        Map<ByteBuffer, Integer> ids = new HashMap<>(Math.max(16, 2 * profileCount));
+        for (int profile = 0; profile < profileCount; profile++) {
+            byte[] percents = new byte[SLOTS];
+            profiles.getBytes((long) profile * SLOTS, percents, SLOTS);
+            ids.put(ByteBuffer.wrap(percents), profile);
+        }
+        return ids;
+    }
+
+    public int getProfileCount() {
+        return profileCount;
+    }
+
+    public double getFactor(int profile, int slot) {
+        checkProfile(profile);
+        if (slot < 0 || slot >= SLOTS)
+            throw new IllegalArgumentException("Invalid slot: " + slot);
+        return (profiles.getByte((long) profile * SLOTS + slot) & 0xFF) / 100.0;
+    }
+
+    /**
+     * @return the largest factor of all profiles, but at least 1. Dividing the weight of an edge by this value gives a
+     * lower bound for the time-dependent weight of the edge at any time.
+     */
+    public double getMaxFactor() {
+        return Math.max(100, maxPercent) / 100.0;
+    }
+
+    /**
+     * @param localMillis the local time in milliseconds since the epoch, i.e. including the offset from UTC
+     * @return the slot of the week of the given time
+     */
+    public static int getSlot(long localMillis) {
+        return (int) Math.floorMod(Math.floorDiv(localMillis - WEEK_START_MILLIS, SLOT_MILLIS), (long) SLOTS);
+    }
+
+    /**
+     * Calculates the time it takes to traverse an edge with the given speed profile. When the traversal reaches the
+     * next slot the factor of this slot is used for the remaining part of the edge. This way entering an edge later
+     * never means leaving it earlier, i.e. the travel times fulfill the FIFO property.
+     *
+     * @param localMillis    the local time at which the edge is entered, see {@link #getSlot(long)}
+     * @param freeFlowMillis the time it takes to traverse the edge with a factor of 1
+     */
+    public long calcMillis(int profile, long localMillis, long freeFlowMillis) {
+        if (profile == 0 || freeFlowMillis <= 0)
+            return freeFlowMillis;
+        checkProfile(profile);
+        long pointer = (long) profile * SLOTS;
+        long slotIndex = Math.floorDiv(localMillis - WEEK_START_MILLIS, SLOT_MILLIS);
+        int slot = (int) Math.floorMod(slotIndex, (long) SLOTS);
+        double slotEnd = WEEK_START_MILLIS + (slotIndex + 1) * SLOT_MILLIS;
+        double time = localMillis;
+        // the part of the edge that is not yet traversed, expressed as time it takes with a factor of 1
+        double remaining = freeFlowMillis;
+        while (true) {
+            double factor = (profiles.getByte(pointer + slot) & 0xFF) / 100.0;
+            double millis = remaining / factor;
+            if (time + millis <= slotEnd) {
+                time += millis;
+                break;
+            }
+            remaining -= (slotEnd - time) * factor;
+            time = slotEnd;
+            slotEnd += SLOT_MILLIS;
+            slot = slot + 1 == SLOTS ? 0 : slot + 1;
+        }
+        return Math.round(time - localMillis);
+    }
+
+    private void checkProfile(int profile) {
+        if (profile < 0 || profile >= profileCount)
+            throw new IllegalArgumentException("Speed profile " + profile + " does not exist, there are " + profileCount + " profiles");
+    }
+}
@@ -220,6 +220,14 @@ public class LineIntIndex {
         }
     }
 
+    /**
+     * @return the spatial key of the tile the point is in. Points with the same key have the same neighborhood in
+     * {@link #findEdgeIdsInNeighborhood} and nearby tiles have similar keys.
+     */
+    public long getTileKey(double queryLat, double queryLon) {
+        return keyAlgo.encode(keyAlgo.x(queryLon), keyAlgo.y(queryLat));
+    }
+
     /**
      * This method collects edge ids from the neighborhood of a point and puts them into foundEntries.
      * <p>
@@ -17,7 +17,9 @@
  */
 package com.graphhopper.storage.index;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntObjectHashMap;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.Directory;
@@ -25,10 +27,17 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
 
@@ -52,6 +61,8 @@ import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
  * @author Peter Karich
  */
 public class LocationIndexTree implements LocationIndex {
+    // batches with at least this many points are snapped in parallel, if there is a batch pool
+    public static final int MIN_PARALLEL_BATCH_SIZE = 256;
     private final Directory directory;
     private final Graph graph;
     private final Logger logger = LoggerFactory.getLogger(getClass());
@@ -59,6 +70,7 @@ public class LocationIndexTree implements LocationIndex {
     private int maxRegionSearch = 4;
     private int minResolutionInMeter = 300;
     private boolean initialized = false;
+    private ForkJoinPool batchPool;
 
     LineIntIndex lineIntIndex;
 
@@ -119,6 +131,28 @@ public class LocationIndexTree implements LocationIndex {
     }
 
 
+    /**
+     * Large batches of points, see {@link #findClosest(List, EdgeFilter)}, are snapped in parallel using a pool with
+     * the given number of threads. The pool belongs to this index, so concurrent requests cannot use more threads than
+     * this for snapping, and it is shut down by {@link #close()}. The default is 1, i.e. all points are snapped in the
+     * calling thread.
+     */
+    public LocationIndexTree setBatchThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("The number of batch threads must be at least 1 but was " + threads);
+        if (batchPool != null)
+            batchPool.shutdown();
+        batchPool = threads > 1 ? new ForkJoinPool(threads) : null;
+        return this;
+    }
+
+    /**
+     * @return the pool that is used to snap large batches in parallel, or null if they are snapped in the calling thread
+     */
+    public ForkJoinPool getBatchPool() {
+        return batchPool;
+    }
+
     public LocationIndex setResolution(int minResolutionInMeter) {
         if (minResolutionInMeter <= 0)
             throw new IllegalStateException("Negative precision is not allowed!");
@@ -223,6 +257,8 @@ public class LocationIndexTree implements LocationIndex {
 
     public void close() {
         lineIntIndex.close();
+        if (batchPool != null)
+            batchPool.shutdown();
     }
 
     public boolean isClosed() {
@@ -308,6 +344,136 @@ public class LocationIndexTree implements LocationIndex {
         return closestMatch;
     }
 
+    /**
+     * Snaps all points like {@link #findClosest(double, double, EdgeFilter)}, with exactly the same results, but faster
+     * for larger batches: The points are sorted by the tile they are in, and the points of the same tile share the edge
+     * ids of the visited tiles, the results of the edgeFilter and the fetched edge geometries. Batches with at least
+     * {@link #MIN_PARALLEL_BATCH_SIZE} points are snapped in parallel if there is a batch pool, see
+     * {@link #setBatchThreads(int)}, so in this case the edgeFilter must be thread-safe.
+     */
+    @Override
+    public List<Snap> findClosest(List<GHPoint> points, EdgeFilter edgeFilter) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+
+        long[] tileKeys = new long[points.size()];
+        for (int i = 0; i < points.size(); i++)
+            tileKeys[i] = lineIntIndex.getTileKey(points.get(i).lat, points.get(i).lon);
+        // the points sorted by their tile key, the spatial keys also keep nearby tiles close to each other
+        int[] order = IntStream.range(0, points.size()).boxed()
+                .sorted(Comparator.comparingLong(i -> tileKeys[i]))
+                .mapToInt(Integer::intValue).toArray();
+        // the start of every group of points in the same tile within the order array
+        IntArrayList groupStarts = new IntArrayList();
+        for (int i = 0; i < order.length; i++)
+            if (i == 0 || tileKeys[order[i]] != tileKeys[order[i - 1]])
+                groupStarts.add(i);
+        groupStarts.add(order.length);
+
+        Snap[] snaps = new Snap[points.size()];
+        IntConsumer snapGroup = group -> {
+            TileSnapper snapper = new TileSnapper(edgeFilter);
+            for (int i = groupStarts.get(group); i < groupStarts.get(group + 1); i++) {
+                GHPoint point = points.get(order[i]);
+                snaps[order[i]] = snapper.findClosest(point.lat, point.lon);
+            }
+        };
+        int groups = groupStarts.size() - 1;
+        if (batchPool != null && points.size() >= MIN_PARALLEL_BATCH_SIZE)
+            // a parallel stream started from within the pool uses the threads of this pool, not the common pool
+            batchPool.submit(() -> IntStream.range(0, groups).parallel().forEach(snapGroup)).join();
+        else
+            for (int group = 0; group < groups; group++)
+                snapGroup.accept(group);
+        return Arrays.asList(snaps);
+    }
+
+    /**
+     * Snaps points that are all located in the same tile. The neighborhood of the tile is the same for all of them,
+     * so the edge ids of every iteration and the edges that were checked already are cached.
+     */
+    private class TileSnapper {
+        private final EdgeFilter edgeFilter;
+        private final List<IntArrayList> edgeIdsPerIteration = new ArrayList<>();
+        // the edges accepted by the edgeFilter, rejected edges have no geometry
+        private final IntObjectHashMap<CheckedEdge> checkedEdges = new IntObjectHashMap<>();
+
+        TileSnapper(EdgeFilter edgeFilter) {
+            this.edgeFilter = edgeFilter;
+        }
+
+        Snap findClosest(double queryLat, double queryLon) {
+            final Snap closestMatch = new Snap(queryLat, queryLon);
+            CheckedEdge closestEdge = null;
+            IntHashSet seenEdges = new IntHashSet();
+            for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
+                IntArrayList edgeIds = getEdgeIds(queryLat, queryLon, iteration);
+                for (int i = 0; i < edgeIds.size(); i++) {
+                    int edgeId = edgeIds.get(i);
+                    if (!seenEdges.add(edgeId))
+                        continue;
+                    CheckedEdge edge = getCheckedEdge(edgeId);
+                    if (edge.geometry == null)
+                        continue;
+                    double prevDistance = closestMatch.getQueryDistance();
+                    traverseEdge(queryLat, queryLon, edge.edgeState.getBaseNode(), edge.edgeState.getAdjNode(), edge.geometry,
+                            (node, normedDist, wayIndex, pos) -> {
+                                if (normedDist < closestMatch.getQueryDistance()) {
+                                    closestMatch.setQueryDistance(normedDist);
+                                    closestMatch.setClosestNode(node);
+                                    closestMatch.setWayIndex(wayIndex);
+                                    closestMatch.setSnappedPosition(pos);
+                                }
+                            });
+                    if (closestMatch.getQueryDistance() < prevDistance)
+                        closestEdge = edge;
+                }
+                if (closestEdge != null) {
+                    double rMin = calculateRMin(queryLat, queryLon, iteration);
+                    double minDistance = DIST_PLANE.calcDenormalizedDist(closestMatch.getQueryDistance());
+                    if (minDistance < rMin)
+                        break;
+                }
+            }
+
+            if (closestEdge != null) {
+                closestMatch.setClosestEdge(closestEdge.edgeState.detach(false));
+                closestMatch.calcSnappedPoint(DIST_PLANE);
+                closestMatch.setQueryDistance(DIST_PLANE.calcDist(closestMatch.getSnappedPoint().lat, closestMatch.getSnappedPoint().lon, queryLat, queryLon));
+            }
+            return closestMatch;
+        }
+
+        private IntArrayList getEdgeIds(double queryLat, double queryLon, int iteration) {
+            while (edgeIdsPerIteration.size() <= iteration) {
+                IntArrayList edgeIds = new IntArrayList();
+                lineIntIndex.findEdgeIdsInNeighborhood(queryLat, queryLon, edgeIdsPerIteration.size(), edgeIds::add);
+                edgeIdsPerIteration.add(edgeIds);
+            }
+            return edgeIdsPerIteration.get(iteration);
+        }
+
+        private CheckedEdge getCheckedEdge(int edgeId) {
+            CheckedEdge edge = checkedEdges.get(edgeId);
+            if (edge == null) {
+                EdgeIteratorState edgeState = graph.getEdgeIteratorStateForKey(edgeId * 2);
+                edge = new CheckedEdge(edgeState, edgeFilter.accept(edgeState) ? edgeState.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ) : null);
+                checkedEdges.put(edgeId, edge);
+            }
+            return edge;
+        }
+    }
+
+    private static class CheckedEdge {
+        final EdgeIteratorState edgeState;
+        final PointList geometry;
+
+        CheckedEdge(EdgeIteratorState edgeState, PointList geometry) {
+            this.edgeState = edgeState;
+            this.geometry = geometry;
+        }
+    }
+
     @Override
     public void query(BBox queryBBox, Visitor function) {
         lineIntIndex.query(queryBBox, function);
@@ -318,17 +484,21 @@ public class LocationIndexTree implements LocationIndex {
     }
 
     public void traverseEdge(double queryLat, double queryLon, EdgeIteratorState currEdge, EdgeCheck edgeCheck) {
-        int baseNode = currEdge.getBaseNode();
+        traverseEdge(queryLat, queryLon, currEdge.getBaseNode(), currEdge.getAdjNode(), currEdge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ), edgeCheck);
+    }
+
+    /**
+     * @param pointList the geometry of the edge without the base node, see {@link FetchMode#PILLAR_AND_ADJ}
+     */
+    private void traverseEdge(double queryLat, double queryLon, int baseNode, int adjNode, PointList pointList, EdgeCheck edgeCheck) {
         double baseLat = nodeAccess.getLat(baseNode);
         double baseLon = nodeAccess.getLon(baseNode);
         double baseDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, baseLat, baseLon);
 
-        int adjNode = currEdge.getAdjNode();
         double adjLat = nodeAccess.getLat(adjNode);
         double adjLon = nodeAccess.getLon(adjNode);
         double adjDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, adjLat, adjLon);
 
-        PointList pointList = currEdge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ);
         final int len = pointList.size();
 
         int closestTowerNode;
@@ -439,6 +439,7 @@ public class GHUtility {
         return new BaseGraph.Builder(baseGraph.getIntsForFlags())
                 .withTurnCosts(baseGraph.getTurnCostStorage() != null)
                 .set3D(baseGraph.getNodeAccess().is3D())
+                .withAdjacencyIndex(baseGraph.withAdjacencyIndex())
                 .setDir(outdir)
                 .create();
     }
@@ -23,6 +23,7 @@ import com.graphhopper.routing.Path;
 import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
+import com.graphhopper.util.details.PathDetailsBuilder;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.details.PathDetailsFromEdges;
 import com.graphhopper.util.exceptions.ConnectionNotFoundException;
@@ -98,6 +99,7 @@ public class PathMerger {
 
         InstructionList fullInstructions = new InstructionList(tr);
         PointList fullPoints = PointList.EMPTY;
+        PointsFromEdges pointsFromEdges = null;
         List<String> description = new ArrayList<>();
         List<Integer> wayPointIndices = new ArrayList<>();
         for (int pathIndex = 0; pathIndex < paths.size(); pathIndex++) {
@@ -110,33 +112,53 @@ public class PathMerger {
             fullTimeInMillis += path.getTime();
             fullDistance += path.getDistance();
             fullWeight += path.getWeight();
-            if (enableInstructions) {
-                InstructionList il = InstructionsFromEdges.calcInstructions(path, graph, weighting, evLookup, tr);
-
-                if (!il.isEmpty()) {
-                    fullInstructions.addAll(il);
-
-                    // for all paths except the last replace the FinishInstruction with a ViaInstruction
-                    if (pathIndex + 1 < paths.size()) {
-                        ViaInstruction newInstr = new ViaInstruction(fullInstructions.get(fullInstructions.size() - 1));
-                        newInstr.setViaCount(pathIndex + 1);
-                        fullInstructions.set(fullInstructions.size() - 1, newInstr);
-                    }
-                }
 
+            // instructions, points and details are all calculated in a single pass over the edges of the path
+            List<Path.GeometryEdgeVisitor> visitors = new ArrayList<>(3);
+            InstructionList il = null;
+            if (enableInstructions) {
+                il = new InstructionList(tr);
+                if (path.getEdgeCount() == 0)
+                    il.add(new FinishInstruction(graph.getNodeAccess(), path.getEndNode()));
+                else
+                    visitors.add(new InstructionsFromEdges(graph, weighting, evLookup, il));
             }
+            List<PathDetailsBuilder> pathDetailsBuilders = Collections.emptyList();
             if (calcPoints || enableInstructions) {
-                PointList tmpPoints = path.calcPoints();
-                if (fullPoints.isEmpty())
-                    fullPoints = new PointList(tmpPoints.size(), tmpPoints.is3D());
-
+                if (pointsFromEdges == null) {
+                    fullPoints = new PointList(countEdges(paths) + 1, graph.getNodeAccess().is3D());
+                    pointsFromEdges = new PointsFromEdges(fullPoints);
+                }
                 // Remove duplicated points, see #1138
-                if (pathIndex + 1 < paths.size()) {
-                    tmpPoints.removeLastPoint();
+                boolean skipLastPoint = pathIndex + 1 < paths.size();
+                if (path.getEdgeCount() == 0) {
+                    PointList tmpPoints = path.calcPoints();
+                    if (skipLastPoint)
+                        tmpPoints.removeLastPoint();
+                    pointsFromEdges.add(tmpPoints, 0, tmpPoints.size());
+                } else {
+                    pointsFromEdges.setPath(path, skipLastPoint);
+                    visitors.add(pointsFromEdges);
                 }
+                pathDetailsBuilders = PathDetailsFromEdges.createBuilders(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, graph);
+                if (!pathDetailsBuilders.isEmpty())
+                    visitors.add(new PathDetailsFromEdges(pathDetailsBuilders, origPoints));
+            }
+            path.forEveryEdge(visitors);
 
-                fullPoints.add(tmpPoints);
-                responsePath.addPathDetails(PathDetailsFromEdges.calcDetails(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, origPoints, graph));
+            if (enableInstructions && !il.isEmpty()) {
+                fullInstructions.addAll(il);
+
+                // for all paths except the last replace the FinishInstruction with a ViaInstruction
+                if (pathIndex + 1 < paths.size()) {
+                    ViaInstruction newInstr = new ViaInstruction(fullInstructions.get(fullInstructions.size() - 1));
+                    newInstr.setViaCount(pathIndex + 1);
+                    fullInstructions.set(fullInstructions.size() - 1, newInstr);
+                }
+            }
+            if (calcPoints || enableInstructions) {
+                if (!pathDetailsBuilders.isEmpty())
+                    responsePath.addPathDetails(PathDetailsFromEdges.buildDetails(pathDetailsBuilders));
                 wayPointIndices.add(origPoints);
                 if (pathIndex == paths.size() - 1)
                     wayPointIndices.add(fullPoints.size() - 1);
@@ -146,8 +168,10 @@ public class PathMerger {
             allFound = allFound && path.isFound();
         }
 
-        if (!fullPoints.isEmpty() && fullPoints.is3D)
-            calcAscendDescend(responsePath, fullPoints);
+        if (!fullPoints.isEmpty() && fullPoints.is3D) {
+            responsePath.setAscend(pointsFromEdges.ascend);
+            responsePath.setDescend(pointsFromEdges.descend);
+        }
 
         if (enableInstructions) {
             fullInstructions = updateInstructionsWithContext(fullInstructions);
@@ -226,24 +250,58 @@ public class PathMerger {
         return instructions;
     }
 
-    private void calcAscendDescend(final ResponsePath responsePath, final PointList pointList) {
-        double ascendMeters = 0;
-        double descendMeters = 0;
-        double lastEle = pointList.getEle(0);
-        for (int i = 1; i < pointList.size(); ++i) {
-            double ele = pointList.getEle(i);
-            double diff = Math.abs(ele - lastEle);
+    private static int countEdges(List<Path> paths) {
+        int edges = 0;
+        for (Path path : paths) {
+            edges += path.getEdgeCount();
+        }
+        return edges;
+    }
 
-            if (ele > lastEle)
-                ascendMeters += diff;
-            else
-                descendMeters += diff;
+    /**
+     * Appends the points of the visited edges to the merged point list and sums up the elevation differences
+     * between consecutive points on the fly.
+     */
+    private static class PointsFromEdges implements Path.GeometryEdgeVisitor {
+        private final PointList points;
+        private int lastEdgeIndex;
+        private boolean skipLastPoint;
+        double ascend;
+        double descend;
+
+        PointsFromEdges(PointList points) {
+            this.points = points;
+        }
 
-            lastEle = ele;
+        void setPath(Path path, boolean skipLastPoint) {
+            this.lastEdgeIndex = path.getEdgeCount() - 1;
+            this.skipLastPoint = skipLastPoint;
+        }
+
+        @Override
+        public void next(EdgeIteratorState edge, PointList geometry, int index, int prevEdgeId) {
+            // the base node was already added by the previous edge
+            int from = index == 0 ? 0 : 1;
+            int to = skipLastPoint && index == lastEdgeIndex ? geometry.size() - 1 : geometry.size();
+            add(geometry, from, to);
+        }
+
+        void add(PointList pointList, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (points.is3D() && !points.isEmpty()) {
+                    double diff = pointList.getEle(i) - points.getEle(points.size() - 1);
+                    if (diff > 0)
+                        ascend += diff;
+                    else
+                        descend -= diff;
+                }
+                points.add(pointList, i);
+            }
+        }
 
+        @Override
+        public void finish() {
         }
-        responsePath.setAscend(ascendMeters);
-        responsePath.setDescend(descendMeters);
     }
 
     public void setFavoredHeading(double favoredHeading) {
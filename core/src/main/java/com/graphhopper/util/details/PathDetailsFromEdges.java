@@ -22,7 +22,7 @@ import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.util.EdgeIteratorState;
-import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.PointList;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -37,7 +37,7 @@ import java.util.stream.Collectors;
  * @author Robin Boldt
  * @see PathDetail
  */
-public class PathDetailsFromEdges implements Path.EdgeVisitor {
+public class PathDetailsFromEdges implements Path.GeometryEdgeVisitor {
 
     private final List<PathDetailsBuilder> calculators;
     private int lastIndex = 0;
@@ -56,18 +56,36 @@ public class PathDetailsFromEdges implements Path.EdgeVisitor {
     public static Map<String, List<PathDetail>> calcDetails(Path path, EncodedValueLookup evLookup, Weighting weighting,
                                                             List<String> requestedPathDetails, PathDetailsBuilderFactory pathBuilderFactory,
                                                             int previousIndex, Graph graph) {
-        if (!path.isFound() || requestedPathDetails.isEmpty())
+        List<PathDetailsBuilder> pathBuilders = createBuilders(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, graph);
+        if (pathBuilders.isEmpty())
             return Collections.emptyMap();
+
+        path.forEveryEdge(new PathDetailsFromEdges(pathBuilders, previousIndex));
+        return buildDetails(pathBuilders);
+    }
+
+    /**
+     * Creates the PathDetailsBuilders for a Path, e.g. to run a PathDetailsFromEdges along with other visitors in the
+     * same pass over the path, see {@link Path#forEveryEdge(List)}.
+     *
+     * @return the builders or an empty list if there is nothing to calculate
+     */
+    public static List<PathDetailsBuilder> createBuilders(Path path, EncodedValueLookup evLookup, Weighting weighting,
+                                                          List<String> requestedPathDetails, PathDetailsBuilderFactory pathBuilderFactory,
+                                                          Graph graph) {
+        if (!path.isFound() || requestedPathDetails.isEmpty())
+            return Collections.emptyList();
         HashSet<String> uniquePD = new HashSet<>(requestedPathDetails.size());
         Collection<String> res = requestedPathDetails.stream().filter(pd -> !uniquePD.add(pd)).collect(Collectors.toList());
         if (!res.isEmpty()) throw new IllegalArgumentException("Do not use duplicate path details: " + res);
 
-        List<PathDetailsBuilder> pathBuilders = pathBuilderFactory.createPathDetailsBuilders(requestedPathDetails, path, evLookup, weighting, graph);
-        if (pathBuilders.isEmpty())
-            return Collections.emptyMap();
-
-        path.forEveryEdge(new PathDetailsFromEdges(pathBuilders, previousIndex));
+        return pathBuilderFactory.createPathDetailsBuilders(requestedPathDetails, path, evLookup, weighting, graph);
+    }
 
+    /**
+     * @return the PathDetails collected by the given builders, mapped by their names
+     */
+    public static Map<String, List<PathDetail>> buildDetails(List<PathDetailsBuilder> pathBuilders) {
         Map<String, List<PathDetail>> pathDetails = new HashMap<>(pathBuilders.size());
         for (PathDetailsBuilder builder : pathBuilders) {
             Map.Entry<String, List<PathDetail>> entry = builder.build();
@@ -80,14 +98,15 @@ public class PathDetailsFromEdges implements Path.EdgeVisitor {
     }
 
     @Override
-    public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+    public void next(EdgeIteratorState edge, PointList geometry, int index, int prevEdgeId) {
         for (PathDetailsBuilder calc : calculators) {
             if (calc.isEdgeDifferentToLastEdge(edge)) {
                 calc.endInterval(lastIndex);
                 calc.startInterval(lastIndex);
             }
         }
-        lastIndex += edge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ).size();
+        // the base node is already counted by the previous edge
+        lastIndex += geometry.size() - 1;
     }
 
     @Override
@@ -23,10 +23,17 @@ import com.graphhopper.config.Profile;
 import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.reader.dem.SkadiProvider;
+import com.graphhopper.routing.RouterMetrics;
+import com.graphhopper.routing.SearchStatePool;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
 import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.ev.EdgeIntAccess;
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.OSMWayID;
 import com.graphhopper.routing.ev.RoadEnvironment;
+import com.graphhopper.routing.ev.SpeedProfile;
 import com.graphhopper.routing.ev.Subnetwork;
+import com.graphhopper.routing.ev.VehicleSpeed;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.DefaultSnapFilter;
 import com.graphhopper.routing.util.EdgeFilter;
@@ -34,10 +41,13 @@ import com.graphhopper.routing.util.countryrules.CountryRuleFactory;
 import com.graphhopper.routing.util.parsers.DefaultTagParserFactory;
 import com.graphhopper.routing.util.parsers.OSMRoadEnvironmentParser;
 import com.graphhopper.routing.util.parsers.TagParser;
+import com.graphhopper.routing.weighting.TrafficOverlay;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.search.KVStorage;
+import com.graphhopper.storage.SpeedProfileStorage;
 import com.graphhopper.storage.IntsRef;
+import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
@@ -71,6 +81,7 @@ import static com.graphhopper.util.GHUtility.createCircle;
 import static com.graphhopper.util.GHUtility.createRectangle;
 import static com.graphhopper.util.Parameters.Algorithms.*;
 import static com.graphhopper.util.Parameters.Curbsides.*;
+import static com.graphhopper.util.Parameters.Routing.DEPARTURE_TIME;
 import static com.graphhopper.util.Parameters.Routing.TIMEOUT_MS;
 import static com.graphhopper.util.Parameters.Routing.U_TURN_COSTS;
 import static java.util.Arrays.asList;
@@ -418,6 +429,40 @@ public class GraphHopperTest {
         testImportCloseAndLoad(true, true, true, false);
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {"hilbert", "bfs"})
+    public void testNodeOrderWithTurnCosts(String nodeOrder) {
+        final String profile = "profile";
+        List<GHRequest> requests = Arrays.asList(
+                new GHRequest(43.727687, 7.418737, 43.74958, 7.436566),
+                new GHRequest(43.747418, 7.430371, 43.746929, 7.430458),
+                new GHRequest(43.730729, 7.42135, 43.741247, 7.434419));
+        List<ResponsePath> expected = new ArrayList<>();
+        for (boolean reorder : new boolean[]{false, true}) {
+            GraphHopperConfig config = new GraphHopperConfig().
+                    putObject("graph.location", GH_LOCATION).
+                    putObject("datareader.file", MONACO).
+                    putObject("import.osm.ignored_highways", "").
+                    setProfiles(Collections.singletonList(new CustomProfile(profile).setVehicle("car").setTurnCosts(true)));
+            if (reorder)
+                config.putObject("graph.node_order", nodeOrder);
+            GraphHopper hopper = new GraphHopper().init(config).importOrLoad();
+            for (int i = 0; i < requests.size(); i++) {
+                GHResponse rsp = hopper.route(requests.get(i).setProfile(profile));
+                assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+                if (!reorder) {
+                    expected.add(rsp.getBest());
+                } else {
+                    assertEquals(expected.get(i).getDistance(), rsp.getBest().getDistance(), 1.e-3);
+                    assertEquals(expected.get(i).getTime(), rsp.getBest().getTime());
+                    assertEquals(expected.get(i).getPoints(), rsp.getBest().getPoints());
+                }
+            }
+            hopper.close();
+            Helper.removeDir(new File(GH_LOCATION));
+        }
+    }
+
     @Test
     public void testImportThenLoadFlexible() {
         testImportCloseAndLoad(false, false, false, false);
@@ -844,6 +889,160 @@ public class GraphHopperTest {
         assertEquals(Instruction.FINISH, res.getInstructions().get(1).getSign());
     }
 
+    @Test
+    public void testMonacoViaPooledSearchStates() {
+        final String profile = "profile";
+        final String vehicle = "car";
+
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new CustomProfile(profile).setVehicle(vehicle)).
+                setStoreOnFlush(true).
+                setSearchStatePool(new SearchStatePool());
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper.importOrLoad();
+
+        List<GHPoint> points = Arrays.asList(new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566),
+                new GHPoint(43.739213, 7.427806), new GHPoint(43.727687, 7.418737));
+        for (String mode : Arrays.asList("ch", "lm", "flex")) {
+            GHRequest req = new GHRequest(points).setProfile(profile);
+            req.putHint(CH.DISABLE, !mode.equals("ch"));
+            req.putHint(Landmark.DISABLE, !mode.equals("lm"));
+            req.putHint(Routing.PRIMITIVE_SEARCH, false);
+            GHResponse expected = hopper.route(req);
+            assertFalse(expected.hasErrors(), expected.getErrors().toString());
+
+            req.getHints().remove(Routing.PRIMITIVE_SEARCH);
+            for (int i = 0; i < 2; i++) {
+                GHResponse rsp = hopper.route(req);
+                assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+                assertEquals(expected.getBest().getRouteWeight(), rsp.getBest().getRouteWeight(), 1.e-3, mode);
+                assertEquals(expected.getBest().getDistance(), rsp.getBest().getDistance(), 1.e-1, mode);
+            }
+        }
+        // there is one search state per mode and all further searches re-use it
+        assertEquals(3, hopper.getSearchStatePool().getMisses());
+        assertEquals(3 * 6 - 3, hopper.getSearchStatePool().getHits());
+    }
+
+    @Test
+    public void testMonacoRouterMetrics() {
+        final String profile = "profile";
+        final String vehicle = "car";
+
+        List<String> searches = new ArrayList<>();
+        List<Long> visitedNodes = new ArrayList<>();
+        AtomicInteger phases = new AtomicInteger();
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new CustomProfile(profile).setVehicle(vehicle)).
+                setStoreOnFlush(true).
+                setRouterMetrics(new RouterMetrics() {
+                    @Override
+                    public void lookupDone(long nanos) {
+                        phases.incrementAndGet();
+                    }
+
+                    @Override
+                    public void queryGraphCreated(long nanos) {
+                        phases.incrementAndGet();
+                    }
+
+                    @Override
+                    public void searchDone(String profile, String algorithm, long nanos, long visited) {
+                        searches.add(profile + "|" + algorithm);
+                        visitedNodes.add(visited);
+                    }
+
+                    @Override
+                    public void pathsMerged(long nanos) {
+                        phases.incrementAndGet();
+                    }
+                });
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile);
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(rsp.getHints().getLong("visited_nodes.sum", 0), visitedNodes.get(0));
+        req.putHint(CH.DISABLE, true);
+        rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(rsp.getHints().getLong("visited_nodes.sum", 0), visitedNodes.get(1));
+        assertEquals(Arrays.asList("profile|dijkstrabi|ch", "profile|astarbi|beeline"), searches);
+        assertEquals(6, phases.get());
+
+        // failed requests are not reported
+        rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("unknown"));
+        assertTrue(rsp.hasErrors());
+        assertEquals(2, searches.size());
+    }
+
+    @Test
+    public void testMonacoTrace() {
+        final String profile = "profile";
+        final String vehicle = "car";
+
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new CustomProfile(profile).setVehicle(vehicle)).
+                setStoreOnFlush(true);
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest(Arrays.asList(new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566),
+                new GHPoint(43.739213, 7.427806))).setProfile(profile);
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertFalse(rsp.getTrace().isEnabled());
+
+        req.putHint(Routing.DEBUG, true);
+        rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        List<String> names = new ArrayList<>();
+        Map<String, Long> counters = new HashMap<>();
+        for (Trace.Span span : rsp.getTrace().getSpans()) {
+            names.add(span.getDepth() + ":" + span.getName());
+            assertTrue(span.getDurationNanos() >= 0, span.toString());
+            span.getCounters().forEach((key, value) -> counters.merge(span.getName() + "." + key, value, Long::sum));
+        }
+        assertEquals(Arrays.asList("0:route", "1:lookup", "1:query_graph", "1:search", "2:leg", "3:extraction",
+                "2:leg", "3:extraction", "1:path_merge"), names);
+        assertEquals(3, counters.get("lookup.points"));
+        assertEquals(3, counters.get("query_graph.virtual_nodes"));
+        assertEquals(rsp.getHints().getLong("visited_nodes.sum", 0), counters.get("search.visited_nodes"));
+        assertEquals(rsp.getHints().getLong("visited_nodes.sum", 0), counters.get("leg.visited_nodes"));
+        assertEquals(rsp.getBest().getPoints().size(), counters.get("path_merge.points"));
+        assertEquals(rsp.getBest().getInstructions().size(), counters.get("path_merge.instructions"));
+        assertExtractionsWithinLegs(rsp.getTrace());
+
+        // one extraction span per alternative
+        req = new GHRequest(43.729057, 7.41251, 43.740298, 7.423561).setAlgorithm(ALT_ROUTE).setProfile(profile);
+        req.putHint(Routing.DEBUG, true);
+        rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertTrue(rsp.getAll().size() > 1);
+        assertEquals(rsp.getAll().size(), rsp.getTrace().getSpans().stream().filter(s -> s.getName().equals("extraction")).count());
+        assertExtractionsWithinLegs(rsp.getTrace());
+    }
+
+    private static void assertExtractionsWithinLegs(Trace trace) {
+        Trace.Span leg = null;
+        for (Trace.Span span : trace.getSpans()) {
+            if (span.getName().equals("leg"))
+                leg = span;
+            else if (span.getName().equals("extraction")) {
+                assertNotNull(leg);
+                assertTrue(span.getStartNanos() >= leg.getStartNanos(), span.toString());
+                assertTrue(span.getStartNanos() + span.getDurationNanos() <= leg.getStartNanos() + leg.getDurationNanos(), span.toString());
+            }
+        }
+    }
+
     @Test
     public void testMonacoPathDetails() {
         final String profile = "profile";
@@ -2837,5 +3036,164 @@ public class GraphHopperTest {
         }
     }
 
-}
+    @Test
+    public void testDepartureTime() {
+        final String profile = "car";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString(SpeedProfile.KEY).
+                setProfiles(new CustomProfile(profile).setVehicle("car"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper.importOrLoad();
+
+        // on Mondays from 8:00 to 9:00 all roads are only half as fast
+        double[] factors = new double[SpeedProfileStorage.SLOTS];
+        Arrays.fill(factors, 1);
+        for (int slot = 8 * 4; slot < 9 * 4; slot++)
+            factors[slot] = 0.5;
+        int rushHour = hopper.getBaseGraph().getSpeedProfileStorage().addProfile(factors);
+        IntEncodedValue speedProfileEnc = hopper.getEncodingManager().getIntEncodedValue(SpeedProfile.KEY);
+        AllEdgesIterator iter = hopper.getBaseGraph().getAllEdges();
+        while (iter.next())
+            iter.set(speedProfileEnc, rushHour, rushHour);
+
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile);
+        req.putHint(CH.DISABLE, true);
+        req.putHint(Landmark.DISABLE, true);
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        long time = rsp.getBest().getTime();
+
+        req.putHint(DEPARTURE_TIME, "2023-05-15T07:00:00+02:00");
+        rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(time, rsp.getBest().getTime(), 10);
+
+        req.putHint(DEPARTURE_TIME, "2023-05-15T08:00:00+02:00");
+        rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(2 * time, rsp.getBest().getTime(), 10);
+
+        // the landmarks can still be used to speed up the search
+        req.putHint(Landmark.DISABLE, false);
+        GHResponse lmRsp = hopper.route(req);
+        assertFalse(lmRsp.hasErrors(), lmRsp.getErrors().toString());
+        assertEquals(rsp.getBest().getTime(), lmRsp.getBest().getTime());
+        assertEquals(rsp.getBest().getRouteWeight(), lmRsp.getBest().getRouteWeight(), 1.e-6);
+
+        req.putHint(CH.DISABLE, false);
+        rsp = hopper.route(req);
+        assertTrue(rsp.hasErrors());
+        assertTrue(rsp.getErrors().get(0).getMessage().contains("'departure_time' parameter is currently not supported for speed mode"), rsp.getErrors().toString());
 
+        req.putHint(CH.DISABLE, true);
+        req.putHint(DEPARTURE_TIME, "monday morning");
+        rsp = hopper.route(req);
+        assertTrue(rsp.hasErrors());
+        assertTrue(rsp.getErrors().get(0).getMessage().contains("Cannot parse the 'departure_time' parameter"), rsp.getErrors().toString());
+    }
+
+    @Test
+    public void testCustomizeCH() {
+        final String profile = "car";
+        GraphHopper hopper = new GraphHopper();
+        hopper.init(new GraphHopperConfig().
+                putObject("graph.location", GH_LOCATION).
+                putObject("datareader.file", MONACO).
+                putObject("import.osm.ignored_highways", "").
+                putObject("prepare.ch.customizable", true).
+                putObject("prepare.ch.customization_threads", 2).
+                setProfiles(Collections.singletonList(new CustomProfile(profile).setVehicle("car"))).
+                setCHProfiles(Collections.singletonList(new CHProfile(profile))));
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile);
+        GHResponse chRsp = hopper.route(req);
+        GHResponse flexRsp = hopper.route(new GHRequest(req.getPoints()).setProfile(profile).putHint(CH.DISABLE, true));
+        assertFalse(chRsp.hasErrors(), chRsp.getErrors().toString());
+        assertFalse(flexRsp.hasErrors(), flexRsp.getErrors().toString());
+        assertEquals(flexRsp.getBest().getRouteWeight(), chRsp.getBest().getRouteWeight(), 1.e-3);
+        assertEquals(flexRsp.getBest().getDistance(), chRsp.getBest().getDistance(), 1);
+
+        // slow down the fast roads, the shortcut weights are only updated when we customize the CH
+        DecimalEncodedValue speedEnc = hopper.getEncodingManager().getDecimalEncodedValue(VehicleSpeed.key("car"));
+        AllEdgesIterator iter = hopper.getBaseGraph().getAllEdges();
+        while (iter.next())
+            if (iter.get(speedEnc) > 40)
+                iter.set(speedEnc, 10, 10);
+        flexRsp = hopper.route(new GHRequest(req.getPoints()).setProfile(profile).putHint(CH.DISABLE, true));
+        assertFalse(flexRsp.hasErrors(), flexRsp.getErrors().toString());
+        assertTrue(flexRsp.getBest().getTime() > chRsp.getBest().getTime());
+
+        RoutingCHGraph before = hopper.getCHGraphs().get(profile);
+        hopper.customizeCH(profile);
+        assertNotSame(before, hopper.getCHGraphs().get(profile));
+        chRsp = hopper.route(req);
+        assertFalse(chRsp.hasErrors(), chRsp.getErrors().toString());
+        assertEquals(flexRsp.getBest().getRouteWeight(), chRsp.getBest().getRouteWeight(), 1.e-3);
+        assertEquals(flexRsp.getBest().getTime(), chRsp.getBest().getTime(), 10);
+
+        assertThrows(IllegalArgumentException.class, () -> hopper.customizeCH("bike"));
+        hopper.close();
+    }
+
+    @Test
+    public void testTrafficOverlay() {
+        final String profile = "car";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString(OSMWayID.KEY).
+                setProfiles(new CustomProfile(profile).setVehicle("car"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).
+                setPathDetails(Collections.singletonList(Parameters.Details.EDGE_ID));
+        req.putHint(CH.DISABLE, true);
+        req.putHint(Landmark.DISABLE, true);
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        ResponsePath before = rsp.getBest();
+
+        // close the edges in the middle of the fastest route and slow down all others
+        List<TrafficOverlay.Update> updates = new ArrayList<>();
+        Set<Integer> closedEdges = new HashSet<>();
+        List<PathDetail> edgeIds = before.getPathDetails().get(Parameters.Details.EDGE_ID);
+        for (PathDetail detail : edgeIds.subList(edgeIds.size() / 3, 2 * edgeIds.size() / 3))
+            closedEdges.add(((Number) detail.getValue()).intValue());
+        for (int edge = 0; edge < hopper.getBaseGraph().getEdges(); edge++)
+            updates.add(TrafficOverlay.Update.forEdge(edge, closedEdges.contains(edge) ? 0 : 0.8));
+        hopper.getTrafficOverlay().apply(updates);
+        rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        ResponsePath flex = rsp.getBest();
+        assertTrue(flex.getTime() > before.getTime() / 0.8, flex.getTime() + " vs. " + before.getTime());
+        for (PathDetail detail : flex.getPathDetails().get(Parameters.Details.EDGE_ID))
+            assertFalse(closedEdges.contains(((Number) detail.getValue()).intValue()));
+
+        // only slowdowns are allowed, so the landmarks can still be used
+        req.putHint(Landmark.DISABLE, false);
+        rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(flex.getRouteWeight(), rsp.getBest().getRouteWeight(), 1.e-6);
+        assertEquals(flex.getTime(), rsp.getBest().getTime());
+
+        // the CH shortcuts are not updated, so speed mode ignores the overlay
+        req.putHint(CH.DISABLE, false);
+        rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(before.getTime(), rsp.getBest().getTime());
+
+        // updates by OSM way id
+        hopper.getTrafficOverlay().clear();
+        int edge = ((Number) before.getPathDetails().get(Parameters.Details.EDGE_ID).get(0).getValue()).intValue();
+        IntEncodedValue wayIdEnc = hopper.getEncodingManager().getIntEncodedValue(OSMWayID.KEY);
+        int wayId = hopper.getBaseGraph().getEdgeIteratorState(edge, Integer.MIN_VALUE).get(wayIdEnc);
+        assertTrue(hopper.getTrafficOverlay().apply(Collections.singletonList(TrafficOverlay.Update.forOsmWay(wayId, 0.5))) > 0);
+        assertEquals(0.5, hopper.getTrafficOverlay().getSnapshot().getSpeedFactor(edge), 1.e-6);
+    }
+}
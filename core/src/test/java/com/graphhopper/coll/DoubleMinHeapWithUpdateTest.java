@@ -0,0 +1,132 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.coll;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DoubleMinHeapWithUpdateTest implements BinaryHeapTestInterface {
+
+    private DoubleMinHeapWithUpdate heap;
+
+    @Override
+    public void create(int capacity) {
+        heap = new DoubleMinHeapWithUpdate(capacity);
+    }
+
+    @Override
+    public int size() {
+        return heap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    @Override
+    public void push(int id, float val) {
+        heap.push(id, val);
+    }
+
+    @Override
+    public int peekId() {
+        return heap.peekId();
+    }
+
+    @Override
+    public float peekVal() {
+        return (float) heap.peekValue();
+    }
+
+    @Override
+    public void update(int id, float val) {
+        heap.update(id, val);
+    }
+
+    @Override
+    public int poll() {
+        return heap.poll();
+    }
+
+    @Override
+    public void clear() {
+        heap.clear();
+    }
+
+    @Test
+    public void grow() {
+        create(2);
+        heap.push(7, 3.0);
+        heap.push(0, 2.0);
+        heap.push(1000, 1.0);
+        heap.push(5, 4.0);
+        assertEquals(4, heap.size());
+        assertTrue(heap.contains(1000));
+        assertFalse(heap.contains(1001));
+        assertEquals(1000, heap.poll());
+        assertEquals(0, heap.poll());
+        assertEquals(7, heap.poll());
+        assertEquals(5, heap.poll());
+        assertTrue(heap.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> heap.push(-1, 1.0));
+    }
+
+    @Test
+    public void duplicateElements() {
+        create(5);
+        heap.push(1, 0.2);
+        heap.push(2, 0.1);
+        assertEquals(2, heap.poll());
+        heap.push(2, 0.6);
+        assertThrows(IllegalStateException.class, () -> heap.push(2, 0.4));
+        assertThrows(IllegalStateException.class, () -> heap.update(3, 0.4));
+    }
+
+    @Test
+    public void doublePrecision() {
+        // values that would be equal when stored as floats must still be ordered correctly
+        create(3);
+        heap.push(0, 1_000_000.02);
+        heap.push(1, 1_000_000.01);
+        assertEquals(1, heap.poll());
+        assertEquals(0, heap.poll());
+    }
+
+    @Test
+    public void randomPushsThenPolls() {
+        Random rnd = new Random(42);
+        create(10);
+        PriorityQueue<Double> pq = new PriorityQueue<>();
+        for (int i = 0; i < 1000; i++) {
+            double val = rnd.nextDouble();
+            heap.push(i, val);
+            pq.add(val);
+        }
+        while (!pq.isEmpty()) {
+            assertEquals(pq.poll(), heap.peekValue());
+            heap.poll();
+        }
+        assertTrue(heap.isEmpty());
+    }
+}
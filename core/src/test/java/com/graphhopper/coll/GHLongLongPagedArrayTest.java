@@ -0,0 +1,126 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GHLongLongPagedArrayTest {
+    private final String location = "./target/tmp/paged-array";
+
+    @AfterEach
+    public void tearDown() {
+        Helper.removeDir(new File(location));
+    }
+
+    @Test
+    public void testEmptyValueIfMissing() {
+        GHLongLongPagedArray instance = new GHLongLongPagedArray(new RAMDirectory(), "ids", DAType.RAM, 5, -1);
+        assertEquals(-1, instance.get(404));
+        assertEquals(-1, instance.put(404, 21));
+        assertEquals(21, instance.get(404));
+        assertEquals(21, instance.put(404, 0));
+        assertEquals(0, instance.get(404));
+        // same page, but not set
+        assertEquals(-1, instance.get(405));
+        assertEquals(1, instance.getSize());
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> instance.put(1, -1));
+        assertTrue(ex.getMessage().contains("Value cannot be the 'empty value' -1"), ex.getMessage());
+    }
+
+    @Test
+    public void testValueRange() {
+        GHLongLongPagedArray instance = new GHLongLongPagedArray(new RAMDirectory(), "ids", DAType.RAM, 5, -1);
+        long max = instance.getMaxValue();
+        assertEquals((1L << 39) - 2, max);
+        instance.put(1, max);
+        instance.put(2, -(1L << 39) + 1);
+        instance.put(3, Integer.MIN_VALUE - 3L);
+        assertEquals(max, instance.get(1));
+        assertEquals(-(1L << 39) + 1, instance.get(2));
+        assertEquals(Integer.MIN_VALUE - 3L, instance.get(3));
+        assertThrows(IllegalArgumentException.class, () -> instance.put(4, max + 1));
+        assertThrows(IllegalArgumentException.class, () -> instance.put(4, Long.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> instance.put(4, Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testKeysOutsideOfPages() {
+        GHLongLongPagedArray instance = new GHLongLongPagedArray(new RAMDirectory(), "ids", DAType.RAM, 5, -1);
+        instance.put(-Long.MAX_VALUE, 3);
+        instance.put(GHLongLongPagedArray.MAX_PAGED_KEY, 4);
+        instance.put(Long.MAX_VALUE, 5);
+        instance.put(5_000_000_000L, 6);
+        assertEquals(3, instance.get(-Long.MAX_VALUE));
+        assertEquals(4, instance.get(GHLongLongPagedArray.MAX_PAGED_KEY));
+        assertEquals(5, instance.get(Long.MAX_VALUE));
+        assertEquals(6, instance.get(5_000_000_000L));
+        assertEquals(-1, instance.get(-2));
+        assertEquals(4, instance.getSize());
+    }
+
+    @Test
+    public void testRandomRAM() {
+        checkRandom(new RAMDirectory(), DAType.RAM);
+    }
+
+    @Test
+    public void testRandomMMap() {
+        checkRandom(new GHDirectory(location, DAType.MMAP).create(), DAType.MMAP);
+        assertFalse(new File(location, "ids").exists());
+    }
+
+    private void checkRandom(Directory dir, DAType type) {
+        GHLongLongPagedArray instance = new GHLongLongPagedArray(dir, "ids", type, 5, -1);
+        Random rnd = new Random(42);
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            // mostly dense keys like the node ids of an OSM file, but also a few sparse ones
+            long key = rnd.nextInt(10) == 0 ? rnd.nextLong() : 1_000_000_000L + rnd.nextInt(200_000);
+            long value = rnd.nextBoolean() ? -rnd.nextInt(Integer.MAX_VALUE) - 3 : rnd.nextLong() & ((1L << 36) - 1);
+            Long old = expected.put(key, value);
+            assertEquals(old == null ? -1 : old, instance.put(key, value));
+        }
+        assertEquals(expected.size(), instance.getSize());
+        for (Map.Entry<Long, Long> e : expected.entrySet())
+            assertEquals(e.getValue(), instance.get(e.getKey()));
+        for (int i = 0; i < 1000; i++) {
+            long key = 1_000_000_000L + 200_000 + rnd.nextInt(1000);
+            assertEquals(-1, instance.get(key));
+        }
+        instance.clear();
+        assertEquals(0, instance.getSize());
+        assertEquals(-1, instance.get(1_000_000_000L));
+        // we can still use the map after clearing it
+        instance.put(1_000_000_000L, 7);
+        assertEquals(7, instance.get(1_000_000_000L));
+        instance.clear();
+    }
+}
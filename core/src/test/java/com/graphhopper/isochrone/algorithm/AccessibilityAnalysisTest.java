@@ -0,0 +1,135 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.shapes.GHPoint;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccessibilityAnalysisTest {
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final EncodingManager em = EncodingManager.start().add(speedEnc).build();
+
+    @ParameterizedTest
+    @EnumSource(value = TraversalMode.class, names = {"NODE_BASED", "EDGE_BASED"})
+    public void countOpportunities(TraversalMode traversalMode) {
+        // a straight road along the equator with a node every 0.01 degrees, i.e. about every 1113m. at 10m/s it
+        // takes 111s from one node to the next
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < 20; node++) {
+            na.setNode(node, 0, node * 0.01);
+            if (node > 0)
+                graph.edge(node - 1, node).setDistance(1113.2).set(speedEnc, 10, 10);
+        }
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+
+        AccessibilityAnalysis analysis = new AccessibilityAnalysis(graph, index, new SpeedWeighting(speedEnc), EdgeFilter.ALL_EDGES, traversalMode);
+        analysis.setTimeLimits(150_000, 350_000);
+        // one opportunity at every node, and an opportunity with weight 10 near node 10. the last one is far away
+        List<GHPoint> points = new ArrayList<>();
+        for (int node = 0; node < 20; node++)
+            points.add(new GHPoint(0, node * 0.01));
+        points.add(new GHPoint(0.0001, 0.1001));
+        points.add(new GHPoint(10, 10));
+        double[] weights = new double[points.size()];
+        Arrays.fill(weights, 1);
+        weights[20] = 10;
+        assertEquals(21, analysis.addOpportunities(points, weights));
+
+        List<GHPoint> origins = Arrays.asList(new GHPoint(0, 0.1), new GHPoint(0, 0), new GHPoint(10, 10), new GHPoint(0, 0.19));
+        List<double[]> results = new ArrayList<>();
+        analysis.setThreads(2).setChunkSize(3).run(origins, (origin, opportunities) -> {
+            assertEquals(results.size(), origin);
+            results.add(opportunities);
+        });
+        assertEquals(4, results.size());
+        // node 10 and its neighbours are reachable within 150s, and 3 nodes on each side within 350s
+        assertArrayEquals(new double[]{13, 17}, results.get(0), 1.e-6);
+        assertArrayEquals(new double[]{2, 4}, results.get(1), 1.e-6);
+        assertNull(results.get(2));
+        assertArrayEquals(new double[]{2, 4}, results.get(3), 1.e-6);
+        graph.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TraversalMode.class, names = {"NODE_BASED", "EDGE_BASED"})
+    public void parallelResultsMatchSequentialResults(TraversalMode traversalMode) {
+        // a lattice with random speeds
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        NodeAccess na = graph.getNodeAccess();
+        int size = 30;
+        Random rnd = new Random(42);
+        for (int y = 0; y < size; y++)
+            for (int x = 0; x < size; x++)
+                na.setNode(x + size * y, y * 0.002, x * 0.002);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int node = x + size * y;
+                if (x < size - 1)
+                    graph.edge(node, node + 1).setDistance(222).set(speedEnc, 10 + rnd.nextInt(50), 10 + rnd.nextInt(50));
+                if (y < size - 1)
+                    graph.edge(node, node + size).setDistance(222).set(speedEnc, 10 + rnd.nextInt(50), 10 + rnd.nextInt(50));
+            }
+        }
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+        List<GHPoint> points = new ArrayList<>();
+        List<GHPoint> origins = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            points.add(new GHPoint(rnd.nextDouble() * size * 0.002, rnd.nextDouble() * size * 0.002));
+            origins.add(new GHPoint(rnd.nextDouble() * size * 0.002, rnd.nextDouble() * size * 0.002));
+        }
+
+        List<double[]> sequential = new ArrayList<>();
+        AccessibilityAnalysis analysis = new AccessibilityAnalysis(graph, index, new SpeedWeighting(speedEnc), EdgeFilter.ALL_EDGES, traversalMode);
+        analysis.setTimeLimits(60_000, 120_000, 180_000).setThreads(1).setChunkSize(1000);
+        assertEquals(200, analysis.addOpportunities(points, null));
+        analysis.run(origins, (origin, opportunities) -> sequential.add(opportunities));
+
+        List<double[]> parallel = new ArrayList<>();
+        analysis.setThreads(4).setChunkSize(7);
+        analysis.run(origins, (origin, opportunities) -> parallel.add(opportunities));
+        assertEquals(200, parallel.size());
+        for (int i = 0; i < origins.size(); i++) {
+            assertArrayEquals(sequential.get(i), parallel.get(i), "origin " + i);
+            // more time, more opportunities
+            assertTrue(parallel.get(i)[0] <= parallel.get(i)[1] && parallel.get(i)[1] <= parallel.get(i)[2]);
+        }
+        assertTrue(parallel.stream().anyMatch(r -> r[2] > r[0]));
+        graph.close();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.DistanceCalcEarth;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GridContourBuilderTest {
+    private static final int SIZE = 21;
+    private static final double SPACING = 0.001;
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final EncodingManager em = EncodingManager.start().add(speedEnc).build();
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    /**
+     * A square lattice of roads around (50, 10), node x + SIZE * y is at column x and row y
+     */
+    private BaseGraph createLattice() {
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        NodeAccess na = graph.getNodeAccess();
+        for (int y = 0; y < SIZE; y++)
+            for (int x = 0; x < SIZE; x++)
+                na.setNode(x + SIZE * y, 50 + y * SPACING, 10 + x * SPACING);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int node = x + SIZE * y;
+                if (x < SIZE - 1)
+                    connect(graph, node, node + 1);
+                if (y < SIZE - 1)
+                    connect(graph, node, node + SIZE);
+            }
+        }
+        return graph;
+    }
+
+    private void connect(BaseGraph graph, int a, int b) {
+        NodeAccess na = graph.getNodeAccess();
+        double distance = DistanceCalcEarth.DIST_EARTH.calcDist(na.getLat(a), na.getLon(a), na.getLat(b), na.getLon(b));
+        graph.edge(a, b).setDistance(distance).set(speedEnc, 50, 50);
+    }
+
+    private GridContourBuilder rasterize(BaseGraph graph, TraversalMode traversalMode, double cellSize, int bufferCells) {
+        int center = SIZE / 2 + SIZE * (SIZE / 2);
+        Snap snap = new Snap(graph.getNodeAccess().getLat(center), graph.getNodeAccess().getLon(center));
+        snap.setClosestNode(center);
+        ShortestPathTree tree = new ShortestPathTree(graph, new SpeedWeighting(speedEnc), false, traversalMode);
+        tree.setDistanceLimit(1_000);
+        return GridContourBuilder.rasterize(snap, QueryGraph.create(graph, Collections.emptyList()), tree, l -> l.distance, cellSize, bufferCells);
+    }
+
+    @Test
+    public void isolinesContainTheReachedNodes() {
+        BaseGraph graph = createLattice();
+        GridContourBuilder grid = rasterize(graph, TraversalMode.NODE_BASED, SPACING / 4, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<MultiPolygon> isolines = grid.computeIsolines(Arrays.asList(300.0, 600.0), executor);
+        executor.shutdown();
+        assertEquals(2, isolines.size());
+        for (MultiPolygon isoline : isolines)
+            assertTrue(isoline.isValid(), isoline.toString());
+        assertEquals(grid.computeIsoline(300), isolines.get(0));
+        assertEquals(grid.computeIsoline(600), isolines.get(1));
+        assertTrue(isolines.get(1).getArea() > 2 * isolines.get(0).getArea());
+        assertTrue(isolines.get(1).contains(isolines.get(0)));
+
+        // the network distance to a node is the manhattan distance of the lattice
+        NodeAccess na = graph.getNodeAccess();
+        double blockHeight = DistanceCalcEarth.DIST_EARTH.calcDist(50, 10, 50 + SPACING, 10);
+        double blockWidth = DistanceCalcEarth.DIST_EARTH.calcDist(50, 10, 50, 10 + SPACING);
+        for (int node = 0; node < graph.getNodes(); node++) {
+            double distance = Math.abs(node % SIZE - SIZE / 2) * blockWidth + Math.abs(node / SIZE - SIZE / 2) * blockHeight;
+            Point point = geometryFactory.createPoint(new Coordinate(na.getLon(node), na.getLat(node)));
+            if (distance < 250)
+                assertTrue(isolines.get(0).contains(point), "node " + node);
+            else if (distance > 350)
+                assertFalse(isolines.get(0).contains(point), "node " + node);
+        }
+        graph.close();
+    }
+
+    @Test
+    public void holesBetweenRoads() {
+        BaseGraph graph = createLattice();
+        // only the edges of the tree are rasterized, with edge-based traversal these are all edges, so without buffer
+        // the blocks between the roads are not reached, but the roads around them are
+        GridContourBuilder grid = rasterize(graph, TraversalMode.EDGE_BASED, SPACING / 8, 0);
+        MultiPolygon isoline = grid.computeIsoline(600);
+        assertTrue(isoline.isValid(), isoline.toString());
+        assertEquals(1, isoline.getNumGeometries());
+        Polygon polygon = (Polygon) isoline.getGeometryN(0);
+        assertTrue(polygon.getNumInteriorRing() > 10, "holes: " + polygon.getNumInteriorRing());
+        Point blockCenter = geometryFactory.createPoint(new Coordinate(10 + (SIZE / 2 + 0.5) * SPACING, 50 + (SIZE / 2 + 0.5) * SPACING));
+        assertFalse(isoline.contains(blockCenter));
+        graph.close();
+    }
+
+    @Test
+    public void largeAreasUseLargerCells() {
+        BaseGraph graph = createLattice();
+        GridContourBuilder grid = rasterize(graph, TraversalMode.NODE_BASED, 1e-6, 1);
+        assertTrue((long) grid.getWidth() * grid.getHeight() <= GridContourBuilder.MAX_GRID_POINTS);
+        assertFalse(grid.computeIsoline(300).isEmpty());
+        graph.close();
+    }
+}
@@ -303,6 +303,31 @@ public class ShortestPathTreeTest {
         );
     }
 
+    @Test
+    public void testSearchSlots() {
+        ShortestPathTree instance = new ShortestPathTree(graph, new FastestWeighting(accessEnc, speedEnc), false, TraversalMode.NODE_BASED);
+        instance.setTimeLimit(Double.MAX_VALUE);
+        IsoLabelStore store = instance.getLabelStore();
+        List<Integer> slots = new ArrayList<>();
+        instance.searchSlots(0, slot -> {
+            // the parent is settled before its children
+            assertTrue(store.getParent(slot) == IsoLabelStore.NO_PARENT || store.isSettled(store.getParent(slot)));
+            slots.add(slot);
+        });
+        assertEquals(9, slots.size());
+        assertEquals(IsoLabelStore.NO_PARENT, store.getParent(slots.get(0)));
+        int[] nodes = slots.stream().mapToInt(store::getNode).toArray();
+        assertArrayEquals(new int[]{0, 4, 6, 1, 7, 5, 2, 3, 8}, nodes);
+        assertArrayEquals(new long[]{0, 9000, 18000, 25200, 27000, 36000, 54000, 55800, 60300},
+                slots.stream().mapToLong(store::getTime).toArray());
+        assertArrayEquals(new double[]{0, 50, 100, 70, 150, 200, 250, 310, 335},
+                slots.stream().mapToDouble(store::getDistance).toArray(), 1.e-6);
+        int[] parentNodes = {-1, 0, 4, 0, 6, 7, 5, 5, 3};
+        for (int i = 1; i < slots.size(); i++)
+            assertEquals(parentNodes[i], store.getNode(store.getParent(slots.get(i))), "parent of node " + nodes[i]);
+        assertEquals(9, instance.getVisitedNodes());
+    }
+
     @Test
     public void testSearchByDistance() {
         List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
@@ -41,6 +41,8 @@ import com.graphhopper.util.details.PathDetail;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
 import java.io.File;
 import java.io.IOException;
@@ -363,6 +365,60 @@ public class OSMReaderTest {
         assertFalse(iter.next());
     }
 
+    @ParameterizedTest
+    @EnumSource(OSMReaderConfig.NodeIdMap.class)
+    public void testNodeIdMap(OSMReaderConfig.NodeIdMap nodeIdMap) {
+        // the barrier nodes are split using artificial negative OSM node ids
+        GraphHopper hopper = new GraphHopperFacade(fileBarriers).setMinNetworkSize(0);
+        hopper.getReaderConfig().setNodeIdMap(nodeIdMap);
+        hopper.importOrLoad();
+        Graph graph = hopper.getBaseGraph();
+        assertEquals(7, graph.getNodes());
+        assertEquals(7, graph.getEdges());
+        int n10 = AbstractGraphStorageTester.getIdOf(graph, 51);
+        int n20 = AbstractGraphStorageTester.getIdOf(graph, 52);
+        int n30 = AbstractGraphStorageTester.getIdOf(graph, 53);
+        int n50 = AbstractGraphStorageTester.getIdOf(graph, 55);
+        assertEquals(GHUtility.asSet(n20, n30), GHUtility.getNeighbors(carOutExplorer.setBaseNode(n10)));
+        assertEquals(GHUtility.asSet(4, n10, n50), GHUtility.getNeighbors(carOutExplorer.setBaseNode(n30)));
+    }
+
+    @Test
+    public void testParseThreads() {
+        GraphHopper sequential = createMonacoHopper(dir + "/sequential", 1);
+        GraphHopper parallel = createMonacoHopper(dir + "/parallel", 4);
+        BaseGraph seqGraph = sequential.getBaseGraph();
+        BaseGraph parGraph = parallel.getBaseGraph();
+        assertEquals(seqGraph.getNodes(), parGraph.getNodes());
+        assertEquals(seqGraph.getEdges(), parGraph.getEdges());
+        for (int edge = 0; edge < seqGraph.getEdges(); edge++) {
+            EdgeIteratorState seqEdge = seqGraph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            EdgeIteratorState parEdge = parGraph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            assertEquals(seqEdge.getBaseNode(), parEdge.getBaseNode());
+            assertEquals(seqEdge.getAdjNode(), parEdge.getAdjNode());
+            assertEquals(seqEdge.getDistance(), parEdge.getDistance(), 1.e-6);
+            assertEquals(seqEdge.getFlags(), parEdge.getFlags(), "different flags for edge " + edge);
+            assertEquals(seqEdge.getName(), parEdge.getName());
+            assertEquals(seqEdge.fetchWayGeometry(FetchMode.ALL), parEdge.fetchWayGeometry(FetchMode.ALL));
+        }
+    }
+
+    private GraphHopper createMonacoHopper(String location, int parseThreads) {
+        GraphHopper hopper = new GraphHopper().
+                setStoreOnFlush(false).
+                setOSMFile("../core/files/monaco.osm.gz").
+                setGraphHopperLocation(location).
+                setEncodedValuesString("road_class,road_environment,max_speed,surface,toll").
+                setProfiles(
+                        new Profile("car").setVehicle("car").setWeighting("fastest"),
+                        new Profile("bike").setVehicle("bike").setWeighting("fastest"),
+                        new Profile("foot").setVehicle("foot").setWeighting("fastest")
+                ).
+                setMinNetworkSize(0);
+        hopper.getReaderConfig().setParseThreads(parseThreads);
+        return hopper.importOrLoad();
+    }
+
     @Test
     public void testBarrierBetweenWays() {
         GraphHopper hopper = new GraphHopperFacade("test-barriers2.xml").
@@ -64,6 +64,7 @@ import static com.graphhopper.util.GHUtility.createRandomSnaps;
 import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
 import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA_BI;
 import static com.graphhopper.util.Parameters.Routing.ALGORITHM;
+import static com.graphhopper.util.Parameters.Routing.PRIMITIVE_SEARCH;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -164,6 +165,14 @@ public class DirectedRoutingTest {
                             : new CHRoutingAlgorithmFactory(routingCHGraph);
                     return algoFactory.createAlgo(new PMap().putObject(ALGORITHM, ASTAR_BI));
                 }
+                case ASTAR_BI_PRIMITIVE:
+                    return new AStarBidirectionPrimitive(graph, graph.wrapWeighting(weighting), TraversalMode.EDGE_BASED);
+                case CH_DIJKSTRA_PRIMITIVE: {
+                    CHRoutingAlgorithmFactory algoFactory = graph instanceof QueryGraph
+                            ? new CHRoutingAlgorithmFactory(new QueryRoutingCHGraph(routingCHGraph, (QueryGraph) graph))
+                            : new CHRoutingAlgorithmFactory(routingCHGraph);
+                    return algoFactory.createAlgo(new PMap().putObject(ALGORITHM, DIJKSTRA_BI).putObject(PRIMITIVE_SEARCH, true));
+                }
                 case LM:
                     return (EdgeToEdgeRoutingAlgorithm) new LMRoutingAlgorithmFactory(lm).createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR_BI).setTraversalMode(TraversalMode.EDGE_BASED));
                 default:
@@ -189,7 +198,11 @@ public class DirectedRoutingTest {
                     new Fixture(Algo.ASTAR_UNI_BEELINE, 40, false, false),
                     new Fixture(Algo.ASTAR_BI_BEELINE, 40, false, false),
                     new Fixture(Algo.CH_ASTAR, 40, true, false),
-                    new Fixture(Algo.CH_DIJKSTRA, 40, true, false)
+                    new Fixture(Algo.CH_DIJKSTRA, 40, true, false),
+                    new Fixture(Algo.ASTAR_BI_PRIMITIVE, Double.POSITIVE_INFINITY, false, false),
+                    new Fixture(Algo.CH_DIJKSTRA_PRIMITIVE, Double.POSITIVE_INFINITY, true, false),
+                    new Fixture(Algo.ASTAR_BI_PRIMITIVE, 40, false, false),
+                    new Fixture(Algo.CH_DIJKSTRA_PRIMITIVE, 40, true, false)
                     // todo: LM+directed still fails sometimes, #1971,
 //                    new Fixture(Algo.LM, 40, false, true)
             ).map(Arguments::of);
@@ -208,7 +221,9 @@ public class DirectedRoutingTest {
         ASTAR_BI_BEELINE,
         CH_ASTAR,
         CH_DIJKSTRA,
-        LM
+        LM,
+        ASTAR_BI_PRIMITIVE,
+        CH_DIJKSTRA_PRIMITIVE
     }
 
     @ParameterizedTest
@@ -0,0 +1,133 @@
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.routing.weighting.Weighting.INFINITE_U_TURN_COSTS;
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ManyToManyCHTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ManyToManyCHTest.class);
+    private final BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
+    private final DecimalEncodedValue turnCostEnc = TurnCost.create("car", 10);
+    private final EncodingManager encodingManager = EncodingManager.start().add(accessEnc).add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
+    private final BaseGraph graph = new BaseGraph.Builder(encodingManager).withTurnCosts(true).create();
+
+    @Test
+    public void simpleMatrix() {
+        // 0-1-2-3
+        //   |
+        //   4
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(1, 2).setDistance(200));
+        GHUtility.setSpeed(60, true, false, accessEnc, speedEnc, graph.edge(2, 3).setDistance(300));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(1, 4).setDistance(400));
+        graph.freeze();
+        RoutingCHGraph chGraph = prepareCH(CHConfig.nodeBased("p", new FastestWeighting(accessEnc, speedEnc)));
+
+        ManyToManyCH.Result result = new ManyToManyCH(chGraph).calcMatrix(new int[]{0, 3, 4}, new int[]{3, 0, 4, 4});
+        assertEquals(600, result.distances[0][0], 1.e-6);
+        assertEquals(0, result.distances[0][1], 1.e-6);
+        assertEquals(500, result.distances[0][2], 1.e-6);
+        assertEquals(500, result.distances[0][3], 1.e-6);
+        assertEquals(36_000, result.times[0][0]);
+        // 2-3 is a one-way
+        assertEquals(0, result.weights[1][0], 1.e-6);
+        assertFalse(result.isConnected(1, 1));
+        assertEquals(Long.MAX_VALUE, result.times[1][2]);
+        assertEquals(900, result.distances[2][0], 1.e-6);
+        assertEquals(0, result.weights[2][2], 1.e-6);
+    }
+
+    @Test
+    public void ignoreNegativeNodes() {
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(0, 1).setDistance(100));
+        graph.freeze();
+        RoutingCHGraph chGraph = prepareCH(CHConfig.nodeBased("p", new FastestWeighting(accessEnc, speedEnc)));
+        ManyToManyCH.Result result = new ManyToManyCH(chGraph).setCalcTimes(false).setCalcDistances(false).
+                calcMatrix(new int[]{-1, 0}, new int[]{1, -1});
+        assertNull(result.times);
+        assertNull(result.distances);
+        assertFalse(result.isConnected(0, 0));
+        assertTrue(result.isConnected(1, 0));
+        assertFalse(result.isConnected(1, 1));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TraversalMode.class)
+    public void random(TraversalMode traversalMode) {
+        long seed = System.nanoTime();
+        LOGGER.info("seed: " + seed);
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 50, 2.5, true, accessEnc, speedEnc, null, 0.9, 0);
+        if (traversalMode.isEdgeBased())
+            GHUtility.addRandomTurnCosts(graph, seed, accessEnc, turnCostEnc, 10, graph.getTurnCostStorage());
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, graph.getDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+        CHConfig chConfig = traversalMode.isEdgeBased()
+                ? CHConfig.edgeBased("p", new FastestWeighting(accessEnc, speedEnc, new DefaultTurnCostProvider(turnCostEnc, graph.getTurnCostStorage(), INFINITE_U_TURN_COSTS)))
+                : CHConfig.nodeBased("p", new FastestWeighting(accessEnc, speedEnc));
+        RoutingCHGraph chGraph = prepareCH(chConfig);
+
+        for (int j = 0; j < 10; j++) {
+            // the sources and targets are usually virtual nodes
+            List<Snap> snaps = createRandomSnaps(graph.getBounds(), locationIndex, rnd, 20, false, EdgeFilter.ALL_EDGES);
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            int[] sources = new int[8];
+            int[] targets = new int[12];
+            for (int i = 0; i < sources.length; i++)
+                sources[i] = rnd.nextInt(queryGraph.getNodes());
+            for (int i = 0; i < targets.length; i++)
+                targets[i] = rnd.nextInt(queryGraph.getNodes());
+
+            ManyToManyCH.Result result = new ManyToManyCH(new QueryRoutingCHGraph(chGraph, queryGraph)).calcMatrix(sources, targets);
+            Weighting w = queryGraph.wrapWeighting(chConfig.getWeighting());
+            int timeViolations = 0;
+            for (int s = 0; s < sources.length; s++) {
+                for (int t = 0; t < targets.length; t++) {
+                    Path refPath = new Dijkstra(queryGraph, w, traversalMode).calcPath(sources[s], targets[t]);
+                    assertEquals(refPath.isFound(), result.isConnected(s, t), "connection " + sources[s] + "->" + targets[t] + ", seed: " + seed);
+                    if (!refPath.isFound())
+                        continue;
+                    assertEquals(refPath.getWeight(), result.weights[s][t], 1.e-2, "wrong weight " + sources[s] + "->" + targets[t] + ", seed: " + seed);
+                    // the time and distance can be different if there are multiple paths with the same weight
+                    if (Math.abs(refPath.getTime() - result.times[s][t]) > 50 || Math.abs(refPath.getDistance() - result.distances[s][t]) > 1.e-1)
+                        timeViolations++;
+                }
+            }
+            if (timeViolations > 0.05 * sources.length * targets.length)
+                fail("Too many time or distance violations: " + timeViolations + ", seed: " + seed);
+        }
+    }
+
+    private RoutingCHGraph prepareCH(CHConfig chConfig) {
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        return RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+    }
+}
@@ -159,6 +159,50 @@ public class PathTest {
         assertEquals(path.calcPoints().size() - 1, acc);
     }
 
+    @Test
+    public void testForEveryEdgeWithSharedGeometry() {
+        BaseGraph g = new BaseGraph.Builder(carManager).create();
+        NodeAccess na = g.getNodeAccess();
+        na.setNode(0, 0.0, 0.1);
+        na.setNode(1, 1.0, 0.1);
+        na.setNode(2, 2.0, 0.1);
+        EdgeIteratorState edge1 = g.edge(0, 1).setDistance(1000).set(carAccessEnc, true, true).set(carAvSpeedEnc, 10.0);
+        edge1.setWayGeometry(Helper.createPointList(8, 1, 9, 1));
+        EdgeIteratorState edge2 = g.edge(2, 1).setDistance(2000).set(carAccessEnc, true, true).set(carAvSpeedEnc, 50.0);
+        edge2.setWayGeometry(Helper.createPointList(11, 1, 10, 1));
+
+        SPTEntry e1 = new SPTEntry(edge2.getEdge(), 2, 1, new SPTEntry(edge1.getEdge(), 1, 1, new SPTEntry(0, 1)));
+        FastestWeighting weighting = new FastestWeighting(carAccessEnc, carAvSpeedEnc);
+        Path path = extractPath(g, weighting, e1);
+
+        List<PointList> geometries = new ArrayList<>();
+        PointList points = new PointList();
+        InstructionList instructions = new InstructionList(tr);
+        path.forEveryEdge(Arrays.asList(
+                new InstructionsFromEdges(path.graph, weighting, carManager, instructions),
+                new Path.GeometryEdgeVisitor() {
+                    @Override
+                    public void next(EdgeIteratorState edge, PointList geometry, int index, int prevEdgeId) {
+                        geometries.add(geometry);
+                        for (int i = index == 0 ? 0 : 1; i < geometry.size(); i++)
+                            points.add(geometry, i);
+                    }
+
+                    @Override
+                    public void finish() {
+                    }
+                }));
+        assertEquals(2, geometries.size());
+        assertPList(path.calcPoints(), points);
+        InstructionList expected = InstructionsFromEdges.calcInstructions(path, path.graph, weighting, carManager, tr);
+        assertEquals(expected.size(), instructions.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSign(), instructions.get(i).getSign());
+            assertEquals(expected.get(i).getDistance(), instructions.get(i).getDistance(), 1.e-6);
+            assertPList(expected.get(i).getPoints(), instructions.get(i).getPoints());
+        }
+    }
+
     @Test
     public void testFindInstruction() {
         BaseGraph g = new BaseGraph.Builder(carManager).create();
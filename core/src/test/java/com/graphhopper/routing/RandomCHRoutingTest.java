@@ -1,5 +1,6 @@
 package com.graphhopper.routing;
 
+import com.graphhopper.routing.ch.CHParameters;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.ev.*;
@@ -53,6 +54,10 @@ public class RandomCHRoutingTest {
         private CHConfig chConfig;
 
         Fixture(TraversalMode traversalMode, int uTurnCosts) {
+            this(traversalMode, uTurnCosts, false);
+        }
+
+        Fixture(TraversalMode traversalMode, int uTurnCosts, boolean withAdjacencyIndex) {
             this.traversalMode = traversalMode;
             this.maxTurnCosts = 10;
             this.uTurnCosts = uTurnCosts;
@@ -60,7 +65,11 @@ public class RandomCHRoutingTest {
             speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
             turnCostEnc = TurnCost.create("car", maxTurnCosts);
             EncodingManager encodingManager = EncodingManager.start().add(accessEnc).add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
-            graph = new BaseGraph.Builder(encodingManager).withTurnCosts(true).create();
+            graph = new BaseGraph.Builder(encodingManager).withTurnCosts(true).withAdjacencyIndex(withAdjacencyIndex).create();
+        }
+
+        Fixture withAdjacencyIndex() {
+            return new Fixture(traversalMode, uTurnCosts, true);
         }
 
         void freeze() {
@@ -98,10 +107,42 @@ public class RandomCHRoutingTest {
     public void random(Fixture f) {
         // you might have to keep this test running in an infinite loop for several minutes to find potential routing
         // bugs (e.g. use intellij 'run until stop/failure').
-        int numNodes = 50;
         long seed = System.nanoTime();
         LOGGER.info("seed: " + seed);
         Random rnd = new Random(seed);
+        buildRandomGraph(f, rnd, seed);
+        runRandomTest(f, rnd, new PMap());
+    }
+
+    /**
+     * Same as {@link #random(Fixture)}, but contracts independent sets of nodes concurrently
+     */
+    @ParameterizedTest
+    @ArgumentsSource(FixtureProvider.class)
+    public void randomWithContractionThreads(Fixture f) {
+        long seed = System.nanoTime();
+        LOGGER.info("seed: " + seed);
+        Random rnd = new Random(seed);
+        buildRandomGraph(f, rnd, seed);
+        runRandomTest(f, rnd, new PMap().putObject(CHParameters.CONTRACTION_THREADS, 4));
+    }
+
+    /**
+     * Same as {@link #random(Fixture)}, but the frozen graph iterates the base edges using the adjacency index
+     */
+    @ParameterizedTest
+    @ArgumentsSource(FixtureProvider.class)
+    public void randomWithAdjacencyIndex(Fixture fixture) {
+        Fixture f = fixture.withAdjacencyIndex();
+        long seed = System.nanoTime();
+        LOGGER.info("seed: " + seed);
+        Random rnd = new Random(seed);
+        buildRandomGraph(f, rnd, seed);
+        runRandomTest(f, rnd, new PMap());
+    }
+
+    private void buildRandomGraph(Fixture f, Random rnd, long seed) {
+        int numNodes = 50;
         // we may not use an offset when query graph is involved, otherwise traveling via virtual edges will not be
         // the same as taking the direct edge!
         double pOffset = 0;
@@ -109,15 +150,14 @@ public class RandomCHRoutingTest {
         if (f.traversalMode.isEdgeBased()) {
             GHUtility.addRandomTurnCosts(f.graph, seed, f.accessEnc, f.turnCostEnc, f.maxTurnCosts, f.graph.getTurnCostStorage());
         }
-        runRandomTest(f, rnd);
     }
 
-    private void runRandomTest(Fixture f, Random rnd) {
+    private void runRandomTest(Fixture f, Random rnd, PMap chParams) {
         LocationIndexTree locationIndex = new LocationIndexTree(f.graph, f.graph.getDirectory());
         locationIndex.prepareIndex();
 
         f.freeze();
-        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraph(f.graph, f.chConfig);
+        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraph(f.graph, f.chConfig).setParams(chParams);
         PrepareContractionHierarchies.Result res = pch.doWork();
         RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(f.graph, res.getCHStorage(), res.getCHConfig());
 
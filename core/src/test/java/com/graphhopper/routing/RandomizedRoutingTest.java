@@ -56,6 +56,7 @@ import static com.graphhopper.routing.util.TraversalMode.NODE_BASED;
 import static com.graphhopper.util.GHUtility.createRandomSnaps;
 import static com.graphhopper.util.Parameters.Algorithms.*;
 import static com.graphhopper.util.Parameters.Routing.ALGORITHM;
+import static com.graphhopper.util.Parameters.Routing.PRIMITIVE_SEARCH;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -80,6 +81,11 @@ public class RandomizedRoutingTest {
                     FixtureSupplier.create(Algo.CH_DIJKSTRA, true, false, NODE_BASED),
                     FixtureSupplier.create(Algo.LM_UNIDIR, false, true, NODE_BASED),
                     FixtureSupplier.create(Algo.LM_BIDIR, false, true, NODE_BASED),
+                    FixtureSupplier.create(Algo.DIJKSTRA_BIDIR_PRIMITIVE, false, false, NODE_BASED),
+                    FixtureSupplier.create(Algo.ASTAR_BIDIR_PRIMITIVE, false, false, NODE_BASED),
+                    FixtureSupplier.create(Algo.CH_DIJKSTRA_PRIMITIVE, true, false, NODE_BASED),
+                    FixtureSupplier.create(Algo.CH_ASTAR_PRIMITIVE, true, false, NODE_BASED),
+                    FixtureSupplier.create(Algo.LM_BIDIR_PRIMITIVE, false, true, NODE_BASED),
                     FixtureSupplier.create(Algo.DIJKSTRA, false, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.ASTAR_UNIDIR, false, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.ASTAR_BIDIR, false, false, EDGE_BASED),
@@ -87,6 +93,11 @@ public class RandomizedRoutingTest {
                     FixtureSupplier.create(Algo.CH_DIJKSTRA, true, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.LM_UNIDIR, false, true, EDGE_BASED),
                     FixtureSupplier.create(Algo.LM_BIDIR, false, true, EDGE_BASED),
+                    FixtureSupplier.create(Algo.DIJKSTRA_BIDIR_PRIMITIVE, false, false, EDGE_BASED),
+                    FixtureSupplier.create(Algo.ASTAR_BIDIR_PRIMITIVE, false, false, EDGE_BASED),
+                    FixtureSupplier.create(Algo.CH_DIJKSTRA_PRIMITIVE, true, false, EDGE_BASED),
+                    FixtureSupplier.create(Algo.CH_ASTAR_PRIMITIVE, true, false, EDGE_BASED),
+                    FixtureSupplier.create(Algo.LM_BIDIR_PRIMITIVE, false, true, EDGE_BASED),
                     FixtureSupplier.create(Algo.PERFECT_ASTAR, false, false, NODE_BASED)
             ).map(Arguments::of);
         }
@@ -126,6 +137,8 @@ public class RandomizedRoutingTest {
         private final EncodingManager encodingManager;
         private RoutingCHGraph routingCHGraph;
         private LandmarkStorage lm;
+        // the same search state is re-used for all queries, just like it would be when it is pooled per thread
+        private final BidirSearchState searchState = new BidirSearchState(10);
 
         Fixture(Algo algo, boolean prepareCH, boolean prepareLM, TraversalMode traversalMode) {
             this.algo = algo;
@@ -196,6 +209,19 @@ public class RandomizedRoutingTest {
                     return new LMRoutingAlgorithmFactory(lm).createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR_BI).setTraversalMode(traversalMode));
                 case LM_UNIDIR:
                     return new LMRoutingAlgorithmFactory(lm).createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR).setTraversalMode(traversalMode));
+                case DIJKSTRA_BIDIR_PRIMITIVE:
+                    return new DijkstraBidirectionPrimitive(graph, graph.wrapWeighting(weighting), traversalMode, searchState);
+                case ASTAR_BIDIR_PRIMITIVE:
+                    return new AStarBidirectionPrimitive(graph, graph.wrapWeighting(weighting), traversalMode, searchState);
+                case CH_DIJKSTRA_PRIMITIVE:
+                    return new DijkstraBidirectionCHPrimitive(graph instanceof QueryGraph
+                            ? new QueryRoutingCHGraph(routingCHGraph, (QueryGraph) graph) : routingCHGraph, searchState);
+                case CH_ASTAR_PRIMITIVE:
+                    return new AStarBidirectionCHPrimitive(graph instanceof QueryGraph
+                            ? new QueryRoutingCHGraph(routingCHGraph, (QueryGraph) graph) : routingCHGraph, searchState);
+                case LM_BIDIR_PRIMITIVE:
+                    return new LMRoutingAlgorithmFactory(lm).createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR_BI).setTraversalMode(traversalMode)
+                            .setHints(new PMap().putObject(PRIMITIVE_SEARCH, true)));
                 case PERFECT_ASTAR: {
                     AStarBidirection perfectAStarBi = new AStarBidirection(graph, weighting, traversalMode);
                     perfectAStarBi.setApproximation(new PerfectApproximator(graph, weighting, traversalMode, false));
@@ -216,6 +242,11 @@ public class RandomizedRoutingTest {
         CH_DIJKSTRA,
         LM_BIDIR,
         LM_UNIDIR,
+        DIJKSTRA_BIDIR_PRIMITIVE,
+        ASTAR_BIDIR_PRIMITIVE,
+        CH_DIJKSTRA_PRIMITIVE,
+        CH_ASTAR_PRIMITIVE,
+        LM_BIDIR_PRIMITIVE,
         PERFECT_ASTAR
     }
 
@@ -0,0 +1,128 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.exceptions.SearchBudgetExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchBudgetTest {
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final EncodingManager em = EncodingManager.start().add(speedEnc).build();
+
+    private BaseGraph createLine(int nodes) {
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        for (int node = 0; node < nodes - 1; node++)
+            graph.edge(node, node + 1).setDistance(100).set(speedEnc, 50, 50);
+        return graph;
+    }
+
+    @Test
+    public void nodeBudgetIsSharedBetweenSearches() {
+        SearchBudget budget = new SearchBudget().setMaxVisitedNodes(10);
+        assertFalse(budget.isExceeded(10));
+        budget.consume(6);
+        assertFalse(budget.isExceeded(4));
+        assertTrue(budget.isExceeded(5));
+        // once exceeded the budget stays exceeded
+        assertTrue(budget.isExceeded(0));
+        SearchBudgetExceededException ex = assertThrows(SearchBudgetExceededException.class, budget::check);
+        assertEquals("max_visited_nodes", ex.getDetails().get(SearchBudgetExceededException.REASON_KEY));
+    }
+
+    @Test
+    public void cancel() {
+        SearchBudget budget = new SearchBudget();
+        assertFalse(budget.isExceeded(0));
+        budget.check();
+        budget.cancel();
+        assertTrue(budget.isExceeded(0));
+        SearchBudgetExceededException ex = assertThrows(SearchBudgetExceededException.class, budget::check);
+        assertEquals("cancelled", ex.getDetails().get(SearchBudgetExceededException.REASON_KEY));
+    }
+
+    @Test
+    public void cancellationCheckAndDeadline() {
+        AtomicBoolean disconnected = new AtomicBoolean();
+        SearchBudget budget = new SearchBudget().setCancellationCheck(disconnected::get);
+        budget.check();
+        disconnected.set(true);
+        SearchBudgetExceededException ex = assertThrows(SearchBudgetExceededException.class, budget::check);
+        assertEquals("cancelled", ex.getDetails().get(SearchBudgetExceededException.REASON_KEY));
+
+        budget = new SearchBudget().setDeadlineMillis(System.currentTimeMillis() - 1);
+        ex = assertThrows(SearchBudgetExceededException.class, budget::check);
+        assertEquals("deadline", ex.getDetails().get(SearchBudgetExceededException.REASON_KEY));
+
+        // a larger timeout does not extend the deadline
+        budget = new SearchBudget().setTimeoutMillis(0).setTimeoutMillis(Long.MAX_VALUE);
+        assertTrue(budget.getDeadlineMillis() <= System.currentTimeMillis());
+    }
+
+    @Test
+    public void abortRouting() {
+        BaseGraph graph = createLine(100);
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        for (String algo : new String[]{Parameters.Algorithms.DIJKSTRA, Parameters.Algorithms.DIJKSTRA_BI, Parameters.Algorithms.ASTAR_BI}) {
+            SearchBudget budget = new SearchBudget().setMaxVisitedNodes(150);
+            AlgorithmOptions opts = new AlgorithmOptions().setAlgorithm(algo).setSearchBudget(budget);
+            FlexiblePathCalculator calculator = new FlexiblePathCalculator(QueryGraph.create(graph, Collections.emptyList()),
+                    new RoutingAlgorithmFactorySimple(), weighting, opts);
+            // the first leg fits into the budget, but the second leg does not
+            assertTrue(calculator.calcPaths(0, 60, new EdgeRestrictions()).get(0).isFound(), algo);
+            assertTrue(budget.getVisitedNodes() > 0, algo);
+            SearchBudgetExceededException ex = assertThrows(SearchBudgetExceededException.class,
+                    () -> calculator.calcPaths(0, 99, new EdgeRestrictions()), algo);
+            assertEquals("max_visited_nodes", ex.getDetails().get(SearchBudgetExceededException.REASON_KEY), algo);
+        }
+    }
+
+    @Test
+    public void abortShortestPathTree() {
+        BaseGraph graph = createLine(1000);
+        ShortestPathTree tree = new ShortestPathTree(graph, new SpeedWeighting(speedEnc), false, TraversalMode.NODE_BASED);
+        tree.setDistanceLimit(1_000_000);
+        tree.setSearchBudget(new SearchBudget().setMaxVisitedNodes(100));
+        int[] labels = new int[1];
+        SearchBudgetExceededException ex = assertThrows(SearchBudgetExceededException.class, () -> tree.search(0, l -> labels[0]++));
+        assertEquals("max_visited_nodes", ex.getDetails().get(SearchBudgetExceededException.REASON_KEY));
+        assertTrue(labels[0] <= 102, "labels: " + labels[0]);
+
+        SearchBudget budget = new SearchBudget();
+        ShortestPathTree unlimited = new ShortestPathTree(graph, new SpeedWeighting(speedEnc), false, TraversalMode.NODE_BASED);
+        unlimited.setDistanceLimit(1_000_000);
+        unlimited.setSearchBudget(budget);
+        unlimited.search(0, l -> {
+        });
+        assertEquals(1000, budget.getVisitedNodes());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchStatePoolTest {
+
+    @Test
+    public void reuseStatePerKey() {
+        SearchStatePool pool = new SearchStatePool(10, 100);
+        BidirSearchState a = pool.get("car|ch");
+        BidirSearchState b = pool.get("car|flex");
+        assertNotSame(a, b);
+        assertSame(a, pool.get("car|ch"));
+        assertSame(b, pool.get("car|flex"));
+        assertEquals(2, pool.getHits());
+        assertEquals(2, pool.getMisses());
+    }
+
+    @Test
+    public void replaceStatesThatGrewTooLarge() {
+        SearchStatePool pool = new SearchStatePool(10, 100);
+        BidirSearchState state = pool.get("car");
+        for (int i = 0; i < 200; i++)
+            state.getFwd().add(i, i, i, i, i, SPTStore.NO_PARENT);
+        assertTrue(state.getCapacity() > 100);
+        BidirSearchState newState = pool.get("car");
+        assertNotSame(state, newState);
+        assertSame(newState, pool.get("car"));
+        assertEquals(1, pool.getHits());
+        assertEquals(2, pool.getMisses());
+    }
+
+    @Test
+    public void clearRemovesAllKeys() {
+        SPTStore store = new SPTStore(10);
+        for (int i = 0; i < 100; i++)
+            store.add(2 * i, i, i, i, i, SPTStore.NO_PARENT);
+        // a new entry for an existing key and an entry without a key
+        int slot = store.add(10, 7, 7, 7, 7, 3);
+        store.add(-1, 8, 8, 8, 8, SPTStore.NO_PARENT);
+        assertEquals(slot, store.getSlot(10));
+        int capacity = store.getCapacity();
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(capacity, store.getCapacity());
+        for (int i = 0; i < 200; i++)
+            assertEquals(-1, store.getSlot(i));
+        assertEquals(0, store.add(3, 1, 1, 1, 1, SPTStore.NO_PARENT));
+        assertEquals(0, store.getSlot(3));
+        assertEquals(-1, store.getSlot(10));
+    }
+
+    @Test
+    public void statesAreNotSharedBetweenThreads() throws InterruptedException {
+        SearchStatePool pool = new SearchStatePool();
+        BidirSearchState state = pool.get("car");
+        AtomicReference<BidirSearchState> otherState = new AtomicReference<>();
+        Thread thread = new Thread(() -> otherState.set(pool.get("car")));
+        thread.start();
+        thread.join();
+        assertNotNull(otherState.get());
+        assertNotSame(state, otherState.get());
+        assertSame(state, pool.get("car"));
+        assertEquals(1, pool.getHits());
+        assertEquals(2, pool.getMisses());
+    }
+
+    @Test
+    public void invalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new SearchStatePool(100, 10));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.lm.LMConfig;
+import com.graphhopper.routing.lm.PrepareLandmarks;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.TimeDependentWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.SpeedProfileStorage;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.graphhopper.storage.SpeedProfileStorage.SLOTS;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeDependentRoutingTest {
+    private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final IntEncodedValue speedProfileEnc = SpeedProfile.create();
+    private final EncodingManager em = EncodingManager.start().add(speedEnc).add(speedProfileEnc).add(Subnetwork.create("car")).build();
+
+    private static double[] rushHourFactors() {
+        double[] factors = new double[SLOTS];
+        Arrays.fill(factors, 1);
+        // Monday to Friday from 7:00 to 9:00 the traffic only moves at a fifth of the free flow speed
+        for (int day = 0; day < 5; day++)
+            for (int slot = day * 96 + 7 * 4; slot < day * 96 + 9 * 4; slot++)
+                factors[slot] = 0.2;
+        return factors;
+    }
+
+    @Test
+    public void avoidRushHour() {
+        // 0 - 1 - 3 is a fast road with rush hour, 0 - 2 - 3 a slower one without
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        int rushHour = graph.getSpeedProfileStorage().addProfile(rushHourFactors());
+        graph.edge(0, 1).setDistance(10_000).set(speedEnc, 30, 30).set(speedProfileEnc, rushHour, rushHour);
+        graph.edge(1, 3).setDistance(10_000).set(speedEnc, 30, 30).set(speedProfileEnc, rushHour, rushHour);
+        graph.edge(0, 2).setDistance(10_000).set(speedEnc, 20, 20);
+        graph.edge(2, 3).setDistance(10_000).set(speedEnc, 20, 20);
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        TimeDependentWeighting tdWeighting = new TimeDependentWeighting(weighting, graph.getSpeedProfileStorage(), speedProfileEnc, BERLIN);
+
+        long night = ZonedDateTime.of(2023, 5, 15, 3, 0, 0, 0, BERLIN).toInstant().toEpochMilli();
+        Path path = new TDDijkstra(graph, tdWeighting, TraversalMode.NODE_BASED, night).calcPath(0, 3);
+        assertEquals(GHUtility.asSet(0, 1, 3), GHUtility.asSet(path.calcNodes().toArray()));
+        assertEquals(2 * 10_000 / 30.0, path.getWeight(), 1.e-3);
+        assertEquals(2 * 10_000 * 1000 / 30, path.getTime(), 2);
+
+        // on a Monday at 8:00 in Berlin, which is 6:00 UTC
+        long rushHourTime = ZonedDateTime.of(2023, 5, 15, 8, 0, 0, 0, BERLIN).toInstant().toEpochMilli();
+        TDDijkstra dijkstra = new TDDijkstra(graph, tdWeighting, TraversalMode.NODE_BASED, rushHourTime);
+        path = dijkstra.calcPath(0, 3);
+        assertEquals(GHUtility.asSet(0, 2, 3), GHUtility.asSet(path.calcNodes().toArray()));
+        assertEquals(2 * 10_000 / 20.0, path.getWeight(), 1.e-3);
+        assertEquals(2 * 10_000 * 1000 / 20, path.getTime(), 2);
+        assertEquals(rushHourTime + path.getTime(), dijkstra.getArrivalTime());
+
+        // the weekend has no rush hour
+        long saturday = ZonedDateTime.of(2023, 5, 20, 8, 0, 0, 0, BERLIN).toInstant().toEpochMilli();
+        path = new TDAStar(graph, tdWeighting, TraversalMode.NODE_BASED, saturday).calcPath(0, 3);
+        assertEquals(GHUtility.asSet(0, 1, 3), GHUtility.asSet(path.calcNodes().toArray()));
+
+        // the same time in UTC is not yet rush hour in Berlin
+        tdWeighting = new TimeDependentWeighting(weighting, graph.getSpeedProfileStorage(), speedProfileEnc, ZoneId.of("UTC"));
+        path = new TDAStar(graph, tdWeighting, TraversalMode.NODE_BASED, rushHourTime).calcPath(0, 3);
+        assertEquals(GHUtility.asSet(0, 1, 3), GHUtility.asSet(path.calcNodes().toArray()));
+    }
+
+    @Test
+    public void turnCostsAreNotScaled() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        IntEncodedValue speedProfileEnc = SpeedProfile.create();
+        DecimalEncodedValue turnCostEnc = TurnCost.create("car", 1000);
+        EncodingManager em = EncodingManager.start().add(speedEnc).add(speedProfileEnc).addTurnCostEncodedValue(turnCostEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).withTurnCosts(true).create();
+        int rushHour = graph.getSpeedProfileStorage().addProfile(rushHourFactors());
+        // 0 - 1 - 3 is a fast road with rush hour and an expensive turn at 1, 0 - 2 - 3 a slow one without both
+        EdgeIteratorState edge01 = graph.edge(0, 1).setDistance(3_000).set(speedEnc, 30, 30).set(speedProfileEnc, rushHour, rushHour);
+        EdgeIteratorState edge13 = graph.edge(1, 3).setDistance(3_000).set(speedEnc, 30, 30).set(speedProfileEnc, rushHour, rushHour);
+        graph.edge(0, 2).setDistance(18_000).set(speedEnc, 20, 20);
+        graph.edge(2, 3).setDistance(18_000).set(speedEnc, 20, 20);
+        graph.getTurnCostStorage().set(turnCostEnc, edge01.getEdge(), 1, edge13.getEdge(), 300);
+        Weighting weighting = new SpeedWeighting(speedEnc, turnCostEnc, graph.getTurnCostStorage(), Double.POSITIVE_INFINITY);
+        TimeDependentWeighting tdWeighting = new TimeDependentWeighting(weighting, graph.getSpeedProfileStorage(), speedProfileEnc, BERLIN);
+
+        long night = ZonedDateTime.of(2023, 5, 15, 3, 0, 0, 0, BERLIN).toInstant().toEpochMilli();
+        Path path = new TDDijkstra(graph, tdWeighting, TraversalMode.EDGE_BASED, night).calcPath(0, 3);
+        assertEquals(GHUtility.asSet(0, 1, 3), GHUtility.asSet(path.calcNodes().toArray()));
+        assertEquals(200 + 300, path.getWeight(), 1.e-3);
+
+        // during the rush hour only the edges take five times longer: 5 * 200 + 300 = 1300 is still less than 1800
+        long rushHourTime = ZonedDateTime.of(2023, 5, 15, 8, 0, 0, 0, BERLIN).toInstant().toEpochMilli();
+        path = new TDDijkstra(graph, tdWeighting, TraversalMode.EDGE_BASED, rushHourTime).calcPath(0, 3);
+        assertEquals(GHUtility.asSet(0, 1, 3), GHUtility.asSet(path.calcNodes().toArray()));
+        assertEquals(5 * 200 + 300, path.getWeight(), 1.e-3);
+        assertEquals((5 * 200 + 300) * 1000, path.getTime(), 2);
+        // the search uses the same weight as the weighting
+        assertEquals(path.getWeight(), tdWeighting.calcEdgeWeight(edge01, false, rushHourTime) + 300
+                + tdWeighting.calcEdgeWeight(edge13, false, rushHourTime + 500_000 + 300_000), 1.e-3);
+    }
+
+    @Test
+    public void aStarAndDijkstraFindTheSameWeight() {
+        RAMDirectory dir = new RAMDirectory();
+        BaseGraph graph = new BaseGraph.Builder(em).setDir(dir).create();
+        Random rnd = new Random(123);
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.5, false, speedEnc, null, 0.8, 0.5);
+        SpeedProfileStorage speedProfiles = graph.getSpeedProfileStorage();
+        int[] profiles = new int[5];
+        for (int i = 0; i < profiles.length; i++) {
+            double[] factors = new double[SLOTS];
+            for (int slot = 0; slot < SLOTS; slot++)
+                factors[slot] = 0.2 + rnd.nextInt(150) / 100.0;
+            profiles[i] = speedProfiles.addProfile(factors);
+        }
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (rnd.nextBoolean())
+                iter.set(speedProfileEnc, profiles[rnd.nextInt(profiles.length)], profiles[rnd.nextInt(profiles.length)]);
+        }
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        PrepareLandmarks lm = new PrepareLandmarks(dir, graph, em, new LMConfig("car", weighting), 8);
+        lm.setMaximumWeight(100_000);
+        lm.doWork();
+
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            ZonedDateTime departureTime = ZonedDateTime.of(2023, 5, 15, 0, 0, 0, 0, BERLIN).plusMinutes(rnd.nextInt(7 * 24 * 60));
+            // every factory continues at the arrival time of the previous algorithm, so we need a new one each time
+            TDRoutingAlgorithmFactory dijkstraFactory = new TDRoutingAlgorithmFactory(speedProfiles, speedProfileEnc, departureTime);
+            TDRoutingAlgorithmFactory aStarFactory = new TDRoutingAlgorithmFactory(speedProfiles, speedProfileEnc, departureTime);
+            TDRoutingAlgorithmFactory lmFactory = new TDRoutingAlgorithmFactory(speedProfiles, speedProfileEnc, departureTime)
+                    .setLandmarks(lm.getLandmarkStorage(), 4);
+            Path dijkstraPath = dijkstraFactory.createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm("dijkstra")).calcPath(from, to);
+            Path aStarPath = aStarFactory.createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm("astar")).calcPath(from, to);
+            RoutingAlgorithm lmAlgo = lmFactory.createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm("astar"));
+            Path lmPath = lmAlgo.calcPath(from, to);
+            assertEquals(dijkstraPath.isFound(), aStarPath.isFound());
+            assertEquals(dijkstraPath.isFound(), lmPath.isFound());
+            if (!dijkstraPath.isFound())
+                continue;
+            assertEquals(dijkstraPath.getWeight(), aStarPath.getWeight(), 1.e-6, "from: " + from + ", to: " + to);
+            assertEquals(dijkstraPath.getWeight(), lmPath.getWeight(), 1.e-6, "from: " + from + ", to: " + to);
+            assertEquals(dijkstraPath.getTime(), lmPath.getTime());
+            assertTrue(lmAlgo.getName().startsWith("td_astar"), lmAlgo.getName());
+        }
+        TDRoutingAlgorithmFactory factory = new TDRoutingAlgorithmFactory(speedProfiles, speedProfileEnc, ZonedDateTime.now(BERLIN));
+        assertThrows(IllegalArgumentException.class, () -> factory.createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm("astarbi")));
+    }
+
+    @Test
+    public void viaLegsStartAtTheArrivalTimeOfThePreviousLeg() {
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        int rushHour = graph.getSpeedProfileStorage().addProfile(rushHourFactors());
+        // it takes one hour to get from 0 to 1, but the rush hour only slows down the second leg from 1 to 2
+        graph.edge(0, 1).setDistance(36_000).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(10_000).set(speedEnc, 10, 10).set(speedProfileEnc, rushHour, rushHour);
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        TDRoutingAlgorithmFactory factory = new TDRoutingAlgorithmFactory(graph.getSpeedProfileStorage(), speedProfileEnc,
+                ZonedDateTime.of(2023, 5, 15, 6, 30, 0, 0, BERLIN));
+        AlgorithmOptions opts = new AlgorithmOptions().setAlgorithm("astar").setHints(new PMap());
+        Path first = factory.createAlgo(graph, weighting, opts).calcPath(0, 1);
+        assertEquals(3600_000, first.getTime());
+        Path second = factory.createAlgo(graph, weighting, opts).calcPath(1, 2);
+        assertEquals(5 * 1000_000, second.getTime(), 2);
+    }
+}
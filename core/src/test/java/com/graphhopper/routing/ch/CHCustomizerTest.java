@@ -0,0 +1,150 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CHCustomizerTest {
+    private final BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final EncodingManager encodingManager = EncodingManager.start().add(accessEnc).add(speedEnc).build();
+    private final Weighting weighting = new FastestWeighting(accessEnc, speedEnc);
+    private final BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+
+    @Test
+    public void nestedDissectionOrderingIsPermutation() {
+        GHUtility.buildRandomGraph(graph, new Random(42), 500, 2.5, true, accessEnc, speedEnc, null, 0.8, 0.8);
+        graph.freeze();
+        NodeOrderingProvider ordering = NestedDissectionOrdering.calcNodeOrdering(graph);
+        assertEquals(graph.getNodes(), ordering.getNumNodes());
+        boolean[] seen = new boolean[graph.getNodes()];
+        for (int level = 0; level < ordering.getNumNodes(); level++) {
+            int node = ordering.getNodeIdForLevel(level);
+            assertFalse(seen[node], "node " + node + " appears twice");
+            seen[node] = true;
+        }
+    }
+
+    @Test
+    public void randomGraph() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.5, true, accessEnc, speedEnc, null, 0.8, 0.8);
+        graph.freeze();
+        CHConfig chConfig = CHConfig.nodeBased("c", weighting);
+        PrepareContractionHierarchies.Result result = PrepareContractionHierarchies.fromGraph(graph, chConfig)
+                .setParams(new PMap().putObject(CHParameters.CUSTOMIZABLE, true))
+                .doWork();
+        assertTrue(result.getCHStorage().isCustomizable());
+        assertEquals(result.getCHStorage().getShortcuts(), result.getShortcuts());
+        checkQueries(rnd, result.getCHStorage(), seed);
+
+        // change some speeds and close some edges, the shortcuts remain the same, but their weights change
+        for (int i = 0; i < 100; i++) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(rnd.nextInt(graph.getEdges()), Integer.MIN_VALUE);
+            if (rnd.nextInt(5) == 0)
+                edge.set(accessEnc, false, false);
+            else
+                edge.set(speedEnc, 5 + 5 * rnd.nextInt(20), 5 + 5 * rnd.nextInt(20));
+        }
+        new CHCustomizer(graph, result.getCHStorage()).customize(weighting);
+        checkQueries(rnd, result.getCHStorage(), seed);
+    }
+
+    @Test
+    public void multipleThreads() {
+        // a grid with many nodes of the same depth, so they are really customized in parallel
+        createGrid(new Random(123), 80);
+        CHStorage chStorage = CHStorage.fromGraph(graph, CHConfig.nodeBased("c", weighting));
+        CHCustomizer customizer = CHCustomizer.createShortcuts(graph, chStorage, NestedDissectionOrdering.calcNodeOrdering(graph));
+        customizer.customize(weighting);
+        CHStorage copy = customizer.copyStorage(new RAMDirectory(), "copy", -1);
+        customizer.setThreads(4).customize(weighting, copy);
+        assertEquals(chStorage.getShortcuts(), copy.getShortcuts());
+        for (int shortcut = 0; shortcut < chStorage.getShortcuts(); shortcut++) {
+            long p1 = chStorage.toShortcutPointer(shortcut);
+            long p2 = copy.toShortcutPointer(shortcut);
+            assertEquals(chStorage.getWeight(p1), copy.getWeight(p2), "shortcut " + shortcut);
+            assertEquals(chStorage.getSkippedEdge1(p1), copy.getSkippedEdge1(p2), "shortcut " + shortcut);
+            assertEquals(chStorage.getSkippedEdge2(p1), copy.getSkippedEdge2(p2), "shortcut " + shortcut);
+        }
+        for (int node = 0; node < graph.getNodes(); node++)
+            assertEquals(chStorage.getLevel(chStorage.toNodePointer(node)), copy.getLevel(copy.toNodePointer(node)));
+        checkQueries(new Random(123), copy, 123);
+    }
+
+    @Test
+    public void edgeBasedIsNotSupported() {
+        graph.edge(0, 1).setDistance(10).set(accessEnc, true, true).set(speedEnc, 60, 60);
+        graph.freeze();
+        CHStorage chStorage = new CHStorage(new RAMDirectory(), "c", -1, true);
+        chStorage.create(graph.getNodes(), 10);
+        assertThrows(IllegalArgumentException.class, () -> CHCustomizer.createShortcuts(graph, chStorage, NodeOrderingProvider.identity(2)));
+        // the usual CH storage cannot be customized
+        CHStorage nodeBased = CHStorage.fromGraph(graph, CHConfig.nodeBased("c", weighting));
+        assertThrows(IllegalArgumentException.class, () -> new CHCustomizer(graph, nodeBased));
+    }
+
+    private void createGrid(Random rnd, int size) {
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int node = row * size + col;
+                graph.getNodeAccess().setNode(node, 49.4 + row * 0.001, 9.7 + col * 0.001);
+                if (col > 0)
+                    graph.edge(node - 1, node).setDistance(100).set(accessEnc, true, true).set(speedEnc, 5 + 5 * rnd.nextInt(20), 5 + 5 * rnd.nextInt(20));
+                if (row > 0)
+                    graph.edge(node - size, node).setDistance(100).set(accessEnc, true, rnd.nextInt(10) > 0).set(speedEnc, 5 + 5 * rnd.nextInt(20), 5 + 5 * rnd.nextInt(20));
+            }
+        }
+        graph.freeze();
+    }
+
+    private void checkQueries(Random rnd, CHStorage chStorage, long seed) {
+        RoutingCHGraph chGraph = new RoutingCHGraphImpl(graph, chStorage, weighting);
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            Path refPath = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            RoutingAlgorithm algo = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap());
+            Path path = algo.calcPath(from, to);
+            assertEquals(refPath.isFound(), path.isFound(), "found " + from + "->" + to + ", seed: " + seed);
+            if (!refPath.isFound())
+                continue;
+            assertEquals(refPath.getWeight(), path.getWeight(), 1.e-1, "weight " + from + "->" + to + ", seed: " + seed);
+            // the unpacked path must consist of base edges that connect the two nodes
+            assertEquals(from, path.calcNodes().get(0));
+            assertEquals(to, path.calcNodes().get(path.calcNodes().size() - 1));
+        }
+    }
+}
@@ -580,6 +580,42 @@ public class PrepareContractionHierarchiesTest {
         }
     }
 
+    @Test
+    public void testContractionThreads() {
+        int numNodes = 2_000;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(g, rnd, numNodes, 1.3, true, accessEnc, speedEnc, null, 0.9, 0.8);
+        g.freeze();
+        CHConfig config2 = CHConfig.nodeBased("c2", weighting);
+        CHConfig config4 = CHConfig.nodeBased("c4", weighting);
+        PrepareContractionHierarchies.Result res2 = PrepareContractionHierarchies.fromGraph(g, config2)
+                .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 2)).doWork();
+        PrepareContractionHierarchies.Result res4 = PrepareContractionHierarchies.fromGraph(g, config4)
+                .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 4)).doWork();
+        // the result does not depend on the number of threads
+        assertTrue(res2.getShortcuts() > 0);
+        assertEquals(res2.getShortcuts(), res4.getShortcuts(), "seed: " + seed);
+        for (int node = 0; node < numNodes; node++)
+            assertEquals(res2.getCHStorage().getLevel(res2.getCHStorage().toNodePointer(node)),
+                    res4.getCHStorage().getLevel(res4.getCHStorage().toNodePointer(node)));
+
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(g, res4.getCHStorage(), res4.getCHConfig());
+        for (int i = 0; i < 100; ++i) {
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            double dijkstraWeight = new Dijkstra(g, weighting, TraversalMode.NODE_BASED).calcPath(from, to).getWeight();
+            double chWeight = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(from, to).getWeight();
+            assertEquals(dijkstraWeight, chWeight, 1.e-1, "seed: " + seed);
+        }
+    }
+
+    @Test
+    public void testInvalidContractionThreads() {
+        PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g);
+        assertThrows(IllegalArgumentException.class, () -> prepare.setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 0)));
+    }
+
     private void checkPath(BaseGraph g, CHConfig c, int expShortcuts, double expDistance, IntIndexedContainer expNodes, int[] nodeOrdering) {
         PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g, c);
         useNodeOrdering(prepare, nodeOrdering);
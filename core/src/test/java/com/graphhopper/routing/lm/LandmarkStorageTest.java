@@ -35,6 +35,7 @@ import org.junit.jupiter.api.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static java.util.Collections.emptyList;
 import static org.junit.jupiter.api.Assertions.*;
@@ -130,6 +131,48 @@ public class LandmarkStorageTest {
         assertEquals("[5, 4]", Arrays.toString(storage.getLandmarks(2)));
     }
 
+    @Test
+    public void testWithSubnetworksAndLandmarkThreads() {
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(0, 1).setDistance(10.1));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(1, 2).setDistance(10.2));
+        graph.edge(2, 4).set(accessEnc, false, false);
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(4, 5).setDistance(10.5));
+        GHUtility.setSpeed(60, true, false, accessEnc, speedEnc, graph.edge(5, 6).setDistance(10.6));
+        Weighting weighting = new FastestWeighting(accessEnc, speedEnc);
+        subnetworkRemoval(weighting, 1);
+
+        LandmarkStorage storage = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), new LMConfig("car", weighting), 2)
+                .setLandmarkThreads(3);
+        storage.setMinimumNodes(2);
+        storage.createLandmarks();
+        assertEquals(3, storage.getSubnetworksWithLandmarks());
+        assertEquals("[2, 0]", Arrays.toString(storage.getLandmarks(1)));
+        assertEquals("[5, 4]", Arrays.toString(storage.getLandmarks(2)));
+    }
+
+    @Test
+    public void testLandmarkThreadsYieldSameWeights() {
+        GHUtility.buildRandomGraph(graph, new Random(42), 500, 2.2, true, accessEnc, speedEnc, 60d, 0.8, 0.7);
+        Weighting weighting = new FastestWeighting(accessEnc, speedEnc);
+        LandmarkStorage sequential = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), new LMConfig("car", weighting), 8);
+        sequential.setMinimumNodes(20);
+        sequential.createLandmarks();
+        LandmarkStorage concurrent = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), new LMConfig("car", weighting), 8)
+                .setLandmarkThreads(4);
+        concurrent.setMinimumNodes(20);
+        concurrent.createLandmarks();
+
+        assertTrue(sequential.getSubnetworksWithLandmarks() > 1);
+        assertEquals(sequential.toString(), concurrent.toString());
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lm = 0; lm < 8; lm++) {
+                assertEquals(sequential.getFromWeight(lm, node), concurrent.getFromWeight(lm, node));
+                assertEquals(sequential.getToWeight(lm, node), concurrent.getToWeight(lm, node));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> concurrent.setLandmarkThreads(0));
+    }
+
     @Test
     public void testWithStronglyConnectedComponent() {
         // 0 - 1 - 2 = 3 - 4
@@ -0,0 +1,161 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.custom.CustomModelParser;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.graphhopper.routing.weighting.TrafficOverlay.Update.forEdge;
+import static com.graphhopper.routing.weighting.TrafficOverlay.Update.forOsmWay;
+import static com.graphhopper.routing.weighting.TurnCostProvider.NO_TURN_COST_PROVIDER;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrafficOverlayTest {
+    private BooleanEncodedValue accessEnc;
+    private DecimalEncodedValue speedEnc;
+    private IntEncodedValue wayIdEnc;
+    private EncodingManager encodingManager;
+    private BaseGraph graph;
+
+    @BeforeEach
+    public void setup() {
+        accessEnc = VehicleAccess.create("car");
+        speedEnc = VehicleSpeed.create("car", 5, 5, true);
+        wayIdEnc = OSMWayID.create();
+        encodingManager = new EncodingManager.Builder().add(accessEnc).add(speedEnc).add(wayIdEnc).build();
+        graph = new BaseGraph.Builder(encodingManager).create();
+        // 0-1-2-3, the first two edges belong to way 100, the last one to way 200
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < 4; node++)
+            na.setNode(node, 49.4, 9.7 + node * 0.01);
+        GHUtility.setSpeed(60, 60, accessEnc, speedEnc, graph.edge(0, 1).setDistance(1000).set(wayIdEnc, 100));
+        GHUtility.setSpeed(60, 60, accessEnc, speedEnc, graph.edge(1, 2).setDistance(1000).set(wayIdEnc, 100));
+        GHUtility.setSpeed(60, 60, accessEnc, speedEnc, graph.edge(2, 3).setDistance(1000).set(wayIdEnc, 200));
+        graph.freeze();
+    }
+
+    @Test
+    public void updatesCreateNewSnapshots() {
+        TrafficOverlay overlay = new TrafficOverlay(graph, wayIdEnc);
+        TrafficOverlay.Snapshot empty = overlay.getSnapshot();
+        assertTrue(empty.isEmpty());
+        assertEquals(2, overlay.apply(Arrays.asList(forEdge(0, 0.5), forEdge(2, 0))));
+        TrafficOverlay.Snapshot snapshot = overlay.getSnapshot();
+        assertEquals(0.5, snapshot.getSpeedFactor(0), 1.e-6);
+        assertEquals(1, snapshot.getSpeedFactor(1));
+        assertEquals(0, snapshot.getSpeedFactor(2));
+        assertTrue(snapshot.getVersion() > empty.getVersion());
+        // earlier snapshots do not change
+        assertTrue(empty.isEmpty());
+        assertEquals(1, empty.getSpeedFactor(0));
+
+        // a factor of 1 removes the update
+        overlay.apply(Collections.singletonList(forEdge(0, 1)));
+        assertEquals(1, overlay.getSnapshot().size());
+        assertEquals(0.5, snapshot.getSpeedFactor(0), 1.e-6);
+        overlay.clear();
+        assertTrue(overlay.getSnapshot().isEmpty());
+    }
+
+    @Test
+    public void onlySlowdownsAreAllowed() {
+        TrafficOverlay overlay = new TrafficOverlay(graph, null);
+        overlay.apply(Collections.singletonList(forEdge(0, 0.5)));
+        TrafficOverlay.Snapshot snapshot = overlay.getSnapshot();
+        for (double factor : new double[]{1.5, -0.1, Double.NaN})
+            assertThrows(IllegalArgumentException.class, () -> overlay.apply(Arrays.asList(forEdge(1, 0.2), forEdge(2, factor))));
+        assertThrows(IllegalArgumentException.class, () -> overlay.apply(Collections.singletonList(forEdge(3, 0.2))));
+        // there is no OSM way id encoded value
+        assertThrows(IllegalArgumentException.class, () -> overlay.apply(Collections.singletonList(forOsmWay(100, 0.2))));
+        // invalid updates are not applied at all
+        assertSame(snapshot, overlay.getSnapshot());
+    }
+
+    @Test
+    public void applyWithClear() {
+        TrafficOverlay overlay = new TrafficOverlay(graph, wayIdEnc);
+        overlay.apply(Arrays.asList(forEdge(0, 0.5), forEdge(1, 0.5)));
+        TrafficOverlay.Snapshot snapshot = overlay.getSnapshot();
+        // an invalid update neither clears the previous updates nor creates a new version
+        assertThrows(IllegalArgumentException.class, () -> overlay.apply(Collections.singletonList(forEdge(2, 1.5)), true));
+        assertSame(snapshot, overlay.getSnapshot());
+        assertEquals(snapshot.getVersion(), overlay.getSnapshot().getVersion());
+        assertEquals(0.5, overlay.getSnapshot().getSpeedFactor(0), 1.e-6);
+
+        assertEquals(1, overlay.apply(Collections.singletonList(forEdge(2, 0.25)), true));
+        assertEquals(snapshot.getVersion() + 1, overlay.getSnapshot().getVersion());
+        assertEquals(1, overlay.getSnapshot().size());
+        assertEquals(1, overlay.getSnapshot().getSpeedFactor(0));
+        assertEquals(0.25, overlay.getSnapshot().getSpeedFactor(2), 1.e-6);
+    }
+
+    @Test
+    public void osmWays() {
+        TrafficOverlay overlay = new TrafficOverlay(graph, wayIdEnc);
+        assertEquals(2, overlay.apply(Collections.singletonList(forOsmWay(100, 0.25))));
+        assertEquals(0.25, overlay.getSnapshot().getSpeedFactor(0), 1.e-6);
+        assertEquals(0.25, overlay.getSnapshot().getSpeedFactor(1), 1.e-6);
+        assertEquals(1, overlay.getSnapshot().getSpeedFactor(2));
+        // unknown ways are ignored
+        assertEquals(1, overlay.apply(Arrays.asList(forOsmWay(200, 0), forOsmWay(300, 0), forOsmWay(5_000_000_000L, 0))));
+        assertEquals(0, overlay.getSnapshot().getSpeedFactor(2));
+    }
+
+    @Test
+    public void customWeighting() {
+        TrafficOverlay overlay = new TrafficOverlay(graph, wayIdEnc);
+        overlay.apply(Arrays.asList(forEdge(0, 0.5), forEdge(1, 0)));
+        CustomModel customModel = new CustomModel().setDistanceInfluence(0d);
+        Weighting weighting = CustomModelParser.createWeighting(accessEnc, speedEnc, null, encodingManager,
+                NO_TURN_COST_PROVIDER, customModel, overlay.getSnapshot());
+        Weighting noTraffic = CustomModelParser.createWeighting(accessEnc, speedEnc, null, encodingManager,
+                NO_TURN_COST_PROVIDER, customModel);
+        EdgeIteratorState edge0 = graph.getEdgeIteratorState(0, 1);
+        assertEquals(60, noTraffic.calcEdgeWeight(edge0, false), 1.e-6);
+        assertEquals(120, weighting.calcEdgeWeight(edge0, false), 1.e-6);
+        assertEquals(120, weighting.calcEdgeWeight(edge0, true), 1.e-6);
+        assertEquals(120_000, weighting.calcEdgeMillis(edge0, false));
+        assertEquals(Double.POSITIVE_INFINITY, weighting.calcEdgeWeight(graph.getEdgeIteratorState(1, 2), false));
+        assertEquals(60, weighting.calcEdgeWeight(graph.getEdgeIteratorState(2, 3), false), 1.e-6);
+        // the weighting keeps using its snapshot
+        overlay.clear();
+        assertEquals(120, weighting.calcEdgeWeight(edge0, false), 1.e-6);
+
+        // virtual edges use the factor of their original edge
+        Snap snap = new Snap(49.4, 9.705);
+        snap.setClosestEdge(edge0);
+        snap.setWayIndex(0);
+        snap.setSnappedPosition(Snap.Position.EDGE);
+        snap.calcSnappedPoint(DistanceCalcEarth.DIST_EARTH);
+        QueryGraph queryGraph = QueryGraph.create(graph, snap);
+        EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(4);
+        while (iter.next())
+            assertEquals(2 * noTraffic.calcEdgeWeight(iter, false), weighting.calcEdgeWeight(iter, false), 1.e-6);
+    }
+}
@@ -79,6 +79,19 @@ class CustomModelParserTest {
         assertEquals(1.0, priorityMapping.get(edge2, false), 1.e-6);
     }
 
+    @Test
+    void testCacheHitsAndMisses() {
+        CustomModel customModel = new CustomModel();
+        customModel.addToPriority(If("road_class == TRACK", MULTIPLY, "0.123"));
+        long hits = CustomModelParser.getCacheHits();
+        long misses = CustomModelParser.getCacheMisses();
+        CustomModelParser.createWeightingParameters(customModel, encodingManager, avgSpeedEnc, maxSpeed, null);
+        assertEquals(misses + 1, CustomModelParser.getCacheMisses());
+        CustomModelParser.createWeightingParameters(customModel, encodingManager, avgSpeedEnc, maxSpeed, null);
+        assertEquals(hits + 1, CustomModelParser.getCacheHits());
+        assertEquals(misses + 1, CustomModelParser.getCacheMisses());
+    }
+
     @Test
     void testPriority() {
         EdgeIteratorState primary = graph.edge(0, 1).setDistance(10).
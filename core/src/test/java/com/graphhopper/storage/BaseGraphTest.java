@@ -19,6 +19,7 @@ package com.graphhopper.storage;
 
 import com.graphhopper.routing.ev.EnumEncodedValue;
 import com.graphhopper.routing.ev.RoadClass;
+import com.graphhopper.routing.util.AccessFilter;
 import com.graphhopper.search.KVStorage.KeyValue;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
@@ -26,6 +27,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static com.graphhopper.search.KVStorage.KeyValue.STREET_NAME;
 import static com.graphhopper.util.EdgeIteratorState.REVERSE_STATE;
@@ -261,6 +263,54 @@ public class BaseGraphTest extends AbstractGraphStorageTester {
         assertEquals(key, edge.getEdgeKey());
     }
 
+    @Test
+    public void adjacencyIndexKeepsEdgesAndOrder() {
+        BaseGraph linkedGraph = new BaseGraph.Builder(encodingManager).create();
+        BaseGraph indexedGraph = new BaseGraph.Builder(encodingManager).withAdjacencyIndex(true).create();
+        GHUtility.buildRandomGraph(linkedGraph, new Random(123), 100, 2.5, true, carAccessEnc, carSpeedEnc, null, 0.8, 0.3);
+        GHUtility.buildRandomGraph(indexedGraph, new Random(123), 100, 2.5, true, carAccessEnc, carSpeedEnc, null, 0.8, 0.3);
+        // explorers that were created before the graph was frozen keep following the links
+        EdgeExplorer explorerBeforeFreeze = indexedGraph.createEdgeExplorer();
+        linkedGraph.freeze();
+        indexedGraph.freeze();
+        assertTrue(indexedGraph.toDetailsString().contains("adjacency index"));
+        assertFalse(linkedGraph.toDetailsString().contains("adjacency index"));
+        assertSameAdjacentEdges(linkedGraph.createEdgeExplorer(), explorerBeforeFreeze, linkedGraph.getNodes());
+        assertSameAdjacentEdges(linkedGraph.createEdgeExplorer(), indexedGraph.createEdgeExplorer(), linkedGraph.getNodes());
+        assertSameAdjacentEdges(linkedGraph.createEdgeExplorer(AccessFilter.outEdges(carAccessEnc)),
+                indexedGraph.createEdgeExplorer(AccessFilter.outEdges(carAccessEnc)), linkedGraph.getNodes());
+
+        // the index is also created when a frozen graph is loaded
+        Directory dir = new RAMDirectory(defaultGraphLoc, true);
+        graph = new BaseGraph.Builder(encodingManager).setDir(dir).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 100, 2.5, true, carAccessEnc, carSpeedEnc, null, 0.8, 0.3);
+        graph.freeze();
+        graph.flush();
+        graph.close();
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true)).withAdjacencyIndex(true).build();
+        assertTrue(graph.loadExisting());
+        assertTrue(graph.toDetailsString().contains("adjacency index"));
+        assertSameAdjacentEdges(linkedGraph.createEdgeExplorer(), graph.createEdgeExplorer(), linkedGraph.getNodes());
+    }
+
+    private static void assertSameAdjacentEdges(EdgeExplorer expectedExplorer, EdgeExplorer explorer, int nodes) {
+        for (int node = 0; node < nodes; node++) {
+            EdgeIterator expected = expectedExplorer.setBaseNode(node);
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (expected.next()) {
+                assertTrue(iter.next(), "missing edge " + expected.getEdge() + " at node " + node);
+                assertEquals(expected.getEdge(), iter.getEdge());
+                assertEquals(expected.getEdgeKey(), iter.getEdgeKey());
+                assertEquals(expected.getBaseNode(), iter.getBaseNode());
+                assertEquals(expected.getAdjNode(), iter.getAdjNode());
+                assertEquals(expected.getDistance(), iter.getDistance());
+                assertEquals(expected.fetchWayGeometry(FetchMode.ALL), iter.fetchWayGeometry(FetchMode.ALL));
+                assertEquals(expected.detach(true).getEdgeKey(), iter.detach(true).getEdgeKey());
+            }
+            assertFalse(iter.next(), "unexpected edge " + iter.getEdge() + " at node " + node);
+        }
+    }
+
     @Test
     public void outOfBounds() {
         BaseGraph graph = createGHStorage();
@@ -1,7 +1,9 @@
 package com.graphhopper.storage;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
 import java.util.LinkedHashMap;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -33,4 +35,14 @@ class GHDirectoryTest {
         assertEquals(DAType.MMAP, dir.getDefaultType("nodes_ch_car", false));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testMappedBytes(@TempDir Path path) {
+        GHDirectory dir = new GHDirectory(path.toString(), DAType.RAM_STORE);
+        dir.create("ram", 128).create(1000);
+        assertEquals(0, dir.getMappedBytes());
+        dir.create("mmap", DAType.MMAP, 128).create(1000);
+        assertEquals(8 * 128, dir.getMappedBytes());
+        dir.close();
+        assertEquals(0, dir.getMappedBytes());
+    }
+}
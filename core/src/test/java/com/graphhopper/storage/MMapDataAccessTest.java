@@ -19,6 +19,8 @@ package com.graphhopper.storage;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -59,4 +61,35 @@ public class MMapDataAccessTest extends DataAccessTest {
         assertEquals(123, da.getInt(7 * 4));
         da.close();
     }
+
+    @Test
+    public void concurrentReads() throws InterruptedException {
+        DataAccess da = createDataAccess(name, 128);
+        da.create(10 * 128);
+        for (int i = 0; i < 10 * 128 / 4; i++)
+            da.setInt(i * 4L, i);
+        // short across segments
+        da.setShort(127, (short) -1234);
+
+        AtomicInteger errors = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int round = 0; round < 1000; round++) {
+                    if (da.getShort(127) != -1234)
+                        errors.incrementAndGet();
+                    for (int i = 33; i < 10 * 128 / 4; i++)
+                        if (da.getInt(i * 4L) != i)
+                            errors.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(0, errors.get());
+        assertEquals(10 * 128, da.getCapacity());
+        da.close();
+        assertEquals(0, da.getSegments());
+    }
 }
@@ -0,0 +1,185 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.search.KVStorage.KeyValue;
+import com.graphhopper.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Random;
+
+import static com.graphhopper.search.KVStorage.KeyValue.STREET_NAME;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodeOrderingTest {
+    private final BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
+    private final DecimalEncodedValue turnCostEnc = TurnCost.create("car", 10);
+    private final EncodingManager encodingManager = EncodingManager.start().add(accessEnc).add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
+
+    @Test
+    public void hilbertIndex() {
+        assertEquals(0, NodeOrdering.hilbertIndex(0, 0, 1));
+        assertEquals(1, NodeOrdering.hilbertIndex(0, 1, 1));
+        assertEquals(2, NodeOrdering.hilbertIndex(1, 1, 1));
+        assertEquals(3, NodeOrdering.hilbertIndex(1, 0, 1));
+        // every cell of the grid is visited exactly once
+        boolean[] visited = new boolean[16 * 16];
+        for (int x = 0; x < 16; x++)
+            for (int y = 0; y < 16; y++) {
+                int d = (int) NodeOrdering.hilbertIndex(x, y, 4);
+                assertFalse(visited[d]);
+                visited[d] = true;
+            }
+    }
+
+    @Test
+    public void hilbertOrderCoversAllQuadrants() {
+        // a 4x4 grid, i.e. four nodes in every quadrant of the bounds
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        NodeAccess na = graph.getNodeAccess();
+        int size = 4;
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++)
+                na.setNode(row * size + col, 49.4 + row * 0.1, 9.7 + col * 0.1);
+        int[] oldToNew = NodeOrdering.calcOldToNew(graph, NodeOrdering.Order.HILBERT);
+
+        int maxCell = (1 << NodeOrdering.HILBERT_BITS) - 1;
+        long[] indices = new long[size * size];
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++)
+                indices[row * size + col] = NodeOrdering.hilbertIndex(col * maxCell / (size - 1), row * maxCell / (size - 1), NodeOrdering.HILBERT_BITS);
+        for (int a = 0; a < indices.length; a++)
+            for (int b = 0; b < indices.length; b++)
+                if (indices[a] < indices[b])
+                    assertTrue(oldToNew[a] < oldToNew[b], "node " + a + " must come before node " + b);
+        // the curve starts in the south-west and ends in the south-east corner
+        assertEquals(0, oldToNew[0]);
+        assertEquals(size * size - 1, oldToNew[size - 1]);
+    }
+
+    @ParameterizedTest
+    @EnumSource(NodeOrdering.Order.class)
+    public void relabelKeepsEdgesGeometryKeyValuesAndTurnCosts(NodeOrdering.Order order) {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).withTurnCosts(true).create();
+        Random rnd = new Random(42);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, false, accessEnc, speedEnc, null, 0.8, 0.3);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            iter.setWayGeometry(Helper.createPointList(49.4 + rnd.nextDouble() * 0.01, 9.7, 49.4, 9.7 + rnd.nextDouble() * 0.01));
+            iter.setKeyValues(KeyValue.createKV(STREET_NAME, "street " + iter.getEdge()));
+        }
+        TurnCostStorage tcs = graph.getTurnCostStorage();
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        IntArrayList turnCostTriples = new IntArrayList();
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator in = explorer.setBaseNode(node);
+            if (!in.next())
+                continue;
+            int inEdge = in.getEdge();
+            EdgeIterator out = explorer.setBaseNode(node);
+            while (out.next()) {
+                if (out.getEdge() == inEdge)
+                    continue;
+                tcs.set(turnCostEnc, inEdge, node, out.getEdge(), node % 7);
+                turnCostTriples.add(inEdge, node, out.getEdge());
+            }
+        }
+
+        NodeAccess na = graph.getNodeAccess();
+        double[] lats = new double[graph.getNodes()];
+        double[] lons = new double[graph.getNodes()];
+        for (int node = 0; node < graph.getNodes(); node++) {
+            lats[node] = na.getLat(node);
+            lons[node] = na.getLon(node);
+        }
+        int[] baseNodes = new int[graph.getEdges()];
+        int[] adjNodes = new int[graph.getEdges()];
+        PointList[] geometries = new PointList[graph.getEdges()];
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            EdgeIteratorState state = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            baseNodes[edge] = state.getBaseNode();
+            adjNodes[edge] = state.getAdjNode();
+            geometries[edge] = state.fetchWayGeometry(FetchMode.ALL);
+        }
+
+        int[] oldToNew = NodeOrdering.calcOldToNew(graph, order);
+        graph.relabelNodes(oldToNew);
+
+        for (int node = 0; node < graph.getNodes(); node++) {
+            assertEquals(lats[node], na.getLat(oldToNew[node]), 1.e-6);
+            assertEquals(lons[node], na.getLon(oldToNew[node]), 1.e-6);
+        }
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            EdgeIteratorState state = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            assertEquals(oldToNew[baseNodes[edge]], state.getBaseNode());
+            assertEquals(oldToNew[adjNodes[edge]], state.getAdjNode());
+            assertEquals(geometries[edge], state.fetchWayGeometry(FetchMode.ALL));
+            assertEquals("street " + edge, state.getName());
+            // the edge can still be found from both of its nodes
+            assertTrue(GHUtility.getEdgeIds(explorer.setBaseNode(state.getBaseNode())).contains(edge));
+            assertTrue(GHUtility.getEdgeIds(explorer.setBaseNode(state.getAdjNode())).contains(edge));
+        }
+        for (int i = 0; i < turnCostTriples.size(); i += 3) {
+            int node = turnCostTriples.get(i + 1);
+            assertEquals(node % 7, tcs.get(turnCostEnc, turnCostTriples.get(i), oldToNew[node], turnCostTriples.get(i + 2)), 1.e-6);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(NodeOrdering.Order.class)
+    public void improveLocalityOfShuffledGrid(NodeOrdering.Order order) {
+        // a 30x30 grid where the node ids are assigned randomly
+        int size = 30;
+        IntArrayList ids = ArrayUtil.permutation(size * size, new Random(123));
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        NodeAccess na = graph.getNodeAccess();
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int node = ids.get(row * size + col);
+                na.setNode(node, 49.4 + row * 0.001, 9.7 + col * 0.001);
+                if (col > 0)
+                    graph.edge(ids.get(row * size + col - 1), node).setDistance(100);
+                if (row > 0)
+                    graph.edge(ids.get((row - 1) * size + col), node).setDistance(100);
+            }
+        }
+        double deltaBefore = NodeOrdering.calcAvgNodeIdDelta(graph);
+        graph.relabelNodes(NodeOrdering.calcOldToNew(graph, order));
+        double deltaAfter = NodeOrdering.calcAvgNodeIdDelta(graph);
+        assertTrue(deltaAfter < deltaBefore / 5, "delta before: " + deltaBefore + ", after: " + deltaAfter);
+    }
+
+    @Test
+    public void invalidPermutation() {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        graph.edge(0, 1).setDistance(10);
+        graph.edge(1, 2).setDistance(10);
+        assertThrows(IllegalArgumentException.class, () -> graph.relabelNodes(new int[]{0, 1}));
+        assertThrows(IllegalArgumentException.class, () -> graph.relabelNodes(new int[]{0, 1, 1}));
+        assertThrows(IllegalArgumentException.class, () -> graph.relabelNodes(new int[]{0, 1, 3}));
+        graph.freeze();
+        assertThrows(IllegalStateException.class, () -> graph.relabelNodes(new int[]{2, 1, 0}));
+    }
+}
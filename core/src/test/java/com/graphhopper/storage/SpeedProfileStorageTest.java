@@ -0,0 +1,165 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.ev.SpeedProfile;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static com.graphhopper.storage.SpeedProfileStorage.SLOTS;
+import static com.graphhopper.storage.SpeedProfileStorage.SLOT_MILLIS;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpeedProfileStorageTest {
+    private static final long MINUTE = 60 * 1000L;
+    // 1970-01-05 was a Monday
+    private static final long MONDAY = 4 * 24 * 60 * MINUTE;
+    private final String location = "./target/tmp/speed-profiles";
+
+    @AfterEach
+    public void tearDown() {
+        Helper.removeDir(new File(location));
+    }
+
+    private static SpeedProfileStorage createStorage() {
+        return new SpeedProfileStorage(new RAMDirectory().create("speed_profiles")).create(100);
+    }
+
+    private static double[] constant(double factor) {
+        double[] factors = new double[SLOTS];
+        Arrays.fill(factors, factor);
+        return factors;
+    }
+
+    @Test
+    public void addProfileReusesEqualProfiles() {
+        SpeedProfileStorage storage = createStorage();
+        assertEquals(1, storage.getProfileCount());
+        assertEquals(0, storage.addProfile(constant(1)));
+        double[] rushHour = constant(1);
+        rushHour[32] = 0.5;
+        assertEquals(1, storage.addProfile(rushHour));
+        assertEquals(2, storage.addProfile(constant(1.2)));
+        // factors are rounded to percents
+        assertEquals(1, storage.addProfile(rushHour.clone()));
+        rushHour[32] = 0.501;
+        assertEquals(1, storage.addProfile(rushHour));
+        assertEquals(3, storage.getProfileCount());
+        assertEquals(0.5, storage.getFactor(1, 32));
+        assertEquals(1, storage.getFactor(1, 33));
+        assertEquals(1.2, storage.getMaxFactor(), 1.e-6);
+
+        assertThrows(IllegalArgumentException.class, () -> storage.addProfile(new double[SLOTS - 1]));
+        assertThrows(IllegalArgumentException.class, () -> storage.addProfile(constant(0)));
+        assertThrows(IllegalArgumentException.class, () -> storage.addProfile(constant(2.6)));
+        assertThrows(IllegalArgumentException.class, () -> storage.getFactor(3, 0));
+    }
+
+    @Test
+    public void profileIdsMustFitIntoTheEncodedValue() {
+        SpeedProfileStorage storage = createStorage();
+        double[] factors = constant(1);
+        for (int id = 1; id <= SpeedProfile.MAX_ID; id++) {
+            factors[id % SLOTS] = 0.01 * (1 + id / SLOTS);
+            assertEquals(id, storage.addProfile(factors));
+        }
+        factors[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> storage.addProfile(factors));
+        // existing profiles can still be found
+        assertEquals(0, storage.addProfile(constant(1)));
+        assertEquals(SpeedProfile.MAX_ID + 1, storage.getProfileCount());
+    }
+
+    @Test
+    public void getSlot() {
+        assertEquals(0, SpeedProfileStorage.getSlot(MONDAY));
+        assertEquals(32, SpeedProfileStorage.getSlot(MONDAY + 8 * 60 * MINUTE));
+        assertEquals(32, SpeedProfileStorage.getSlot(MONDAY + 8 * 60 * MINUTE + 14 * MINUTE));
+        assertEquals(SLOTS - 1, SpeedProfileStorage.getSlot(MONDAY - 1));
+        assertEquals(1, SpeedProfileStorage.getSlot(MONDAY + 7 * 24 * 60 * MINUTE + SLOT_MILLIS));
+        // 1970-01-01 was a Thursday
+        assertEquals(3 * 24 * 4, SpeedProfileStorage.getSlot(0));
+    }
+
+    @Test
+    public void calcMillisAcrossSlots() {
+        SpeedProfileStorage storage = createStorage();
+        double[] factors = constant(1);
+        // Monday 08:00 - 08:15
+        factors[32] = 0.5;
+        int profile = storage.addProfile(factors);
+        long eight = MONDAY + 8 * 60 * MINUTE;
+        assertEquals(10 * MINUTE, storage.calcMillis(0, eight, 10 * MINUTE));
+        assertEquals(10 * MINUTE, storage.calcMillis(profile, eight - 20 * MINUTE, 10 * MINUTE));
+        // 15 minutes at half the speed, then the remaining 2.5 minutes at full speed
+        assertEquals(17.5 * MINUTE, storage.calcMillis(profile, eight, 10 * MINUTE), 1);
+        // 5 minutes at half the speed, then the remaining 7.5 minutes at full speed
+        assertEquals(12.5 * MINUTE, storage.calcMillis(profile, eight + 10 * MINUTE, 10 * MINUTE), 1);
+        // 5 minutes at full speed, then 10 minutes at half speed
+        assertEquals(15 * MINUTE, storage.calcMillis(profile, eight - 5 * MINUTE, 10 * MINUTE), 1);
+        // the edge is longer than a slot
+        assertEquals(37.5 * MINUTE, storage.calcMillis(profile, eight, 30 * MINUTE), 1);
+        // the profile repeats every week
+        assertEquals(17.5 * MINUTE, storage.calcMillis(profile, eight + 7 * 24 * 60 * MINUTE, 10 * MINUTE), 1);
+        assertEquals(17.5 * MINUTE, storage.calcMillis(profile, eight - 7 * 24 * 60 * MINUTE, 10 * MINUTE), 1);
+    }
+
+    @Test
+    public void enteringLaterNeverMeansLeavingEarlier() {
+        SpeedProfileStorage storage = createStorage();
+        double[] factors = new double[SLOTS];
+        for (int slot = 0; slot < SLOTS; slot++)
+            factors[slot] = 0.1 + (slot * 37 % 24) / 10.0;
+        int profile = storage.addProfile(factors);
+        long previousArrival = Long.MIN_VALUE;
+        for (long time = MONDAY; time < MONDAY + 24 * 60 * MINUTE; time += MINUTE) {
+            long arrival = time + storage.calcMillis(profile, time, 20 * MINUTE);
+            assertTrue(arrival >= previousArrival, "FIFO violated at " + time);
+            previousArrival = arrival;
+        }
+    }
+
+    @Test
+    public void flushAndLoad() {
+        EncodingManager em = EncodingManager.start().add(SpeedProfile.create()).build();
+        BaseGraph graph = new BaseGraph.Builder(em).setDir(new RAMDirectory(location, true)).create();
+        assertTrue(graph.supportsSpeedProfiles());
+        double[] factors = constant(1);
+        factors[100] = 2;
+        assertEquals(1, graph.getSpeedProfileStorage().addProfile(factors));
+        graph.flush();
+        graph.close();
+
+        graph = new BaseGraph.Builder(em).setDir(new RAMDirectory(location, true)).build();
+        assertTrue(graph.loadExisting());
+        SpeedProfileStorage storage = graph.getSpeedProfileStorage();
+        assertEquals(2, storage.getProfileCount());
+        assertEquals(2, storage.getFactor(1, 100));
+        assertEquals(2, storage.getMaxFactor());
+        assertEquals(1, storage.addProfile(factors));
+        assertEquals(2, storage.addProfile(constant(0.8)));
+        graph.close();
+
+        assertNull(new BaseGraph.Builder(EncodingManager.start().build()).create().getSpeedProfileStorage());
+    }
+}
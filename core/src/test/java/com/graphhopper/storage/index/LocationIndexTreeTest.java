@@ -647,6 +647,38 @@ public class LocationIndexTreeTest {
         assertEquals(Snap.Position.TOWER, snap.getSnappedPosition());
     }
 
+    @ParameterizedTest
+    @ValueSource(ints = {1, 50, LocationIndexTree.MIN_PARALLEL_BATCH_SIZE + 100})
+    public void testFindClosestBatch(int points) {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        Random rnd = new Random(42);
+        GHUtility.buildRandomGraph(graph, rnd, 500, 2.5, true, accessEnc, speedEnc, 60.0, 0.8, 0.5);
+        LocationIndex index = createIndexNoPrepare(graph, 50).setBatchThreads(4).prepareIndex();
+        EdgeFilter filter = edge -> edge.getEdge() % 3 != 0;
+        List<GHPoint> queryPoints = new ArrayList<>();
+        for (int i = 0; i < points; i++) {
+            // some points are outside of the graph bounds and some are duplicates
+            if (i > 0 && rnd.nextInt(10) == 0)
+                queryPoints.add(queryPoints.get(rnd.nextInt(i)));
+            else
+                queryPoints.add(new GHPoint(49.399 + rnd.nextDouble() * 0.012, 9.699 + rnd.nextDouble() * 0.012));
+        }
+        List<Snap> snaps = index.findClosest(queryPoints, filter);
+        assertEquals(points, snaps.size());
+        for (int i = 0; i < points; i++) {
+            Snap expected = index.findClosest(queryPoints.get(i).lat, queryPoints.get(i).lon, filter);
+            Snap snap = snaps.get(i);
+            assertTrue(snap.isValid());
+            assertEquals(expected.getClosestNode(), snap.getClosestNode());
+            assertEquals(expected.getClosestEdge().getEdgeKey(), snap.getClosestEdge().getEdgeKey());
+            assertEquals(expected.getWayIndex(), snap.getWayIndex());
+            assertEquals(expected.getSnappedPosition(), snap.getSnappedPosition());
+            assertEquals(expected.getSnappedPoint(), snap.getSnappedPoint());
+            assertEquals(expected.getQueryDistance(), snap.getQueryDistance(), 1.e-9);
+        }
+        index.close();
+    }
+
     @Test
     public void queryBehindBeforeOrBehindLastTowerNode() {
         // 0 -x- 1
@@ -23,6 +23,7 @@ import com.graphhopper.config.Profile;
 import com.graphhopper.routing.AStarBidirection;
 import com.graphhopper.routing.DijkstraBidirectionRef;
 import com.graphhopper.routing.Path;
+import com.graphhopper.routing.SearchBudget;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.Subnetwork;
 import com.graphhopper.routing.lm.LMApproximator;
@@ -42,8 +43,10 @@ import com.graphhopper.util.shapes.BBox;
 import org.locationtech.jts.geom.Envelope;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
 
@@ -73,6 +76,7 @@ public class MapMatching {
     private double transitionProbabilityBeta = 2.0;
     private final DistanceCalc distanceCalc = new DistancePlaneProjection();
     private QueryGraph queryGraph;
+    private SearchBudget searchBudget;
 
     private Map<String, Object> statistics = new HashMap<>();
 
@@ -124,6 +128,13 @@ public class MapMatching {
         int maxVisitedNodes = hints.getInt(Parameters.Routing.MAX_VISITED_NODES, Integer.MAX_VALUE);
 
         Router router = new Router() {
+            private SearchBudget searchBudget;
+
+            @Override
+            public void setSearchBudget(SearchBudget searchBudget) {
+                this.searchBudget = searchBudget;
+            }
+
             @Override
             public EdgeFilter getSnapFilter() {
                 return snapFilter;
@@ -152,7 +163,11 @@ public class MapMatching {
                     LMApproximator lmApproximator = LMApproximator.forLandmarks(queryGraph, queryGraphWeighting, landmarks, activeLM);
                     aStarBidirection.setApproximation(lmApproximator);
                     aStarBidirection.setMaxVisitedNodes(maxVisitedNodes);
-                    return aStarBidirection.calcPath(fromNode, toNode, fromOutEdge, toInEdge);
+                    aStarBidirection.setSearchBudget(searchBudget);
+                    Path path = aStarBidirection.calcPath(fromNode, toNode, fromOutEdge, toInEdge);
+                    if (searchBudget != null)
+                        searchBudget.consume(aStarBidirection.getVisitedNodes());
+                    return path;
                 } else {
                     DijkstraBidirectionRef dijkstraBidirectionRef = new DijkstraBidirectionRef(queryGraph, queryGraphWeighting, TraversalMode.EDGE_BASED) {
                         @Override
@@ -161,7 +176,11 @@ public class MapMatching {
                         }
                     };
                     dijkstraBidirectionRef.setMaxVisitedNodes(maxVisitedNodes);
-                    return dijkstraBidirectionRef.calcPath(fromNode, toNode, fromOutEdge, toInEdge);
+                    dijkstraBidirectionRef.setSearchBudget(searchBudget);
+                    Path path = dijkstraBidirectionRef.calcPath(fromNode, toNode, fromOutEdge, toInEdge);
+                    if (searchBudget != null)
+                        searchBudget.consume(dijkstraBidirectionRef.getVisitedNodes());
+                    return path;
                 }
             }
 
@@ -179,6 +198,15 @@ public class MapMatching {
         this.router = router;
     }
 
+    /**
+     * Aborts the map matching when the given budget is exceeded. The budget is shared by all the routing requests
+     * between the candidates.
+     */
+    public void setSearchBudget(SearchBudget searchBudget) {
+        this.searchBudget = searchBudget;
+        router.setSearchBudget(searchBudget);
+    }
+
     /**
      * Beta parameter of the exponential distribution for modeling transition
      * probabilities.
@@ -199,10 +227,12 @@ public class MapMatching {
         List<Observation> filteredObservations = filterObservations(observations);
         statistics.put("filteredObservations", filteredObservations.size());
 
-        // Snap observations to links. Generates multiple candidate snaps per observation.
-        List<List<Snap>> snapsPerObservation = filteredObservations.stream()
-                .map(o -> findCandidateSnaps(o.getPoint().lat, o.getPoint().lon))
-                .collect(Collectors.toList());
+        // Snap observations to links. Generates multiple candidate snaps per observation. Like the batch snapping of
+        // the location index we snap long traces in parallel, using the batch pool of the location index.
+        ForkJoinPool batchPool = locationIndex.getBatchPool();
+        List<List<Snap>> snapsPerObservation = batchPool != null && filteredObservations.size() >= LocationIndexTree.MIN_PARALLEL_BATCH_SIZE
+                ? batchPool.submit(() -> snapObservations(filteredObservations.parallelStream())).join()
+                : snapObservations(filteredObservations.stream());
         statistics.put("snapsPerObservation", snapsPerObservation.stream().mapToInt(Collection::size).toArray());
 
         // Create the query graph, containing split edges so that all the places where an observation might have happened
@@ -275,6 +305,10 @@ public class MapMatching {
         return filtered;
     }
 
+    private List<List<Snap>> snapObservations(Stream<Observation> observations) {
+        return observations.map(o -> findCandidateSnaps(o.getPoint().lat, o.getPoint().lon)).collect(Collectors.toList());
+    }
+
     public List<Snap> findCandidateSnaps(final double queryLat, final double queryLon) {
         double rLon = (measurementErrorSigma * 360.0 / DistanceCalcEarth.DIST_EARTH.calcCircumference(queryLat));
         double rLat = measurementErrorSigma / DistanceCalcEarth.METERS_PER_DEGREE;
@@ -412,6 +446,9 @@ public class MapMatching {
             int[] toNodes = nextTimeStep.candidates.stream().mapToInt(c -> c.getSnap().getClosestNode()).toArray();
             int[] toInEdges = nextTimeStep.candidates.stream().mapToInt(to -> to.isOnDirectedEdge() ? to.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE).toArray();
             List<Path> paths = router.calcPaths(queryGraph, fromNode, fromOutEdge, toNodes, toInEdges);
+            // without this check an aborted search would just look like a broken sequence
+            if (searchBudget != null)
+                searchBudget.check();
             for (int i = 0; i < nextTimeStep.candidates.size(); i++) {
                 State to = nextTimeStep.candidates.get(i);
                 Path path = paths.get(i);
@@ -570,6 +607,12 @@ public class MapMatching {
         default long getVisitedNodes() {
             return 0L;
         }
+
+        /**
+         * Sets the budget that limits the routing requests of {@link #calcPaths}
+         */
+        default void setSearchBudget(SearchBudget searchBudget) {
+        }
     }
 
 }
\ No newline at end of file
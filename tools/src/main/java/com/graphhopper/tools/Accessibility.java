@@ -0,0 +1,136 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.tools;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.config.Profile;
+import com.graphhopper.isochrone.algorithm.AccessibilityAnalysis;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.Subnetwork;
+import com.graphhopper.routing.util.DefaultSnapFilter;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Calculates how many opportunities can be reached from every origin within the given time limits and writes the
+ * results as CSV, e.g.:
+ * <pre>
+ * java -cp tools.jar com.graphhopper.tools.Accessibility datareader.file=berlin.pbf graph.location=berlin-gh \
+ *     vehicle=car origins=origins.csv opportunities=shops.csv time_limits=10,20,30 output=accessibility.csv
+ * </pre>
+ * The origins and opportunities are CSV files with the columns latitude, longitude and for the opportunities an
+ * optional weight. A header line is skipped. The output has one row per origin and one column per time limit (in
+ * minutes). The columns of origins that could not be snapped are empty.
+ */
+public class Accessibility {
+    private static final Logger logger = LoggerFactory.getLogger(Accessibility.class);
+
+    public static void main(String[] args) throws IOException {
+        PMap map = PMap.read(args);
+        String vehicle = map.getString("vehicle", "car");
+        GraphHopperConfig config = new GraphHopperConfig(map);
+        config.putObject("datareader.file", map.getString("datareader.file", ""));
+        config.putObject("graph.location", map.getString("graph.location", "accessibility-gh"));
+        config.putObject("import.osm.ignored_highways", map.getString("import.osm.ignored_highways", ""));
+        Profile profile = new Profile(vehicle).setVehicle(vehicle).setWeighting("fastest");
+        config.setProfiles(Collections.singletonList(profile));
+        GraphHopper hopper = new GraphHopper();
+        hopper.init(config);
+        hopper.importOrLoad();
+
+        long[] timeLimits = Arrays.stream(map.getString("time_limits", "15").split(","))
+                .mapToLong(minutes -> Math.round(Double.parseDouble(minutes.trim()) * 60_000)).toArray();
+        Weighting weighting = hopper.createWeighting(profile, new PMap());
+        BooleanEncodedValue inSubnetworkEnc = hopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profile.getName()));
+        AccessibilityAnalysis analysis = new AccessibilityAnalysis(hopper.getBaseGraph(), hopper.getLocationIndex(), weighting,
+                new DefaultSnapFilter(weighting, inSubnetworkEnc), profile.isTurnCosts() ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED)
+                .setTimeLimits(timeLimits)
+                .setThreads(map.getInt("threads", Runtime.getRuntime().availableProcessors()))
+                .setChunkSize(map.getInt("chunk_size", 1000));
+
+        List<GHPoint> opportunities = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        readPoints(map.getString("opportunities", ""), opportunities, weights);
+        int snapped = analysis.addOpportunities(opportunities, weights.stream().mapToDouble(Double::doubleValue).toArray());
+        logger.info("snapped {} of {} opportunities", snapped, opportunities.size());
+        List<GHPoint> origins = new ArrayList<>();
+        readPoints(map.getString("origins", ""), origins, new ArrayList<>());
+
+        StopWatch sw = new StopWatch().start();
+        String output = map.getString("output", "");
+        try (Writer writer = new BufferedWriter(output.isEmpty() ? new OutputStreamWriter(System.out, Helper.UTF_CS)
+                : new OutputStreamWriter(new FileOutputStream(output), Helper.UTF_CS))) {
+            StringBuilder sb = new StringBuilder("origin,latitude,longitude");
+            for (long timeLimit : timeLimits)
+                sb.append(",").append(Helper.round(timeLimit / 60_000.0, 2)).append("min");
+            writer.write(sb.append("\n").toString());
+            analysis.run(origins, (origin, result) -> {
+                sb.setLength(0);
+                sb.append(origin).append(",").append(origins.get(origin).lat).append(",").append(origins.get(origin).lon);
+                for (int i = 0; i < timeLimits.length; i++) {
+                    sb.append(",");
+                    if (result != null)
+                        sb.append(result[i]);
+                }
+                try {
+                    writer.write(sb.append("\n").toString());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        logger.info("calculated the accessibility of {} origins in {}s", origins.size(), sw.stop().getSeconds());
+        hopper.close();
+    }
+
+    private static void readPoints(String file, List<GHPoint> points, List<Double> weights) throws IOException {
+        if (file.isEmpty())
+            throw new IllegalArgumentException("Missing file name for the origins or opportunities");
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), Helper.UTF_CS))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(",");
+                if (columns.length < 2 || line.trim().isEmpty())
+                    continue;
+                try {
+                    GHPoint point = new GHPoint(Double.parseDouble(columns[0].trim()), Double.parseDouble(columns[1].trim()));
+                    double weight = columns.length > 2 ? Double.parseDouble(columns[2].trim()) : 1;
+                    points.add(point);
+                    weights.add(weight);
+                } catch (NumberFormatException e) {
+                    // the header line
+                    if (!points.isEmpty())
+                        throw new IllegalArgumentException("Invalid line in " + file + ": " + line);
+                }
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package com.graphhopper;
 
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Trace;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,6 +34,7 @@ public class GHResponse {
     private PMap hintsMap = new PMap();
     private final List<ResponsePath> responsePaths = new ArrayList<>(5);
     private String debugInfo = "";
+    private Trace trace = Trace.DISABLED;
 
     public GHResponse() {
     }
@@ -75,6 +77,18 @@ public class GHResponse {
         this.debugInfo += debugInfo;
     }
 
+    /**
+     * @return the spans of the request phases, which are only recorded if the request was made with debug=true
+     */
+    public Trace getTrace() {
+        return trace;
+    }
+
+    public GHResponse setTrace(Trace trace) {
+        this.trace = trace;
+        return this;
+    }
+
     public String getDebugInfo() {
         String str = debugInfo;
         for (ResponsePath p : responsePaths) {
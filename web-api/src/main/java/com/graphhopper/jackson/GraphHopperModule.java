@@ -22,6 +22,7 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.json.Statement;
 import com.graphhopper.util.InstructionList;
+import com.graphhopper.util.Trace;
 import com.graphhopper.util.details.PathDetail;
 import com.graphhopper.util.shapes.GHPoint;
 import org.locationtech.jts.geom.Envelope;
@@ -41,6 +42,7 @@ public class GraphHopperModule extends SimpleModule {
         addSerializer(PathDetail.class, new PathDetailSerializer());
         addSerializer(InstructionList.class, new InstructionListSerializer());
         addSerializer(MultiException.class, new MultiExceptionSerializer());
+        addSerializer(Trace.class, new TraceSerializer());
     }
 
 }
@@ -57,4 +57,32 @@ public class InstructionListSerializer extends JsonSerializer<InstructionList> {
         }
         jsonGenerator.writeObject(instrList);
     }
+
+    /**
+     * Writes the same JSON as {@link #serialize} but without creating a Map per instruction.
+     */
+    public static void writeInstructions(JsonGenerator jsonGenerator, InstructionList instructions) throws IOException {
+        jsonGenerator.writeStartArray();
+        int pointsIndex = 0;
+        for (Instruction instruction : instructions) {
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeStringField("text", Helper.firstBig(instruction.getTurnDescription(instructions.getTr())));
+            jsonGenerator.writeStringField(STREET_NAME, instruction.getName());
+            jsonGenerator.writeNumberField("time", instruction.getTime());
+            jsonGenerator.writeNumberField("distance", Helper.round(instruction.getDistance(), 3));
+            jsonGenerator.writeNumberField("sign", instruction.getSign());
+            for (Map.Entry<String, Object> entry : instruction.getExtraInfoJSON().entrySet()) {
+                jsonGenerator.writeObjectField(entry.getKey(), entry.getValue());
+            }
+
+            int tmpIndex = pointsIndex + instruction.getLength();
+            jsonGenerator.writeArrayFieldStart("interval");
+            jsonGenerator.writeNumber(pointsIndex);
+            jsonGenerator.writeNumber(tmpIndex);
+            jsonGenerator.writeEndArray();
+            pointsIndex = tmpIndex;
+            jsonGenerator.writeEndObject();
+        }
+        jsonGenerator.writeEndArray();
+    }
 }
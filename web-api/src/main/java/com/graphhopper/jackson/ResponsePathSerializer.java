@@ -18,6 +18,7 @@
 
 package com.graphhopper.jackson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -25,11 +26,15 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
+import com.graphhopper.util.details.PathDetail;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Code which constructs the JSON response of the routing API, including polyline encoding.
@@ -52,38 +57,115 @@ public class ResponsePathSerializer {
 
     public static String encodePolyline(PointList poly, boolean includeElevation, double precision) {
         StringBuilder sb = new StringBuilder(Math.max(20, poly.size() * 3));
-        int size = poly.size();
-        int prevLat = 0;
-        int prevLon = 0;
-        int prevEle = 0;
+        PolylineReader reader = new PolylineReader(poly, includeElevation, precision);
+        char[] buffer = new char[256];
+        int len;
+        while ((len = reader.read(buffer, 0, buffer.length)) > 0) {
+            sb.append(buffer, 0, len);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the encoded polyline as JSON string. The characters are encoded while the generator consumes them, so
+     * the polyline is never created as String.
+     */
+    public static void writePolyline(JsonGenerator gen, PointList poly, boolean includeElevation, double precision) throws IOException {
+        gen.writeString(new PolylineReader(poly, includeElevation, precision), -1);
+    }
+
+    /**
+     * Writes the points as GeoJSON LineString in the same format as {@link PointList#toLineString(boolean)}.
+     */
+    public static void writeLineString(JsonGenerator gen, PointList poly, boolean includeElevation) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("type", "LineString");
+        gen.writeArrayFieldStart("coordinates");
+        // special case as just 1 point is not supported in the specification #1412
+        int size = poly.size() == 1 ? 2 : poly.size();
         for (int i = 0; i < size; i++) {
-            int num = (int) Math.floor(poly.getLat(i) * precision);
-            encodeNumber(sb, num - prevLat);
+            int index = Math.min(i, poly.size() - 1);
+            gen.writeStartArray();
+            gen.writeNumber(Helper.round6(poly.getLon(index)));
+            gen.writeNumber(Helper.round6(poly.getLat(index)));
+            if (includeElevation)
+                gen.writeNumber(Helper.round2(poly.getEle(index)));
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    /**
+     * Encodes the points of a PointList as polyline characters on demand.
+     */
+    private static class PolylineReader extends Reader {
+        // a number needs at most 7 characters, see encodeNumber
+        private final char[] pending = new char[3 * 7];
+        private final PointList poly;
+        private final boolean includeElevation;
+        private final double precision;
+        private int pendingStart, pendingEnd;
+        private int pointIndex;
+        private int prevLat, prevLon, prevEle;
+
+        PolylineReader(PointList poly, boolean includeElevation, double precision) {
+            this.poly = poly;
+            this.includeElevation = includeElevation;
+            this.precision = precision;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            int count = 0;
+            while (count < len) {
+                if (pendingStart == pendingEnd) {
+                    if (pointIndex >= poly.size())
+                        break;
+                    encodeNextPoint();
+                }
+                int n = Math.min(len - count, pendingEnd - pendingStart);
+                System.arraycopy(pending, pendingStart, cbuf, off + count, n);
+                pendingStart += n;
+                count += n;
+            }
+            return count == 0 && len > 0 ? -1 : count;
+        }
+
+        private void encodeNextPoint() {
+            pendingStart = 0;
+            pendingEnd = 0;
+            int num = (int) Math.floor(poly.getLat(pointIndex) * precision);
+            encodeNumber(num - prevLat);
             prevLat = num;
-            num = (int) Math.floor(poly.getLon(i) * precision);
-            encodeNumber(sb, num - prevLon);
+            num = (int) Math.floor(poly.getLon(pointIndex) * precision);
+            encodeNumber(num - prevLon);
             prevLon = num;
             if (includeElevation) {
-                num = (int) Math.floor(poly.getEle(i) * 100);
-                encodeNumber(sb, num - prevEle);
+                num = (int) Math.floor(poly.getEle(pointIndex) * 100);
+                encodeNumber(num - prevEle);
                 prevEle = num;
             }
+            pointIndex++;
         }
-        return sb.toString();
-    }
 
-    private static void encodeNumber(StringBuilder sb, int num) {
-        num = num << 1;
-        if (num < 0) {
-            num = ~num;
+        private void encodeNumber(int num) {
+            num = num << 1;
+            if (num < 0) {
+                num = ~num;
+            }
+            while (num >= 0x20) {
+                int nextValue = (0x20 | (num & 0x1f)) + 63;
+                pending[pendingEnd++] = (char) nextValue;
+                num >>= 5;
+            }
+            num += 63;
+            pending[pendingEnd++] = (char) num;
         }
-        while (num >= 0x20) {
-            int nextValue = (0x20 | (num & 0x1f)) + 63;
-            sb.append((char) (nextValue));
-            num >>= 5;
+
+        @Override
+        public void close() {
         }
-        num += 63;
-        sb.append((char) (num));
     }
 
     public static ObjectNode jsonObject(GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, double took) {
@@ -92,6 +174,8 @@ public class ResponsePathSerializer {
         final ObjectNode info = json.putObject("info");
         info.putPOJO("copyrights", COPYRIGHTS);
         info.put("took", Math.round(took));
+        if (ghRsp.getTrace().isEnabled())
+            info.putPOJO("trace", ghRsp.getTrace());
         ArrayNode jsonPathList = json.putArray("paths");
         for (ResponsePath p : ghRsp.getAll()) {
             ObjectNode jsonPath = jsonPathList.addObject();
@@ -121,4 +205,67 @@ public class ResponsePathSerializer {
         }
         return json;
     }
+
+    /**
+     * Writes the same JSON as {@link #jsonObject} but directly to the generator, i.e. without building the JSON tree
+     * first. The generator needs an ObjectMapper as codec that has the {@link GraphHopperModule} registered, e.g. from
+     * {@link Jackson#newObjectMapper()}.
+     */
+    public static void writeJson(JsonGenerator gen, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, double took) throws IOException {
+        gen.writeStartObject();
+        gen.writeObjectField("hints", ghRsp.getHints().toMap());
+        gen.writeObjectFieldStart("info");
+        gen.writeObjectField("copyrights", COPYRIGHTS);
+        gen.writeNumberField("took", Math.round(took));
+        if (ghRsp.getTrace().isEnabled())
+            gen.writeObjectField("trace", ghRsp.getTrace());
+        gen.writeEndObject();
+        gen.writeArrayFieldStart("paths");
+        for (ResponsePath p : ghRsp.getAll()) {
+            gen.writeStartObject();
+            gen.writeNumberField("distance", Helper.round(p.getDistance(), 3));
+            gen.writeNumberField("weight", Helper.round6(p.getRouteWeight()));
+            gen.writeNumberField("time", p.getTime());
+            gen.writeNumberField("transfers", p.getNumChanges());
+            if (!p.getDescription().isEmpty()) {
+                gen.writeObjectField("description", p.getDescription());
+            }
+            if (calcPoints) {
+                gen.writeBooleanField("points_encoded", pointsEncoded);
+                gen.writeObjectField("bbox", p.calcBBox2D());
+                gen.writeFieldName("points");
+                if (pointsEncoded)
+                    writePolyline(gen, p.getPoints(), enableElevation, 1e5);
+                else
+                    writeLineString(gen, p.getPoints(), enableElevation);
+                if (enableInstructions) {
+                    gen.writeFieldName("instructions");
+                    InstructionListSerializer.writeInstructions(gen, p.getInstructions());
+                }
+                gen.writeObjectField("legs", p.getLegs());
+                gen.writeObjectFieldStart("details");
+                for (Map.Entry<String, List<PathDetail>> entry : p.getPathDetails().entrySet()) {
+                    gen.writeArrayFieldStart(entry.getKey());
+                    for (PathDetail pathDetail : entry.getValue()) {
+                        gen.writeObject(pathDetail);
+                    }
+                    gen.writeEndArray();
+                }
+                gen.writeEndObject();
+                gen.writeNumberField("ascend", p.getAscend());
+                gen.writeNumberField("descend", p.getDescend());
+            }
+            gen.writeFieldName("snapped_waypoints");
+            if (pointsEncoded)
+                writePolyline(gen, p.getWaypoints(), enableElevation, 1e5);
+            else
+                writeLineString(gen, p.getWaypoints(), enableElevation);
+            if (p.getFare() != null) {
+                gen.writeStringField("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(p.getFare()));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.graphhopper.util.Trace;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes the spans of a {@link Trace} as "complete" events of the Chrome trace event format, so the array can be
+ * opened in chrome://tracing, Perfetto or speedscope. The counters of a span are written as its args. Spans that are
+ * still open, like the serialization while the response itself is written, are skipped.
+ */
+public class TraceSerializer extends JsonSerializer<Trace> {
+
+    @Override
+    public void serialize(Trace trace, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeStartArray();
+        writeEvents(gen, trace);
+        gen.writeEndArray();
+    }
+
+    /**
+     * Writes one event per span without the surrounding array, e.g. to append them to a trace file.
+     */
+    public static void writeEvents(JsonGenerator gen, Trace trace) throws IOException {
+        for (Trace.Span span : trace.getSpans()) {
+            if (span.getDurationNanos() < 0)
+                continue;
+            gen.writeStartObject();
+            gen.writeStringField("name", span.getName());
+            gen.writeStringField("ph", "X");
+            // timestamps and durations are in microseconds
+            gen.writeNumberField("ts", trace.getStartMillis() * 1000 + (span.getStartNanos() - trace.getStartNanos()) / 1000);
+            gen.writeNumberField("dur", span.getDurationNanos() / 1000.0);
+            gen.writeNumberField("pid", 1);
+            gen.writeNumberField("tid", trace.getThreadId());
+            if (!span.getCounters().isEmpty()) {
+                gen.writeObjectFieldStart("args");
+                for (Map.Entry<String, Long> counter : span.getCounters().entrySet()) {
+                    gen.writeNumberField(counter.getKey(), counter.getValue());
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndObject();
+        }
+    }
+}
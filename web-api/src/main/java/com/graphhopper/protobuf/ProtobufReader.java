@@ -0,0 +1,172 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.protobuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A minimal reader for the protocol buffers wire format, the counterpart of {@link ProtobufWriter}. Use it like
+ * <pre>
+ * while (reader.hasRemaining()) {
+ *     switch (reader.readTag()) {
+ *         case 1: value = reader.readDouble(); break;
+ *         default: reader.skip();
+ *     }
+ * }
+ * </pre>
+ */
+public class ProtobufReader {
+    private final byte[] bytes;
+    private final int end;
+    private int pos;
+    private int wireType = -1;
+
+    public ProtobufReader(byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    private ProtobufReader(byte[] bytes, int pos, int end) {
+        this.bytes = bytes;
+        this.pos = pos;
+        this.end = end;
+    }
+
+    public boolean hasRemaining() {
+        return pos < end;
+    }
+
+    /**
+     * @return the field number of the next value
+     */
+    public int readTag() {
+        long tag = readVarint();
+        wireType = (int) (tag & 0x7);
+        return (int) (tag >>> 3);
+    }
+
+    public long readInt() {
+        return readVarint();
+    }
+
+    public long readSInt() {
+        return unZigZag(readVarint());
+    }
+
+    public boolean readBool() {
+        return readVarint() != 0;
+    }
+
+    public double readDouble() {
+        check(8);
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits |= (bytes[pos++] & 0xFFL) << (8 * i);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    public String readString() {
+        int length = readLength();
+        String str = new String(bytes, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return str;
+    }
+
+    /**
+     * @return a reader for the nested message at the current position
+     */
+    public ProtobufReader readMessage() {
+        int length = readLength();
+        ProtobufReader message = new ProtobufReader(bytes, pos, pos + length);
+        pos += length;
+        return message;
+    }
+
+    /**
+     * Reads a field written with {@link ProtobufWriter#writePackedDeltaSInts} and returns the restored values.
+     */
+    public long[] readPackedDeltaSInts() {
+        int length = readLength();
+        int packedEnd = pos + length;
+        // every value needs at least one byte
+        long[] values = new long[length];
+        int count = 0;
+        long prev = 0;
+        while (pos < packedEnd) {
+            prev += unZigZag(readVarint());
+            values[count++] = prev;
+        }
+        if (pos != packedEnd)
+            throw new IllegalStateException("Invalid packed field, it ended at " + pos + " instead of " + packedEnd);
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Skips the value of the last tag, e.g. for fields that were added in a newer version of the format.
+     */
+    public void skip() {
+        switch (wireType) {
+            case ProtobufWriter.VARINT:
+                readVarint();
+                break;
+            case ProtobufWriter.FIXED64:
+                check(8);
+                pos += 8;
+                break;
+            case ProtobufWriter.LENGTH_DELIMITED:
+                int length = readLength();
+                pos += length;
+                break;
+            case 5: // fixed32
+                check(4);
+                pos += 4;
+                break;
+            default:
+                throw new IllegalStateException("Unsupported wire type " + wireType + " at " + pos);
+        }
+    }
+
+    private int readLength() {
+        long length = readVarint();
+        if (length < 0 || length > end - pos)
+            throw new IllegalStateException("Invalid length " + length + " at " + pos);
+        return (int) length;
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            check(1);
+            byte b = bytes[pos++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalStateException("Malformed varint at " + pos);
+    }
+
+    private void check(int length) {
+        if (pos + length > end)
+            throw new IllegalStateException("Unexpected end of message at " + pos);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
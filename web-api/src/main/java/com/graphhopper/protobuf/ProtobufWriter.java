@@ -0,0 +1,168 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.protobuf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A minimal writer for the protocol buffers wire format, see https://protobuf.dev/programming-guides/encoding/
+ * Nested messages are written into a separate ProtobufWriter and then added with {@link #writeMessage}, because
+ * their length has to be known before their content.
+ */
+public class ProtobufWriter {
+    static final int VARINT = 0;
+    static final int FIXED64 = 1;
+    static final int LENGTH_DELIMITED = 2;
+
+    private byte[] bytes;
+    private int size;
+
+    public ProtobufWriter() {
+        this(64);
+    }
+
+    public ProtobufWriter(int capacity) {
+        bytes = new byte[capacity];
+    }
+
+    public ProtobufWriter writeInt(int field, long value) {
+        writeTag(field, VARINT);
+        writeVarint(value);
+        return this;
+    }
+
+    /**
+     * Writes a signed value with ZigZag encoding, i.e. the sint64 type, which is cheaper than {@link #writeInt}
+     * for small negative values.
+     */
+    public ProtobufWriter writeSInt(int field, long value) {
+        writeTag(field, VARINT);
+        writeVarint(zigZag(value));
+        return this;
+    }
+
+    public ProtobufWriter writeBool(int field, boolean value) {
+        writeTag(field, VARINT);
+        writeVarint(value ? 1 : 0);
+        return this;
+    }
+
+    public ProtobufWriter writeDouble(int field, double value) {
+        writeTag(field, FIXED64);
+        long bits = Double.doubleToRawLongBits(value);
+        ensureCapacity(8);
+        for (int i = 0; i < 8; i++) {
+            bytes[size++] = (byte) (bits >>> (8 * i));
+        }
+        return this;
+    }
+
+    public ProtobufWriter writeString(int field, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeTag(field, LENGTH_DELIMITED);
+        writeVarint(utf8.length);
+        writeBytes(utf8, 0, utf8.length);
+        return this;
+    }
+
+    public ProtobufWriter writeMessage(int field, ProtobufWriter message) {
+        writeTag(field, LENGTH_DELIMITED);
+        writeVarint(message.size);
+        writeBytes(message.bytes, 0, message.size);
+        return this;
+    }
+
+    /**
+     * Writes the values as packed repeated sint64 field. Every value is written as difference to the previous
+     * one, so that close values like the coordinates of a path need only a few bytes.
+     */
+    public ProtobufWriter writePackedDeltaSInts(int field, long[] values, int length) {
+        if (length == 0)
+            return this;
+        int payload = 0;
+        long prev = 0;
+        for (int i = 0; i < length; i++) {
+            payload += varintSize(zigZag(values[i] - prev));
+            prev = values[i];
+        }
+        writeTag(field, LENGTH_DELIMITED);
+        writeVarint(payload);
+        prev = 0;
+        for (int i = 0; i < length; i++) {
+            writeVarint(zigZag(values[i] - prev));
+            prev = values[i];
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, size);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    private void writeTag(int field, int wireType) {
+        writeVarint(((long) field << 3) | wireType);
+    }
+
+    private void writeVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] src, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(src, offset, bytes, size, length);
+        size += length;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (size + additional > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,520 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.protobuf;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.util.*;
+import com.graphhopper.util.Parameters.Details;
+import com.graphhopper.util.details.PathDetail;
+import org.locationtech.jts.geom.Envelope;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.NumberFormat;
+import java.util.*;
+
+/**
+ * Writes and reads the binary protocol buffers representation of the routing API response. It contains the same
+ * information as the JSON from {@link ResponsePathSerializer}, but the points are stored as delta encoded varints
+ * which makes the response smaller and much faster to parse. The schema is documented in docs/web/route.proto.
+ */
+public class ResponsePathProtobuf {
+    public static final String MEDIA_TYPE = "application/x-protobuf";
+
+    private static final double COORD_FACTOR = 1e6;
+    private static final double ELE_FACTOR = 100;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    // RouteResponse
+    private static final int PATHS = 1, HINTS = 2, INFO = 3;
+    // Info
+    private static final int COPYRIGHTS = 1, TOOK = 2;
+    // Path
+    private static final int DISTANCE = 1, WEIGHT = 2, TIME = 3, TRANSFERS = 4, DESCRIPTION = 5, POINTS = 6, BBOX = 7,
+            INSTRUCTIONS = 8, DETAILS = 9, ASCEND = 10, DESCEND = 11, SNAPPED_WAYPOINTS = 12, FARE = 13;
+    // PointList
+    private static final int LAT = 1, LON = 2, ELE = 3;
+    // Instruction
+    private static final int SIGN = 1, TEXT = 2, STREET_NAME = 3, INSTR_DISTANCE = 4, INSTR_TIME = 5, FIRST = 6, LAST = 7,
+            HEADING = 8, LAST_HEADING = 9, EXIT_NUMBER = 10, EXITED = 11, TURN_ANGLE = 12, REF = 13, DESTINATION = 14,
+            DESTINATION_REF = 15;
+    // PathDetails and PathDetail
+    private static final int NAME = 1, DETAIL_LIST = 2;
+    private static final int DETAIL_FIRST = 1, DETAIL_LAST = 2, LONG_VALUE = 3, DOUBLE_VALUE = 4, BOOL_VALUE = 5, STRING_VALUE = 6, JSON_VALUE = 7;
+    // map entries
+    private static final int KEY = 1, VALUE = 2;
+
+    /**
+     * Writes the response path by path, i.e. only the current path is kept in memory in its encoded form.
+     */
+    public static void write(OutputStream out, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints,
+                             boolean enableElevation, double took) throws IOException {
+        ProtobufWriter rsp = new ProtobufWriter(1024);
+        ProtobufWriter path = new ProtobufWriter(1024);
+        ProtobufWriter tmp = new ProtobufWriter();
+        for (ResponsePath p : ghRsp.getAll()) {
+            path.clear();
+            writePath(path, tmp, p, enableInstructions, calcPoints, enableElevation);
+            rsp.clear();
+            rsp.writeMessage(PATHS, path);
+            rsp.writeTo(out);
+        }
+
+        rsp.clear();
+        for (Map.Entry<String, Object> entry : ghRsp.getHints().toMap().entrySet()) {
+            tmp.clear();
+            tmp.writeString(KEY, entry.getKey()).writeString(VALUE, String.valueOf(entry.getValue()));
+            rsp.writeMessage(HINTS, tmp);
+        }
+        tmp.clear();
+        for (String copyright : ResponsePathSerializer.COPYRIGHTS) {
+            tmp.writeString(COPYRIGHTS, copyright);
+        }
+        tmp.writeInt(TOOK, Math.round(took));
+        rsp.writeMessage(INFO, tmp);
+        rsp.writeTo(out);
+    }
+
+    private static void writePath(ProtobufWriter path, ProtobufWriter tmp, ResponsePath p, boolean enableInstructions,
+                                  boolean calcPoints, boolean enableElevation) {
+        path.writeDouble(DISTANCE, Helper.round(p.getDistance(), 3));
+        path.writeDouble(WEIGHT, Helper.round6(p.getRouteWeight()));
+        path.writeInt(TIME, p.getTime());
+        path.writeInt(TRANSFERS, p.getNumChanges());
+        for (String description : p.getDescription()) {
+            path.writeString(DESCRIPTION, description);
+        }
+        if (calcPoints) {
+            path.writeMessage(POINTS, writePointList(tmp, p.getPoints(), enableElevation));
+            Envelope bbox = p.calcBBox2D();
+            tmp.clear();
+            tmp.writeDouble(1, bbox.getMinX()).writeDouble(2, bbox.getMinY()).writeDouble(3, bbox.getMaxX()).writeDouble(4, bbox.getMaxY());
+            path.writeMessage(BBOX, tmp);
+            if (enableInstructions) {
+                InstructionList instructions = p.getInstructions();
+                int pointsIndex = 0;
+                for (Instruction instruction : instructions) {
+                    int tmpIndex = pointsIndex + instruction.getLength();
+                    path.writeMessage(INSTRUCTIONS, writeInstruction(tmp, instruction, instructions.getTr(), pointsIndex, tmpIndex));
+                    pointsIndex = tmpIndex;
+                }
+            }
+            for (Map.Entry<String, List<PathDetail>> entry : p.getPathDetails().entrySet()) {
+                path.writeMessage(DETAILS, writePathDetails(tmp, entry.getKey(), entry.getValue()));
+            }
+            path.writeDouble(ASCEND, p.getAscend());
+            path.writeDouble(DESCEND, p.getDescend());
+        }
+        path.writeMessage(SNAPPED_WAYPOINTS, writePointList(tmp, p.getWaypoints(), enableElevation));
+        if (p.getFare() != null)
+            path.writeString(FARE, NumberFormat.getCurrencyInstance(Locale.ROOT).format(p.getFare()));
+    }
+
+    private static ProtobufWriter writePointList(ProtobufWriter tmp, PointList points, boolean enableElevation) {
+        tmp.clear();
+        long[] values = new long[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            values[i] = Math.round(points.getLat(i) * COORD_FACTOR);
+        }
+        tmp.writePackedDeltaSInts(LAT, values, values.length);
+        for (int i = 0; i < points.size(); i++) {
+            values[i] = Math.round(points.getLon(i) * COORD_FACTOR);
+        }
+        tmp.writePackedDeltaSInts(LON, values, values.length);
+        if (enableElevation) {
+            for (int i = 0; i < points.size(); i++) {
+                values[i] = Math.round(points.getEle(i) * ELE_FACTOR);
+            }
+            tmp.writePackedDeltaSInts(ELE, values, values.length);
+        }
+        return tmp;
+    }
+
+    private static ProtobufWriter writeInstruction(ProtobufWriter tmp, Instruction instruction, Translation tr, int first, int last) {
+        tmp.clear();
+        tmp.writeSInt(SIGN, instruction.getSign());
+        tmp.writeString(TEXT, Helper.firstBig(instruction.getTurnDescription(tr)));
+        tmp.writeString(STREET_NAME, instruction.getName());
+        tmp.writeDouble(INSTR_DISTANCE, Helper.round(instruction.getDistance(), 3));
+        tmp.writeInt(INSTR_TIME, instruction.getTime());
+        tmp.writeInt(FIRST, first);
+        tmp.writeInt(LAST, last);
+        for (Map.Entry<String, Object> entry : instruction.getExtraInfoJSON().entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case "heading":
+                    tmp.writeDouble(HEADING, ((Number) value).doubleValue());
+                    break;
+                case "last_heading":
+                    tmp.writeDouble(LAST_HEADING, ((Number) value).doubleValue());
+                    break;
+                case "exit_number":
+                    tmp.writeInt(EXIT_NUMBER, ((Number) value).intValue());
+                    break;
+                case "exited":
+                    tmp.writeBool(EXITED, (Boolean) value);
+                    break;
+                case "turn_angle":
+                    tmp.writeDouble(TURN_ANGLE, ((Number) value).doubleValue());
+                    break;
+                case Details.STREET_REF:
+                    tmp.writeString(REF, value.toString());
+                    break;
+                case Details.STREET_DESTINATION:
+                    tmp.writeString(DESTINATION, value.toString());
+                    break;
+                case Details.STREET_DESTINATION_REF:
+                    tmp.writeString(DESTINATION_REF, value.toString());
+                    break;
+                default:
+                    // not part of the schema
+            }
+        }
+        return tmp;
+    }
+
+    private static ProtobufWriter writePathDetails(ProtobufWriter tmp, String name, List<PathDetail> details) {
+        ProtobufWriter detailsWriter = new ProtobufWriter(16 * details.size() + 16);
+        detailsWriter.writeString(NAME, name);
+        for (PathDetail detail : details) {
+            tmp.clear();
+            tmp.writeInt(DETAIL_FIRST, detail.getFirst());
+            tmp.writeInt(DETAIL_LAST, detail.getLast());
+            Object value = detail.getValue();
+            if (value instanceof Double)
+                tmp.writeDouble(DOUBLE_VALUE, (Double) value);
+            else if (value instanceof Long || value instanceof Integer)
+                tmp.writeSInt(LONG_VALUE, ((Number) value).longValue());
+            else if (value instanceof Boolean)
+                tmp.writeBool(BOOL_VALUE, (Boolean) value);
+            else if (value instanceof String)
+                tmp.writeString(STRING_VALUE, (String) value);
+            else if (value instanceof Map)
+                tmp.writeString(JSON_VALUE, toJson(value));
+            else if (value != null)
+                throw new IllegalArgumentException("Unsupported type for PathDetail.value " + value.getClass());
+            detailsWriter.writeMessage(DETAIL_LIST, tmp);
+        }
+        return detailsWriter;
+    }
+
+    private static String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Cannot write PathDetail.value " + value, ex);
+        }
+    }
+
+    /**
+     * Creates the GHResponse from its protocol buffers representation like ResponsePathDeserializer does for JSON.
+     *
+     * @param turnDescription if false the street name is used as instruction text instead of the turn description
+     */
+    public static GHResponse read(byte[] bytes, boolean turnDescription) {
+        GHResponse ghResponse = new GHResponse();
+        PMap hints = new PMap();
+        ProtobufReader reader = new ProtobufReader(bytes);
+        while (reader.hasRemaining()) {
+            switch (reader.readTag()) {
+                case PATHS:
+                    ghResponse.add(readPath(reader.readMessage(), turnDescription));
+                    break;
+                case HINTS:
+                    ProtobufReader entry = reader.readMessage();
+                    String key = "", value = "";
+                    while (entry.hasRemaining()) {
+                        int tag = entry.readTag();
+                        if (tag == KEY)
+                            key = entry.readString();
+                        else if (tag == VALUE)
+                            value = entry.readString();
+                        else
+                            entry.skip();
+                    }
+                    hints.putObject(key, Helper.toObject(value));
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        ghResponse.setHints(hints);
+        return ghResponse;
+    }
+
+    private static ResponsePath readPath(ProtobufReader reader, boolean turnDescription) {
+        ResponsePath responsePath = new ResponsePath();
+        List<String> description = new ArrayList<>();
+        List<ProtobufReader> instructions = new ArrayList<>();
+        Map<String, List<PathDetail>> pathDetails = new HashMap<>();
+        while (reader.hasRemaining()) {
+            switch (reader.readTag()) {
+                case DISTANCE:
+                    responsePath.setDistance(reader.readDouble());
+                    break;
+                case WEIGHT:
+                    responsePath.setRouteWeight(reader.readDouble());
+                    break;
+                case TIME:
+                    responsePath.setTime(reader.readInt());
+                    break;
+                case TRANSFERS:
+                    responsePath.setNumChanges((int) reader.readInt());
+                    break;
+                case DESCRIPTION:
+                    description.add(reader.readString());
+                    break;
+                case POINTS:
+                    responsePath.setPoints(readPointList(reader.readMessage()));
+                    break;
+                case INSTRUCTIONS:
+                    // the points might come later
+                    instructions.add(reader.readMessage());
+                    break;
+                case DETAILS:
+                    readPathDetails(reader.readMessage(), pathDetails);
+                    break;
+                case ASCEND:
+                    responsePath.setAscend(reader.readDouble());
+                    break;
+                case DESCEND:
+                    responsePath.setDescend(reader.readDouble());
+                    break;
+                case SNAPPED_WAYPOINTS:
+                    responsePath.setWaypoints(readPointList(reader.readMessage()));
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        if (!description.isEmpty())
+            responsePath.setDescription(description);
+        if (!instructions.isEmpty()) {
+            InstructionList il = new InstructionList(null);
+            int viaCount = 1;
+            for (ProtobufReader instruction : instructions) {
+                Instruction instr = readInstruction(instruction, responsePath.getPoints(), viaCount, turnDescription);
+                if (instr.getSign() == Instruction.REACHED_VIA)
+                    viaCount++;
+                il.add(instr);
+            }
+            responsePath.setInstructions(il);
+        }
+        if (!pathDetails.isEmpty())
+            responsePath.addPathDetails(pathDetails);
+
+        List<Integer> pointsOrder = new ArrayList<>(responsePath.getWaypoints().size());
+        for (int i = 0; i < responsePath.getWaypoints().size(); i++) {
+            pointsOrder.add(i);
+        }
+        responsePath.setPointsOrder(pointsOrder);
+        return responsePath;
+    }
+
+    private static PointList readPointList(ProtobufReader reader) {
+        long[] lat = new long[0], lon = new long[0], ele = null;
+        while (reader.hasRemaining()) {
+            switch (reader.readTag()) {
+                case LAT:
+                    lat = reader.readPackedDeltaSInts();
+                    break;
+                case LON:
+                    lon = reader.readPackedDeltaSInts();
+                    break;
+                case ELE:
+                    ele = reader.readPackedDeltaSInts();
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        if (lat.length != lon.length || ele != null && ele.length != lat.length)
+            throw new IllegalStateException("Points have different numbers of coordinates, lat: " + lat.length
+                    + ", lon: " + lon.length + ", ele: " + (ele == null ? 0 : ele.length));
+        PointList pointList = new PointList(lat.length, ele != null);
+        for (int i = 0; i < lat.length; i++) {
+            if (ele != null)
+                pointList.add(lat[i] / COORD_FACTOR, lon[i] / COORD_FACTOR, ele[i] / ELE_FACTOR);
+            else
+                pointList.add(lat[i] / COORD_FACTOR, lon[i] / COORD_FACTOR);
+        }
+        return pointList;
+    }
+
+    private static Instruction readInstruction(ProtobufReader reader, PointList points, int viaCount, boolean turnDescription) {
+        int sign = 0, first = 0, last = 0, exitNumber = 0;
+        String text = "", streetName = "", ref = null, destination = null, destinationRef = null;
+        double distance = 0, heading = Double.NaN, lastHeading = Double.NaN, turnAngle = Double.NaN;
+        long time = 0;
+        boolean exited = false;
+        while (reader.hasRemaining()) {
+            switch (reader.readTag()) {
+                case SIGN:
+                    sign = (int) reader.readSInt();
+                    break;
+                case TEXT:
+                    text = reader.readString();
+                    break;
+                case STREET_NAME:
+                    streetName = reader.readString();
+                    break;
+                case INSTR_DISTANCE:
+                    distance = reader.readDouble();
+                    break;
+                case INSTR_TIME:
+                    time = reader.readInt();
+                    break;
+                case FIRST:
+                    first = (int) reader.readInt();
+                    break;
+                case LAST:
+                    last = (int) reader.readInt();
+                    break;
+                case HEADING:
+                    heading = reader.readDouble();
+                    break;
+                case LAST_HEADING:
+                    lastHeading = reader.readDouble();
+                    break;
+                case EXIT_NUMBER:
+                    exitNumber = (int) reader.readInt();
+                    break;
+                case EXITED:
+                    exited = reader.readBool();
+                    break;
+                case TURN_ANGLE:
+                    turnAngle = reader.readDouble();
+                    break;
+                case REF:
+                    ref = reader.readString();
+                    break;
+                case DESTINATION:
+                    destination = reader.readString();
+                    break;
+                case DESTINATION_REF:
+                    destinationRef = reader.readString();
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+
+        String name = turnDescription ? text : streetName;
+        PointList instPL = new PointList(last - first + 1, points.is3D());
+        for (int j = first; j <= last; j++) {
+            instPL.add(points, j);
+        }
+        Instruction instr;
+        if (sign == Instruction.USE_ROUNDABOUT || sign == Instruction.LEAVE_ROUNDABOUT) {
+            RoundaboutInstruction ri = new RoundaboutInstruction(sign, name, instPL);
+            ri.setExitNumber(exitNumber);
+            if (exited)
+                ri.setExited();
+            if (!Double.isNaN(turnAngle)) {
+                ri.setDirOfRotation(turnAngle);
+                ri.setRadian((turnAngle < 0 ? -Math.PI : Math.PI) - turnAngle);
+            }
+            instr = ri;
+        } else if (sign == Instruction.REACHED_VIA) {
+            ViaInstruction via = new ViaInstruction(name, instPL);
+            via.setViaCount(viaCount);
+            instr = via;
+        } else if (sign == Instruction.FINISH) {
+            instr = new FinishInstruction(name, instPL, 0);
+        } else {
+            instr = new Instruction(sign, name, instPL);
+        }
+        if (!Double.isNaN(heading))
+            instr.setExtraInfo("heading", heading);
+        if (!Double.isNaN(lastHeading))
+            instr.setExtraInfo("last_heading", lastHeading);
+        instr.setExtraInfo(Details.STREET_REF, ref);
+        instr.setExtraInfo(Details.STREET_DESTINATION, destination);
+        instr.setExtraInfo(Details.STREET_DESTINATION_REF, destinationRef);
+        if (turnDescription)
+            instr.setUseRawName();
+        instr.setDistance(distance).setTime(time);
+        return instr;
+    }
+
+    private static void readPathDetails(ProtobufReader reader, Map<String, List<PathDetail>> pathDetails) {
+        String name = "";
+        List<PathDetail> details = new ArrayList<>();
+        while (reader.hasRemaining()) {
+            switch (reader.readTag()) {
+                case NAME:
+                    name = reader.readString();
+                    break;
+                case DETAIL_LIST:
+                    details.add(readPathDetail(reader.readMessage()));
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        pathDetails.put(name, details);
+    }
+
+    private static PathDetail readPathDetail(ProtobufReader reader) {
+        int first = 0, last = 0;
+        Object value = null;
+        while (reader.hasRemaining()) {
+            switch (reader.readTag()) {
+                case DETAIL_FIRST:
+                    first = (int) reader.readInt();
+                    break;
+                case DETAIL_LAST:
+                    last = (int) reader.readInt();
+                    break;
+                case LONG_VALUE:
+                    value = reader.readSInt();
+                    break;
+                case DOUBLE_VALUE:
+                    value = reader.readDouble();
+                    break;
+                case BOOL_VALUE:
+                    value = reader.readBool();
+                    break;
+                case STRING_VALUE:
+                    value = reader.readString();
+                    break;
+                case JSON_VALUE:
+                    value = fromJson(reader.readString());
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        PathDetail pd = new PathDetail(value);
+        pd.setFirst(first);
+        pd.setLast(last);
+        return pd;
+    }
+
+    private static Map<?, ?> fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, Map.class);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot read PathDetail.value " + json, ex);
+        }
+    }
+}
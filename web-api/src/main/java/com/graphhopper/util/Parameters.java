@@ -99,6 +99,24 @@ public class Parameters {
         public static final String INIT_MAX_VISITED_NODES = ROUTING_INIT_PREFIX + "max_visited_nodes";
         public static final String TIMEOUT_MS = "timeout_ms";
         public static final String INIT_TIMEOUT_MS = ROUTING_INIT_PREFIX + "timeout_ms";
+        /**
+         * if true the bidirectional Dijkstra and A* algorithms keep their search state in primitive arrays instead of
+         * creating an object for every visited node
+         */
+        public static final String PRIMITIVE_SEARCH = "primitive_search";
+        /**
+         * if true the search states of the primitive search are re-used per thread, profile and algorithm
+         */
+        public static final String INIT_POOL_SEARCH_STATES = ROUTING_INIT_PREFIX + "pool_search_states";
+        /**
+         * the departure time in ISO-8601 format like 2023-05-16T08:30:00+02:00 for time-dependent routing
+         */
+        public static final String DEPARTURE_TIME = "departure_time";
+        /**
+         * if true the durations and counters of the request phases are recorded and returned in the info section of
+         * the response, see {@link com.graphhopper.util.Trace}
+         */
+        public static final String DEBUG = "debug";
         /**
          * if true the response will contain turn instructions
          */
@@ -0,0 +1,173 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the nested spans of a single request like the lookup, the search of every leg and the path merging together
+ * with counters like the visited nodes. A trace is only created on demand, otherwise {@link #DISABLED} is used which
+ * records nothing and does not allocate. A trace is not thread-safe, i.e. all spans have to be started and closed
+ * from the thread of the request.
+ */
+public class Trace {
+    public static final Trace DISABLED = new Trace(false);
+
+    private final boolean enabled;
+    private final long startMillis;
+    private final long startNanos;
+    private final long threadId;
+    private final List<Span> spans;
+    private int depth;
+
+    public Trace() {
+        this(true);
+    }
+
+    private Trace(boolean enabled) {
+        this.enabled = enabled;
+        this.startMillis = enabled ? System.currentTimeMillis() : 0;
+        this.startNanos = enabled ? System.nanoTime() : 0;
+        this.threadId = enabled ? Thread.currentThread().getId() : 0;
+        this.spans = enabled ? new ArrayList<>() : Collections.emptyList();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts a new span that is nested in all spans that were started but not yet closed.
+     */
+    public Span start(String name) {
+        if (!enabled)
+            return Span.NOOP;
+        Span span = new Span(this, name, depth++, System.nanoTime());
+        spans.add(span);
+        return span;
+    }
+
+    /**
+     * Adds a span that was measured elsewhere, e.g. the path extraction inside of the search. It is nested in the
+     * spans that are currently open.
+     */
+    public Span add(String name, long startNanos, long durationNanos) {
+        if (!enabled)
+            return Span.NOOP;
+        Span span = new Span(null, name, depth, startNanos);
+        span.durationNanos = durationNanos;
+        spans.add(span);
+        return span;
+    }
+
+    /**
+     * @return all spans in the order they were started
+     */
+    public List<Span> getSpans() {
+        return spans;
+    }
+
+    /**
+     * @return the time in milliseconds since the epoch when this trace was created
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getThreadId() {
+        return threadId;
+    }
+
+    public static class Span implements AutoCloseable {
+        static final Span NOOP = new Span(null, "", 0, 0);
+
+        private final Trace trace;
+        private final String name;
+        private final int depth;
+        private final long startNanos;
+        private long durationNanos = -1;
+        private Map<String, Long> counters = Collections.emptyMap();
+
+        private Span(Trace trace, String name, int depth, long startNanos) {
+            this.trace = trace;
+            this.name = name;
+            this.depth = depth;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * @return false if the trace is disabled, e.g. to skip the calculation of expensive counters
+         */
+        public boolean isRecording() {
+            return this != NOOP;
+        }
+
+        public Span put(String key, long value) {
+            if (this == NOOP)
+                return this;
+            if (counters.isEmpty())
+                counters = new LinkedHashMap<>();
+            counters.put(key, value);
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (trace == null || durationNanos >= 0)
+                return;
+            durationNanos = System.nanoTime() - startNanos;
+            trace.depth--;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        /**
+         * @return the duration or -1 if the span was not closed
+         */
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public Map<String, Long> getCounters() {
+            return counters;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + durationNanos / 1000 + "μs " + counters;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util.exceptions;
+
+import java.util.Collections;
+
+/**
+ * Thrown if a search was aborted because its deadline passed, its budget of visited nodes was used up or because it
+ * was cancelled, e.g. after the client disconnected.
+ */
+public class SearchBudgetExceededException extends DetailedIllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String REASON_KEY = "search_budget";
+
+    public SearchBudgetExceededException(String message, String reason) {
+        super(message, Collections.singletonMap(REASON_KEY, reason));
+    }
+
+}
@@ -17,10 +17,18 @@
  */
 package com.graphhopper.jackson;
 
-import com.graphhopper.util.Helper;
-import com.graphhopper.util.PointList;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.*;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
@@ -79,4 +87,69 @@ public class ResponsePathRepresentationTest {
     public void testEncode1e6() {
         assertEquals("ohdfzAgt}bVoEL", ResponsePathSerializer.encodePolyline(Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469), false, 1e6));
     }
+
+    @Test
+    public void testWriteJson() throws IOException {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        for (boolean is3D : new boolean[]{false, true}) {
+            PointList points = new PointList(1000, is3D);
+            Random random = new Random(123);
+            for (int i = 0; i < 1000; i++) {
+                points.add(50 + random.nextDouble(), 10 + random.nextDouble(), is3D ? random.nextDouble() * 1000 : Double.NaN);
+            }
+            ResponsePath path = new ResponsePath();
+            path.setPoints(points);
+            PointList waypoints = new PointList(2, is3D);
+            waypoints.add(points, 0);
+            waypoints.add(points, points.size() - 1);
+            path.setWaypoints(waypoints);
+            path.setDistance(1234.5678).setTime(100_000).setRouteWeight(12.3456789);
+            InstructionList instructions = new InstructionList(tr);
+            Instruction instruction = new Instruction(Instruction.CONTINUE_ON_STREET, "main street", points.copy(0, 999));
+            instruction.setDistance(1234.5678).setTime(100_000);
+            instruction.setExtraInfo("heading", 12.34);
+            instructions.add(instruction);
+            instructions.add(new FinishInstruction("main street", points.getLat(999), points.getLon(999), points.getEle(999)));
+            path.setInstructions(instructions);
+            PathDetail detail = new PathDetail(50);
+            detail.setFirst(0);
+            detail.setLast(999);
+            path.addPathDetails(Collections.singletonMap("max_speed", Collections.singletonList(detail)));
+            path.setAscend(12.3);
+            path.setDescend(4.5);
+            GHResponse rsp = new GHResponse();
+            rsp.add(path);
+
+            for (boolean pointsEncoded : new boolean[]{false, true}) {
+                StringWriter writer = new StringWriter();
+                try (JsonGenerator gen = objectMapper.getFactory().createGenerator(writer)) {
+                    ResponsePathSerializer.writeJson(gen, rsp, true, true, is3D, pointsEncoded, 12);
+                }
+                String expected = objectMapper.writeValueAsString(ResponsePathSerializer.jsonObject(rsp, true, true, is3D, pointsEncoded, 12));
+                assertEquals(objectMapper.readTree(expected), objectMapper.readTree(writer.toString()));
+            }
+        }
+    }
+
+    private static final Translation tr = new Translation() {
+        @Override
+        public String tr(String key, Object... params) {
+            return key;
+        }
+
+        @Override
+        public Map<String, String> asMap() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Locale getLocale() {
+            return Locale.US;
+        }
+
+        @Override
+        public String getLanguage() {
+            return "en";
+        }
+    };
 }
@@ -0,0 +1,201 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.protobuf;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponsePathProtobufTest {
+
+    @Test
+    public void testReadWriteValues() {
+        ProtobufWriter writer = new ProtobufWriter(1);
+        writer.writeInt(1, 300).writeSInt(2, -12345678901L).writeDouble(3, Math.PI).writeBool(4, true).writeString(5, "Straße");
+        long[] values = {0, 5, -3, Integer.MAX_VALUE, Long.MIN_VALUE / 4};
+        writer.writePackedDeltaSInts(6, values, values.length);
+        // an unknown field is skipped
+        writer.writeMessage(100, new ProtobufWriter().writeString(1, "ignore me"));
+        writer.writeInt(7, Long.MAX_VALUE);
+
+        ProtobufReader reader = new ProtobufReader(writer.toByteArray());
+        assertEquals(1, reader.readTag());
+        assertEquals(300, reader.readInt());
+        assertEquals(2, reader.readTag());
+        assertEquals(-12345678901L, reader.readSInt());
+        assertEquals(3, reader.readTag());
+        assertEquals(Math.PI, reader.readDouble());
+        assertEquals(4, reader.readTag());
+        assertTrue(reader.readBool());
+        assertEquals(5, reader.readTag());
+        assertEquals("Straße", reader.readString());
+        assertEquals(6, reader.readTag());
+        assertArrayEquals(values, reader.readPackedDeltaSInts());
+        assertEquals(100, reader.readTag());
+        reader.skip();
+        assertEquals(7, reader.readTag());
+        assertEquals(Long.MAX_VALUE, reader.readInt());
+        assertFalse(reader.hasRemaining());
+    }
+
+    @Test
+    public void testTruncatedMessage() {
+        byte[] bytes = new ProtobufWriter().writeString(1, "abc").toByteArray();
+        ProtobufReader reader = new ProtobufReader(Arrays.copyOf(bytes, bytes.length - 1));
+        assertEquals(1, reader.readTag());
+        assertThrows(IllegalStateException.class, reader::readString);
+    }
+
+    @Test
+    public void testWriteAndReadResponse() throws IOException {
+        PointList points = Helper.createPointList3D(51.1, 12.1, 100, 51.12, 12.11, 110.25, 51.13, 12.12, 90, 51.131, 12.125, 95);
+        ResponsePath path = new ResponsePath();
+        path.setPoints(points);
+        path.setWaypoints(Helper.createPointList3D(51.1, 12.1, 100, 51.131, 12.125, 95));
+        path.setDistance(3456.789).setTime(300_000).setRouteWeight(345.6);
+        path.setDescription(Collections.singletonList("fastest"));
+        path.setAscend(15.25);
+        path.setDescend(20.25);
+
+        InstructionList instructions = new InstructionList(tr);
+        Instruction continueOn = new Instruction(Instruction.CONTINUE_ON_STREET, "main street", points.copy(0, 1));
+        continueOn.setDistance(1000).setTime(100_000);
+        continueOn.setExtraInfo("heading", 12.5);
+        continueOn.setExtraInfo(Parameters.Details.STREET_REF, "B2");
+        instructions.add(continueOn);
+        RoundaboutInstruction roundabout = new RoundaboutInstruction(Instruction.USE_ROUNDABOUT, "ring", points.copy(1, 3))
+                .setDirOfRotation(-0.1).setRadian(-Math.PI + 1).setExitNumber(2).setExited();
+        roundabout.setDistance(2456.789).setTime(200_000);
+        instructions.add(roundabout);
+        instructions.add(new FinishInstruction("ring", points.getLat(3), points.getLon(3), points.getEle(3)));
+        path.setInstructions(instructions);
+
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("max_speed", Arrays.asList(detail(0, 1, 50.0), detail(1, 3, null)));
+        details.put("edge_id", Arrays.asList(detail(0, 2, 7L), detail(2, 3, 8)));
+        details.put("street_name", Collections.singletonList(detail(0, 3, "main street")));
+        details.put("toll", Collections.singletonList(detail(0, 3, false)));
+        details.put("intersection", Collections.singletonList(detail(1, 1, Collections.singletonMap("out", 1))));
+        path.addPathDetails(details);
+
+        GHResponse ghResponse = new GHResponse();
+        ghResponse.add(path);
+        ghResponse.setHints(new PMap().putObject("visited_nodes.sum", 42));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResponsePathProtobuf.write(out, ghResponse, true, true, true, 12);
+        GHResponse result = ResponsePathProtobuf.read(out.toByteArray(), true);
+
+        assertEquals(42, result.getHints().getInt("visited_nodes.sum", 0));
+        assertEquals(1, result.getAll().size());
+        ResponsePath resultPath = result.getBest();
+        assertEquals(3456.789, resultPath.getDistance(), 1.e-6);
+        assertEquals(300_000, resultPath.getTime());
+        assertEquals(345.6, resultPath.getRouteWeight(), 1.e-6);
+        assertEquals(Collections.singletonList("fastest"), resultPath.getDescription());
+        assertEquals(15.25, resultPath.getAscend(), 1.e-6);
+        assertEquals(20.25, resultPath.getDescend(), 1.e-6);
+        assertEquals(points, resultPath.getPoints());
+        assertEquals(path.getWaypoints(), resultPath.getWaypoints());
+        assertEquals(Arrays.asList(0, 1), resultPath.getPointsOrder());
+
+        InstructionList resultInstructions = resultPath.getInstructions();
+        assertEquals(3, resultInstructions.size());
+        assertEquals("Continue onto main street", resultInstructions.get(0).getName());
+        assertEquals(Instruction.CONTINUE_ON_STREET, resultInstructions.get(0).getSign());
+        assertEquals(12.5, resultInstructions.get(0).getExtraInfoJSON().get("heading"));
+        assertEquals("B2", resultInstructions.get(0).getExtraInfoJSON().get(Parameters.Details.STREET_REF));
+        assertEquals(100_000, resultInstructions.get(0).getTime());
+        assertEquals(2, resultInstructions.get(0).getPoints().size());
+        RoundaboutInstruction resultRoundabout = (RoundaboutInstruction) resultInstructions.get(1);
+        assertEquals(2, resultRoundabout.getExitNumber());
+        assertTrue(resultRoundabout.isExited());
+        assertEquals(roundabout.getTurnAngle(), resultRoundabout.getTurnAngle(), 0.01);
+        assertEquals(2456.789, resultRoundabout.getDistance(), 1.e-6);
+        assertEquals(Instruction.FINISH, resultInstructions.get(2).getSign());
+
+        Map<String, List<PathDetail>> resultDetails = resultPath.getPathDetails();
+        assertEquals(details.keySet(), resultDetails.keySet());
+        assertEquals(50.0, resultDetails.get("max_speed").get(0).getValue());
+        assertNull(resultDetails.get("max_speed").get(1).getValue());
+        assertEquals(1, resultDetails.get("max_speed").get(1).getFirst());
+        assertEquals(3, resultDetails.get("max_speed").get(1).getLast());
+        assertEquals(7L, resultDetails.get("edge_id").get(0).getValue());
+        assertEquals(8L, resultDetails.get("edge_id").get(1).getValue());
+        assertEquals("main street", resultDetails.get("street_name").get(0).getValue());
+        assertEquals(false, resultDetails.get("toll").get(0).getValue());
+        assertEquals(Collections.singletonMap("out", 1), resultDetails.get("intersection").get(0).getValue());
+    }
+
+    @Test
+    public void testWithoutPoints() throws IOException {
+        ResponsePath path = new ResponsePath();
+        path.setPoints(Helper.createPointList(51.1, 12.1, 51.12, 12.11));
+        path.setWaypoints(Helper.createPointList(51.1, 12.1, 51.12, 12.11));
+        path.setDistance(100).setTime(1000);
+        GHResponse ghResponse = new GHResponse();
+        ghResponse.add(path);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResponsePathProtobuf.write(out, ghResponse, false, false, false, 12);
+        ResponsePath resultPath = ResponsePathProtobuf.read(out.toByteArray(), true).getBest();
+        assertTrue(resultPath.getPoints().isEmpty());
+        assertFalse(resultPath.getWaypoints().is3D());
+        assertEquals(path.getWaypoints(), resultPath.getWaypoints());
+        assertEquals(100, resultPath.getDistance(), 1.e-6);
+    }
+
+    private static PathDetail detail(int first, int last, Object value) {
+        PathDetail detail = new PathDetail(value);
+        detail.setFirst(first);
+        detail.setLast(last);
+        return detail;
+    }
+
+    private static final Translation tr = new Translation() {
+        @Override
+        public String tr(String key, Object... params) {
+            if (key.equals("continue_onto"))
+                return "continue onto " + params[0];
+            return key;
+        }
+
+        @Override
+        public Map<String, String> asMap() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Locale getLocale() {
+            return Locale.US;
+        }
+
+        @Override
+        public String getLanguage() {
+            return "en";
+        }
+    };
+}
@@ -0,0 +1,78 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.jackson.Jackson;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TraceTest {
+
+    @Test
+    public void testNestedSpans() {
+        Trace trace = new Trace();
+        try (Trace.Span route = trace.start("route")) {
+            trace.start("lookup").put("points", 2).close();
+            try (Trace.Span search = trace.start("search")) {
+                trace.add("extraction", System.nanoTime(), 1000);
+                search.put("visited_nodes", 42);
+            }
+        }
+        Trace.Span open = trace.start("serialization");
+
+        List<Trace.Span> spans = trace.getSpans();
+        assertEquals(5, spans.size());
+        assertEquals("route", spans.get(0).getName());
+        assertEquals(0, spans.get(0).getDepth());
+        assertEquals(1, spans.get(1).getDepth());
+        assertEquals(2L, spans.get(1).getCounters().get("points"));
+        assertEquals(1, spans.get(2).getDepth());
+        assertEquals(42L, spans.get(2).getCounters().get("visited_nodes"));
+        assertEquals(2, spans.get(3).getDepth());
+        assertEquals(1000, spans.get(3).getDurationNanos());
+        assertEquals(0, open.getDepth());
+        assertTrue(spans.get(0).getDurationNanos() >= spans.get(2).getDurationNanos());
+        assertEquals(-1, open.getDurationNanos());
+
+        // the open span is skipped
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        JsonNode json = objectMapper.valueToTree(trace);
+        assertEquals(4, json.size());
+        assertEquals("search", json.get(2).get("name").asText());
+        assertEquals("X", json.get(2).get("ph").asText());
+        assertEquals(42, json.get(2).get("args").get("visited_nodes").asLong());
+        assertEquals(1.0, json.get(3).get("dur").asDouble(), 1.e-6);
+        assertTrue(json.get(2).get("ts").asLong() >= json.get(0).get("ts").asLong());
+        assertFalse(json.get(0).has("args"));
+    }
+
+    @Test
+    public void testDisabled() {
+        Trace.Span span = Trace.DISABLED.start("route");
+        assertFalse(span.isRecording());
+        span.put("visited_nodes", 42).close();
+        Trace.DISABLED.add("extraction", 0, 1000);
+        assertTrue(Trace.DISABLED.getSpans().isEmpty());
+        assertTrue(span.getCounters().isEmpty());
+    }
+}
@@ -18,7 +18,9 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Gauge;
 import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.graphhopper.GraphHopper;
@@ -30,7 +32,9 @@ import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.matching.MapMatching;
 import com.graphhopper.resources.*;
+import com.graphhopper.routing.SearchStatePool;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.custom.CustomModelParser;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.PMap;
@@ -43,6 +47,9 @@ import org.glassfish.hk2.api.Factory;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 
 import javax.inject.Inject;
+import javax.servlet.DispatcherType;
+import java.util.EnumSet;
+import java.util.concurrent.Executor;
 
 public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConfiguration> {
 
@@ -257,11 +264,25 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration());
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        final RoutingMetrics routingMetrics = new RoutingMetrics(environment.metrics());
+        graphHopper.setRouterMetrics(routingMetrics);
+        final TraceFileWriter traceFileWriter = TraceFileWriter.create(configuration.getGraphHopperConfiguration(), environment.getObjectMapper().getFactory());
+        environment.lifecycle().manage(traceFileWriter);
+        // the isochrone buckets of a request are built with a pool that all requests share, or one after the other in
+        // the thread of the request
+        final int contourThreads = configuration.getGraphHopperConfiguration().getInt("isochrone.contour_threads", 1);
+        final Executor contourExecutor = contourThreads > 1
+                ? environment.lifecycle().executorService("isochrone-contours-%d").minThreads(contourThreads).maxThreads(contourThreads).build()
+                : Runnable::run;
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
                 bind(graphHopper).to(GraphHopper.class);
+                bind(environment.getObjectMapper()).to(ObjectMapper.class);
+                bind(routingMetrics).to(RoutingMetrics.class);
+                bind(traceFileWriter).to(TraceFileWriter.class);
+                bind(contourExecutor).to(Executor.class).named("isochroneContours");
 
                 bind(new JTSTriangulator(graphHopper.getRouterConfig())).to(Triangulator.class);
                 bindFactory(MapMatchingRouterFactoryFactory.class).to(MapMatchingResource.MapMatchingRouterFactory.class);
@@ -280,6 +301,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(MVTResource.class);
         environment.jersey().register(NearestResource.class);
         environment.jersey().register(RouteResource.class);
+        environment.jersey().register(MatrixResource.class);
         environment.jersey().register(IsochroneResource.class);
         environment.jersey().register(MapMatchingResource.class);
         if (configuration.getGraphHopperConfiguration().has("gtfs.file")) {
@@ -304,6 +326,22 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(SPTResource.class);
         environment.jersey().register(I18NResource.class);
         environment.jersey().register(InfoResource.class);
+        SearchStatePool searchStatePool = graphHopper.getSearchStatePool();
+        if (searchStatePool != null) {
+            environment.metrics().register("graphhopper.search_state_pool.hits", (Gauge<Long>) searchStatePool::getHits);
+            environment.metrics().register("graphhopper.search_state_pool.misses", (Gauge<Long>) searchStatePool::getMisses);
+        }
+        environment.metrics().register("graphhopper.custom_model.cache.hits", (Gauge<Long>) CustomModelParser::getCacheHits);
+        environment.metrics().register("graphhopper.custom_model.cache.misses", (Gauge<Long>) CustomModelParser::getCacheMisses);
+        environment.metrics().register("graphhopper.data_access.mapped_bytes", (Gauge<Long>) graphHopper::getMappedBytes);
+        if (configuration.getGraphHopperConfiguration().getBool("scheduler.enabled", false)) {
+            RequestScheduler scheduler = new RequestScheduler(configuration.getGraphHopperConfiguration());
+            scheduler.registerMetrics(environment.metrics());
+            environment.servlets().addFilter("request-scheduler", new RequestSchedulerFilter(graphHopper, scheduler,
+                            environment.getObjectMapper(), configuration.getGraphHopperConfiguration()))
+                    .addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true, "/*");
+        }
+        environment.admin().addTask(new TrafficUpdateTask(graphHopper, environment.getObjectMapper()));
         environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopper));
         environment.jersey().register(environment.healthChecks());
         environment.jersey().register(HealthCheckResource.class);
@@ -0,0 +1,165 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.GraphHopperConfig;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of requests that are processed at the same time. Every {@link RequestClass} has its own lane with
+ * a bounded number of concurrent requests and a bounded queue, such that expensive requests cannot starve the cheap
+ * ones. A request takes as many permits of its lane as its estimated cost. If the queue of the lane is full or if the
+ * request waited longer than the queue timeout it is rejected.
+ */
+public class RequestScheduler {
+    public enum RequestClass {
+        CH, LM, FLEX, ISOCHRONE, MAP_MATCHING;
+
+        String configName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Map<RequestClass, Lane> lanes = new EnumMap<>(RequestClass.class);
+    private final long queueTimeoutMillis;
+
+    public RequestScheduler(GraphHopperConfig config) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        queueTimeoutMillis = config.getLong("scheduler.queue_timeout_ms", 1000);
+        if (queueTimeoutMillis < 0)
+            throw new IllegalArgumentException("scheduler.queue_timeout_ms must not be negative, but was " + queueTimeoutMillis);
+        for (RequestClass requestClass : RequestClass.values()) {
+            int defaultConcurrent = requestClass == RequestClass.CH ? 2 * processors
+                    : requestClass == RequestClass.LM ? processors : Math.max(1, processors / 2);
+            String prefix = "scheduler." + requestClass.configName();
+            lanes.put(requestClass, new Lane(
+                    config.getInt(prefix + ".max_concurrent", defaultConcurrent),
+                    config.getInt(prefix + ".max_queue", 100)));
+        }
+    }
+
+    /**
+     * Registers the number of queued and active requests of every lane as well as the rate of rejected requests.
+     */
+    public void registerMetrics(MetricRegistry metrics) {
+        for (Map.Entry<RequestClass, Lane> e : lanes.entrySet()) {
+            String prefix = "graphhopper.scheduler." + e.getKey().configName();
+            Lane lane = e.getValue();
+            metrics.register(prefix + ".queued", (Gauge<Integer>) lane.queued::get);
+            metrics.register(prefix + ".active", (Gauge<Integer>) lane.active::get);
+            lane.rejected = metrics.meter(prefix + ".rejected");
+        }
+    }
+
+    public long getQueueTimeoutMillis() {
+        return queueTimeoutMillis;
+    }
+
+    public int getMaxConcurrent(RequestClass requestClass) {
+        return lanes.get(requestClass).maxConcurrent;
+    }
+
+    public int getQueued(RequestClass requestClass) {
+        return lanes.get(requestClass).queued.get();
+    }
+
+    public int getActive(RequestClass requestClass) {
+        return lanes.get(requestClass).active.get();
+    }
+
+    /**
+     * Waits until the request can be processed.
+     *
+     * @param cost the estimated cost of the request, it is limited to the maximum number of concurrent requests
+     * @return the permits that need to be released after the request was processed, or null if the request was
+     * rejected
+     */
+    public Permit acquire(RequestClass requestClass, int cost) throws InterruptedException {
+        Lane lane = lanes.get(requestClass);
+        int permits = Math.max(1, Math.min(cost, lane.maxConcurrent));
+        // a zero timeout still respects the order of the waiting requests
+        if (!lane.semaphore.tryAcquire(permits, 0, TimeUnit.MILLISECONDS)) {
+            if (lane.queued.incrementAndGet() > lane.maxQueue) {
+                lane.queued.decrementAndGet();
+                lane.reject();
+                return null;
+            }
+            boolean acquired;
+            try {
+                acquired = lane.semaphore.tryAcquire(permits, queueTimeoutMillis, TimeUnit.MILLISECONDS);
+            } finally {
+                lane.queued.decrementAndGet();
+            }
+            if (!acquired) {
+                lane.reject();
+                return null;
+            }
+        }
+        lane.active.incrementAndGet();
+        return new Permit(lane, permits);
+    }
+
+    public static class Permit {
+        private final Lane lane;
+        private final int permits;
+
+        private Permit(Lane lane, int permits) {
+            this.lane = lane;
+            this.permits = permits;
+        }
+
+        public void release() {
+            lane.active.decrementAndGet();
+            lane.semaphore.release(permits);
+        }
+    }
+
+    private static class Lane {
+        final int maxConcurrent;
+        final int maxQueue;
+        // a fair semaphore processes the requests in the order they arrived
+        final Semaphore semaphore;
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger active = new AtomicInteger();
+        Meter rejected;
+
+        Lane(int maxConcurrent, int maxQueue) {
+            if (maxConcurrent < 1)
+                throw new IllegalArgumentException("max_concurrent must be at least 1, but was " + maxConcurrent);
+            if (maxQueue < 0)
+                throw new IllegalArgumentException("max_queue must not be negative, but was " + maxQueue);
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueue = maxQueue;
+            this.semaphore = new Semaphore(maxConcurrent, true);
+        }
+
+        void reject() {
+            if (rejected != null)
+                rejected.mark();
+        }
+    }
+}
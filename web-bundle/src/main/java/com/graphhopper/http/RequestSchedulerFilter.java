@@ -0,0 +1,271 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.http.RequestScheduler.RequestClass;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.shapes.GHPoint;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.MediaType;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.graphhopper.util.DistanceCalcEarth.DIST_EARTH;
+
+/**
+ * Passes the requests to the /route, /isochrone, /spt and /match endpoints through the {@link RequestScheduler}.
+ * Rejected requests get the status 503 and a Retry-After header. The class and the cost of a route request are
+ * estimated from its profile, the ch.disable and lm.disable parameters and the beeline distance between its points:
+ * a request that can use CH costs one permit, otherwise one permit per started scheduler.cost_distance meters. An
+ * isochrone request costs one permit per bucket.
+ */
+public class RequestSchedulerFilter implements Filter {
+    private final GraphHopper graphHopper;
+    private final RequestScheduler scheduler;
+    private final ObjectMapper objectMapper;
+    private final double costDistance;
+
+    public RequestSchedulerFilter(GraphHopper graphHopper, RequestScheduler scheduler, ObjectMapper objectMapper, GraphHopperConfig config) {
+        this.graphHopper = graphHopper;
+        this.scheduler = scheduler;
+        this.objectMapper = objectMapper;
+        this.costDistance = config.getDouble("scheduler.cost_distance", 100_000);
+        if (costDistance <= 0)
+            throw new IllegalArgumentException("scheduler.cost_distance must be positive, but was " + costDistance);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        String endpoint = getEndpoint(httpRequest);
+        RequestClass requestClass;
+        int cost = 1;
+        switch (endpoint) {
+            case "route":
+                if ("POST".equals(httpRequest.getMethod())) {
+                    httpRequest = new CachedBodyRequest(httpRequest);
+                    RouteEstimate estimate = estimatePostRoute(((CachedBodyRequest) httpRequest).body);
+                    requestClass = estimate.requestClass;
+                    cost = estimate.cost;
+                } else {
+                    RouteEstimate estimate = estimateGetRoute(httpRequest);
+                    requestClass = estimate.requestClass;
+                    cost = estimate.cost;
+                }
+                break;
+            case "isochrone":
+                requestClass = RequestClass.ISOCHRONE;
+                cost = parseInt(httpRequest.getParameter("buckets"), 1);
+                break;
+            case "spt":
+                requestClass = RequestClass.ISOCHRONE;
+                break;
+            case "match":
+                requestClass = RequestClass.MAP_MATCHING;
+                break;
+            default:
+                chain.doFilter(request, response);
+                return;
+        }
+
+        RequestScheduler.Permit permit;
+        try {
+            permit = scheduler.acquire(requestClass, cost);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            permit = null;
+        }
+        if (permit == null) {
+            reject((HttpServletResponse) response, requestClass);
+            return;
+        }
+        try {
+            chain.doFilter(httpRequest, response);
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * @return the last segment of the request path, e.g. route for /route/
+     */
+    static String getEndpoint(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.endsWith("/"))
+            path = path.substring(0, path.length() - 1);
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private void reject(HttpServletResponse response, RequestClass requestClass) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", Long.toString(Math.max(1, (scheduler.getQueueTimeoutMillis() + 999) / 1000)));
+        response.setContentType(MediaType.APPLICATION_JSON);
+        objectMapper.writeValue(response.getOutputStream(), new JsonErrorEntity(Collections.singletonList(
+                "Too many " + requestClass.configName() + " requests, please try again later")));
+    }
+
+    private RouteEstimate estimateGetRoute(HttpServletRequest request) {
+        List<GHPoint> points = new ArrayList<>();
+        String[] pointParams = request.getParameterValues("point");
+        if (pointParams != null)
+            for (String point : pointParams) {
+                try {
+                    points.add(GHPoint.fromString(point));
+                } catch (RuntimeException ex) {
+                    // the resource will report the invalid point
+                }
+            }
+        return estimateRoute(request.getParameter("profile"), Boolean.parseBoolean(request.getParameter(Parameters.CH.DISABLE)),
+                Boolean.parseBoolean(request.getParameter(Parameters.Landmark.DISABLE)), points);
+    }
+
+    private RouteEstimate estimatePostRoute(byte[] body) {
+        JsonNode json;
+        try {
+            json = objectMapper.readTree(body);
+        } catch (IOException ex) {
+            json = null;
+        }
+        if (json == null || !json.isObject())
+            // the resource will report the invalid body
+            return new RouteEstimate(RequestClass.FLEX, 1);
+
+        List<GHPoint> points = new ArrayList<>();
+        for (JsonNode point : json.path("points"))
+            if (point.isArray() && point.size() >= 2)
+                points.add(new GHPoint(point.get(1).asDouble(), point.get(0).asDouble()));
+        // a custom model in the request requires ch.disable=true, otherwise the request fails anyway
+        boolean chDisable = json.path(Parameters.CH.DISABLE).asBoolean(false) || json.has("custom_model");
+        return estimateRoute(json.path("profile").asText(null), chDisable,
+                json.path(Parameters.Landmark.DISABLE).asBoolean(false), points);
+    }
+
+    private RouteEstimate estimateRoute(String profile, boolean chDisable, boolean lmDisable, List<GHPoint> points) {
+        if (Helper.isEmpty(profile) && !graphHopper.getProfiles().isEmpty())
+            profile = graphHopper.getProfiles().get(0).getName();
+        if (!chDisable && graphHopper.getCHGraphs().containsKey(profile))
+            return new RouteEstimate(RequestClass.CH, 1);
+
+        double distance = 0;
+        for (int i = 1; i < points.size(); i++)
+            distance += DIST_EARTH.calcDist(points.get(i - 1).lat, points.get(i - 1).lon, points.get(i).lat, points.get(i).lon);
+        int cost = (int) Math.min(Integer.MAX_VALUE, 1 + (long) (distance / costDistance));
+        boolean lm = !lmDisable && graphHopper.getLandmarks().containsKey(profile);
+        return new RouteEstimate(lm ? RequestClass.LM : RequestClass.FLEX, cost);
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    private static class RouteEstimate {
+        final RequestClass requestClass;
+        final int cost;
+
+        RouteEstimate(RequestClass requestClass, int cost) {
+            this.requestClass = requestClass;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * Keeps the body in memory, so it can be read by the filter and then again by the resource.
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            InputStream in = request.getInputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) >= 0)
+                out.write(buffer, 0, read);
+            body = out.toByteArray();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // the whole body is available already
+                    try {
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.graphhopper.routing.RouterMetrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Publishes the durations of the routing phases to the Dropwizard {@link MetricRegistry}. The search time and the
+ * visited nodes are recorded per profile and algorithm, e.g. graphhopper.route.search.car.astarbi_landmarks. Characters
+ * other than letters, digits, '_', '.' and '-' are replaced by '_' in these names.
+ */
+public class RoutingMetrics implements RouterMetrics {
+    static final String PREFIX = "graphhopper.route.";
+    private static final Pattern INVALID_CHARS = Pattern.compile("[^A-Za-z0-9_.-]");
+    private final MetricRegistry registry;
+    private final Timer lookup;
+    private final Timer queryGraph;
+    private final Timer pathMerge;
+    private final Timer serialization;
+
+    public RoutingMetrics(MetricRegistry registry) {
+        this.registry = registry;
+        lookup = registry.timer(PREFIX + "lookup");
+        queryGraph = registry.timer(PREFIX + "query_graph");
+        pathMerge = registry.timer(PREFIX + "path_merge");
+        serialization = registry.timer(PREFIX + "serialization");
+    }
+
+    @Override
+    public void lookupDone(long nanos) {
+        lookup.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void queryGraphCreated(long nanos) {
+        queryGraph.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void searchDone(String profile, String algorithm, long nanos, long visitedNodes) {
+        String suffix = sanitize(profile) + "." + sanitize(algorithm);
+        registry.timer(PREFIX + "search." + suffix).update(nanos, TimeUnit.NANOSECONDS);
+        registry.histogram(PREFIX + "visited_nodes." + suffix).update(visitedNodes);
+    }
+
+    static String sanitize(String name) {
+        return INVALID_CHARS.matcher(name).replaceAll("_");
+    }
+
+    @Override
+    public void pathsMerged(long nanos) {
+        pathMerge.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the time to write the response, which includes the time to send it to the client as the response is
+     * streamed.
+     */
+    public void serialized(long nanos) {
+        serialization.update(nanos, TimeUnit.NANOSECONDS);
+    }
+}
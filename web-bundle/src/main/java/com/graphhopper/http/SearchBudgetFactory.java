@@ -0,0 +1,69 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.routing.RouterConfig;
+import com.graphhopper.routing.SearchBudget;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.Request;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Creates the {@link SearchBudget} of a request. The deadline is the timeout of the router config, which can be
+ * shortened by the client with the {@link #TIMEOUT_HEADER} header. The header contains a relative timeout and not an
+ * absolute time, so the clocks of client and server do not need to be in sync. The searches are also aborted when
+ * the connection to the client is closed, but Jetty notices this only for some disconnects, so the deadline is the
+ * more reliable limit.
+ */
+public class SearchBudgetFactory {
+    public static final String TIMEOUT_HEADER = "GH-Timeout-Ms";
+
+    private SearchBudgetFactory() {
+    }
+
+    /**
+     * @param limitVisitedNodes true to use the max_visited_nodes of the router config as budget for all searches of
+     *                          the request. This is used for the requests that have no per search limit otherwise,
+     *                          like isochrones and map matching.
+     */
+    public static SearchBudget create(HttpServletRequest httpReq, RouterConfig routerConfig, boolean limitVisitedNodes) {
+        SearchBudget budget = new SearchBudget().setTimeoutMillis(routerConfig.getTimeoutMillis());
+        if (limitVisitedNodes)
+            budget.setMaxVisitedNodes(routerConfig.getMaxVisitedNodes());
+        String timeoutHeader = httpReq == null ? null : httpReq.getHeader(TIMEOUT_HEADER);
+        if (timeoutHeader != null) {
+            long timeoutMillis;
+            try {
+                timeoutMillis = Long.parseLong(timeoutHeader.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Header " + TIMEOUT_HEADER + " must be a number of milliseconds, but was: " + timeoutHeader);
+            }
+            if (timeoutMillis < 0)
+                throw new IllegalArgumentException("Header " + TIMEOUT_HEADER + " must not be negative, but was: " + timeoutMillis);
+            budget.setTimeoutMillis(timeoutMillis);
+        }
+        Request baseRequest = httpReq == null ? null : Request.getBaseRequest(httpReq);
+        if (baseRequest != null && baseRequest.getHttpChannel() != null) {
+            EndPoint endPoint = baseRequest.getHttpChannel().getEndPoint();
+            if (endPoint != null)
+                budget.setCancellationCheck(() -> !endPoint.isOpen());
+        }
+        return budget;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.jackson.TraceSerializer;
+import com.graphhopper.util.Trace;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Appends the traces of the requests made with debug=true to a file in the JSON array format of the Chrome trace event
+ * format. The closing bracket is never written, which the trace viewers accept, so the file can be opened while it is
+ * still written. If the file exceeds trace.max_file_size_mb it is renamed to file.1 (file.1 to file.2 and so on,
+ * keeping trace.max_files files) and a new file is started.
+ */
+public class TraceFileWriter implements Managed {
+    private static final Logger logger = LoggerFactory.getLogger(TraceFileWriter.class);
+    private static final byte[] START = "[\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SEPARATOR = ",\n".getBytes(StandardCharsets.UTF_8);
+
+    private final File file;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final JsonFactory jsonFactory;
+    private OutputStream out;
+    private long bytes;
+
+    /**
+     * @param file the trace file or null if traces should not be written
+     */
+    public TraceFileWriter(File file, long maxBytes, int maxFiles, JsonFactory jsonFactory) {
+        if (maxFiles < 1)
+            throw new IllegalArgumentException("trace.max_files must be at least 1 but was " + maxFiles);
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        this.jsonFactory = jsonFactory;
+    }
+
+    public static TraceFileWriter create(GraphHopperConfig config, JsonFactory jsonFactory) {
+        String fileName = config.getString("trace.file", "");
+        return new TraceFileWriter(fileName.isEmpty() ? null : new File(fileName),
+                config.getLong("trace.max_file_size_mb", 100) * 1024 * 1024, config.getInt("trace.max_files", 5), jsonFactory);
+    }
+
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    /**
+     * Appends all spans of the trace. Failures are only logged as the trace must never break the request.
+     */
+    public void write(Trace trace) {
+        if (file == null || !trace.isEnabled())
+            return;
+        ByteArrayOutputStream events = new ByteArrayOutputStream();
+        try (JsonGenerator gen = jsonFactory.createGenerator(events)) {
+            gen.setRootValueSeparator(new SerializedString(",\n"));
+            TraceSerializer.writeEvents(gen, trace);
+        } catch (IOException ex) {
+            logger.warn("Cannot serialize trace", ex);
+            return;
+        }
+        if (events.size() == 0)
+            return;
+        synchronized (this) {
+            try {
+                if (out == null)
+                    open();
+                // a single trace that exceeds the maximum size is still written to an empty file
+                if (bytes > START.length && bytes + SEPARATOR.length + events.size() > maxBytes) {
+                    rotate();
+                    open();
+                }
+                if (bytes > START.length) {
+                    out.write(SEPARATOR);
+                    bytes += SEPARATOR.length;
+                }
+                events.writeTo(out);
+                out.flush();
+                bytes += events.size();
+            } catch (IOException ex) {
+                logger.warn("Cannot write trace to " + file, ex);
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs())
+            throw new IOException("Cannot create directory " + parent);
+        // an existing file from a previous run is continued
+        bytes = file.length();
+        out = new BufferedOutputStream(new FileOutputStream(file, true));
+        if (bytes == 0) {
+            out.write(START);
+            bytes = START.length;
+        }
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        out = null;
+        File oldest = new File(file.getPath() + "." + (maxFiles - 1));
+        if (maxFiles == 1 || oldest.exists())
+            Files.delete(maxFiles == 1 ? file.toPath() : oldest.toPath());
+        for (int i = maxFiles - 2; i >= 1; i--) {
+            File f = new File(file.getPath() + "." + i);
+            if (f.exists())
+                Files.move(f.toPath(), new File(file.getPath() + "." + (i + 1)).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (maxFiles > 1)
+            Files.move(file.toPath(), new File(file.getPath() + ".1").toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public synchronized void stop() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.weighting.TrafficOverlay;
+import io.dropwizard.servlets.tasks.PostBodyTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.MediaType;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An admin task to update the speeds of the custom weightings without a new import, see {@link TrafficOverlay}.
+ * The body contains a list of updates for edges or OSM ways, where a speed factor of 0 closes the road and a factor
+ * of 1 removes a previous update:
+ * <pre>
+ * curl -X POST localhost:8990/tasks/traffic -H 'Content-Type: application/json' -d '{"updates": [
+ *   {"edge": 123, "speed_factor": 0.5}, {"osm_way_id": 4567, "speed_factor": 0}]}'
+ * </pre>
+ * With the query parameter clear=true all previous updates are removed first, and with customize_ch=true the
+ * customizable CH profiles are customized afterwards so the updates are used in speed mode, too. The shortcuts of CH
+ * profiles that are not customizable cannot be updated. The response lists these profiles, their requests only use the
+ * updates if CH is disabled (ch.disable=true).
+ */
+public class TrafficUpdateTask extends PostBodyTask {
+    private static final Logger logger = LoggerFactory.getLogger(TrafficUpdateTask.class);
+    private final GraphHopper graphHopper;
+    private final ObjectMapper objectMapper;
+
+    public TrafficUpdateTask(GraphHopper graphHopper, ObjectMapper objectMapper) {
+        super("traffic", MediaType.APPLICATION_JSON);
+        this.graphHopper = graphHopper;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void execute(Map<String, List<String>> parameters, String body, PrintWriter output) throws Exception {
+        List<TrafficOverlay.Update> updates = body.trim().isEmpty() ? Collections.emptyList() : parseUpdates(objectMapper.readTree(body));
+        TrafficOverlay overlay = graphHopper.getTrafficOverlay();
+        int edges = overlay.apply(updates, getBool(parameters, "clear"));
+        List<String> customized = getBool(parameters, "customize_ch") ? graphHopper.customizeAllCH() : Collections.emptyList();
+        TrafficOverlay.Snapshot snapshot = overlay.getSnapshot();
+        List<String> ignoringCH = graphHopper.getCHProfilesIgnoringTrafficOverlay();
+        if (!ignoringCH.isEmpty() && !snapshot.isEmpty())
+            logger.warn("the CH profiles {} are not customizable and ignore the traffic updates, unless CH is disabled", ignoringCH);
+        logger.info("applied {} traffic updates for {} edges, edges with updates: {}, version: {}, customized CH: {}",
+                updates.size(), edges, snapshot.size(), snapshot.getVersion(), customized);
+
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("updated_edges", edges);
+        result.put("edges_with_updates", snapshot.size());
+        result.put("version", snapshot.getVersion());
+        result.putPOJO("customized_ch_profiles", customized);
+        result.putPOJO("ch_profiles_ignoring_updates", ignoringCH);
+        output.print(objectMapper.writeValueAsString(result));
+    }
+
+    static List<TrafficOverlay.Update> parseUpdates(JsonNode json) {
+        JsonNode updatesJson = json.get("updates");
+        if (updatesJson == null || !updatesJson.isArray())
+            throw new IllegalArgumentException("The body must contain an 'updates' array");
+        List<TrafficOverlay.Update> updates = new ArrayList<>(updatesJson.size());
+        for (JsonNode update : updatesJson) {
+            JsonNode factor = update.get("speed_factor");
+            if (factor == null || !factor.isNumber())
+                throw new IllegalArgumentException("Every update needs a numeric 'speed_factor': " + update);
+            if (update.has("edge") == update.has("osm_way_id"))
+                throw new IllegalArgumentException("Every update needs either 'edge' or 'osm_way_id': " + update);
+            updates.add(update.has("edge")
+                    ? TrafficOverlay.Update.forEdge(update.get("edge").asInt(), factor.asDouble())
+                    : TrafficOverlay.Update.forOsmWay(update.get("osm_way_id").asLong(), factor.asDouble()));
+        }
+        return updates;
+    }
+
+    private static boolean getBool(Map<String, List<String>> parameters, String key) {
+        List<String> values = parameters.get(key);
+        return values != null && !values.isEmpty() && Boolean.parseBoolean(values.get(0));
+    }
+}
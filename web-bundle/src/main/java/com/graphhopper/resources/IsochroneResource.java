@@ -6,7 +6,9 @@ import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.ProfileResolver;
+import com.graphhopper.http.SearchBudgetFactory;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
+import com.graphhopper.isochrone.algorithm.GridContourBuilder;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
 import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.jackson.ResponsePathSerializer;
@@ -26,6 +28,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.inject.Named;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
@@ -34,8 +38,10 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.concurrent.Executor;
 import java.util.function.ToDoubleFunction;
 
 import static com.graphhopper.resources.IsochroneResource.ResponseType.geojson;
@@ -51,20 +57,26 @@ public class IsochroneResource {
     private final GraphHopper graphHopper;
     private final Triangulator triangulator;
     private final ProfileResolver profileResolver;
+    private final Executor contourExecutor;
 
     @Inject
-    public IsochroneResource(GraphHopper graphHopper, Triangulator triangulator, ProfileResolver profileResolver) {
+    public IsochroneResource(GraphHopper graphHopper, Triangulator triangulator, ProfileResolver profileResolver,
+                             @Named("isochroneContours") Executor contourExecutor) {
         this.graphHopper = graphHopper;
         this.triangulator = triangulator;
         this.profileResolver = profileResolver;
+        this.contourExecutor = contourExecutor;
     }
 
     public enum ResponseType {json, geojson}
 
+    public enum Engine {triangulation, grid}
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response doGet(
             @Context UriInfo uriInfo,
+            @Context HttpServletRequest httpReq,
             @QueryParam("profile") String profileName,
             @QueryParam("buckets") @Range(min = 1, max = 20) @DefaultValue("1") OptionalInt nBuckets,
             @QueryParam("reverse_flow") @DefaultValue("false") boolean reverseFlow,
@@ -74,6 +86,8 @@ public class IsochroneResource {
             @QueryParam("weight_limit") @DefaultValue("-1") OptionalLong weightLimit,
             @QueryParam("type") @DefaultValue("json") ResponseType respType,
             @QueryParam("tolerance") @DefaultValue("0") double toleranceInMeter,
+            @QueryParam("engine") @DefaultValue("triangulation") Engine engine,
+            @QueryParam("cell_size") @DefaultValue("50") double cellSizeInMeter,
             @QueryParam("full_geometry") @DefaultValue("false") boolean fullGeometry) {
         StopWatch sw = new StopWatch().start();
         PMap hintsMap = new PMap();
@@ -99,6 +113,7 @@ public class IsochroneResource {
         QueryGraph queryGraph = QueryGraph.create(graph, snap);
         TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
         ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
+        shortestPathTree.setSearchBudget(SearchBudgetFactory.create(httpReq, graphHopper.getRouterConfig(), true));
 
         double limit;
         ToDoubleFunction<ShortestPathTree.IsoLabel> fz;
@@ -121,13 +136,22 @@ public class IsochroneResource {
             zs.add((i + 1) * delta);
         }
 
-        Triangulator.Result result = triangulator.triangulate(snap, queryGraph, shortestPathTree, fz, degreesFromMeters(toleranceInMeter));
+        // the contours of all buckets are built from the same triangulation or grid, in parallel if isochrone.contour_threads > 1
+        List<MultiPolygon> contours;
+        if (engine == Engine.grid) {
+            if (cellSizeInMeter <= 0)
+                throw new IllegalArgumentException("query param cell_size must be positive");
+            // one grid point around the reached grid points closes the gaps between roads that are close to each other
+            GridContourBuilder grid = GridContourBuilder.rasterize(snap, queryGraph, shortestPathTree, fz, degreesFromMeters(cellSizeInMeter), 1);
+            contours = grid.computeIsolines(zs, contourExecutor);
+        } else {
+            Triangulator.Result result = triangulator.triangulate(snap, queryGraph, shortestPathTree, fz, degreesFromMeters(toleranceInMeter));
+            contours = new ContourBuilder(result.triangulation).computeIsolines(zs, result.seedEdges, contourExecutor);
+        }
+        logger.info("Built {} contours with the {} engine", contours.size(), engine);
 
-        ContourBuilder contourBuilder = new ContourBuilder(result.triangulation);
         ArrayList<Geometry> isochrones = new ArrayList<>();
-        for (Double z : zs) {
-            logger.info("Building contour z={}", z);
-            MultiPolygon isochrone = contourBuilder.computeIsoline(z, result.seedEdges);
+        for (MultiPolygon isochrone : contours) {
             if (fullGeometry) {
                 isochrones.add(isochrone);
             } else {
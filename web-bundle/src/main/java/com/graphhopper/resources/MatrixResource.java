@@ -0,0 +1,393 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.http.GHPointParam;
+import com.graphhopper.http.ProfileResolver;
+import com.graphhopper.jackson.MultiException;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.routing.ManyToManyCH;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.DefaultSnapFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.NameSimilarityEdgeFilter;
+import com.graphhopper.routing.util.SnapPreventionEdgeFilter;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
+import com.graphhopper.util.exceptions.PointNotFoundException;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.jersey.params.AbstractParam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.*;
+
+import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Resource to calculate the weights, times and/or distances between many points at once, i.e. a 'matrix'. Instead of
+ * running one route calculation per pair of points this uses the bucket-based many-to-many algorithm of
+ * {@link ManyToManyCH} and therefore requires a CH preparation for the requested profile. The request and response
+ * format is the one used by GraphHopperMatrixWeb of the client-hc module. See also docs/web/api-doc.md
+ */
+@Path("matrix")
+public class MatrixResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixResource.class);
+    private static final List<String> OUT_ARRAYS = Arrays.asList("weights", "times", "distances");
+
+    private final GraphHopper graphHopper;
+    private final ProfileResolver profileResolver;
+    private final int maxPoints;
+
+    @Inject
+    public MatrixResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver) {
+        this.graphHopper = graphHopper;
+        this.profileResolver = profileResolver;
+        this.maxPoints = config.getInt("routing.matrix.max_points", 1_000);
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doGet(
+            @Context HttpServletRequest httpReq,
+            @Context UriInfo uriInfo,
+            @QueryParam("point") List<GHPointParam> pointParams,
+            @QueryParam("from_point") List<GHPointParam> fromPointParams,
+            @QueryParam("to_point") List<GHPointParam> toPointParams,
+            @QueryParam("point_hint") List<String> pointHints,
+            @QueryParam("from_point_hint") List<String> fromPointHints,
+            @QueryParam("to_point_hint") List<String> toPointHints,
+            @QueryParam(Parameters.Routing.SNAP_PREVENTION) List<String> snapPreventions,
+            @QueryParam(Parameters.Routing.CURBSIDE) List<String> curbsides,
+            @QueryParam("out_array") List<String> outArrays,
+            @QueryParam("fail_fast") @DefaultValue("true") boolean failFast,
+            @QueryParam("profile") String profileName) {
+        MatrixRequest request = new MatrixRequest();
+        RouteResource.initHints(request.hints, uriInfo.getQueryParameters());
+        if (!pointParams.isEmpty()) {
+            request.points = pointParams.stream().map(AbstractParam::get).collect(toList());
+            request.pointHints = pointHints;
+        }
+        if (!fromPointParams.isEmpty() || !toPointParams.isEmpty()) {
+            request.fromPoints = fromPointParams.stream().map(AbstractParam::get).collect(toList());
+            request.toPoints = toPointParams.stream().map(AbstractParam::get).collect(toList());
+        }
+        request.fromPointHints = fromPointHints;
+        request.toPointHints = toPointHints;
+        request.snapPreventions = snapPreventions;
+        request.curbsides = curbsides;
+        if (!outArrays.isEmpty())
+            request.outArrays = outArrays;
+        request.failFast = failFast;
+        request.profile = profileName;
+        return doMatrix(request, httpReq);
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPost(@NotNull JsonNode json, @Context HttpServletRequest httpReq) {
+        MatrixRequest request = new MatrixRequest();
+        Iterator<Map.Entry<String, JsonNode>> fields = json.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            switch (field.getKey()) {
+                case "points":
+                    request.points = readPoints(field.getKey(), value);
+                    break;
+                case "from_points":
+                    request.fromPoints = readPoints(field.getKey(), value);
+                    break;
+                case "to_points":
+                    request.toPoints = readPoints(field.getKey(), value);
+                    break;
+                case "point_hints":
+                    request.pointHints = readStrings(field.getKey(), value);
+                    break;
+                case "from_point_hints":
+                    request.fromPointHints = readStrings(field.getKey(), value);
+                    break;
+                case "to_point_hints":
+                    request.toPointHints = readStrings(field.getKey(), value);
+                    break;
+                case "snap_preventions":
+                    request.snapPreventions = readStrings(field.getKey(), value);
+                    break;
+                case "curbsides":
+                case "from_curbsides":
+                case "to_curbsides":
+                    request.curbsides = readStrings(field.getKey(), value);
+                    break;
+                case "out_arrays":
+                    request.outArrays = readStrings(field.getKey(), value);
+                    break;
+                case "fail_fast":
+                    request.failFast = value.asBoolean(true);
+                    break;
+                case "profile":
+                    request.profile = value.asText();
+                    break;
+                default:
+                    if (value.isValueNode())
+                        request.hints.putObject(field.getKey(), Helper.toObject(value.asText()));
+            }
+        }
+        return doMatrix(request, httpReq);
+    }
+
+    private Response doMatrix(MatrixRequest request, HttpServletRequest httpReq) {
+        StopWatch sw = new StopWatch().start();
+        List<GHPoint> fromPoints, toPoints;
+        List<String> fromPointHints, toPointHints;
+        if (request.points != null) {
+            if (request.fromPoints != null || request.toPoints != null)
+                throw new IllegalArgumentException("Either specify points or from_points and to_points, but not both");
+            fromPoints = toPoints = request.points;
+            fromPointHints = toPointHints = request.pointHints;
+        } else {
+            if (request.fromPoints == null || request.fromPoints.isEmpty())
+                throw new IllegalArgumentException("You have to specify points or from_points");
+            if (request.toPoints == null || request.toPoints.isEmpty())
+                throw new IllegalArgumentException("You have to specify points or to_points");
+            fromPoints = request.fromPoints;
+            toPoints = request.toPoints;
+            fromPointHints = request.fromPointHints;
+            toPointHints = request.toPointHints;
+        }
+        if (fromPoints.isEmpty())
+            throw new IllegalArgumentException("You have to specify at least one point");
+        if (fromPoints.size() > maxPoints || toPoints.size() > maxPoints)
+            throw new IllegalArgumentException("Too many points: " + fromPoints.size() + "x" + toPoints.size()
+                    + ", the maximum number of from_points and to_points is " + maxPoints);
+        checkHints("point_hints", fromPointHints, fromPoints);
+        checkHints("point_hints", toPointHints, toPoints);
+        if (!request.curbsides.isEmpty())
+            throw new IllegalArgumentException("The " + Parameters.Routing.CURBSIDE + " parameter is currently not supported for the matrix calculation");
+        for (String outArray : request.outArrays)
+            if (!OUT_ARRAYS.contains(outArray))
+                throw new IllegalArgumentException("Unknown out_array '" + outArray + "', supported are: " + OUT_ARRAYS);
+        if (request.hints.getBool(Parameters.CH.DISABLE, false))
+            throw new IllegalArgumentException("The matrix calculation requires speed mode, you cannot use " + Parameters.CH.DISABLE + "=true");
+
+        PMap profileResolverHints = new PMap(request.hints);
+        profileResolverHints.putObject("profile", request.profile);
+        String profileName = profileResolver.resolveProfile(profileResolverHints);
+        removeLegacyParameters(request.hints);
+        RoutingCHGraph chGraph = graphHopper.getCHGraphs().get(profileName);
+        if (chGraph == null)
+            throw new IllegalArgumentException("Cannot find CH preparation for the requested profile: '" + profileName + "'" +
+                    "\navailable CH profiles: " + graphHopper.getCHGraphs().keySet());
+
+        EncodedValueLookup lookup = graphHopper.getEncodingManager();
+        EdgeFilter snapFilter = new DefaultSnapFilter(chGraph.getWeighting(), lookup.getBooleanEncodedValue(Subnetwork.key(profileName)));
+        EdgeFilter strictSnapFilter = request.snapPreventions.isEmpty()
+                ? snapFilter
+                : new SnapPreventionEdgeFilter(snapFilter, lookup.getEnumEncodedValue(RoadClass.KEY, RoadClass.class),
+                lookup.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class), request.snapPreventions);
+        List<Snap> fromSnaps = lookup(fromPoints, fromPointHints, snapFilter, strictSnapFilter);
+        List<Snap> toSnaps = request.points != null ? fromSnaps : lookup(toPoints, toPointHints, snapFilter, strictSnapFilter);
+        List<Integer> invalidFromPoints = getInvalidPoints(fromSnaps);
+        List<Integer> invalidToPoints = getInvalidPoints(toSnaps);
+        if (request.failFast && (!invalidFromPoints.isEmpty() || !invalidToPoints.isEmpty())) {
+            List<Throwable> errors = new ArrayList<>();
+            for (int idx : invalidFromPoints)
+                errors.add(new PointNotFoundException("Cannot find " + (request.points != null ? "point " : "from_point ") + idx + ": " + fromPoints.get(idx), idx));
+            if (request.points == null)
+                for (int idx : invalidToPoints)
+                    errors.add(new PointNotFoundException("Cannot find to_point " + idx + ": " + toPoints.get(idx), idx));
+            throw new MultiException(errors);
+        }
+        String lookupTook = "idLookup:" + sw.getCurrentSeconds() + "s";
+
+        List<Snap> validSnaps = new ArrayList<>(fromSnaps.size() + toSnaps.size());
+        fromSnaps.stream().filter(Snap::isValid).forEach(validSnaps::add);
+        if (request.points == null)
+            toSnaps.stream().filter(Snap::isValid).forEach(validSnaps::add);
+        // the query graph changes the closest nodes of the snaps, so we need to create it before we determine the nodes
+        QueryGraph queryGraph = QueryGraph.create(graphHopper.getBaseGraph(), validSnaps);
+        ManyToManyCH manyToMany = new ManyToManyCH(new QueryRoutingCHGraph(chGraph, queryGraph)).
+                setCalcTimes(request.outArrays.contains("times")).
+                setCalcDistances(request.outArrays.contains("distances"));
+        ManyToManyCH.Result result = manyToMany.calcMatrix(getNodes(fromSnaps), getNodes(toSnaps));
+
+        List<int[]> disconnectedPairs = new ArrayList<>();
+        for (int i = 0; i < fromSnaps.size(); i++) {
+            for (int j = 0; j < toSnaps.size(); j++) {
+                if (fromSnaps.get(i).isValid() && toSnaps.get(j).isValid() && !result.isConnected(i, j))
+                    disconnectedPairs.add(new int[]{i, j});
+            }
+        }
+        if (request.failFast && !disconnectedPairs.isEmpty())
+            throw new MultiException(Collections.singletonList(new ConnectionNotFoundException(
+                    "Connection between locations not found", Collections.singletonMap("point_pairs", disconnectedPairs))));
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        if (request.outArrays.contains("weights")) {
+            ArrayNode weights = json.putArray("weights");
+            for (double[] row : result.weights) {
+                ArrayNode rowJson = weights.addArray();
+                for (double weight : row)
+                    if (Double.isFinite(weight)) rowJson.add(Helper.round6(weight));
+                    else rowJson.addNull();
+            }
+        }
+        if (request.outArrays.contains("times")) {
+            ArrayNode times = json.putArray("times");
+            for (long[] row : result.times) {
+                ArrayNode rowJson = times.addArray();
+                // times are in seconds like for the hosted matrix API
+                for (long time : row)
+                    if (time != Long.MAX_VALUE) rowJson.add(Math.round(time / 1000.0));
+                    else rowJson.addNull();
+            }
+        }
+        if (request.outArrays.contains("distances")) {
+            ArrayNode distances = json.putArray("distances");
+            for (double[] row : result.distances) {
+                ArrayNode rowJson = distances.addArray();
+                for (double distance : row)
+                    if (Double.isFinite(distance)) rowJson.add(Math.round(distance));
+                    else rowJson.addNull();
+            }
+        }
+        ArrayNode hints = json.putArray("hints");
+        if (!disconnectedPairs.isEmpty()) {
+            ObjectNode hint = hints.addObject();
+            hint.put("message", "Connection between locations not found");
+            hint.put("details", ConnectionNotFoundException.class.getName());
+            hint.putPOJO("point_pairs", disconnectedPairs);
+        }
+        if (!invalidFromPoints.isEmpty() || !invalidToPoints.isEmpty()) {
+            ObjectNode hint = hints.addObject();
+            hint.put("message", "Cannot find point");
+            hint.put("details", PointNotFoundException.class.getName());
+            hint.putPOJO("invalid_from_points", invalidFromPoints);
+            hint.putPOJO("invalid_to_points", invalidToPoints);
+        }
+
+        double took = sw.stop().getMillisDouble();
+        final ObjectNode info = json.putObject("info");
+        info.putPOJO("copyrights", ResponsePathSerializer.COPYRIGHTS);
+        info.put("took", Math.round(took));
+        logger.info(httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent")
+                + " " + fromPoints.size() + "x" + toPoints.size() + ", took: " + String.format("%.1f", took)
+                + " ms, profile: " + profileName + ", " + lookupTook + ", visited nodes: " + result.visitedNodes);
+        return Response.ok(json).
+                header("X-GH-Took", "" + Math.round(took)).
+                type(MediaType.APPLICATION_JSON).
+                build();
+    }
+
+    private List<Snap> lookup(List<GHPoint> points, List<String> pointHints, EdgeFilter snapFilter, EdgeFilter strictSnapFilter) {
+        LocationIndex locationIndex = graphHopper.getLocationIndex();
+        List<Snap> snaps = new ArrayList<>(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            GHPoint point = points.get(i);
+            Snap snap = null;
+            if (!pointHints.isEmpty() && !Helper.isEmpty(pointHints.get(i)))
+                snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictSnapFilter, pointHints.get(i), point, 170));
+            else if (strictSnapFilter != snapFilter)
+                snap = locationIndex.findClosest(point.lat, point.lon, strictSnapFilter);
+            if (snap == null || !snap.isValid())
+                snap = locationIndex.findClosest(point.lat, point.lon, snapFilter);
+            snaps.add(snap);
+        }
+        return snaps;
+    }
+
+    private static void checkHints(String name, List<String> hints, List<GHPoint> points) {
+        if (!hints.isEmpty() && hints.size() != points.size())
+            throw new IllegalArgumentException("If you pass " + name + ", you need to pass exactly one hint for every point, empty hints will be ignored");
+    }
+
+    private static List<Integer> getInvalidPoints(List<Snap> snaps) {
+        List<Integer> invalidPoints = new ArrayList<>();
+        for (int i = 0; i < snaps.size(); i++)
+            if (!snaps.get(i).isValid())
+                invalidPoints.add(i);
+        return invalidPoints;
+    }
+
+    private static int[] getNodes(List<Snap> snaps) {
+        int[] nodes = new int[snaps.size()];
+        for (int i = 0; i < snaps.size(); i++)
+            nodes[i] = snaps.get(i).isValid() ? snaps.get(i).getClosestNode() : -1;
+        return nodes;
+    }
+
+    private static List<GHPoint> readPoints(String name, JsonNode json) {
+        if (!json.isArray())
+            throw new IllegalArgumentException("'" + name + "' must be an array of [longitude,latitude] arrays");
+        List<GHPoint> points = new ArrayList<>(json.size());
+        for (JsonNode point : json) {
+            if (!point.isArray() || point.size() < 2)
+                throw new IllegalArgumentException("'" + name + "' must be an array of [longitude,latitude] arrays");
+            points.add(new GHPoint(point.get(1).asDouble(), point.get(0).asDouble()));
+        }
+        return points;
+    }
+
+    private static List<String> readStrings(String name, JsonNode json) {
+        if (!json.isArray())
+            throw new IllegalArgumentException("'" + name + "' must be an array of strings");
+        List<String> strings = new ArrayList<>(json.size());
+        for (JsonNode str : json)
+            strings.add(str.asText());
+        return strings;
+    }
+
+    private static class MatrixRequest {
+        List<GHPoint> points;
+        List<GHPoint> fromPoints;
+        List<GHPoint> toPoints;
+        List<String> pointHints = Collections.emptyList();
+        List<String> fromPointHints = Collections.emptyList();
+        List<String> toPointHints = Collections.emptyList();
+        List<String> snapPreventions = Collections.emptyList();
+        List<String> curbsides = Collections.emptyList();
+        List<String> outArrays = Collections.singletonList("weights");
+        boolean failFast = true;
+        String profile;
+        final PMap hints = new PMap();
+    }
+}
@@ -17,6 +17,8 @@
  */
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
@@ -24,8 +26,12 @@ import com.graphhopper.gpx.GpxConversions;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.GHRequestTransformer;
 import com.graphhopper.http.ProfileResolver;
+import com.graphhopper.http.RoutingMetrics;
+import com.graphhopper.http.TraceFileWriter;
+import com.graphhopper.http.SearchBudgetFactory;
 import com.graphhopper.jackson.MultiException;
 import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.protobuf.ResponsePathProtobuf;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.GHPoint;
 import io.dropwizard.jersey.params.AbstractParam;
@@ -56,24 +62,34 @@ import static java.util.stream.Collectors.toList;
 public class RouteResource {
 
     private static final Logger logger = LoggerFactory.getLogger(RouteResource.class);
+    private static final MediaType PROTOBUF = MediaType.valueOf(ResponsePathProtobuf.MEDIA_TYPE);
 
     private final GraphHopper graphHopper;
     private final ProfileResolver profileResolver;
     private final GHRequestTransformer ghRequestTransformer;
     private final Boolean hasElevation;
+    private final ObjectMapper objectMapper;
+    private final RoutingMetrics routingMetrics;
+    private final TraceFileWriter traceFileWriter;
 
     @Inject
-    public RouteResource(GraphHopper graphHopper, ProfileResolver profileResolver, GHRequestTransformer ghRequestTransformer, @Named("hasElevation") Boolean hasElevation) {
+    public RouteResource(GraphHopper graphHopper, ProfileResolver profileResolver, GHRequestTransformer ghRequestTransformer,
+                         @Named("hasElevation") Boolean hasElevation, ObjectMapper objectMapper, RoutingMetrics routingMetrics,
+                         TraceFileWriter traceFileWriter) {
         this.graphHopper = graphHopper;
         this.profileResolver = profileResolver;
         this.ghRequestTransformer = ghRequestTransformer;
         this.hasElevation = hasElevation;
+        this.objectMapper = objectMapper;
+        this.routingMetrics = routingMetrics;
+        this.traceFileWriter = traceFileWriter;
     }
 
     @GET
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", ResponsePathProtobuf.MEDIA_TYPE})
     public Response doGet(
             @Context HttpServletRequest httpReq,
+            @Context HttpHeaders httpHeaders,
             @Context UriInfo uriInfo,
             @QueryParam(WAY_POINT_MAX_DISTANCE) @DefaultValue("1") double minPathPrecision,
             @QueryParam(ELEVATION_WAY_POINT_MAX_DISTANCE) Double minPathElevationPrecision,
@@ -132,7 +148,7 @@ public class RouteResource {
         removeLegacyParameters(request.getHints());
         request.setProfile(profileName);
 
-        GHResponse ghResponse = graphHopper.route(request);
+        GHResponse ghResponse = graphHopper.route(request, SearchBudgetFactory.create(httpReq, graphHopper.getRouterConfig(), false));
 
         double took = sw.stop().getMillisDouble();
         String logStr = (httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent")) + " " + points + ", took: " + String.format("%.1f", took) + "ms, algo: " + algoStr + ", profile: " + profileName;
@@ -153,17 +169,16 @@ public class RouteResource {
                             header("X-GH-Took", "" + Math.round(took)).
                             build()
                     :
-                    Response.ok(ResponsePathSerializer.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+                    successResponseBuilder(httpHeaders, ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took).
                             header("X-GH-Took", "" + Math.round(took)).
-                            type(MediaType.APPLICATION_JSON).
                             build();
         }
     }
 
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response doPost(@NotNull GHRequest request, @Context HttpServletRequest httpReq) {
+    @Produces({MediaType.APPLICATION_JSON, ResponsePathProtobuf.MEDIA_TYPE})
+    public Response doPost(@NotNull GHRequest request, @Context HttpServletRequest httpReq, @Context HttpHeaders httpHeaders) {
         StopWatch sw = new StopWatch().start();
         request = ghRequestTransformer.transformRequest(request);
 
@@ -177,7 +192,7 @@ public class RouteResource {
         request.setProfile(profileResolver.resolveProfile(profileResolverHints));
         removeLegacyParameters(request.getHints());
 
-        GHResponse ghResponse = graphHopper.route(request);
+        GHResponse ghResponse = graphHopper.route(request, SearchBudgetFactory.create(httpReq, graphHopper.getRouterConfig(), false));
         boolean instructions = request.getHints().getBool(INSTRUCTIONS, true);
         boolean enableElevation = request.getHints().getBool("elevation", false);
         boolean calcPoints = request.getHints().getBool(CALC_POINTS, true);
@@ -200,13 +215,54 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().size()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
-            return Response.ok(ResponsePathSerializer.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+            return successResponseBuilder(httpHeaders, ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took).
                     header("X-GH-Took", "" + Math.round(took)).
-                    type(MediaType.APPLICATION_JSON).
                     build();
         }
     }
 
+    /**
+     * Returns the binary protocol buffers representation if the client prefers it over JSON, see docs/web/route.proto
+     */
+    private Response.ResponseBuilder successResponseBuilder(HttpHeaders httpHeaders, GHResponse ghResponse, boolean instructions,
+                                                            boolean calcPoints, boolean enableElevation, boolean pointsEncoded, double took) {
+        MediaType preferred = httpHeaders.getAcceptableMediaTypes().get(0);
+        if (PROTOBUF.isCompatible(preferred) && !preferred.isWildcardType() && !preferred.isWildcardSubtype())
+            return Response.ok(timed(ghResponse, output -> ResponsePathProtobuf.write(output, ghResponse, instructions, calcPoints, enableElevation, took)), PROTOBUF);
+        return Response.ok(timed(ghResponse, jsonOutput(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)), MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Records the serialization in the metrics and in the trace of the response. The trace file is written after the
+     * serialization, so unlike the trace in the response it contains the serialization span too. Both are recorded
+     * as well if the serialization fails, e.g. because the client closed the connection.
+     */
+    private StreamingOutput timed(GHResponse ghResponse, StreamingOutput streamingOutput) {
+        return output -> {
+            long start = System.nanoTime();
+            Trace.Span span = ghResponse.getTrace().start("serialization");
+            try {
+                streamingOutput.write(output);
+            } finally {
+                span.close();
+                routingMetrics.serialized(System.nanoTime() - start);
+                traceFileWriter.write(ghResponse.getTrace());
+            }
+        };
+    }
+
+    /**
+     * The response is written to the output stream while it is serialized, without building the JSON tree first.
+     */
+    private StreamingOutput jsonOutput(GHResponse ghResponse, boolean instructions, boolean calcPoints, boolean enableElevation,
+                                       boolean pointsEncoded, double took) {
+        return output -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(output)) {
+                ResponsePathSerializer.writeJson(gen, ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took);
+            }
+        };
+    }
+
     public static void removeLegacyParameters(PMap hints) {
         // these parameters should only be used to resolve the profile, but should not be passed to GraphHopper
         hints.remove("weighting");
@@ -4,6 +4,8 @@ import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.ProfileResolver;
+import com.graphhopper.http.SearchBudgetFactory;
+import com.graphhopper.isochrone.algorithm.IsoLabelStore;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.querygraph.QueryGraph;
@@ -16,11 +18,11 @@ import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
-import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
@@ -46,14 +48,6 @@ public class SPTResource {
 
     private static final Logger logger = LoggerFactory.getLogger(SPTResource.class);
 
-    public static class IsoLabelWithCoordinates {
-        public int nodeId = -1;
-        public int edgeId, prevEdgeId, prevNodeId = -1;
-        public int timeMillis, prevTimeMillis;
-        public int distance, prevDistance;
-        public GHPoint coordinate, prevCoordinate;
-    }
-
     private final GraphHopper graphHopper;
     private final ProfileResolver profileResolver;
     private final EncodingManager encodingManager;
@@ -71,6 +65,7 @@ public class SPTResource {
     @Produces({"text/csv", "application/json"})
     public Response doGet(
             @Context UriInfo uriInfo,
+            @Context HttpServletRequest httpReq,
             @QueryParam("profile") String profileName,
             @QueryParam("reverse_flow") @DefaultValue("false") boolean reverseFlow,
             @QueryParam("point") @NotNull GHPointParam point,
@@ -102,6 +97,7 @@ public class SPTResource {
         NodeAccess nodeAccess = queryGraph.getNodeAccess();
         TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
         ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
+        shortestPathTree.setSearchBudget(SearchBudgetFactory.create(httpReq, graphHopper.getRouterConfig(), true));
 
         if (distanceInMeter.orElseThrow(() -> new IllegalArgumentException("query param distance_limit is not a number.")) > 0) {
             shortestPathTree.setDistanceLimit(distanceInMeter.getAsLong());
@@ -136,8 +132,13 @@ public class SPTResource {
                 }
                 sb.append(LINE_SEP);
                 writer.write(sb.toString());
-                shortestPathTree.search(snap.getClosestNode(), l -> {
-                    IsoLabelWithCoordinates label = isoLabelWithCoordinates(nodeAccess, l);
+                // the rows are written as soon as the labels are settled, without creating objects per label
+                IsoLabelStore labels = shortestPathTree.getLabelStore();
+                shortestPathTree.searchSlots(snap.getClosestNode(), slot -> {
+                    int nodeId = labels.getNode(slot);
+                    int edgeId = labels.getEdge(slot);
+                    int prevSlot = labels.getParent(slot);
+                    int prevNodeId = prevSlot == IsoLabelStore.NO_PARENT ? -1 : labels.getNode(prevSlot);
                     sb.setLength(0);
                     for (int colIndex = 0; colIndex < columns.size(); colIndex++) {
                         String col = columns.get(colIndex);
@@ -146,47 +147,47 @@ public class SPTResource {
 
                         switch (col) {
                             case "node_id":
-                                sb.append(label.nodeId);
+                                sb.append(nodeId);
                                 continue;
                             case "prev_node_id":
-                                sb.append(label.prevNodeId);
+                                sb.append(prevNodeId);
                                 continue;
                             case "edge_id":
-                                sb.append(label.edgeId);
+                                sb.append(edgeId);
                                 continue;
                             case "prev_edge_id":
-                                sb.append(label.prevEdgeId);
+                                sb.append(prevSlot == IsoLabelStore.NO_PARENT ? 0 : labels.getEdge(prevSlot));
                                 continue;
                             case "distance":
-                                sb.append(label.distance);
+                                sb.append(Math.round(labels.getDistance(slot)));
                                 continue;
                             case "prev_distance":
-                                sb.append(label.prevCoordinate == null ? 0 : label.prevDistance);
+                                sb.append(prevSlot == IsoLabelStore.NO_PARENT ? 0 : Math.round(labels.getDistance(prevSlot)));
                                 continue;
                             case "time":
-                                sb.append(label.timeMillis);
+                                sb.append(labels.getTime(slot));
                                 continue;
                             case "prev_time":
-                                sb.append(label.prevCoordinate == null ? 0 : label.prevTimeMillis);
+                                sb.append(prevSlot == IsoLabelStore.NO_PARENT ? 0 : labels.getTime(prevSlot));
                                 continue;
                             case "longitude":
-                                sb.append(Helper.round6(label.coordinate.lon));
+                                sb.append(Helper.round6(nodeAccess.getLon(nodeId)));
                                 continue;
                             case "prev_longitude":
-                                sb.append(label.prevCoordinate == null ? null : Helper.round6(label.prevCoordinate.lon));
+                                sb.append(prevSlot == IsoLabelStore.NO_PARENT ? null : Helper.round6(nodeAccess.getLon(prevNodeId)));
                                 continue;
                             case "latitude":
-                                sb.append(Helper.round6(label.coordinate.lat));
+                                sb.append(Helper.round6(nodeAccess.getLat(nodeId)));
                                 continue;
                             case "prev_latitude":
-                                sb.append(label.prevCoordinate == null ? null : Helper.round6(label.prevCoordinate.lat));
+                                sb.append(prevSlot == IsoLabelStore.NO_PARENT ? null : Helper.round6(nodeAccess.getLat(prevNodeId)));
                                 continue;
                         }
 
-                        if (!EdgeIterator.Edge.isValid(label.edgeId))
+                        if (!EdgeIterator.Edge.isValid(edgeId))
                             continue;
 
-                        EdgeIteratorState edge = queryGraph.getEdgeIteratorState(label.edgeId, label.nodeId);
+                        EdgeIteratorState edge = queryGraph.getEdgeIteratorState(edgeId, nodeId);
                         if (edge == null)
                             continue;
 
@@ -228,27 +229,4 @@ public class SPTResource {
         // Give media type explicitly since we are annotating CSV and JSON, because error messages are JSON.
         return Response.ok(out).type("text/csv").build();
     }
-
-    private IsoLabelWithCoordinates isoLabelWithCoordinates(NodeAccess na, ShortestPathTree.IsoLabel label) {
-        double lat = na.getLat(label.node);
-        double lon = na.getLon(label.node);
-        IsoLabelWithCoordinates isoLabelWC = new IsoLabelWithCoordinates();
-        isoLabelWC.nodeId = label.node;
-        isoLabelWC.coordinate = new GHPoint(lat, lon);
-        isoLabelWC.timeMillis = Math.round(label.time);
-        isoLabelWC.distance = (int) Math.round(label.distance);
-        isoLabelWC.edgeId = label.edge;
-        if (label.parent != null) {
-            ShortestPathTree.IsoLabel prevLabel = label.parent;
-            int prevNodeId = prevLabel.node;
-            double prevLat = na.getLat(prevNodeId);
-            double prevLon = na.getLon(prevNodeId);
-            isoLabelWC.prevNodeId = prevNodeId;
-            isoLabelWC.prevEdgeId = prevLabel.edge;
-            isoLabelWC.prevCoordinate = new GHPoint(prevLat, prevLon);
-            isoLabelWC.prevDistance = (int) Math.round(prevLabel.distance);
-            isoLabelWC.prevTimeMillis = Math.round(prevLabel.time);
-        }
-        return isoLabelWC;
-    }
 }
@@ -0,0 +1,110 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.http.RequestScheduler.RequestClass;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestSchedulerTest {
+
+    @Test
+    public void testLanesAreIndependent() throws InterruptedException {
+        GraphHopperConfig config = new GraphHopperConfig().
+                putObject("scheduler.queue_timeout_ms", 0).
+                putObject("scheduler.flex.max_concurrent", 2).
+                putObject("scheduler.ch.max_concurrent", 1);
+        RequestScheduler scheduler = new RequestScheduler(config);
+        MetricRegistry metrics = new MetricRegistry();
+        scheduler.registerMetrics(metrics);
+
+        // the cost is limited to the maximum number of concurrent requests
+        RequestScheduler.Permit flex = scheduler.acquire(RequestClass.FLEX, 5);
+        assertNotNull(flex);
+        assertNull(scheduler.acquire(RequestClass.FLEX, 1));
+        assertEquals(1, metrics.meter("graphhopper.scheduler.flex.rejected").getCount());
+        assertEquals(1, scheduler.getActive(RequestClass.FLEX));
+
+        // the expensive flex request does not block the CH requests
+        RequestScheduler.Permit ch = scheduler.acquire(RequestClass.CH, 1);
+        assertNotNull(ch);
+        assertNull(scheduler.acquire(RequestClass.CH, 1));
+        ch.release();
+        assertNotNull(scheduler.acquire(RequestClass.CH, 1));
+
+        flex.release();
+        assertEquals(0, scheduler.getActive(RequestClass.FLEX));
+        RequestScheduler.Permit flex1 = scheduler.acquire(RequestClass.FLEX, 1);
+        RequestScheduler.Permit flex2 = scheduler.acquire(RequestClass.FLEX, 1);
+        assertNotNull(flex1);
+        assertNotNull(flex2);
+        assertEquals(2, metrics.getGauges().get("graphhopper.scheduler.flex.active").getValue());
+    }
+
+    @Test
+    public void testQueue() throws InterruptedException {
+        GraphHopperConfig config = new GraphHopperConfig().
+                putObject("scheduler.queue_timeout_ms", 10_000).
+                putObject("scheduler.lm.max_concurrent", 1).
+                putObject("scheduler.lm.max_queue", 1);
+        RequestScheduler scheduler = new RequestScheduler(config);
+        RequestScheduler.Permit first = scheduler.acquire(RequestClass.LM, 1);
+        assertNotNull(first);
+
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<RequestScheduler.Permit> queuedPermit = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                queuedPermit.set(scheduler.acquire(RequestClass.LM, 1));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            done.countDown();
+        });
+        thread.start();
+        while (scheduler.getQueued(RequestClass.LM) == 0)
+            Thread.sleep(1);
+        // the queue is full, so we are rejected without waiting
+        assertNull(scheduler.acquire(RequestClass.LM, 1));
+
+        first.release();
+        done.await();
+        assertNotNull(queuedPermit.get());
+        assertEquals(0, scheduler.getQueued(RequestClass.LM));
+        assertEquals(1, scheduler.getActive(RequestClass.LM));
+    }
+
+    @Test
+    public void testQueueTimeout() throws InterruptedException {
+        GraphHopperConfig config = new GraphHopperConfig().
+                putObject("scheduler.queue_timeout_ms", 50).
+                putObject("scheduler.isochrone.max_concurrent", 1);
+        RequestScheduler scheduler = new RequestScheduler(config);
+        assertNotNull(scheduler.acquire(RequestClass.ISOCHRONE, 1));
+        long start = System.nanoTime();
+        assertNull(scheduler.acquire(RequestClass.ISOCHRONE, 1));
+        assertTrue(System.nanoTime() - start >= 50_000_000L);
+        assertEquals(0, scheduler.getQueued(RequestClass.ISOCHRONE));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.util.Trace;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TraceFileWriterTest {
+
+    @Test
+    public void testAppendAndRotate(@TempDir Path dir) throws IOException {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        File file = dir.resolve("trace.json").toFile();
+        File rotated = new File(file.getPath() + ".1");
+        // every trace has about 200 bytes, so the file is rotated for every trace
+        TraceFileWriter writer = new TraceFileWriter(file, 300, 2, objectMapper.getFactory());
+        writer.write(createTrace(1));
+        writer.write(createTrace(2));
+        writer.write(Trace.DISABLED);
+        writer.stop();
+
+        // the viewers accept the missing bracket at the end
+        String content = read(file);
+        assertTrue(content.startsWith("[\n"));
+        JsonNode events = objectMapper.readTree(content + "]");
+        assertEquals(2, events.size());
+        assertEquals("lookup", events.get(1).get("name").asText());
+        assertEquals(2, events.get(1).get("args").get("points").asInt());
+        assertEquals(1, objectMapper.readTree(read(rotated) + "]").get(1).get("args").get("points").asInt());
+
+        writer = new TraceFileWriter(file, 300, 2, objectMapper.getFactory());
+        writer.write(createTrace(3));
+        writer.stop();
+        assertEquals(2, objectMapper.readTree(read(rotated) + "]").get(1).get("args").get("points").asInt());
+        assertFalse(new File(file.getPath() + ".2").exists());
+
+        // a new writer continues the existing file
+        writer = new TraceFileWriter(file, 1000, 2, objectMapper.getFactory());
+        writer.write(createTrace(4));
+        writer.stop();
+        events = objectMapper.readTree(read(file) + "]");
+        assertEquals(4, events.size());
+        assertEquals(3, events.get(1).get("args").get("points").asInt());
+        assertEquals(4, events.get(3).get("args").get("points").asInt());
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static Trace createTrace(int points) {
+        Trace trace = new Trace();
+        try (Trace.Span ignored = trace.start("route")) {
+            trace.start("lookup").put("points", points).close();
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.api.GHMRequest;
+import com.graphhopper.api.GraphHopperMatrixWeb;
+import com.graphhopper.api.GraphHopperWeb;
+import com.graphhopper.api.MatrixResponse;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.application.util.TestUtils;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.exceptions.PointNotFoundException;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MatrixResourceTest {
+    private static final String DIR = "./target/matrix-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.vehicles", "car|turn_costs=true").
+                putObject("prepare.min_network_size", 0).
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.location", DIR).
+                setProfiles(Arrays.asList(
+                        new Profile("car").setVehicle("car").setWeighting("fastest"),
+                        new Profile("car_tc").setVehicle("car").setWeighting("fastest").setTurnCosts(true),
+                        new Profile("car_no_ch").setVehicle("car").setWeighting("fastest"))).
+                setCHProfiles(Arrays.asList(new CHProfile("car"), new CHProfile("car_tc")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"car", "car_tc"})
+    public void matrixEqualsRoutes(String profile) {
+        List<GHPoint> points = Arrays.asList(new GHPoint(42.510008, 1.548803), new GHPoint(42.532987, 1.533766),
+                new GHPoint(42.556138, 1.602314), new GHPoint(42.493282, 1.485786));
+        GHMRequest matrixRequest = new GHMRequest();
+        matrixRequest.setProfile(profile);
+        matrixRequest.setPoints(points);
+        matrixRequest.setOutArrays(Arrays.asList("weights", "times", "distances"));
+        MatrixResponse matrixResponse = new GraphHopperMatrixWeb(TestUtils.clientUrl(app, "/matrix")).route(matrixRequest);
+        assertFalse(matrixResponse.hasErrors(), matrixResponse.getErrors().toString());
+
+        GraphHopperWeb routeClient = new GraphHopperWeb(TestUtils.clientUrl(app, "/route"));
+        for (int i = 0; i < points.size(); i++) {
+            for (int j = 0; j < points.size(); j++) {
+                GHResponse rsp = routeClient.route(new GHRequest(points.get(i), points.get(j)).setProfile(profile));
+                assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+                assertEquals(rsp.getBest().getRouteWeight(), matrixResponse.getWeight(i, j), 1.e-2);
+                assertEquals(rsp.getBest().getDistance(), matrixResponse.getDistance(i, j), 1);
+                // the matrix returns seconds
+                assertEquals(rsp.getBest().getTime(), matrixResponse.getTime(i, j), 1000);
+            }
+        }
+    }
+
+    @Test
+    public void fromAndToPoints() {
+        JsonNode json = clientTarget(app, "/matrix?profile=car&from_point=42.510008,1.548803&to_point=42.532987,1.533766" +
+                "&to_point=42.556138,1.602314&out_array=distances&out_array=times").request().get(JsonNode.class);
+        assertFalse(json.has("weights"));
+        assertEquals(1, json.get("distances").size());
+        assertEquals(2, json.get("distances").get(0).size());
+        assertEquals(2, json.get("times").get(0).size());
+        assertTrue(json.get("distances").get(0).get(1).asDouble() > 8_000);
+        assertTrue(json.get("info").has("took"));
+    }
+
+    @Test
+    public void pointNotFound() {
+        GHMRequest matrixRequest = new GHMRequest();
+        matrixRequest.setProfile("car");
+        matrixRequest.setPoints(Arrays.asList(new GHPoint(42.510008, 1.548803), new GHPoint(0, 0)));
+        matrixRequest.setOutArrays(Arrays.asList("weights"));
+        MatrixResponse rsp = new GraphHopperMatrixWeb(TestUtils.clientUrl(app, "/matrix")).route(matrixRequest);
+        assertTrue(rsp.hasErrors());
+        assertTrue(rsp.getErrors().get(0) instanceof PointNotFoundException, rsp.getErrors().toString());
+        assertEquals(1, ((PointNotFoundException) rsp.getErrors().get(0)).getPointIndex());
+    }
+
+    @Test
+    public void noFailFast() {
+        JsonNode json = clientTarget(app, "/matrix?profile=car&point=42.510008,1.548803&point=42.532987,1.533766" +
+                "&point=0,0&fail_fast=false").request().get(JsonNode.class);
+        JsonNode weights = json.get("weights");
+        assertEquals(3, weights.size());
+        assertTrue(weights.get(0).get(1).isNumber());
+        assertTrue(weights.get(0).get(2).isNull());
+        assertTrue(weights.get(2).get(2).isNull());
+        JsonNode hint = json.get("hints").get(0);
+        assertEquals("[2]", hint.get("invalid_from_points").toString());
+        assertEquals("[2]", hint.get("invalid_to_points").toString());
+    }
+
+    @Test
+    public void errors() {
+        Response response = clientTarget(app, "/matrix?profile=car_no_ch&point=42.510008,1.548803&point=42.532987,1.533766").request().get();
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("Cannot find CH preparation"));
+
+        response = clientTarget(app, "/matrix?profile=car&point=42.510008,1.548803&point=0,0").request().get();
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("Cannot find point 1"));
+
+        response = clientTarget(app, "/matrix?profile=car&point=42.510008,1.548803&out_array=speeds").request().get();
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("Unknown out_array"));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.LMProfile;
+import com.graphhopper.routing.weighting.custom.CustomProfile;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Collections;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class RequestSchedulerFilterTest {
+    private static final String DIR = "./target/andorra-scheduler-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("import.osm.ignored_highways", "").
+                putObject("scheduler.enabled", true).
+                putObject("scheduler.isochrone.max_concurrent", 1).
+                setProfiles(Collections.singletonList(new CustomProfile("car").setVehicle("car"))).
+                setCHProfiles(Collections.singletonList(new CHProfile("car"))).
+                setLMProfiles(Collections.singletonList(new LMProfile("car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testRequestsPassTheScheduler() {
+        // the filter reads the body of POST requests, but the resource still gets it
+        String body = "{\"points\": [[1.518946,42.531453],[1.54006,42.511178]], \"profile\": \"car\", \"ch.disable\": true}";
+        Response response = clientTarget(app, "/route").request().post(Entity.json(body));
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertEquals(3, json.get("paths").get(0).get("distance").asDouble() / 1000, 1);
+
+        response = clientTarget(app, "/route?profile=car&point=42.531453,1.518946&point=42.511178,1.54006").request().get();
+        assertEquals(200, response.getStatus());
+        response = clientTarget(app, "/isochrone?profile=car&point=42.531453,1.518946&time_limit=300&buckets=3").request().get();
+        assertEquals(200, response.getStatus());
+        response = clientTarget(app, "/info").request().get();
+        assertEquals(200, response.getStatus());
+
+        for (String lane : new String[]{"ch", "lm", "flex", "isochrone", "map_matching"}) {
+            assertEquals(0, app.getEnvironment().metrics().getGauges().get("graphhopper.scheduler." + lane + ".active").getValue());
+            assertEquals(0, app.getEnvironment().metrics().getGauges().get("graphhopper.scheduler." + lane + ".queued").getValue());
+            assertEquals(0, app.getEnvironment().metrics().meter("graphhopper.scheduler." + lane + ".rejected").getCount());
+        }
+    }
+}
@@ -82,21 +82,26 @@ public class RouteResourceClientHCTest {
     // dropwizard extension does not work with @RunWith(Parameterized.class), but we can use an @EnumSource or similar
     // and on each test method. see https://github.com/graphhopper/graphhopper/pull/2003
     private enum TestParam {
-        GET(false, -1),
-        POST_MAX_UNZIPPED_0(true, 0),
-        POST_MAX_UNZIPPED_1000(true, 1000);
+        GET(false, -1, false),
+        POST_MAX_UNZIPPED_0(true, 0, false),
+        POST_MAX_UNZIPPED_1000(true, 1000, false),
+        GET_PROTOBUF(false, -1, true),
+        POST_PROTOBUF(true, 1000, true);
 
         public boolean usePost;
         public int maxUnzippedLength;
+        public boolean protobuf;
 
-        TestParam(boolean usePost, int maxUnzippedLength) {
+        TestParam(boolean usePost, int maxUnzippedLength, boolean protobuf) {
             this.usePost = usePost;
             this.maxUnzippedLength = maxUnzippedLength;
+            this.protobuf = protobuf;
         }
     }
 
     private GraphHopperWeb createGH(TestParam p) {
-        return new GraphHopperWeb(TestUtils.clientUrl(app, "/route")).setPostRequest(p.usePost).setMaxUnzippedLength(p.maxUnzippedLength);
+        return new GraphHopperWeb(TestUtils.clientUrl(app, "/route")).setPostRequest(p.usePost).setMaxUnzippedLength(p.maxUnzippedLength)
+                .setProtobuf(p.protobuf);
     }
 
     @BeforeAll
@@ -414,10 +419,11 @@ public class RouteResourceClientHCTest {
         for (String detail : legDetails) {
             List<PathDetail> pathDetails = path.getPathDetails().get(detail);
 
-            // explicitly check one of the waypoints
-            assertEquals(42.50539, path.getWaypoints().get(2).lat);
-            assertEquals(42.50539, path.getPoints().get(pathDetails.get(1).getLast()).getLat());
-            assertEquals(42.50539, path.getPoints().get(pathDetails.get(2).getFirst()).getLat());
+            // explicitly check one of the waypoints, the protobuf response uses a higher precision than the polyline
+            double lat = p.protobuf ? 42.505398 : 42.50539;
+            assertEquals(lat, path.getWaypoints().get(2).lat);
+            assertEquals(lat, path.getPoints().get(pathDetails.get(1).getLast()).getLat());
+            assertEquals(lat, path.getPoints().get(pathDetails.get(2).getFirst()).getLat());
             // check all the waypoints
             assertEquals(path.getWaypoints().get(0), path.getPoints().get(pathDetails.get(0).getFirst()));
             for (int i = 1; i < path.getWaypoints().size(); ++i)
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.application.resources;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
@@ -26,6 +27,7 @@ import com.graphhopper.application.GraphHopperApplication;
 import com.graphhopper.application.GraphHopperServerConfiguration;
 import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
 import com.graphhopper.config.CHProfile;
+import com.graphhopper.http.SearchBudgetFactory;
 import com.graphhopper.config.Profile;
 import com.graphhopper.routing.ev.RoadClass;
 import com.graphhopper.routing.ev.RoadClassLink;
@@ -116,6 +118,52 @@ public class RouteResourceTest {
         assertTrue(distance < 9500, "distance wasn't correct:" + distance);
     }
 
+    @Test
+    public void testMetrics() {
+        MetricRegistry metrics = app.getEnvironment().metrics();
+        long count = metrics.timer("graphhopper.route.search.my_car.dijkstrabi_ch").getCount();
+        final Response response = clientTarget(app, "/route?profile=my_car&" +
+                "point=42.554851,1.536198&point=42.510071,1.548128").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        response.readEntity(JsonNode.class);
+        assertEquals(count + 1, metrics.timer("graphhopper.route.search.my_car.dijkstrabi_ch").getCount());
+        assertEquals(count + 1, metrics.histogram("graphhopper.route.visited_nodes.my_car.dijkstrabi_ch").getCount());
+        for (String phase : Arrays.asList("lookup", "query_graph", "path_merge", "serialization"))
+            assertTrue(metrics.timer("graphhopper.route." + phase).getCount() > 0, phase);
+        assertTrue((Long) metrics.getGauges().get("graphhopper.custom_model.cache.misses").getValue() >= 0);
+        assertEquals(0L, metrics.getGauges().get("graphhopper.data_access.mapped_bytes").getValue());
+    }
+
+    @Test
+    public void testTrace() {
+        JsonNode json = clientTarget(app, "/route?profile=my_car&point=42.554851,1.536198&point=42.510071,1.548128").
+                request().get(JsonNode.class);
+        assertFalse(json.get("info").has("trace"));
+
+        json = clientTarget(app, "/route?profile=my_car&point=42.554851,1.536198&point=42.510071,1.548128&debug=true").
+                request().get(JsonNode.class);
+        JsonNode trace = json.get("info").get("trace");
+        assertEquals("route", trace.get(0).get("name").asText());
+        assertEquals("X", trace.get(0).get("ph").asText());
+        List<String> names = new ArrayList<>();
+        trace.forEach(event -> names.add(event.get("name").asText()));
+        assertEquals(Arrays.asList("route", "lookup", "query_graph", "search", "leg", "extraction", "path_merge"), names);
+        assertTrue(trace.get(4).get("args").get("visited_nodes").asLong() > 0);
+    }
+
+    @Test
+    public void testTimeoutHeader() {
+        Response response = clientTarget(app, "/route?profile=my_car&" +
+                "point=42.554851,1.536198&point=42.510071,1.548128").request().header(SearchBudgetFactory.TIMEOUT_HEADER, "60000").buildGet().invoke();
+        assertEquals(200, response.getStatus());
+
+        response = clientTarget(app, "/route?profile=my_car&" +
+                "point=42.554851,1.536198&point=42.510071,1.548128").request().header(SearchBudgetFactory.TIMEOUT_HEADER, "soon").buildGet().invoke();
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains(SearchBudgetFactory.TIMEOUT_HEADER), json.toString());
+    }
+
     @Test
     public void testBasicQuerySamePoint() {
         final Response response = clientTarget(app, "/route?profile=my_car&" +
@@ -0,0 +1,106 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.LMProfile;
+import com.graphhopper.routing.weighting.custom.CustomProfile;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class TrafficUpdateTaskTest {
+    private static final String DIR = "./target/andorra-traffic-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.encoded_values", "osm_way_id").
+                setProfiles(Arrays.asList(new CustomProfile("car").setVehicle("car"), new CustomProfile("car_ch").setVehicle("car"))).
+                setLMProfiles(Collections.singletonList(new LMProfile("car"))).
+                setCHProfiles(Collections.singletonList(new CHProfile("car_ch")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testSlowdown() {
+        String query = "{\"points\": [[1.518946,42.531453],[1.54006,42.511178]], \"profile\": \"car\", \"ch.disable\": true, \"details\": [\"edge_id\"]}";
+        JsonNode path = route(query);
+        long time = path.get("time").asLong();
+        StringBuilder updates = new StringBuilder();
+        for (JsonNode detail : path.get("details").get("edge_id"))
+            updates.append(updates.length() == 0 ? "" : ",").append("{\"edge\": ").append(detail.get(2).asInt()).append(", \"speed_factor\": 0.5}");
+
+        JsonNode result = postTask("", "{\"updates\": [" + updates + "]}", 200).readEntity(JsonNode.class);
+        assertTrue(result.get("updated_edges").asInt() > 0, result.toString());
+        assertEquals(result.get("updated_edges").asInt(), result.get("edges_with_updates").asInt());
+        // the CH profile is not customizable and ignores the updates
+        assertEquals("[\"car_ch\"]", result.get("ch_profiles_ignoring_updates").toString());
+        assertTrue(route(query).get("time").asLong() > time * 1.2);
+
+        // invalid updates are rejected and do not change the overlay
+        postTask("", "{\"updates\": [{\"edge\": 0, \"speed_factor\": 2}]}", 500);
+        postTask("", "{\"updates\": [{\"speed_factor\": 0.5}]}", 500);
+        assertTrue(route(query).get("time").asLong() > time * 1.2);
+
+        result = postTask("?clear=true", "{\"updates\": [{\"osm_way_id\": 1, \"speed_factor\": 0}]}", 200).readEntity(JsonNode.class);
+        assertEquals(0, result.get("edges_with_updates").asInt());
+        assertEquals(time, route(query).get("time").asLong());
+    }
+
+    private JsonNode route(String query) {
+        JsonNode json = clientTarget(app, "/route").request().post(Entity.json(query)).readEntity(JsonNode.class);
+        assertFalse(json.get("info").has("errors"), json.toString());
+        return json.get("paths").get(0);
+    }
+
+    private Response postTask(String params, String body, int expectedStatus) {
+        Response response = app.client().target("http://localhost:" + app.getAdminPort() + "/tasks/traffic" + params)
+                .request().post(Entity.json(body));
+        assertEquals(expectedStatus, response.getStatus(), response.toString());
+        return response;
+    }
+}